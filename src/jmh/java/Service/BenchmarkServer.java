@@ -0,0 +1,93 @@
+package Service;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.SocketAddress;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 在独立的 JVM 进程中启动服务器（入口是 Main），供网络相关的基准测试使用。
+ * 服务器和压测客户端不在同一个进程里，互相不影响 GC 和 JIT。
+ */
+final class BenchmarkServer implements Closeable {
+    private static final long STARTUP_TIMEOUT_MILLIS = 30_000;
+
+    private final Process process;
+    private final int port;
+
+    private BenchmarkServer(Process process, int port) {
+        this.process = process;
+        this.port = port;
+    }
+
+    /**
+     * 用当前进程的 classpath 启动服务器，并等待 ready 地址可以连接。
+     * @param args 除 --port 之外的启动参数
+     * @param ready 启动完成后可以连接的地址，为 null 时等待 TCP 端口
+     */
+    static BenchmarkServer start(List<String> args, SocketAddress ready) throws IOException, InterruptedException {
+        int port = freePort();
+        List<String> command = new ArrayList<>(Arrays.asList(
+                System.getProperty("java.home") + File.separator + "bin" + File.separator + "java",
+                "-cp", System.getProperty("java.class.path"),
+                "Main", "--port", String.valueOf(port)));
+        command.addAll(args);
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        // 压测进程异常退出时也不要留下服务器进程
+        Runtime.getRuntime().addShutdownHook(new Thread(process::destroyForcibly));
+        BenchmarkServer server = new BenchmarkServer(process, port);
+        server.awaitReady(ready != null ? ready : server.address());
+        return server;
+    }
+
+    InetSocketAddress address() {
+        return new InetSocketAddress("127.0.0.1", port);
+    }
+
+    private void awaitReady(SocketAddress address) throws IOException, InterruptedException {
+        long deadline = System.currentTimeMillis() + STARTUP_TIMEOUT_MILLIS;
+        while (true) {
+            if (!process.isAlive()) {
+                throw new IOException("Server exited with code " + process.exitValue());
+            }
+            try (SocketChannel ignored = SocketChannel.open(address)) {
+                return;
+            } catch (IOException e) {
+                if (System.currentTimeMillis() > deadline) {
+                    close();
+                    throw new IOException("Server did not start listening on " + address, e);
+                }
+                Thread.sleep(50);
+            }
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    @Override
+    public void close() {
+        process.destroy();
+        try {
+            if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package Service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 大量连接下各连接模式的请求吞吐量：每个连接一个平台线程（thread）、每个连接一个虚拟线程（virtual）、NIO 事件循环（nio）。
+ * 先建立 idle 个只连接不发请求的空闲连接，再在 busy 个连接上同时各发一个 PING、收齐全部响应算一轮，
+ * 分数按单个请求计。建立 1 万个连接需要调大客户端和服务器的文件描述符上限（ulimit -n）。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ConnectionModeBenchmark {
+    private static final int BUSY = 1000;
+    private static final ByteBuffer PING = RespClient.command("PING");
+    private static final int PONG_LENGTH = "+PONG\r\n".length();
+
+    @Param({"thread", "virtual", "nio"})
+    String ioMode;
+
+    @Param({"0", "10000"})
+    int idle;
+
+    private BenchmarkServer server;
+    private final List<RespClient> idleClients = new ArrayList<>();
+    private final List<RespClient> busyClients = new ArrayList<>();
+
+    @Setup
+    public void setUp() throws IOException, InterruptedException {
+        server = BenchmarkServer.start(List.of(
+                "--io-mode", ioMode,
+                "--maxclients", String.valueOf(idle + BUSY + 100),
+                "--timeout", "0"), null);
+        for (int i = 0; i < idle; i++) {
+            idleClients.add(new RespClient(server.address()));
+        }
+        for (int i = 0; i < BUSY; i++) {
+            busyClients.add(new RespClient(server.address()));
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        for (RespClient client : busyClients) {
+            client.close();
+        }
+        for (RespClient client : idleClients) {
+            client.close();
+        }
+        server.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BUSY)
+    public void pingAllBusy() throws IOException {
+        for (RespClient client : busyClients) {
+            client.send(PING);
+        }
+        for (RespClient client : busyClients) {
+            client.receive(PONG_LENGTH);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * 改造前的 RespEncoder：每个类型前缀、长度和 \r\n 都先拼成 String 再 getBytes。
+ * 只保留基准测试用到的类型，作为 {@link RespEncoderBenchmark} 的对照组。
+ */
+final class LegacyRespEncoder {
+
+    static void encode(OutputStream os, Object result) throws IOException {
+        if (result == null) {
+            os.write("$-1\r\n".getBytes(StandardCharsets.UTF_8));
+        } else if (result instanceof String) {
+            os.write(("+" + result + "\r\n").getBytes(StandardCharsets.UTF_8));
+        } else if (result instanceof byte[]) {
+            byte[] arr = (byte[]) result;
+            os.write(('$' + String.valueOf(arr.length) + "\r\n").getBytes(StandardCharsets.UTF_8));
+            os.write(arr);
+            os.write("\r\n".getBytes(StandardCharsets.UTF_8));
+        } else if (result instanceof Long || result instanceof Integer) {
+            os.write((":" + result + "\r\n").getBytes(StandardCharsets.UTF_8));
+        } else if (result instanceof List) {
+            List<?> list = (List<?>) result;
+            os.write(("*" + list.size() + "\r\n").getBytes(StandardCharsets.UTF_8));
+            for (Object item : list) {
+                encode(os, item);
+            }
+        } else {
+            String errorMsg = "Unsupported response type: " + result.getClass().getName();
+            os.write(("-ERR " + errorMsg + "\r\n").getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package Service;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 基准测试用的最小 RESP 客户端，TCP 和 unix socket 共用。
+ * 不解析响应，调用方给出预期响应的字节数，只读满这么多字节，尽量不让客户端自身的开销影响结果。
+ */
+final class RespClient implements Closeable {
+    private final SocketChannel channel;
+    private final ByteBuffer in = ByteBuffer.allocateDirect(64 * 1024);
+
+    RespClient(SocketAddress address) throws IOException {
+        channel = SocketChannel.open(address);
+        if (address instanceof InetSocketAddress) {
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        }
+    }
+
+    /**
+     * 把命令编码成 RESP 数组，返回的缓冲区可以反复传给 send。
+     */
+    static ByteBuffer command(String... parts) {
+        StringBuilder sb = new StringBuilder();
+        sb.append('*').append(parts.length).append("\r\n");
+        for (String part : parts) {
+            sb.append('$').append(part.getBytes(StandardCharsets.UTF_8).length).append("\r\n").append(part).append("\r\n");
+        }
+        byte[] bytes = sb.toString().getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+    }
+
+    void send(ByteBuffer request) throws IOException {
+        ByteBuffer data = request.duplicate();
+        while (data.hasRemaining()) {
+            channel.write(data);
+        }
+    }
+
+    /**
+     * 读满 length 个字节的响应并丢弃。
+     */
+    void receive(int length) throws IOException {
+        int remaining = length;
+        while (remaining > 0) {
+            in.clear().limit(Math.min(in.capacity(), remaining));
+            int n = channel.read(in);
+            if (n < 0) {
+                throw new EOFException("Server closed the connection");
+            }
+            remaining -= n;
+        }
+    }
+
+    void call(ByteBuffer request, int replyLength) throws IOException {
+        send(request);
+        receive(replyLength);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,73 @@
+package Service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 常见响应的编码耗时：直接写入 ReplyBuffer 的 RespEncoder 对比改造前逐段拼 String 的编码器。
+ * 输出缓冲区在每次调用前清空并复用，只比较编码本身。配合 -prof gc 可以看到每次编码的分配量。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RespEncoderBenchmark {
+
+    @Param({"ok", "integer", "nullBulk", "bulk", "array100"})
+    String reply;
+
+    private Object value;
+    private final ReplyBuffer buffer = new ReplyBuffer();
+    private final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+
+    @Setup
+    public void setUp() {
+        switch (reply) {
+            case "ok" -> value = "OK";
+            case "integer" -> value = 1234567L;
+            case "nullBulk" -> value = null;
+            case "bulk" -> value = "some-value-of-moderate-length".getBytes(StandardCharsets.UTF_8);
+            case "array100" -> {
+                // LRANGE / XRANGE 这类返回很多 Bulk String 的响应
+                List<byte[]> items = new ArrayList<>(100);
+                for (int i = 0; i < 100; i++) {
+                    items.add(("element:" + i).getBytes(StandardCharsets.UTF_8));
+                }
+                value = items;
+            }
+            default -> throw new IllegalArgumentException(reply);
+        }
+    }
+
+    @Benchmark
+    public int replyBuffer() {
+        buffer.reset();
+        RespEncoder.encode(buffer, value);
+        return buffer.size();
+    }
+
+    @Benchmark
+    public int legacy() throws IOException {
+        stream.reset();
+        LegacyRespEncoder.encode(stream, value);
+        return stream.size();
+    }
+}
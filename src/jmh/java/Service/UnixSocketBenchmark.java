@@ -0,0 +1,81 @@
+package Service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单个连接上一问一答的往返延迟，对比 TCP 回环和 unix socket。
+ * 服务器同时监听两者，每种 io 模式启动一次，用 SampleTime 输出延迟分布。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UnixSocketBenchmark {
+    private static final ByteBuffer PING = RespClient.command("PING");
+    private static final int PONG_LENGTH = "+PONG\r\n".length();
+    private static final String VALUE = "value-of-sixteen";
+    private static final ByteBuffer GET = RespClient.command("GET", "bench:key");
+    private static final int GET_REPLY_LENGTH = ("$" + VALUE.length() + "\r\n" + VALUE + "\r\n").length();
+
+    @Param({"tcp", "unix"})
+    String transport;
+
+    @Param({"thread", "nio"})
+    String ioMode;
+
+    private Path socketDir;
+    private BenchmarkServer server;
+    private RespClient client;
+
+    @Setup
+    public void setUp() throws IOException, InterruptedException {
+        socketDir = Files.createTempDirectory("redis-bench");
+        Path socketPath = socketDir.resolve("redis.sock");
+        SocketAddress unix = UnixDomainSocketAddress.of(socketPath);
+        server = BenchmarkServer.start(List.of(
+                "--io-mode", ioMode,
+                "--unixsocket", socketPath.toString()), unix);
+        client = new RespClient("unix".equals(transport) ? unix : server.address());
+        client.call(RespClient.command("SET", "bench:key", VALUE), "+OK\r\n".length());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        client.close();
+        server.close();
+        Files.deleteIfExists(socketDir.resolve("redis.sock"));
+        Files.deleteIfExists(socketDir);
+    }
+
+    @Benchmark
+    public void ping() throws IOException {
+        client.call(PING, PONG_LENGTH);
+    }
+
+    @Benchmark
+    public void get() throws IOException {
+        client.call(GET, GET_REPLY_LENGTH);
+    }
+}
@@ -0,0 +1,149 @@
+package Storage;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 键空间哈希表的吞吐量、写入延迟分布和堆占用，对比 Dict 与改造前的 ConcurrentHashMap&lt;ByteKey, Object&gt;。
+ * 两种实现使用同一组 key 对象和同一个 value，堆占用只统计表本身的结构开销。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class DictBenchmark {
+    private static final Object VALUE = new Object();
+
+    @Param({"1000000", "10000000"})
+    int size;
+
+    @Param({"dict", "chm"})
+    String impl;
+
+    private ByteKey[] keys;
+    private Dict<Object> dict;
+    private ConcurrentHashMap<ByteKey, Object> chm;
+    private final SplittableRandom random = new SplittableRandom(42);
+
+    @Setup
+    public void setUp() {
+        keys = new ByteKey[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = ByteKey.of("key:" + i);
+        }
+        if ("dict".equals(impl)) {
+            dict = new Dict<>();
+            for (ByteKey key : keys) {
+                dict.put(key, VALUE);
+            }
+        } else {
+            chm = new ConcurrentHashMap<>();
+            for (ByteKey key : keys) {
+                chm.put(key, VALUE);
+            }
+        }
+    }
+
+    @Benchmark
+    public Object get() {
+        ByteKey key = keys[random.nextInt(size)];
+        return dict != null ? dict.get(key) : chm.get(key);
+    }
+
+    /**
+     * 覆盖已有 key，表的大小不变。
+     */
+    @Benchmark
+    public Object overwrite() {
+        ByteKey key = keys[random.nextInt(size)];
+        return dict != null ? dict.put(key, VALUE) : chm.put(key, VALUE);
+    }
+
+    /**
+     * 从空表开始逐个插入，表在测量过程中不断扩容。
+     * 用 SampleTime 看单次写入的延迟分布：一次性 rehash 的停顿会出现在高百分位上。
+     */
+    @State(Scope.Thread)
+    public static class Growing {
+        Dict<Object> dict;
+        ConcurrentHashMap<ByteKey, Object> chm;
+        int next;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            dict = new Dict<>();
+            chm = new ConcurrentHashMap<>();
+            next = 0;
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Object insertGrowing(Growing state) {
+        if (state.next == size) {
+            // key 用完了就从空表重新开始，保证每次写入都是新 key
+            state.reset();
+        }
+        ByteKey key = keys[state.next++];
+        return dict != null ? state.dict.put(key, VALUE) : state.chm.put(key, VALUE);
+    }
+
+    /**
+     * 堆占用：填满 size 个条目前后各做一次 GC，按差值算出每个条目的字节数。
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+        public long bytesPerEntry;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 3)
+    public Object footprint(Footprint footprint) {
+        long before = usedHeap();
+        Object table;
+        if (dict != null) {
+            Dict<Object> filled = new Dict<>();
+            for (ByteKey key : keys) {
+                filled.put(key, VALUE);
+            }
+            table = filled;
+        } else {
+            ConcurrentHashMap<ByteKey, Object> filled = new ConcurrentHashMap<>();
+            for (ByteKey key : keys) {
+                filled.put(key, VALUE);
+            }
+            table = filled;
+        }
+        footprint.bytesPerEntry = (usedHeap() - before) / size;
+        return table;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
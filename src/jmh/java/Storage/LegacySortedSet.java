@@ -0,0 +1,92 @@
+package Storage;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * 改造前的有序集合实现（ConcurrentSkipListMap + HashMap<String, Double>），只保留基准测试用到的操作，
+ * 作为 {@link ZSetBenchmark} 的对照组。排名和范围查询都是 O(N)，这正是跳表带 span 要解决的问题。
+ */
+final class LegacySortedSet {
+    private final ConcurrentSkipListMap<Entry, byte[]> sortedEntries = new ConcurrentSkipListMap<>();
+    private final Map<String, Double> memberScores = new HashMap<>();
+
+    synchronized int add(double score, byte[] member) {
+        String memberStr = new String(member, StandardCharsets.UTF_8);
+        Double oldScore = memberScores.put(memberStr, score);
+        if (oldScore != null) {
+            sortedEntries.remove(new Entry(oldScore, member));
+        }
+        sortedEntries.put(new Entry(score, member), member);
+        return oldScore == null ? 1 : 0;
+    }
+
+    synchronized int getRank(byte[] member) {
+        Double score = memberScores.get(new String(member, StandardCharsets.UTF_8));
+        if (score == null) {
+            return -1;
+        }
+        Entry target = new Entry(score, member);
+        int rank = 0;
+        for (Entry entry : sortedEntries.keySet()) {
+            if (entry.equals(target)) {
+                return rank;
+            }
+            rank++;
+        }
+        return -1;
+    }
+
+    synchronized List<byte[]> getRange(int start, int stop) {
+        List<Entry> entryList = new ArrayList<>(sortedEntries.keySet());
+        int size = entryList.size();
+        if (start < 0) {
+            start = Math.max(0, size + start);
+        }
+        if (stop < 0) {
+            stop = size + stop;
+        }
+        if (stop >= size) {
+            stop = size - 1;
+        }
+        List<byte[]> result = new ArrayList<>();
+        for (int i = start; i <= stop; i++) {
+            result.add(entryList.get(i).member);
+        }
+        return result;
+    }
+
+    private static final class Entry implements Comparable<Entry> {
+        final double score;
+        final byte[] member;
+
+        Entry(double score, byte[] member) {
+            this.score = score;
+            this.member = member;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            int scoreCompare = Double.compare(score, other.score);
+            if (scoreCompare != 0) {
+                return scoreCompare;
+            }
+            return new String(member, StandardCharsets.UTF_8).compareTo(new String(other.member, StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Entry && new String(member, StandardCharsets.UTF_8)
+                    .equals(new String(((Entry) o).member, StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public int hashCode() {
+            return new String(member, StandardCharsets.UTF_8).hashCode();
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package Storage;
+
+import Config.ServerConfig;
+import Service.ReplyBuffer;
+import Service.RespEncoder;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 列表编码的队列吞吐量、LRANGE 编码耗时和堆占用，对比 quicklist（压缩与不压缩）与改造前的 LinkedList&lt;byte[]&gt;。
+ * 节点大小使用 ServerConfig 的默认 list-max-listpack-size。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class QuickListBenchmark {
+
+    @Param({"1000000"})
+    int length;
+
+    @Param({"16", "128"})
+    int itemSize;
+
+    @Param({"quicklist", "quicklist-compressed", "linkedlist"})
+    String impl;
+
+    private byte[] item;
+    private QuickList quickList;
+    private LinkedList<byte[]> linkedList;
+    private final ReplyBuffer out = new ReplyBuffer();
+
+    @Setup
+    public void setUp() {
+        item = element(new SplittableRandom(7));
+        if ("linkedlist".equals(impl)) {
+            linkedList = fill(new LinkedList<>());
+        } else {
+            quickList = fill(newQuickList());
+        }
+    }
+
+    private QuickList newQuickList() {
+        int fill = ServerConfig.getInstance().getListMaxListpackSize();
+        return new QuickList(fill, "quicklist-compressed".equals(impl) ? 1 : 0);
+    }
+
+    /**
+     * 元素内容是伪随机的小写字母，避免全部相同的内容让压缩节点的效果失真。
+     */
+    private byte[] element(SplittableRandom random) {
+        byte[] value = new byte[itemSize];
+        for (int i = 0; i < value.length; i++) {
+            value[i] = (byte) ('a' + random.nextInt(26));
+        }
+        return value;
+    }
+
+    private QuickList fill(QuickList list) {
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < length; i++) {
+            list.pushLast(element(random));
+        }
+        return list;
+    }
+
+    private LinkedList<byte[]> fill(LinkedList<byte[]> list) {
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < length; i++) {
+            list.addLast(element(random));
+        }
+        return list;
+    }
+
+    /**
+     * 作为任务队列使用：RPUSH 一个元素再 LPOP 一个，列表长度保持不变。
+     */
+    @Benchmark
+    public byte[] rpushLpop() {
+        if (quickList != null) {
+            quickList.pushLast(item);
+            return quickList.popFirst();
+        }
+        linkedList.addLast(item.clone());
+        return linkedList.removeFirst();
+    }
+
+    /**
+     * LRANGE 取列表中间的 100 个元素并编码成响应，改造前的实现先复制成 ArrayList 再编码。
+     */
+    @Benchmark
+    public int lrangeMiddle() {
+        int start = length / 2;
+        int end = start + 99;
+        out.reset();
+        if (quickList != null) {
+            RespEncoder.encode(out, quickList.range(start, end));
+        } else {
+            List<byte[]> copy = new ArrayList<>(linkedList.subList(start, end + 1));
+            RespEncoder.encode(out, copy);
+        }
+        return out.size();
+    }
+
+    /**
+     * 堆占用：构建一个同样长度的列表，前后各做一次 GC，按差值算出每个元素的字节数（包含元素内容）。
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+        public long bytesPerElement;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 3)
+    public Object footprint(Footprint footprint) {
+        long before = usedHeap();
+        Object list = quickList != null ? fill(newQuickList()) : fill(new LinkedList<>());
+        footprint.bytesPerElement = (usedHeap() - before) / length;
+        return list;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
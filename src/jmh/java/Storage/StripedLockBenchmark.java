@@ -0,0 +1,85 @@
+package Storage;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * 多线程下键空间读写的总吞吐量：改造前整个 DataStore 共用一个 synchronized 监视器，
+ * 改造后按 key 分段加读写锁（lock 为段数，1 相当于一把全局读写锁）。
+ * 默认 8 个线程，用 JMH 的 -t 参数改变线程数即可看到随核数的扩展情况。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class StripedLockBenchmark {
+    private static final int KEYS = 100_000;
+    private static final Object VALUE = new Object();
+
+    @Param({"synchronized", "1", "16", "256"})
+    String lock;
+
+    /**
+     * 写操作所占的百分比，其余为读操作。
+     */
+    @Param({"0", "20", "50"})
+    int writePercent;
+
+    private final Object monitor = new Object();
+    private boolean global;
+    private StripedLock stripes;
+    private Keyspace keyspace;
+    private ByteKey[] keys;
+
+    @Setup
+    public void setUp() {
+        global = "synchronized".equals(lock);
+        stripes = global ? new StripedLock() : new StripedLock(Integer.parseInt(lock));
+        keyspace = new Keyspace(stripes);
+        keys = new ByteKey[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            keys[i] = ByteKey.of("key:" + i);
+            keyspace.put(keys[i], VALUE);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadRandom {
+        final SplittableRandom random = new SplittableRandom();
+    }
+
+    @Benchmark
+    public Object getOrSet(ThreadRandom thread) {
+        ByteKey key = keys[thread.random.nextInt(KEYS)];
+        boolean write = thread.random.nextInt(100) < writePercent;
+        if (global) {
+            synchronized (monitor) {
+                return write ? keyspace.put(key, VALUE) : keyspace.get(key);
+            }
+        }
+        Lock stripe = write ? stripes.writeLock(key) : stripes.readLock(key);
+        stripe.lock();
+        try {
+            return write ? keyspace.put(key, VALUE) : keyspace.get(key);
+        } finally {
+            stripe.unlock();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package Storage;
+
+import Config.ServerConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ZADD / ZRANGE / ZRANK 在不同集合大小下的耗时，对比 zskiplist 实现和改造前的 ConcurrentSkipListMap 实现。
+ * 10M 成员的组合需要较大的堆，见 README 的“基准测试”一节。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+public class ZSetBenchmark {
+
+    @Param({"1000", "100000", "10000000"})
+    int size;
+
+    @Param({"zskiplist", "legacy"})
+    String impl;
+
+    private RedisSortedSet current;
+    private LegacySortedSet legacy;
+    private byte[][] members;
+    private final SplittableRandom random = new SplittableRandom(42);
+
+    @Setup
+    public void setUp() {
+        members = new byte[size][];
+        for (int i = 0; i < size; i++) {
+            members[i] = ("member:" + i).getBytes(StandardCharsets.UTF_8);
+        }
+        if ("legacy".equals(impl)) {
+            legacy = new LegacySortedSet();
+            for (byte[] member : members) {
+                legacy.add(random.nextDouble(), member);
+            }
+        } else {
+            ServerConfig config = ServerConfig.getInstance();
+            current = new RedisSortedSet(config.getZsetMaxListpackEntries(), config.getZsetMaxListpackValue());
+            for (byte[] member : members) {
+                current.add(random.nextDouble(), member);
+            }
+        }
+    }
+
+    private byte[] randomMember() {
+        return members[random.nextInt(size)];
+    }
+
+    /**
+     * 更新一个已有成员的分数，集合大小在整个测试过程中保持不变。
+     */
+    @Benchmark
+    public int zadd() {
+        byte[] member = randomMember();
+        double score = random.nextDouble();
+        return legacy != null ? legacy.add(score, member) : current.add(score, member);
+    }
+
+    @Benchmark
+    public int zrank() {
+        byte[] member = randomMember();
+        return legacy != null ? legacy.getRank(member) : current.getRank(member);
+    }
+
+    /**
+     * ZRANGE key 0 9：取最前面的十个成员。
+     */
+    @Benchmark
+    public List<byte[]> zrangeHead() {
+        return legacy != null ? legacy.getRange(0, 9) : current.getRange(0, 9);
+    }
+
+    /**
+     * 从集合中间取十个成员，跳表需要按 span 定位起始排名。
+     */
+    @Benchmark
+    public List<byte[]> zrangeMiddle() {
+        int start = size / 2;
+        return legacy != null ? legacy.getRange(start, start + 9) : current.getRange(start, start + 9);
+    }
+}
@@ -0,0 +1,20 @@
+package Commands;
+
+import java.util.List;
+
+/**
+ * @author Achilles
+ * 可能阻塞调用线程的命令（BLPOP、XREAD BLOCK、WAIT）。
+ * 事件循环模式下，这类命令会被转交给独立的工作线程执行，避免卡住整个循环。
+ */
+public interface BlockingCommand extends Command {
+
+    /**
+     * 判断本次调用是否真的会阻塞。
+     * @param args 命令的参数
+     * @return 默认返回 true
+     */
+    default boolean mayBlock(List<byte[]> args) {
+        return true;
+    }
+}
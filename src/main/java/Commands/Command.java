@@ -1,6 +1,7 @@
 // 文件路径: src/main/java/Commands/Command.java
 package Commands;
 
+import java.util.Collections;
 import java.util.List;
 
 public interface Command {
@@ -34,4 +35,21 @@ public interface Command {
      * @return 命令执行的结果
      */
     Object execute(List<byte[]> args, CommandContext context);
+
+    /**
+     * 返回本次调用涉及的 key，供客户端缓存追踪等功能使用。
+     * 默认命令不涉及任何 key；大多数数据命令的 key 是第一个参数，见 firstKey。
+     * @param args 命令的参数
+     * @return 涉及的 key 列表
+     */
+    default List<byte[]> getKeys(List<byte[]> args) {
+        return Collections.emptyList();
+    }
+
+    /**
+     * 以第一个参数作为 key 的命令共用的实现。
+     */
+    static List<byte[]> firstKey(List<byte[]> args) {
+        return args.isEmpty() ? Collections.emptyList() : Collections.singletonList(args.get(0));
+    }
 }
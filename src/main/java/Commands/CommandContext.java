@@ -2,6 +2,8 @@
 
 package Commands;
 
+import Service.Connection;
+
 import java.io.OutputStream;
 import java.util.concurrent.ConcurrentSkipListMap;
 
@@ -13,16 +15,33 @@ import java.util.concurrent.ConcurrentSkipListMap;
 public class CommandContext {
     private final OutputStream outputStream;
     private final boolean isClientSubscribed;
+    // 命令拿输出流直接写之前执行，让之前尚未编码的响应先按顺序写出
+    private final Runnable beforeDirectWrite;
+    // 发出命令的连接，HELLO、CLIENT 等修改连接状态的命令使用；复制链路上执行的命令没有连接
+    private final Connection connection;
 
     public CommandContext(OutputStream os,boolean isClientSubscribed){
+        this(os, isClientSubscribed, null, null);
+    }
+
+    public CommandContext(OutputStream os,boolean isClientSubscribed,Runnable beforeDirectWrite,Connection connection){
         this.outputStream= os;
         this.isClientSubscribed=isClientSubscribed;
+        this.beforeDirectWrite=beforeDirectWrite;
+        this.connection=connection;
     }
 
     public OutputStream getOutputStream(){
+        if (beforeDirectWrite != null) {
+            beforeDirectWrite.run();
+        }
         return outputStream;
     }
 
+    public Connection getConnection(){
+        return connection;
+    }
+
     public boolean isClientSubscribed(){
         return isClientSubscribed;
     }
@@ -19,6 +19,9 @@ public class CommandHandler {
         commandMap.put("echo",new EchoCommand());
         commandMap.put("set",new SetCommand());
         commandMap.put("get",new GetCommand());
+        commandMap.put("mget",new MgetCommand());
+        commandMap.put("mset",new MsetCommand());
+        commandMap.put("msetnx",new MsetnxCommand());
         commandMap.put("type",new TypeCommand());
         commandMap.put("rpush",new RpushCommand());
         commandMap.put("lpush",new LpushCommand());
@@ -30,6 +33,10 @@ public class CommandHandler {
         commandMap.put("blpop",new BlpopCommand());
         commandMap.put("xread",new XreadCommand());
         commandMap.put("incr",new IncrCommand());
+        commandMap.put("incrby",new IncrbyCommand());
+        commandMap.put("decr",new DecrCommand());
+        commandMap.put("decrby",new DecrbyCommand());
+        commandMap.put("incrbyfloat",new IncrbyfloatCommand());
         commandMap.put("exec",new ExecCommand());
         commandMap.put("multi",new MultiCommand());
         commandMap.put("info",new InfoCommand());
@@ -47,6 +54,25 @@ public class CommandHandler {
         commandMap.put("zcard",new ZcardCommand());
         commandMap.put("zscore",new ZscoreCommand());
         commandMap.put("zrem",new ZremCommand());
+        commandMap.put("zrangebyscore",new ZrangebyscoreCommand());
+        commandMap.put("zrevrangebyscore",new ZrevrangebyscoreCommand());
+        commandMap.put("zcount",new ZcountCommand());
+        commandMap.put("zrangebylex",new ZrangebylexCommand());
+        commandMap.put("zremrangebyscore",new ZremrangebyscoreCommand());
+        commandMap.put("zremrangebyrank",new ZremrangebyrankCommand());
+        commandMap.put("object",new ObjectCommand());
+        commandMap.put("hset",new HsetCommand());
+        commandMap.put("hget",new HgetCommand());
+        commandMap.put("hmget",new HmgetCommand());
+        commandMap.put("hgetall",new HgetallCommand());
+        commandMap.put("hdel",new HdelCommand());
+        commandMap.put("hlen",new HlenCommand());
+        commandMap.put("hexists",new HexistsCommand());
+        commandMap.put("hincrby",new HincrbyCommand());
+        commandMap.put("hincrbyfloat",new HincrbyfloatCommand());
+        commandMap.put("hscan",new HscanCommand());
+        commandMap.put("hello",new HelloCommand());
+        commandMap.put("client",new ClientCommand());
     }
     public Command getCommand(String commandName)
     {
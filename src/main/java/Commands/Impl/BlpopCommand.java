@@ -2,15 +2,23 @@
 
 package Commands.Impl;
 
+import Commands.BlockingCommand;
 import Commands.Command;
 import Commands.CommandContext;
 import Storage.DataStore;
 
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
-public class BlpopCommand implements Command {
+public class BlpopCommand implements BlockingCommand {
+
+    @Override
+    public List<byte[]> getKeys(List<byte[]> args) {
+        // 最后一个参数是超时时间
+        return args.size() < 2 ? Collections.emptyList() : args.subList(0, args.size() - 1);
+    }
 
     @Override
     public Object execute(List<byte[]> args, CommandContext context) {
@@ -0,0 +1,103 @@
+package Commands.Impl;
+
+import Commands.Command;
+import Commands.CommandContext;
+import Service.ClientRegistry;
+import Service.Connection;
+import Storage.ByteKey;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author Achilles
+ * 实现了 CLIENT 命令的 ID、SETNAME、GETNAME、GETREDIR 和 TRACKING 子命令。
+ * CLIENT TRACKING on|off [REDIRECT id] [BCAST] [PREFIX prefix ...]
+ */
+public class ClientCommand implements Command {
+    @Override
+    public Object execute(List<byte[]> args, CommandContext context) {
+        if (args.isEmpty()) {
+            return new Exception("wrong number of arguments for 'client' command");
+        }
+        Connection connection = context.getConnection();
+        if (connection == null) {
+            return new Exception("CLIENT is not allowed in this context");
+        }
+
+        String subCommand = new String(args.get(0), StandardCharsets.UTF_8).toLowerCase();
+        switch (subCommand) {
+            case "id":
+                return connection.getId();
+            case "setname":
+                if (args.size() != 2) {
+                    return new Exception("wrong number of arguments for 'client|setname' command");
+                }
+                connection.setName(new String(args.get(1), StandardCharsets.UTF_8));
+                return "OK";
+            case "getname":
+                return connection.getName() == null ? null : connection.getName().getBytes(StandardCharsets.UTF_8);
+            case "getredir":
+                if (!connection.isTracking()) {
+                    return -1L;
+                }
+                return connection.getTrackingRedirect();
+            case "tracking":
+                return handleTracking(args.subList(1, args.size()), connection);
+            default:
+                return new Exception("Unsupported CLIENT subcommand: " + subCommand);
+        }
+    }
+
+    private Object handleTracking(List<byte[]> trackingArgs, Connection connection) {
+        if (trackingArgs.isEmpty()) {
+            return new Exception("wrong number of arguments for 'client|tracking' command");
+        }
+        String toggle = new String(trackingArgs.get(0), StandardCharsets.UTF_8).toLowerCase();
+        if ("off".equals(toggle)) {
+            connection.disableTracking();
+            return "OK";
+        }
+        if (!"on".equals(toggle)) {
+            return new Exception("syntax error");
+        }
+
+        long redirect = 0;
+        boolean broadcast = false;
+        List<ByteKey> prefixes = new ArrayList<>();
+        for (int i = 1; i < trackingArgs.size(); i++) {
+            String option = new String(trackingArgs.get(i), StandardCharsets.UTF_8).toLowerCase();
+            if ("redirect".equals(option) && i + 1 < trackingArgs.size()) {
+                try {
+                    redirect = Long.parseLong(new String(trackingArgs.get(++i), StandardCharsets.UTF_8));
+                } catch (NumberFormatException e) {
+                    return new Exception("value is not an integer or out of range");
+                }
+            } else if ("bcast".equals(option)) {
+                broadcast = true;
+            } else if ("prefix".equals(option) && i + 1 < trackingArgs.size()) {
+                prefixes.add(ByteKey.wrap(trackingArgs.get(++i)));
+            } else {
+                return new Exception("syntax error");
+            }
+        }
+
+        if (!prefixes.isEmpty() && !broadcast) {
+            return new Exception("PREFIX option requires BCAST mode to be enabled");
+        }
+        if (connection.isTracking() && connection.isTrackingBroadcast() != broadcast) {
+            return new Exception("You can't switch BCAST mode on/off before disabling tracking for this client, and then re-enabling it with a different mode.");
+        }
+        if (redirect != 0) {
+            if (redirect == connection.getId()) {
+                return new Exception("Invalid REDIRECT, the client ID must be a different client");
+            }
+            if (ClientRegistry.getInstance().get(redirect) == null) {
+                return new Exception("The client ID you want redirect to does not exist");
+            }
+        }
+        connection.enableTracking(redirect, broadcast, prefixes);
+        return "OK";
+    }
+}
@@ -0,0 +1,34 @@
+package Commands.Impl;
+
+import Commands.Command;
+import Commands.CommandContext;
+import Commands.WriteCommand;
+import Storage.ByteKey;
+import Storage.DataStore;
+
+import java.util.List;
+
+/**
+ * @author Achilles
+ * DECR key：把 key 中的整数减一
+ */
+public class DecrCommand implements WriteCommand {
+    @Override
+    public List<byte[]> getKeys(List<byte[]> args) {
+        return Command.firstKey(args);
+    }
+
+    @Override
+    public Object execute(List<byte[]> args, CommandContext context) {
+        if (args.size() != 1) {
+            return new Exception("wrong number of arguments for 'decr' command");
+        }
+
+        ByteKey key = ByteKey.wrap(args.get(0));
+        try {
+            return DataStore.getInstance().incrBy(key, -1);
+        } catch (Exception e) {
+            return e;
+        }
+    }
+}
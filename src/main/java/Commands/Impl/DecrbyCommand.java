@@ -0,0 +1,45 @@
+package Commands.Impl;
+
+import Commands.Command;
+import Commands.CommandContext;
+import Commands.WriteCommand;
+import Storage.ByteKey;
+import Storage.DataStore;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * @author Achilles
+ * DECRBY key decrement：把 key 中的整数减去 decrement
+ */
+public class DecrbyCommand implements WriteCommand {
+    @Override
+    public List<byte[]> getKeys(List<byte[]> args) {
+        return Command.firstKey(args);
+    }
+
+    @Override
+    public Object execute(List<byte[]> args, CommandContext context) {
+        if (args.size() != 2) {
+            return new Exception("wrong number of arguments for 'decrby' command");
+        }
+
+        ByteKey key = ByteKey.wrap(args.get(0));
+        long decrement;
+        try {
+            decrement = Long.parseLong(new String(args.get(1), StandardCharsets.UTF_8));
+        } catch (NumberFormatException e) {
+            return new Exception("value is not an integer or out of range");
+        }
+        if (decrement == Long.MIN_VALUE) {
+            // 取反会溢出
+            return new Exception("decrement would overflow");
+        }
+        try {
+            return DataStore.getInstance().incrBy(key, -decrement);
+        } catch (Exception e) {
+            return e;
+        }
+    }
+}
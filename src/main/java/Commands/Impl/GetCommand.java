@@ -1,7 +1,7 @@
 package Commands.Impl;
 
 import Commands.CommandContext;
-import Storage.ValueEntry;
+import Storage.ByteKey;
 import Commands.Command;
 import Storage.DataStore;
 
@@ -12,13 +12,18 @@ import java.util.List;
  * @author Achilles
  */
 public class GetCommand implements Command {
+    @Override
+    public List<byte[]> getKeys(List<byte[]> args) {
+        return Command.firstKey(args);
+    }
+
     @Override
     public Object execute(List<byte[]> args, CommandContext context) {
         if(args.size() != 1){
             return new Exception("ERR wrong number of arguments for 'get' command");
         }
-        String key = new String(args.get(0));
-        ValueEntry entry = DataStore.getInstance().getString(key);
-        return (entry!=null)?entry.value:null;
+        ByteKey key = ByteKey.wrap(args.get(0));
+        // 直接返回 ValueEntry，由 RespEncoder 按编码写出，整数编码的值不需要先转换成字节数组
+        return DataStore.getInstance().getString(key);
     }
 }
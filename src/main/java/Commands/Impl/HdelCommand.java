@@ -0,0 +1,38 @@
+package Commands.Impl;
+
+import Commands.Command;
+import Commands.CommandContext;
+import Commands.WriteCommand;
+import Storage.ByteKey;
+import Storage.DataStore;
+
+import java.util.List;
+
+/**
+ * @author Achilles
+ * HDEL key field [field ...]：删除哈希中的字段，返回实际删除的数量
+ */
+public class HdelCommand implements WriteCommand {
+    @Override
+    public List<byte[]> getKeys(List<byte[]> args) {
+        return Command.firstKey(args);
+    }
+
+    @Override
+    public boolean denyOom() {
+        return false;
+    }
+
+    @Override
+    public Object execute(List<byte[]> args, CommandContext context) {
+        if (args.size() < 2) {
+            return new Exception("wrong number of arguments for 'hdel' command");
+        }
+        try {
+            ByteKey key = ByteKey.wrap(args.get(0));
+            return DataStore.getInstance().hdel(key, args.subList(1, args.size()));
+        } catch (Exception e) {
+            return e;
+        }
+    }
+}
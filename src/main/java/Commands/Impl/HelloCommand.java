@@ -0,0 +1,86 @@
+package Commands.Impl;
+
+import Commands.Command;
+import Commands.CommandContext;
+import Service.Connection;
+import Service.RespWritable;
+import Storage.DataStore;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * @author Achilles
+ * 实现了 HELLO [protover [AUTH username password] [SETNAME clientname]] 命令。
+ * 协商连接的 RESP 版本，RESP3 连接才能直接接收 CLIENT TRACKING 的失效推送。
+ * 服务器没有配置密码，AUTH 参数只做语法检查。
+ */
+public class HelloCommand implements Command {
+    private static final String SERVER_VERSION = "7.0.0";
+
+    @Override
+    public Object execute(List<byte[]> args, CommandContext context) {
+        Connection connection = context.getConnection();
+        if (connection == null) {
+            return new Exception("HELLO is not allowed in this context");
+        }
+
+        int protocolVersion = connection.getProtocolVersion();
+        String clientName = null;
+        if (!args.isEmpty()) {
+            try {
+                protocolVersion = Integer.parseInt(new String(args.get(0), StandardCharsets.UTF_8));
+            } catch (NumberFormatException e) {
+                return new Exception("Protocol version is not an integer or out of range");
+            }
+            if (protocolVersion < 2 || protocolVersion > 3) {
+                return (RespWritable) out -> out.writeError("NOPROTO", "unsupported protocol version");
+            }
+            for (int i = 1; i < args.size(); i++) {
+                String option = new String(args.get(i), StandardCharsets.UTF_8).toLowerCase();
+                if ("auth".equals(option) && i + 2 < args.size()) {
+                    i += 2;
+                } else if ("setname".equals(option) && i + 1 < args.size()) {
+                    clientName = new String(args.get(++i), StandardCharsets.UTF_8);
+                } else {
+                    return new Exception("Syntax error in HELLO option '" + option + "'");
+                }
+            }
+        }
+
+        connection.setProtocolVersion(protocolVersion);
+        if (clientName != null) {
+            connection.setName(clientName);
+        }
+
+        final long protocol = protocolVersion;
+        final long clientId = connection.getId();
+        final byte[] role = DataStore.getInstance().getRole().getBytes(StandardCharsets.UTF_8);
+        // 响应在切换版本之后编码：RESP3 下是 Map，RESP2 下是扁平的键值数组
+        return (RespWritable) out -> {
+            if (out.isResp3()) {
+                out.writeMapHeader(7);
+            } else {
+                out.writeArrayHeader(14);
+            }
+            out.writeBulkString(bytes("server"));
+            out.writeBulkString(bytes("redis"));
+            out.writeBulkString(bytes("version"));
+            out.writeBulkString(bytes(SERVER_VERSION));
+            out.writeBulkString(bytes("proto"));
+            out.writeInteger(protocol);
+            out.writeBulkString(bytes("id"));
+            out.writeInteger(clientId);
+            out.writeBulkString(bytes("mode"));
+            out.writeBulkString(bytes("standalone"));
+            out.writeBulkString(bytes("role"));
+            out.writeBulkString(role);
+            out.writeBulkString(bytes("modules"));
+            out.writeArrayHeader(0);
+        };
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
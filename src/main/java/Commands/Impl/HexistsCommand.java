@@ -0,0 +1,31 @@
+package Commands.Impl;
+
+import Commands.Command;
+import Commands.CommandContext;
+import Storage.ByteKey;
+import Storage.DataStore;
+
+import java.util.List;
+
+/**
+ * @author Achilles
+ * HEXISTS key field：字段存在返回 1，否则返回 0
+ */
+public class HexistsCommand implements Command {
+    @Override
+    public List<byte[]> getKeys(List<byte[]> args) {
+        return Command.firstKey(args);
+    }
+
+    @Override
+    public Object execute(List<byte[]> args, CommandContext context) {
+        if (args.size() != 2) {
+            return new Exception("wrong number of arguments for 'hexists' command");
+        }
+        try {
+            return DataStore.getInstance().hexists(ByteKey.wrap(args.get(0)), args.get(1));
+        } catch (Exception e) {
+            return e;
+        }
+    }
+}
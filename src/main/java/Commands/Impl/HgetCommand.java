@@ -0,0 +1,33 @@
+package Commands.Impl;
+
+import Commands.Command;
+import Commands.CommandContext;
+import Storage.ByteKey;
+import Storage.DataStore;
+
+import java.util.List;
+
+/**
+ * @author Achilles
+ * HGET key field：获取哈希中一个字段的值
+ */
+public class HgetCommand implements Command {
+    @Override
+    public List<byte[]> getKeys(List<byte[]> args) {
+        return Command.firstKey(args);
+    }
+
+    @Override
+    public Object execute(List<byte[]> args, CommandContext context) {
+        if (args.size() != 2) {
+            return new Exception("wrong number of arguments for 'hget' command");
+        }
+        try {
+            ByteKey key = ByteKey.wrap(args.get(0));
+            byte[] value = DataStore.getInstance().hget(key, args.get(1));
+            return value == null ? Command.NULL_BULK_STRING_RESPONSE : value;
+        } catch (Exception e) {
+            return e;
+        }
+    }
+}
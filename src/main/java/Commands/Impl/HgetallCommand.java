@@ -0,0 +1,31 @@
+package Commands.Impl;
+
+import Commands.Command;
+import Commands.CommandContext;
+import Storage.ByteKey;
+import Storage.DataStore;
+
+import java.util.List;
+
+/**
+ * @author Achilles
+ * HGETALL key：以 [field, value, ...] 的形式返回哈希中的所有字段
+ */
+public class HgetallCommand implements Command {
+    @Override
+    public List<byte[]> getKeys(List<byte[]> args) {
+        return Command.firstKey(args);
+    }
+
+    @Override
+    public Object execute(List<byte[]> args, CommandContext context) {
+        if (args.size() != 1) {
+            return new Exception("wrong number of arguments for 'hgetall' command");
+        }
+        try {
+            return DataStore.getInstance().hgetall(ByteKey.wrap(args.get(0)));
+        } catch (Exception e) {
+            return e;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package Commands.Impl;
+
+import Commands.Command;
+import Commands.CommandContext;
+import Commands.WriteCommand;
+import Storage.ByteKey;
+import Storage.DataStore;
+import Storage.ValueEntry;
+
+import java.util.List;
+
+/**
+ * @author Achilles
+ * HINCRBYFLOAT key field increment：把哈希字段中的数值加上浮点数 increment
+ */
+public class HincrbyfloatCommand implements WriteCommand {
+    @Override
+    public List<byte[]> getKeys(List<byte[]> args) {
+        return Command.firstKey(args);
+    }
+
+    @Override
+    public Object execute(List<byte[]> args, CommandContext context) {
+        if (args.size() != 3) {
+            return new Exception("wrong number of arguments for 'hincrbyfloat' command");
+        }
+
+        ByteKey key = ByteKey.wrap(args.get(0));
+        double increment;
+        try {
+            increment = ValueEntry.parseDouble(args.get(2));
+        } catch (NumberFormatException e) {
+            return new Exception("value is not a valid float");
+        }
+        if (Double.isNaN(increment) || Double.isInfinite(increment)) {
+            return new Exception("value is not a valid float");
+        }
+        try {
+            return DataStore.getInstance().hincrByFloat(key, args.get(1), increment);
+        } catch (Exception e) {
+            return e;
+        }
+    }
+}
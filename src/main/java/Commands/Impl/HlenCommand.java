@@ -0,0 +1,31 @@
+package Commands.Impl;
+
+import Commands.Command;
+import Commands.CommandContext;
+import Storage.ByteKey;
+import Storage.DataStore;
+
+import java.util.List;
+
+/**
+ * @author Achilles
+ * HLEN key：返回哈希的字段数量
+ */
+public class HlenCommand implements Command {
+    @Override
+    public List<byte[]> getKeys(List<byte[]> args) {
+        return Command.firstKey(args);
+    }
+
+    @Override
+    public Object execute(List<byte[]> args, CommandContext context) {
+        if (args.size() != 1) {
+            return new Exception("wrong number of arguments for 'hlen' command");
+        }
+        try {
+            return DataStore.getInstance().hlen(ByteKey.wrap(args.get(0)));
+        } catch (Exception e) {
+            return e;
+        }
+    }
+}
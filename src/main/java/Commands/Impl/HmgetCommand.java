@@ -0,0 +1,32 @@
+package Commands.Impl;
+
+import Commands.Command;
+import Commands.CommandContext;
+import Storage.ByteKey;
+import Storage.DataStore;
+
+import java.util.List;
+
+/**
+ * @author Achilles
+ * HMGET key field [field ...]：获取哈希中多个字段的值，不存在的字段返回 nil
+ */
+public class HmgetCommand implements Command {
+    @Override
+    public List<byte[]> getKeys(List<byte[]> args) {
+        return Command.firstKey(args);
+    }
+
+    @Override
+    public Object execute(List<byte[]> args, CommandContext context) {
+        if (args.size() < 2) {
+            return new Exception("wrong number of arguments for 'hmget' command");
+        }
+        try {
+            ByteKey key = ByteKey.wrap(args.get(0));
+            return DataStore.getInstance().hmget(key, args.subList(1, args.size()));
+        } catch (Exception e) {
+            return e;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package Commands.Impl;
+
+import Commands.Command;
+import Commands.CommandContext;
+import Storage.ByteKey;
+import Storage.DataStore;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * @author Achilles
+ * HSCAN key cursor [MATCH pattern] [COUNT count] [NOVALUES]：增量遍历哈希中的字段
+ */
+public class HscanCommand implements Command {
+    private static final int DEFAULT_COUNT = 10;
+
+    @Override
+    public List<byte[]> getKeys(List<byte[]> args) {
+        return Command.firstKey(args);
+    }
+
+    @Override
+    public Object execute(List<byte[]> args, CommandContext context) {
+        if (args.size() < 2) {
+            return new Exception("wrong number of arguments for 'hscan' command");
+        }
+        ByteKey key = ByteKey.wrap(args.get(0));
+        int cursor;
+        try {
+            // 游标是无符号数，只会是之前返回过的桶下标
+            cursor = Integer.parseUnsignedInt(new String(args.get(1), StandardCharsets.UTF_8));
+        } catch (NumberFormatException e) {
+            return new Exception("invalid cursor");
+        }
+
+        byte[] pattern = null;
+        int count = DEFAULT_COUNT;
+        boolean noValues = false;
+        for (int i = 2; i < args.size(); i++) {
+            String option = new String(args.get(i), StandardCharsets.UTF_8);
+            if (option.equalsIgnoreCase("match") && i + 1 < args.size()) {
+                pattern = args.get(++i);
+            } else if (option.equalsIgnoreCase("count") && i + 1 < args.size()) {
+                try {
+                    count = Integer.parseInt(new String(args.get(++i), StandardCharsets.UTF_8));
+                } catch (NumberFormatException e) {
+                    return new Exception("value is not an integer or out of range");
+                }
+                if (count < 1) {
+                    return new Exception("syntax error");
+                }
+            } else if (option.equalsIgnoreCase("novalues")) {
+                noValues = true;
+            } else {
+                return new Exception("syntax error");
+            }
+        }
+        // 与 Redis 一样，MATCH * 等价于不过滤
+        if (pattern != null && pattern.length == 1 && pattern[0] == '*') {
+            pattern = null;
+        }
+
+        try {
+            return DataStore.getInstance().hscan(key, cursor, count, pattern, noValues);
+        } catch (Exception e) {
+            return e;
+        }
+    }
+}
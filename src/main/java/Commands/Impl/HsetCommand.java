@@ -0,0 +1,33 @@
+package Commands.Impl;
+
+import Commands.Command;
+import Commands.CommandContext;
+import Commands.WriteCommand;
+import Storage.ByteKey;
+import Storage.DataStore;
+
+import java.util.List;
+
+/**
+ * @author Achilles
+ * HSET key field value [field value ...]：设置哈希中的字段，返回新增的字段数
+ */
+public class HsetCommand implements WriteCommand {
+    @Override
+    public List<byte[]> getKeys(List<byte[]> args) {
+        return Command.firstKey(args);
+    }
+
+    @Override
+    public Object execute(List<byte[]> args, CommandContext context) {
+        if (args.size() < 3 || args.size() % 2 == 0) {
+            return new Exception("wrong number of arguments for 'hset' command");
+        }
+        try {
+            ByteKey key = ByteKey.wrap(args.get(0));
+            return DataStore.getInstance().hset(key, args.subList(1, args.size()));
+        } catch (Exception e) {
+            return e;
+        }
+    }
+}
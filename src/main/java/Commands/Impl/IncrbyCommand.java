@@ -0,0 +1,41 @@
+package Commands.Impl;
+
+import Commands.Command;
+import Commands.CommandContext;
+import Commands.WriteCommand;
+import Storage.ByteKey;
+import Storage.DataStore;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * @author Achilles
+ * INCRBY key increment：把 key 中的整数加上 increment
+ */
+public class IncrbyCommand implements WriteCommand {
+    @Override
+    public List<byte[]> getKeys(List<byte[]> args) {
+        return Command.firstKey(args);
+    }
+
+    @Override
+    public Object execute(List<byte[]> args, CommandContext context) {
+        if (args.size() != 2) {
+            return new Exception("wrong number of arguments for 'incrby' command");
+        }
+
+        ByteKey key = ByteKey.wrap(args.get(0));
+        long increment;
+        try {
+            increment = Long.parseLong(new String(args.get(1), StandardCharsets.UTF_8));
+        } catch (NumberFormatException e) {
+            return new Exception("value is not an integer or out of range");
+        }
+        try {
+            return DataStore.getInstance().incrBy(key, increment);
+        } catch (Exception e) {
+            return e;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package Commands.Impl;
+
+import Commands.Command;
+import Commands.CommandContext;
+import Commands.WriteCommand;
+import Storage.ByteKey;
+import Storage.DataStore;
+import Storage.ValueEntry;
+
+import java.util.List;
+
+/**
+ * @author Achilles
+ * INCRBYFLOAT key increment：把 key 中的数值加上一个浮点数，保留原有的过期时间
+ */
+public class IncrbyfloatCommand implements WriteCommand {
+    @Override
+    public List<byte[]> getKeys(List<byte[]> args) {
+        return Command.firstKey(args);
+    }
+
+    @Override
+    public Object execute(List<byte[]> args, CommandContext context) {
+        if (args.size() != 2) {
+            return new Exception("wrong number of arguments for 'incrbyfloat' command");
+        }
+
+        ByteKey key = ByteKey.wrap(args.get(0));
+        double increment;
+        try {
+            increment = ValueEntry.parseDouble(args.get(1));
+        } catch (NumberFormatException e) {
+            return new Exception("value is not a valid float");
+        }
+        if (Double.isNaN(increment) || Double.isInfinite(increment)) {
+            return new Exception("value is not a valid float");
+        }
+        try {
+            // 返回 Bulk String 形式的结果
+            return DataStore.getInstance().incrByFloat(key, increment);
+        } catch (Exception e) {
+            return e;
+        }
+    }
+}
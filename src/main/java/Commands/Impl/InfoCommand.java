@@ -2,12 +2,15 @@ package Commands.Impl;
 
 import Commands.Command;
 import Commands.CommandContext;
+import Config.ServerConfig;
 import Storage.DataStore;
 import Storage.ReplicationInfo;
+import util.MemoryUtil;
 
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Locale;
 import java.util.StringJoiner;
 
 /**
@@ -35,6 +38,33 @@ public class InfoCommand implements Command {
             return  sj.toString().getBytes(StandardCharsets.UTF_8);
         }
 
+        if ("stats".equalsIgnoreCase(new String(args.get(0), StandardCharsets.UTF_8))) {
+            DataStore dataStore = DataStore.getInstance();
+
+            StringJoiner sj = new StringJoiner("\r\n");
+            sj.add("expired_keys:" + dataStore.getExpiredKeys());
+            sj.add("expired_stale_perc:" + String.format(Locale.ROOT, "%.2f", dataStore.getExpiredStalePerc() * 100));
+            sj.add("expired_time_cap_reached_count:" + dataStore.getExpiredTimeCapReachedCount());
+            sj.add("evicted_keys:" + dataStore.getEvictedKeys());
+
+            return sj.toString().getBytes(StandardCharsets.UTF_8);
+        }
+
+        if ("memory".equalsIgnoreCase(new String(args.get(0), StandardCharsets.UTF_8))) {
+            ServerConfig config = ServerConfig.getInstance();
+            long usedMemory = DataStore.getInstance().getUsedMemory();
+
+            // used_memory 是键空间的估算值，不是 JVM 堆的实际占用
+            StringJoiner sj = new StringJoiner("\r\n");
+            sj.add("used_memory:" + usedMemory);
+            sj.add("used_memory_human:" + MemoryUtil.formatBytes(usedMemory));
+            sj.add("maxmemory:" + config.getMaxMemory());
+            sj.add("maxmemory_human:" + MemoryUtil.formatBytes(config.getMaxMemory()));
+            sj.add("maxmemory_policy:" + config.getMaxMemoryPolicy().getConfigName());
+
+            return sj.toString().getBytes(StandardCharsets.UTF_8);
+        }
+
         // 如果是其他 section，可以返回空字符串
         return "".getBytes(StandardCharsets.UTF_8);    }
 }
@@ -2,6 +2,7 @@ package Commands.Impl;
 
 import Commands.Command;
 import Commands.CommandContext;
+import Storage.ByteKey;
 import Storage.DataStore;
 
 import java.io.OutputStream;
@@ -24,9 +25,9 @@ public class KeysCommand implements Command {
 
         if("*".equalsIgnoreCase( pattern)){
             DataStore dataStore = DataStore.getInstance();
-            List<String> allKeys=dataStore.getAllKeys();
+            List<ByteKey> allKeys=dataStore.getAllKeys();
             return allKeys.stream()
-                    .map(key->key.getBytes(StandardCharsets.UTF_8))
+                    .map(ByteKey::getBytes)
                     .collect(Collectors.toList());
         } else {
             return List.of();
@@ -4,20 +4,30 @@ import Commands.Command;
 import Commands.CommandContext;
 import Commands.WriteCommand;
 import Config.WrongTypeException;
+import Storage.ByteKey;
 import Storage.DataStore;
 
 import java.io.OutputStream;
-import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 public class LpopCommand implements WriteCommand {
+    @Override
+    public List<byte[]> getKeys(List<byte[]> args) {
+        return Command.firstKey(args);
+    }
+
+    @Override
+    public boolean denyOom() {
+        return false;
+    }
+
     @Override
     public Object execute(List<byte[]> args, CommandContext context) {
         if (args.size() < 1 || args.size() > 2) {
             return new Exception("wrong number of arguments for 'lpop' command");
         }
         try {
-            String key = new String(args.get(0), StandardCharsets.UTF_8);
+            ByteKey key = ByteKey.wrap(args.get(0));
             int count = 1;
             boolean countProvided = args.size() == 2;
 
@@ -3,20 +3,25 @@ package Commands.Impl;
 import Commands.Command;
 import Commands.CommandContext;
 import Config.WrongTypeException;
+import Storage.ByteKey;
 import Storage.DataStore;
 
 import java.io.OutputStream;
-import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 public class LrangeCommand implements Command {
+    @Override
+    public List<byte[]> getKeys(List<byte[]> args) {
+        return Command.firstKey(args);
+    }
+
     @Override
     public Object execute(List<byte[]> args, CommandContext context) {
         if (args.size() != 3) {
             return new Exception("wrong number of arguments for 'lrange' command");
         }
         try {
-            String key = new String(args.get(0), StandardCharsets.UTF_8);
+            ByteKey key = ByteKey.wrap(args.get(0));
             int start = Integer.parseInt(new String(args.get(1)));
             int end = Integer.parseInt(new String(args.get(2)));
             return DataStore.getInstance().lrange(key, start, end);
@@ -0,0 +1,33 @@
+package Commands.Impl;
+
+import Commands.Command;
+import Commands.CommandContext;
+import Storage.ByteKey;
+import Storage.DataStore;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author Achilles
+ * MGET key [key ...]：一次读取多个字符串，不存在或类型不符的 key 返回 nil
+ */
+public class MgetCommand implements Command {
+    @Override
+    public List<byte[]> getKeys(List<byte[]> args) {
+        return args;
+    }
+
+    @Override
+    public Object execute(List<byte[]> args, CommandContext context) {
+        if (args.isEmpty()) {
+            return new Exception("wrong number of arguments for 'mget' command");
+        }
+        List<ByteKey> keys = new ArrayList<>(args.size());
+        for (byte[] key : args) {
+            keys.add(ByteKey.wrap(key));
+        }
+        // 列表中的 ValueEntry 由 RespEncoder 直接按编码写成 Bulk String，null 写成 nil
+        return DataStore.getInstance().mget(keys);
+    }
+}
@@ -0,0 +1,56 @@
+package Commands.Impl;
+
+import Commands.CommandContext;
+import Commands.WriteCommand;
+import Storage.ByteKey;
+import Storage.DataStore;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author Achilles
+ * MSET key value [key value ...]：原子地写入多个字符串，整条命令作为一条命令传播给副本
+ */
+public class MsetCommand implements WriteCommand {
+    @Override
+    public List<byte[]> getKeys(List<byte[]> args) {
+        return keysOf(args);
+    }
+
+    @Override
+    public Object execute(List<byte[]> args, CommandContext context) {
+        if (args.isEmpty() || args.size() % 2 != 0) {
+            return new Exception("wrong number of arguments for 'mset' command");
+        }
+        DataStore.getInstance().mset(keyNames(args), valuesOf(args), false);
+        return "OK";
+    }
+
+    /**
+     * key value 交替出现的参数中的 key。
+     */
+    static List<byte[]> keysOf(List<byte[]> args) {
+        List<byte[]> keys = new ArrayList<>(args.size() / 2);
+        for (int i = 0; i + 1 < args.size(); i += 2) {
+            keys.add(args.get(i));
+        }
+        return keys;
+    }
+
+    static List<ByteKey> keyNames(List<byte[]> args) {
+        List<ByteKey> keys = new ArrayList<>(args.size() / 2);
+        for (int i = 0; i + 1 < args.size(); i += 2) {
+            keys.add(ByteKey.wrap(args.get(i)));
+        }
+        return keys;
+    }
+
+    static List<byte[]> valuesOf(List<byte[]> args) {
+        List<byte[]> values = new ArrayList<>(args.size() / 2);
+        for (int i = 1; i < args.size(); i += 2) {
+            values.add(args.get(i));
+        }
+        return values;
+    }
+}
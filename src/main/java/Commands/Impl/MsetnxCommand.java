@@ -0,0 +1,28 @@
+package Commands.Impl;
+
+import Commands.CommandContext;
+import Commands.WriteCommand;
+import Storage.DataStore;
+
+import java.util.List;
+
+/**
+ * @author Achilles
+ * MSETNX key value [key value ...]：所有 key 都不存在时才原子地全部写入，返回 1；否则什么都不写，返回 0
+ */
+public class MsetnxCommand implements WriteCommand {
+    @Override
+    public List<byte[]> getKeys(List<byte[]> args) {
+        return MsetCommand.keysOf(args);
+    }
+
+    @Override
+    public Object execute(List<byte[]> args, CommandContext context) {
+        if (args.isEmpty() || args.size() % 2 != 0) {
+            return new Exception("wrong number of arguments for 'msetnx' command");
+        }
+        boolean written = DataStore.getInstance()
+                .mset(MsetCommand.keyNames(args), MsetCommand.valuesOf(args), true);
+        return written ? 1L : 0L;
+    }
+}
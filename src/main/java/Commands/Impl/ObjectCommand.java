@@ -0,0 +1,40 @@
+package Commands.Impl;
+
+import Commands.Command;
+import Commands.CommandContext;
+import Storage.ByteKey;
+import Storage.DataStore;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @author Achilles
+ * OBJECT ENCODING key：查看 key 当前使用的内部编码
+ */
+public class ObjectCommand implements Command {
+    @Override
+    public List<byte[]> getKeys(List<byte[]> args) {
+        return args.size() < 2 ? Collections.emptyList() : Collections.singletonList(args.get(1));
+    }
+
+    @Override
+    public Object execute(List<byte[]> args, CommandContext context) {
+        if (args.isEmpty()) {
+            return new Exception("wrong number of arguments for 'object' command");
+        }
+        String subcommand = new String(args.get(0), StandardCharsets.UTF_8);
+        if (!subcommand.equalsIgnoreCase("encoding")) {
+            return new Exception("unknown subcommand '" + subcommand + "'. Try OBJECT HELP.");
+        }
+        if (args.size() != 2) {
+            return new Exception("wrong number of arguments for 'object|encoding' command");
+        }
+        String encoding = DataStore.getInstance().objectEncoding(ByteKey.wrap(args.get(1)));
+        if (encoding == null) {
+            return Command.NULL_BULK_STRING_RESPONSE;
+        }
+        return encoding.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -4,19 +4,24 @@ import Commands.Command;
 import Commands.CommandContext;
 import Commands.WriteCommand;
 import Config.WrongTypeException;
+import Storage.ByteKey;
 import Storage.DataStore;
 
 import java.io.OutputStream;
-import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 public class RpushCommand implements WriteCommand {
+    @Override
+    public List<byte[]> getKeys(List<byte[]> args) {
+        return Command.firstKey(args);
+    }
+
     @Override
     public Object execute(List<byte[]> args, CommandContext context) {
         if (args.size() < 2) {
             return new Exception("wrong number of arguments for 'rpush' command");
         }
-        String key = new String(args.get(0), StandardCharsets.UTF_8);
+        ByteKey key = ByteKey.wrap(args.get(0));
         List<byte[]> values = args.subList(1, args.size());
         try {
             return DataStore.getInstance().rpush(key, values);
@@ -3,6 +3,7 @@ package Commands.Impl;
 import Commands.Command;
 import Commands.CommandContext;
 import Commands.WriteCommand;
+import Storage.ByteKey;
 import Storage.DataStore;
 import Storage.ValueEntry;
 
@@ -14,12 +15,17 @@ import java.util.List;
  * @author Achilles
  */
 public class SetCommand implements WriteCommand {
+    @Override
+    public List<byte[]> getKeys(List<byte[]> args) {
+        return Command.firstKey(args);
+    }
+
     @Override
     public Object execute(List<byte[]> args, CommandContext context) {
         if (args.size() < 2) {
             return new Exception("wrong number of arguments for 'set' command");
         }
-        String key = new String(args.get(0), StandardCharsets.UTF_8);
+        ByteKey key = ByteKey.wrap(args.get(0));
         byte[] value = args.get(1);
         long ttl = -1;
 
@@ -35,7 +41,7 @@ public class SetCommand implements WriteCommand {
         }
 
         long expiryTimestamp = (ttl > 0) ? (System.currentTimeMillis() + ttl) : -1;
-        DataStore.getInstance().setString(key, new ValueEntry(value, expiryTimestamp));
+        DataStore.getInstance().setString(key, ValueEntry.of(value, expiryTimestamp));
 
         return "OK";
     }
@@ -38,7 +38,7 @@ public class SubscribeCommand implements Command {
                 responsePayload.add(channelBytes);
                 responsePayload.add(totalSubscriptions);
 
-                RespEncoder.encode(context.getOutputStream(), responsePayload);
+                RespEncoder.encodePush(context.getOutputStream(), responsePayload);
                 context.getOutputStream().flush();
             }
         } catch (IOException e) {
@@ -2,19 +2,24 @@ package Commands.Impl;
 
 import Commands.Command;
 import Commands.CommandContext;
+import Storage.ByteKey;
 import Storage.DataStore;
 
 import java.io.OutputStream;
-import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 public class TypeCommand implements Command {
+    @Override
+    public List<byte[]> getKeys(List<byte[]> args) {
+        return Command.firstKey(args);
+    }
+
     @Override
     public Object execute(List<byte[]> args, CommandContext context) {
         if (args.size() != 1) {
             return new Exception("wrong number of arguments for 'type' command");
         }
-        String key = new String(args.get(0), StandardCharsets.UTF_8);
+        ByteKey key = ByteKey.wrap(args.get(0));
         return DataStore.getInstance().getType(key);
     }
 }
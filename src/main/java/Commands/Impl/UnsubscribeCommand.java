@@ -53,7 +53,7 @@ public class UnsubscribeCommand implements Command {
             responsePayload.add(channel.getBytes(StandardCharsets.UTF_8));
             responsePayload.add(remainingSubscriptions);
 
-            RespEncoder.encode(context.getOutputStream(), responsePayload);
+            RespEncoder.encodePush(context.getOutputStream(), responsePayload);
             context.getOutputStream().flush();
         } catch (IOException e) {
             // 在实际项目中，这里应该有更完善的日志和异常处理
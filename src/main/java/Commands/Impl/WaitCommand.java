@@ -1,5 +1,6 @@
 package Commands.Impl;
 
+import Commands.BlockingCommand;
 import Commands.Command;
 import Commands.CommandContext;
 import Storage.DataStore;
@@ -11,7 +12,7 @@ import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
-public class WaitCommand implements Command {
+public class WaitCommand implements BlockingCommand {
 
     @Override
     public Object execute(List<byte[]> args, CommandContext context) {
@@ -39,6 +40,12 @@ public class WaitCommand implements Command {
                 return (long) connectedReplicas;
             }
 
+            // 事务中持有段锁，不能等待副本确认，与 BLPOP、XREAD 一样按超时处理：
+            // 没有等到任何新的 ACK，已确认的副本数为 0
+            if (dataStore.inAtomicBlock()) {
+                return 0L;
+            }
+
             // 使用 AtomicInteger 来安全地在多线程中计数
             AtomicInteger syncedReplicasCount = new AtomicInteger(0);
 
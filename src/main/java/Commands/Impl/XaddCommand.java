@@ -3,11 +3,12 @@ package Commands.Impl;
 import Commands.Command;
 import Commands.CommandContext;
 import Commands.WriteCommand;
+import Storage.ByteKey;
 import Storage.DataStore;
 
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -15,6 +16,11 @@ import java.util.Map;
  * @author Achilles
  */
 public class XaddCommand implements WriteCommand {
+    @Override
+    public List<byte[]> getKeys(List<byte[]> args) {
+        return Command.firstKey(args);
+    }
+
     @Override
     public Object execute(List<byte[]> args, CommandContext context) {
         System.out.println("[DEBUG] XaddCommand: Starting execution.");
@@ -24,7 +30,7 @@ public class XaddCommand implements WriteCommand {
                 return new Exception("wrong number of arguments for 'xadd' command");
             }
 
-            String key = new String(args.get(0), StandardCharsets.UTF_8);
+            ByteKey key = ByteKey.wrap(args.get(0));
             String idStr = new String(args.get(1), StandardCharsets.UTF_8);
             System.out.println("[DEBUG] XaddCommand: Key='" + key + "', ID='" + idStr + "'");
 
@@ -44,9 +50,10 @@ public class XaddCommand implements WriteCommand {
             }
             System.out.println("[DEBUG] XaddCommand: Parsed ID to timestamp=" + timestamp + ", sequence=" + sequence);
 
-            Map<String, byte[]> fields = new HashMap<>();
+            // 字段按写入顺序保存，与 Redis 一致
+            Map<ByteKey, byte[]> fields = new LinkedHashMap<>();
             for (int i = 2; i < args.size(); i += 2) {
-                String fieldKey = new String(args.get(i), StandardCharsets.UTF_8);
+                ByteKey fieldKey = ByteKey.wrap(args.get(i));
                 byte[] fieldValue = args.get(i + 1);
                 fields.put(fieldKey, fieldValue);
             }
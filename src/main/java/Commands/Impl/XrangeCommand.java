@@ -3,24 +3,30 @@ package Commands.Impl;
 import Commands.Command;
 import Commands.CommandContext;
 import Config.WrongTypeException;
+import Service.RespEncoder;
+import Service.RespWritable;
+import Storage.ByteKey;
 import Storage.DataStore;
 import Storage.StreamEntry;
 import Storage.StreamEntryID;
 
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 
 public class XrangeCommand implements Command {
+    @Override
+    public List<byte[]> getKeys(List<byte[]> args) {
+        return Command.firstKey(args);
+    }
+
     @Override
     public Object execute(List<byte[]> args, CommandContext context) {
         if (args.size() != 3) {
             return new Exception("wrong number of arguments for 'xrange' command");
         }
         try {
-            String key = new String(args.get(0), StandardCharsets.UTF_8);
+            ByteKey key = ByteKey.wrap(args.get(0));
             String startIdStr = new String(args.get(1), StandardCharsets.UTF_8);
             String endIdStr = new String(args.get(2), StandardCharsets.UTF_8);
 
@@ -31,24 +37,8 @@ public class XrangeCommand implements Command {
             // 调用 DataStore 获取原始数据
             List<StreamEntry> entries = DataStore.getInstance().xrange(key, startId, endId);
 
-            // 将 DataStore 返回的结果转换为 RESP 嵌套数组格式
-            List<List<Object>> response = new ArrayList<>();
-            for (StreamEntry entry : entries) {
-                // 内层数组 1: 代表一个条目
-                List<Object> entryResponse = new ArrayList<>();
-                entryResponse.add(entry.id.toString().getBytes()); // ID
-
-                // 内层数组 2: 代表条目中的键值对
-                List<byte[]> fieldsResponse = new ArrayList<>();
-                for (Map.Entry<String, byte[]> field : entry.fields.entrySet()) {
-                    fieldsResponse.add(field.getKey().getBytes());
-                    fieldsResponse.add(field.getValue());
-                }
-                entryResponse.add(fieldsResponse);
-
-                response.add(entryResponse);
-            }
-            return response;
+            // 直接写入 RESP 嵌套数组，不再构造中间 List
+            return (RespWritable) out -> RespEncoder.writeStreamEntries(out, entries);
 
         } catch (WrongTypeException e) {
             return e;
@@ -1,23 +1,44 @@
 package Commands.Impl;
 
+import Commands.BlockingCommand;
 import Commands.Command;
 import Commands.CommandContext;
 import Config.WrongTypeException;
+import Service.RespEncoder;
+import Service.RespWritable;
+import Storage.ByteKey;
 import Storage.DataStore;
 import Storage.StreamEntry;
 import Storage.StreamEntryID;
 
 import java.io.OutputStream;
-import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 /**
  * @author Achilles
  */
-public class XreadCommand implements Command {
+public class XreadCommand implements BlockingCommand {
 
     private static final StreamEntryID LATEST_ID_PLACEHOLDER = new StreamEntryID(-1, -1);
 
+    @Override
+    public boolean mayBlock(List<byte[]> args) {
+        // 只有带 BLOCK 参数时才会阻塞
+        return args.size() > 1 && "block".equalsIgnoreCase(new String(args.get(0)));
+    }
+
+    @Override
+    public List<byte[]> getKeys(List<byte[]> args) {
+        // STREAMS 之后前一半参数是 key，后一半是 ID
+        for (int i = 0; i < args.size(); i++) {
+            if ("streams".equalsIgnoreCase(new String(args.get(i)))) {
+                int numKeys = (args.size() - 1 - i) / 2;
+                return args.subList(i + 1, i + 1 + numKeys);
+            }
+        }
+        return Collections.emptyList();
+    }
+
     @Override
     public Object execute(List<byte[]> args, CommandContext context) {
         // XREAD streams <key> <id>
@@ -57,9 +78,9 @@ public class XreadCommand implements Command {
                 return new Exception("Unbalanced XREAD list of streams: keys and IDs must match.");
             }
 
-            Map<String, StreamEntryID> streamsToRead = new LinkedHashMap<>();
+            Map<ByteKey, StreamEntryID> streamsToRead = new LinkedHashMap<>();
             for (int i = 0; i < numKeys; i++) {
-                String key = new String(args.get(streamsIndex + 1 + i));
+                ByteKey key = ByteKey.wrap(args.get(streamsIndex + 1 + i));
                 String idStr = new String(args.get(streamsIndex + 1 + numKeys + i));
 
                 if("$".equals(idStr)){
@@ -72,38 +93,21 @@ public class XreadCommand implements Command {
 
 
             //调用Datastore方法
-            Map<String, List<StreamEntry>> resultData = DataStore.getInstance().xread(streamsToRead,timeoutMillis);
+            Map<ByteKey, List<StreamEntry>> resultData = DataStore.getInstance().xread(streamsToRead,timeoutMillis);
 
             if (resultData.isEmpty()||resultData==null) {
                 return Command.NULL_ARRAY_RESPONSE;
             }
 
-            List<Object> response = new ArrayList<>();
-            for (Map.Entry<String, List<StreamEntry>> streamResult : resultData.entrySet()) {
-                // 外层数组 1: 代表一个 Stream 的结果 [key, [[id, [f,v,...]], ...]]
-                List<Object> singleStreamResponse = new ArrayList<>();
-                singleStreamResponse.add(streamResult.getKey().getBytes());
-
-                // 中层数组: 代表该 Stream 所有的条目 [[id, [f,v,...]], [id, [f,v,...]]]
-                List<List<Object>> entriesResponse = new ArrayList<>();
-                for (StreamEntry entry : streamResult.getValue()) {
-                    // 内层数组 1: 代表一个条目 [id, [f,v,...]]
-                    List<Object> entryResponse = new ArrayList<>();
-                    entryResponse.add(entry.id.toString().getBytes());
-
-                    // 内层数组 2: 代表条目中的键值对 [f1, v1, f2, v2, ...]
-                    List<byte[]> fieldsResponse = new ArrayList<>();
-                    for (Map.Entry<String, byte[]> field : entry.fields.entrySet()) {
-                        fieldsResponse.add(field.getKey().getBytes());
-                        fieldsResponse.add(field.getValue());
-                    }
-                    entryResponse.add(fieldsResponse);
-                    entriesResponse.add(entryResponse);
+            // 直接按 [[key, [[id, [f, v, ...]], ...]], ...] 写入响应缓冲区，不再构造嵌套 List
+            return (RespWritable) out -> {
+                out.writeArrayHeader(resultData.size());
+                for (Map.Entry<ByteKey, List<StreamEntry>> streamResult : resultData.entrySet()) {
+                    out.writeArrayHeader(2);
+                    out.writeBulkString(streamResult.getKey().getBytes());
+                    RespEncoder.writeStreamEntries(out, streamResult.getValue());
                 }
-                singleStreamResponse.add(entriesResponse);
-                response.add(singleStreamResponse);
-            }
-            return response;
+            };
 
         } catch (WrongTypeException e) {
             return e;
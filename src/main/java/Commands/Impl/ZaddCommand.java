@@ -5,13 +5,18 @@ package Commands.Impl;
 import Commands.Command;
 import Commands.CommandContext;
 import Commands.WriteCommand;
+import Storage.ByteKey;
 import Storage.DataStore;
 
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 
 public class ZaddCommand implements WriteCommand {
+    @Override
+    public List<byte[]> getKeys(List<byte[]> args) {
+        return Command.firstKey(args);
+    }
+
     @Override
     public Object execute(List<byte[]> args, CommandContext context) {
         if (args.size() < 3 || args.size() % 2 != 1) {
@@ -19,7 +24,7 @@ public class ZaddCommand implements WriteCommand {
         }
 
         try {
-            String key = new String(args.get(0), StandardCharsets.UTF_8);
+            ByteKey key = ByteKey.wrap(args.get(0));
 
             // 将参数列表转换为 Object 列表，以便传递给 DataStore
             List<Object> scoresAndMembers = new ArrayList<>();
@@ -0,0 +1,34 @@
+package Commands.Impl;
+
+import Commands.Command;
+import Commands.CommandContext;
+import Storage.ByteKey;
+import Storage.DataStore;
+import Storage.RedisSortedSet;
+
+import java.util.List;
+
+/**
+ * @author Achilles
+ * ZCOUNT key min max：返回分数在区间内的成员数量
+ */
+public class ZcountCommand implements Command {
+    @Override
+    public List<byte[]> getKeys(List<byte[]> args) {
+        return Command.firstKey(args);
+    }
+
+    @Override
+    public Object execute(List<byte[]> args, CommandContext context) {
+        if (args.size() != 3) {
+            return new Exception("wrong number of arguments for 'zcount' command");
+        }
+        try {
+            ByteKey key = ByteKey.wrap(args.get(0));
+            RedisSortedSet.ScoreRange range = RedisSortedSet.ScoreRange.parse(args.get(1), args.get(2));
+            return DataStore.getInstance().zcount(key, range);
+        } catch (Exception e) {
+            return e;
+        }
+    }
+}
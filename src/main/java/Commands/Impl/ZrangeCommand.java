@@ -2,12 +2,18 @@ package Commands.Impl;
 
 import Commands.Command;
 import Commands.CommandContext;
+import Storage.ByteKey;
 import Storage.DataStore;
 
 import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 public class ZrangeCommand implements Command {
+    @Override
+    public List<byte[]> getKeys(List<byte[]> args) {
+        return Command.firstKey(args);
+    }
+
     @Override
     public Object execute(List<byte[]> args, CommandContext context) {
         if (args.size() != 3) {
@@ -15,7 +21,7 @@ public class ZrangeCommand implements Command {
         }
 
         try {
-            String key = new String(args.get(0), StandardCharsets.UTF_8);
+            ByteKey key = ByteKey.wrap(args.get(0));
             int start = Integer.parseInt(new String(args.get(1), StandardCharsets.UTF_8));
             int stop = Integer.parseInt(new String(args.get(2), StandardCharsets.UTF_8));
 
@@ -0,0 +1,39 @@
+package Commands.Impl;
+
+import Commands.Command;
+import Commands.CommandContext;
+import Storage.ByteKey;
+import Storage.DataStore;
+import Storage.RedisSortedSet;
+
+import java.util.List;
+
+/**
+ * @author Achilles
+ * ZRANGEBYLEX key min max [LIMIT offset count]：所有成员分数相同时，按成员的字典序返回区间内的成员
+ */
+public class ZrangebylexCommand implements Command {
+    @Override
+    public List<byte[]> getKeys(List<byte[]> args) {
+        return Command.firstKey(args);
+    }
+
+    @Override
+    public Object execute(List<byte[]> args, CommandContext context) {
+        if (args.size() < 3) {
+            return new Exception("wrong number of arguments for 'zrangebylex' command");
+        }
+        try {
+            ByteKey key = ByteKey.wrap(args.get(0));
+            RedisSortedSet.LexRange range = RedisSortedSet.LexRange.parse(args.get(1), args.get(2));
+            int[] options = ZrangebyscoreCommand.parseOptions(args, 3, false);
+
+            return DataStore.getInstance().zrangeByLex(key, range,
+                    options[ZrangebyscoreCommand.OFFSET], options[ZrangebyscoreCommand.COUNT]);
+        } catch (NumberFormatException e) {
+            return new Exception("value is not an integer or out of range");
+        } catch (Exception e) {
+            return e;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package Commands.Impl;
+
+import Commands.Command;
+import Commands.CommandContext;
+import Storage.ByteKey;
+import Storage.DataStore;
+import Storage.RedisSortedSet;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * @author Achilles
+ * ZRANGEBYSCORE key min max [WITHSCORES] [LIMIT offset count]：按分数从小到大返回区间内的成员
+ */
+public class ZrangebyscoreCommand implements Command {
+    // parseOptions 返回值中各项的下标
+    static final int WITH_SCORES = 0;
+    static final int OFFSET = 1;
+    static final int COUNT = 2;
+
+    @Override
+    public List<byte[]> getKeys(List<byte[]> args) {
+        return Command.firstKey(args);
+    }
+
+    @Override
+    public Object execute(List<byte[]> args, CommandContext context) {
+        return rangeByScore(args, false, "zrangebyscore");
+    }
+
+    /**
+     * ZRANGEBYSCORE 和 ZREVRANGEBYSCORE 共用，reverse 时参数顺序为 max min。
+     */
+    static Object rangeByScore(List<byte[]> args, boolean reverse, String name) {
+        if (args.size() < 3) {
+            return new Exception("wrong number of arguments for '" + name + "' command");
+        }
+        try {
+            ByteKey key = ByteKey.wrap(args.get(0));
+            byte[] min = reverse ? args.get(2) : args.get(1);
+            byte[] max = reverse ? args.get(1) : args.get(2);
+            RedisSortedSet.ScoreRange range = RedisSortedSet.ScoreRange.parse(min, max);
+            int[] options = parseOptions(args, 3, true);
+
+            return DataStore.getInstance().zrangeByScore(key, range, reverse,
+                    options[OFFSET], options[COUNT], options[WITH_SCORES] == 1);
+        } catch (NumberFormatException e) {
+            return new Exception("value is not an integer or out of range");
+        } catch (Exception e) {
+            return e;
+        }
+    }
+
+    /**
+     * 解析从 from 开始的 WITHSCORES 和 LIMIT offset count 选项。
+     * @return {是否 WITHSCORES (1/0), offset, count}，没有 LIMIT 时 offset 为 0、count 为 -1
+     * @throws NumberFormatException offset 或 count 不是整数
+     * @throws Exception 出现不认识的选项
+     */
+    static int[] parseOptions(List<byte[]> args, int from, boolean allowWithScores) throws Exception {
+        int[] options = {0, 0, -1};
+        for (int i = from; i < args.size(); i++) {
+            String option = new String(args.get(i), StandardCharsets.UTF_8);
+            if (allowWithScores && option.equalsIgnoreCase("withscores")) {
+                options[WITH_SCORES] = 1;
+            } else if (option.equalsIgnoreCase("limit") && i + 2 < args.size()) {
+                options[OFFSET] = Integer.parseInt(new String(args.get(i + 1), StandardCharsets.UTF_8));
+                options[COUNT] = Integer.parseInt(new String(args.get(i + 2), StandardCharsets.UTF_8));
+                i += 2;
+            } else {
+                throw new Exception("syntax error");
+            }
+        }
+        return options;
+    }
+}
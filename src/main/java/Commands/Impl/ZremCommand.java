@@ -2,9 +2,9 @@ package Commands.Impl;
 
 import Commands.Command;
 import Commands.CommandContext;
+import Storage.ByteKey;
 import Storage.DataStore;
 
-import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 /**
@@ -12,13 +12,18 @@ import java.util.List;
  * 实现Zrem 命令
  */
 public class ZremCommand implements Command {
+    @Override
+    public List<byte[]> getKeys(List<byte[]> args) {
+        return Command.firstKey(args);
+    }
+
     @Override
     public Object execute(List<byte[]> args, CommandContext context) {
         if(args.size() < 2){
             return new Exception("wrong number of arguments for 'zrem' command");
         }
         try {
-            String key=new String(args.get(0), StandardCharsets.UTF_8);
+            ByteKey key = ByteKey.wrap(args.get(0));
             List<byte[]> membersToRemove = args.subList(1, args.size());
 
             DataStore dataStore = DataStore.getInstance();
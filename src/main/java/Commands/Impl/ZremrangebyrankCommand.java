@@ -0,0 +1,43 @@
+package Commands.Impl;
+
+import Commands.Command;
+import Commands.CommandContext;
+import Commands.WriteCommand;
+import Storage.ByteKey;
+import Storage.DataStore;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * @author Achilles
+ * ZREMRANGEBYRANK key start stop：删除排名在区间内的所有成员，负数下标从末尾算起
+ */
+public class ZremrangebyrankCommand implements WriteCommand {
+    @Override
+    public List<byte[]> getKeys(List<byte[]> args) {
+        return Command.firstKey(args);
+    }
+
+    @Override
+    public boolean denyOom() {
+        return false;
+    }
+
+    @Override
+    public Object execute(List<byte[]> args, CommandContext context) {
+        if (args.size() != 3) {
+            return new Exception("wrong number of arguments for 'zremrangebyrank' command");
+        }
+        try {
+            ByteKey key = ByteKey.wrap(args.get(0));
+            int start = Integer.parseInt(new String(args.get(1), StandardCharsets.UTF_8));
+            int stop = Integer.parseInt(new String(args.get(2), StandardCharsets.UTF_8));
+            return DataStore.getInstance().zremrangeByRank(key, start, stop);
+        } catch (NumberFormatException e) {
+            return new Exception("value is not an integer or out of range");
+        } catch (Exception e) {
+            return e;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package Commands.Impl;
+
+import Commands.Command;
+import Commands.CommandContext;
+import Commands.WriteCommand;
+import Storage.ByteKey;
+import Storage.DataStore;
+import Storage.RedisSortedSet;
+
+import java.util.List;
+
+/**
+ * @author Achilles
+ * ZREMRANGEBYSCORE key min max：删除分数在区间内的所有成员
+ */
+public class ZremrangebyscoreCommand implements WriteCommand {
+    @Override
+    public List<byte[]> getKeys(List<byte[]> args) {
+        return Command.firstKey(args);
+    }
+
+    @Override
+    public boolean denyOom() {
+        return false;
+    }
+
+    @Override
+    public Object execute(List<byte[]> args, CommandContext context) {
+        if (args.size() != 3) {
+            return new Exception("wrong number of arguments for 'zremrangebyscore' command");
+        }
+        try {
+            ByteKey key = ByteKey.wrap(args.get(0));
+            RedisSortedSet.ScoreRange range = RedisSortedSet.ScoreRange.parse(args.get(1), args.get(2));
+            return DataStore.getInstance().zremrangeByScore(key, range);
+        } catch (Exception e) {
+            return e;
+        }
+    }
+}
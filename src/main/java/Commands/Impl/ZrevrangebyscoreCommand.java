@@ -0,0 +1,22 @@
+package Commands.Impl;
+
+import Commands.Command;
+import Commands.CommandContext;
+
+import java.util.List;
+
+/**
+ * @author Achilles
+ * ZREVRANGEBYSCORE key max min [WITHSCORES] [LIMIT offset count]：按分数从大到小返回区间内的成员
+ */
+public class ZrevrangebyscoreCommand implements Command {
+    @Override
+    public List<byte[]> getKeys(List<byte[]> args) {
+        return Command.firstKey(args);
+    }
+
+    @Override
+    public Object execute(List<byte[]> args, CommandContext context) {
+        return ZrangebyscoreCommand.rangeByScore(args, true, "zrevrangebyscore");
+    }
+}
@@ -2,6 +2,7 @@ package Commands.Impl;
 
 import Commands.Command;
 import Commands.CommandContext;
+import Storage.ByteKey;
 import Storage.DataStore;
 
 import java.nio.charset.StandardCharsets;
@@ -12,13 +13,18 @@ import java.util.List;
  * 实现Zscore命令
  */
 public class ZscoreCommand implements Command {
+    @Override
+    public List<byte[]> getKeys(List<byte[]> args) {
+        return Command.firstKey(args);
+    }
+
     @Override
     public Object execute(List<byte[]> args, CommandContext context) {
         if(args.size()!=2){
             return new Exception("wrong number of arguments for 'zscore' command");
         }
         try {
-            String key = new String(args.get(0), StandardCharsets.UTF_8);
+            ByteKey key = ByteKey.wrap(args.get(0));
             byte[] member = args.get(1);
 
             DataStore dataStore = DataStore.getInstance();
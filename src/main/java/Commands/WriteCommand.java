@@ -1,4 +1,12 @@
 package Commands;
 
 public interface WriteCommand extends Command{
+
+    /**
+     * 内存超过 maxmemory 且无法淘汰时是否拒绝执行（对应 Redis 的 denyoom 标志）。
+     * 只会释放内存的命令（例如 LPOP）返回 false。
+     */
+    default boolean denyOom() {
+        return true;
+    }
 }
@@ -0,0 +1,52 @@
+package Config;
+
+/**
+ * @author Achilles
+ * 内存达到 maxmemory 后的淘汰策略（对应 redis.conf 的 maxmemory-policy）。
+ * allkeys 从所有 key 中挑选，volatile 只从设置了过期时间的 key 中挑选。
+ */
+public enum MaxmemoryPolicy {
+    NOEVICTION("noeviction"),
+    ALLKEYS_LRU("allkeys-lru"),
+    VOLATILE_LRU("volatile-lru"),
+    ALLKEYS_LFU("allkeys-lfu"),
+    VOLATILE_LFU("volatile-lfu"),
+    ALLKEYS_RANDOM("allkeys-random"),
+    VOLATILE_RANDOM("volatile-random"),
+    VOLATILE_TTL("volatile-ttl");
+
+    private final String configName;
+
+    MaxmemoryPolicy(String configName) {
+        this.configName = configName;
+    }
+
+    public String getConfigName() {
+        return configName;
+    }
+
+    public boolean isVolatile() {
+        return this == VOLATILE_LRU || this == VOLATILE_LFU || this == VOLATILE_RANDOM || this == VOLATILE_TTL;
+    }
+
+    public boolean isLru() {
+        return this == ALLKEYS_LRU || this == VOLATILE_LRU;
+    }
+
+    public boolean isLfu() {
+        return this == ALLKEYS_LFU || this == VOLATILE_LFU;
+    }
+
+    public boolean isRandom() {
+        return this == ALLKEYS_RANDOM || this == VOLATILE_RANDOM;
+    }
+
+    public static MaxmemoryPolicy parse(String name) {
+        for (MaxmemoryPolicy policy : values()) {
+            if (policy.configName.equalsIgnoreCase(name)) {
+                return policy;
+            }
+        }
+        throw new IllegalArgumentException("Invalid maxmemory-policy: " + name);
+    }
+}
@@ -0,0 +1,13 @@
+package Config;
+
+/**
+ * @author Achilles
+ * 内存超过 maxmemory 且无法淘汰时拒绝写命令，响应以 OOM 开头（与 Redis 相同）。
+ */
+public class OomException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    public OomException(String message) {
+        super(message);
+    }
+}
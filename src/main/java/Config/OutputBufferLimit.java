@@ -0,0 +1,70 @@
+package Config;
+
+import util.MemoryUtil;
+
+/**
+ * @author Achilles
+ * 一类客户端的输出缓冲区限制（对应 redis.conf 的 client-output-buffer-limit）。
+ * 待发送数据达到硬限制时立即断开；超过软限制并持续 softSeconds 秒后断开。
+ * 限制值为 0 表示不启用。
+ */
+public class OutputBufferLimit {
+
+    /**
+     * 客户端类别，不同类别使用不同的限制。
+     */
+    public enum ClientClass {
+        NORMAL, PUBSUB, REPLICA
+    }
+
+    private final long hardLimitBytes;
+    private final long softLimitBytes;
+    private final long softSeconds;
+
+    public OutputBufferLimit(long hardLimitBytes, long softLimitBytes, long softSeconds) {
+        this.hardLimitBytes = hardLimitBytes;
+        this.softLimitBytes = softLimitBytes;
+        this.softSeconds = softSeconds;
+    }
+
+    public long getHardLimitBytes() {
+        return hardLimitBytes;
+    }
+
+    public long getSoftLimitBytes() {
+        return softLimitBytes;
+    }
+
+    public long getSoftSeconds() {
+        return softSeconds;
+    }
+
+    public boolean isUnlimited() {
+        return hardLimitBytes == 0 && softLimitBytes == 0;
+    }
+
+    /**
+     * 解析 "&lt;hard&gt; &lt;soft&gt; &lt;seconds&gt;" 三个值，例如 "32mb 8mb 60"。
+     */
+    public static OutputBufferLimit parse(String hard, String soft, String seconds) {
+        long softSeconds = Long.parseLong(seconds);
+        if (softSeconds < 0) {
+            throw new NumberFormatException("soft limit seconds can't be negative: " + seconds);
+        }
+        return new OutputBufferLimit(MemoryUtil.parseBytes(hard), MemoryUtil.parseBytes(soft), softSeconds);
+    }
+
+    public static ClientClass parseClientClass(String name) {
+        switch (name.toLowerCase()) {
+            case "normal":
+                return ClientClass.NORMAL;
+            case "pubsub":
+                return ClientClass.PUBSUB;
+            case "replica":
+            case "slave":
+                return ClientClass.REPLICA;
+            default:
+                throw new IllegalArgumentException("Invalid client class specified in buffer limit configuration: " + name);
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package Config;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * @author Achilles
+ * 服务器启动配置，由 Main 根据命令行参数填充。
+ */
+public class ServerConfig {
+    private static final ServerConfig instance = new ServerConfig();
+
+    // 连接处理模式：thread（每连接一个平台线程）、virtual（每连接一个虚拟线程）或 nio（Selector 事件循环）
+    private String ioMode = "thread";
+
+    // nio 模式下的事件循环数量
+    private int eventLoops = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+    // 多线程 I/O 模式下的 I/O 线程数，0 表示在事件循环线程中直接执行命令
+    private int ioThreads = 0;
+
+    // 分片模式下的分片（命令执行线程）数量，0 表示不分片
+    private int shards = 0;
+
+    // 流水线中最多缓冲多少条响应后强制 flush 一次
+    private int pipelineMaxReplies = 1024;
+
+    // 客户端缓存追踪表最多记录多少个 key，超出时淘汰最早的 key 并发送失效通知；0 表示不限制
+    private int trackingTableMaxKeys = 1_000_000;
+
+    // 各类客户端的输出缓冲区限制，默认值与 Redis 相同
+    private final Map<OutputBufferLimit.ClientClass, OutputBufferLimit> outputBufferLimits =
+            new EnumMap<>(OutputBufferLimit.ClientClass.class);
+
+    // Unix 域套接字路径及文件权限（八进制），路径为 null 表示不监听
+    private String unixSocket = null;
+    private String unixSocketPerm = null;
+
+    // 最大客户端连接数，超出时新连接收到错误后被关闭
+    private int maxClients = 10000;
+
+    // 空闲连接超时时间（秒），0 表示不断开空闲连接
+    private int timeout = 0;
+
+    // TCP keepalive 探测间隔（秒），0 表示不开启
+    private int tcpKeepalive = 300;
+
+    // 后台任务（主动过期）每秒执行的次数
+    private int hz = 10;
+
+    // 主动过期的力度（1-10），越大每个周期抽样越多、占用的 CPU 时间越多
+    private int activeExpireEffort = 1;
+
+    // 键空间估算内存的上限（字节），0 表示不限制
+    private long maxMemory = 0;
+
+    // 达到上限后的淘汰策略，以及每次淘汰抽样的 key 数
+    private MaxmemoryPolicy maxMemoryPolicy = MaxmemoryPolicy.NOEVICTION;
+    private int maxMemorySamples = 5;
+
+    // 列表每个 quicklist 节点的大小上限：负数 -1 到 -5 表示 4KB 到 64KB，正数表示元素个数
+    private int listMaxListpackSize = -2;
+
+    // 列表两端不压缩的节点数，0 表示不压缩
+    private int listCompressDepth = 0;
+
+    // 有序集合使用紧凑的 listpack 编码时成员数和单个成员字节数的上限，超过任一项就转换为跳表
+    private int zsetMaxListpackEntries = 128;
+    private int zsetMaxListpackValue = 64;
+
+    // 哈希使用紧凑的 listpack 编码时字段数和单个字段、值字节数的上限，超过任一项就转换为哈希表
+    private int hashMaxListpackEntries = 128;
+    private int hashMaxListpackValue = 64;
+
+    private ServerConfig() {
+        outputBufferLimits.put(OutputBufferLimit.ClientClass.NORMAL, new OutputBufferLimit(0, 0, 0));
+        outputBufferLimits.put(OutputBufferLimit.ClientClass.REPLICA,
+                new OutputBufferLimit(256L * 1024 * 1024, 64L * 1024 * 1024, 60));
+        outputBufferLimits.put(OutputBufferLimit.ClientClass.PUBSUB,
+                new OutputBufferLimit(32L * 1024 * 1024, 8L * 1024 * 1024, 60));
+    }
+
+    public static ServerConfig getInstance() {
+        return instance;
+    }
+
+    public String getIoMode() {
+        return ioMode;
+    }
+
+    public void setIoMode(String ioMode) {
+        this.ioMode = ioMode.toLowerCase();
+    }
+
+    public boolean useVirtualThreads() {
+        return "virtual".equals(ioMode);
+    }
+
+    /**
+     * 按当前模式启动一个连接相关的线程（客户端处理或主从复制）。
+     */
+    public Thread startThread(Runnable task) {
+        if (useVirtualThreads()) {
+            return Thread.ofVirtual().start(task);
+        }
+        Thread thread = new Thread(task);
+        thread.start();
+        return thread;
+    }
+
+    public int getEventLoops() {
+        return eventLoops;
+    }
+
+    public void setEventLoops(int eventLoops) {
+        this.eventLoops = Math.max(1, eventLoops);
+    }
+
+    public int getIoThreads() {
+        return ioThreads;
+    }
+
+    public void setIoThreads(int ioThreads) {
+        this.ioThreads = Math.max(0, ioThreads);
+    }
+
+    public int getShards() {
+        return shards;
+    }
+
+    public void setShards(int shards) {
+        this.shards = Math.max(0, shards);
+    }
+
+    public int getHz() {
+        return hz;
+    }
+
+    public void setHz(int hz) {
+        this.hz = Math.min(500, Math.max(1, hz));
+    }
+
+    public int getActiveExpireEffort() {
+        return activeExpireEffort;
+    }
+
+    public void setActiveExpireEffort(int activeExpireEffort) {
+        this.activeExpireEffort = Math.min(10, Math.max(1, activeExpireEffort));
+    }
+
+    public long getMaxMemory() {
+        return maxMemory;
+    }
+
+    public void setMaxMemory(long maxMemory) {
+        this.maxMemory = Math.max(0, maxMemory);
+    }
+
+    public MaxmemoryPolicy getMaxMemoryPolicy() {
+        return maxMemoryPolicy;
+    }
+
+    public void setMaxMemoryPolicy(MaxmemoryPolicy maxMemoryPolicy) {
+        this.maxMemoryPolicy = maxMemoryPolicy;
+    }
+
+    public int getMaxMemorySamples() {
+        return maxMemorySamples;
+    }
+
+    public void setMaxMemorySamples(int maxMemorySamples) {
+        this.maxMemorySamples = Math.min(64, Math.max(1, maxMemorySamples));
+    }
+
+    public int getListMaxListpackSize() {
+        return listMaxListpackSize;
+    }
+
+    public void setListMaxListpackSize(int listMaxListpackSize) {
+        this.listMaxListpackSize = listMaxListpackSize == 0 ? -2 : Math.max(-5, listMaxListpackSize);
+    }
+
+    public int getListCompressDepth() {
+        return listCompressDepth;
+    }
+
+    public void setListCompressDepth(int listCompressDepth) {
+        this.listCompressDepth = Math.max(0, listCompressDepth);
+    }
+
+    public int getZsetMaxListpackEntries() {
+        return zsetMaxListpackEntries;
+    }
+
+    public void setZsetMaxListpackEntries(int zsetMaxListpackEntries) {
+        this.zsetMaxListpackEntries = Math.max(0, zsetMaxListpackEntries);
+    }
+
+    public int getZsetMaxListpackValue() {
+        return zsetMaxListpackValue;
+    }
+
+    public void setZsetMaxListpackValue(int zsetMaxListpackValue) {
+        this.zsetMaxListpackValue = Math.max(0, zsetMaxListpackValue);
+    }
+
+    public int getHashMaxListpackEntries() {
+        return hashMaxListpackEntries;
+    }
+
+    public void setHashMaxListpackEntries(int hashMaxListpackEntries) {
+        this.hashMaxListpackEntries = Math.max(0, hashMaxListpackEntries);
+    }
+
+    public int getHashMaxListpackValue() {
+        return hashMaxListpackValue;
+    }
+
+    public void setHashMaxListpackValue(int hashMaxListpackValue) {
+        this.hashMaxListpackValue = Math.max(0, hashMaxListpackValue);
+    }
+
+    public int getPipelineMaxReplies() {
+        return pipelineMaxReplies;
+    }
+
+    public void setPipelineMaxReplies(int pipelineMaxReplies) {
+        this.pipelineMaxReplies = Math.max(1, pipelineMaxReplies);
+    }
+
+    public int getTrackingTableMaxKeys() {
+        return trackingTableMaxKeys;
+    }
+
+    public void setTrackingTableMaxKeys(int trackingTableMaxKeys) {
+        this.trackingTableMaxKeys = Math.max(0, trackingTableMaxKeys);
+    }
+
+    public int getMaxClients() {
+        return maxClients;
+    }
+
+    public void setMaxClients(int maxClients) {
+        this.maxClients = Math.max(1, maxClients);
+    }
+
+    public int getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(int timeout) {
+        this.timeout = Math.max(0, timeout);
+    }
+
+    public int getTcpKeepalive() {
+        return tcpKeepalive;
+    }
+
+    public void setTcpKeepalive(int tcpKeepalive) {
+        this.tcpKeepalive = Math.max(0, tcpKeepalive);
+    }
+
+    public String getUnixSocket() {
+        return unixSocket;
+    }
+
+    public void setUnixSocket(String unixSocket) {
+        this.unixSocket = unixSocket;
+    }
+
+    public String getUnixSocketPerm() {
+        return unixSocketPerm;
+    }
+
+    public void setUnixSocketPerm(String unixSocketPerm) {
+        this.unixSocketPerm = unixSocketPerm;
+    }
+
+    public OutputBufferLimit getOutputBufferLimit(OutputBufferLimit.ClientClass clientClass) {
+        return outputBufferLimits.get(clientClass);
+    }
+
+    /**
+     * 按 redis.conf 的格式设置一类客户端的限制，例如 "pubsub 32mb 8mb 60"。
+     */
+    public void setOutputBufferLimit(String spec) {
+        String[] parts = spec.trim().split("\\s+");
+        if (parts.length != 4) {
+            throw new IllegalArgumentException("Wrong number of arguments in buffer limit configuration: " + spec);
+        }
+        outputBufferLimits.put(OutputBufferLimit.parseClientClass(parts[0]),
+                OutputBufferLimit.parse(parts[1], parts[2], parts[3]));
+    }
+}
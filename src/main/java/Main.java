@@ -1,8 +1,14 @@
 import Commands.CommandHandler;
+import Config.MaxmemoryPolicy;
+import Config.ServerConfig;
 import Service.ClientHandler;
+import Service.ClientRegistry;
 import Service.MasterConnectionHandler;
+import Service.NioServer;
+import Service.UnixSocketServer;
 import Storage.DataStore;
 import Storage.ReplicationInfo;
+import util.MemoryUtil;
 import util.RdbParser;
 
 import java.io.File;
@@ -50,6 +56,126 @@ public class Main {
                       dbFileName=args[i+1];
                       i++;
                   }
+              } else if ("--io-mode".equalsIgnoreCase(args[i])) {
+                  if(i+1<args.length){
+                      ServerConfig.getInstance().setIoMode(args[i+1]);
+                      i++;
+                  }
+              } else if ("--pipeline-max-replies".equalsIgnoreCase(args[i])) {
+                  if(i+1<args.length){
+                      ServerConfig.getInstance().setPipelineMaxReplies(Integer.parseInt(args[i+1]));
+                      i++;
+                  }
+              } else if ("--client-output-buffer-limit".equalsIgnoreCase(args[i])) {
+                  if(i+1<args.length){
+                      // 例如 --client-output-buffer-limit "pubsub 32mb 8mb 60"，可以重复指定
+                      ServerConfig.getInstance().setOutputBufferLimit(args[i+1]);
+                      i++;
+                  }
+              } else if ("--maxclients".equalsIgnoreCase(args[i])) {
+                  if(i+1<args.length){
+                      ServerConfig.getInstance().setMaxClients(Integer.parseInt(args[i+1]));
+                      i++;
+                  }
+              } else if ("--timeout".equalsIgnoreCase(args[i])) {
+                  if(i+1<args.length){
+                      ServerConfig.getInstance().setTimeout(Integer.parseInt(args[i+1]));
+                      i++;
+                  }
+              } else if ("--tcp-keepalive".equalsIgnoreCase(args[i])) {
+                  if(i+1<args.length){
+                      ServerConfig.getInstance().setTcpKeepalive(Integer.parseInt(args[i+1]));
+                      i++;
+                  }
+              } else if ("--unixsocket".equalsIgnoreCase(args[i])) {
+                  if(i+1<args.length){
+                      ServerConfig.getInstance().setUnixSocket(args[i+1]);
+                      i++;
+                  }
+              } else if ("--unixsocketperm".equalsIgnoreCase(args[i])) {
+                  if(i+1<args.length){
+                      ServerConfig.getInstance().setUnixSocketPerm(args[i+1]);
+                      i++;
+                  }
+              } else if ("--tracking-table-max-keys".equalsIgnoreCase(args[i])) {
+                  if(i+1<args.length){
+                      ServerConfig.getInstance().setTrackingTableMaxKeys(Integer.parseInt(args[i+1]));
+                      i++;
+                  }
+              } else if ("--io-threads".equalsIgnoreCase(args[i])) {
+                  if(i+1<args.length){
+                      // 多线程 I/O 建立在 NIO 事件循环之上
+                      ServerConfig.getInstance().setIoThreads(Integer.parseInt(args[i+1]));
+                      ServerConfig.getInstance().setIoMode("nio");
+                      i++;
+                  }
+              } else if ("--shards".equalsIgnoreCase(args[i])) {
+                  if(i+1<args.length){
+                      // 分片模式同样建立在 NIO 事件循环之上
+                      ServerConfig.getInstance().setShards(Integer.parseInt(args[i+1]));
+                      ServerConfig.getInstance().setIoMode("nio");
+                      i++;
+                  }
+              } else if ("--hz".equalsIgnoreCase(args[i])) {
+                  if(i+1<args.length){
+                      ServerConfig.getInstance().setHz(Integer.parseInt(args[i+1]));
+                      i++;
+                  }
+              } else if ("--active-expire-effort".equalsIgnoreCase(args[i])) {
+                  if(i+1<args.length){
+                      ServerConfig.getInstance().setActiveExpireEffort(Integer.parseInt(args[i+1]));
+                      i++;
+                  }
+              } else if ("--maxmemory".equalsIgnoreCase(args[i])) {
+                  if(i+1<args.length){
+                      ServerConfig.getInstance().setMaxMemory(MemoryUtil.parseBytes(args[i+1]));
+                      i++;
+                  }
+              } else if ("--maxmemory-policy".equalsIgnoreCase(args[i])) {
+                  if(i+1<args.length){
+                      ServerConfig.getInstance().setMaxMemoryPolicy(MaxmemoryPolicy.parse(args[i+1]));
+                      i++;
+                  }
+              } else if ("--maxmemory-samples".equalsIgnoreCase(args[i])) {
+                  if(i+1<args.length){
+                      ServerConfig.getInstance().setMaxMemorySamples(Integer.parseInt(args[i+1]));
+                      i++;
+                  }
+              } else if ("--list-max-listpack-size".equalsIgnoreCase(args[i])) {
+                  if(i+1<args.length){
+                      ServerConfig.getInstance().setListMaxListpackSize(Integer.parseInt(args[i+1]));
+                      i++;
+                  }
+              } else if ("--list-compress-depth".equalsIgnoreCase(args[i])) {
+                  if(i+1<args.length){
+                      ServerConfig.getInstance().setListCompressDepth(Integer.parseInt(args[i+1]));
+                      i++;
+                  }
+              } else if ("--zset-max-listpack-entries".equalsIgnoreCase(args[i])) {
+                  if(i+1<args.length){
+                      ServerConfig.getInstance().setZsetMaxListpackEntries(Integer.parseInt(args[i+1]));
+                      i++;
+                  }
+              } else if ("--zset-max-listpack-value".equalsIgnoreCase(args[i])) {
+                  if(i+1<args.length){
+                      ServerConfig.getInstance().setZsetMaxListpackValue(Integer.parseInt(args[i+1]));
+                      i++;
+                  }
+              } else if ("--hash-max-listpack-entries".equalsIgnoreCase(args[i])) {
+                  if(i+1<args.length){
+                      ServerConfig.getInstance().setHashMaxListpackEntries(Integer.parseInt(args[i+1]));
+                      i++;
+                  }
+              } else if ("--hash-max-listpack-value".equalsIgnoreCase(args[i])) {
+                  if(i+1<args.length){
+                      ServerConfig.getInstance().setHashMaxListpackValue(Integer.parseInt(args[i+1]));
+                      i++;
+                  }
+              } else if ("--event-loops".equalsIgnoreCase(args[i])) {
+                  if(i+1<args.length){
+                      ServerConfig.getInstance().setEventLoops(Integer.parseInt(args[i+1]));
+                      i++;
+                  }
               }
           }
           DataStore dataStore=DataStore.getInstance();
@@ -77,14 +203,56 @@ public class Main {
       if (masterHost!=null&&masterPort!=-1){
           DataStore.getInstance().setAsReplica(masterHost, masterPort);
           MasterConnectionHandler masterConnectionHandler=new MasterConnectionHandler(masterHost, masterPort,port,commandHandler);
-          new Thread(masterConnectionHandler).start();
+          ServerConfig.getInstance().startThread(masterConnectionHandler);
 
       }
+      ServerConfig config=ServerConfig.getInstance();
+      ClientRegistry.getInstance().startIdleReaper();
+      DataStore.getInstance().startActiveExpireCycle();
+      if ("nio".equals(config.getIoMode())){
+          try {
+              NioServer server;
+              if (config.getShards() > 0) {
+                  int ioThreads = config.getIoThreads() > 0 ? config.getIoThreads() : config.getEventLoops();
+                  System.out.println("Starting sharded mode with " + config.getShards() + " shard executor(s) and " + ioThreads + " I/O thread(s).");
+                  server = new NioServer(port, commandHandler, ioThreads, config.getShards());
+              } else if (config.getIoThreads() > 0) {
+                  System.out.println("Starting threaded I/O with " + config.getIoThreads() + " I/O thread(s) and a single command executor.");
+                  server = new NioServer(port, commandHandler, config.getIoThreads(), 1);
+              } else {
+                  System.out.println("Starting in NIO mode with " + config.getEventLoops() + " event loop(s).");
+                  server = new NioServer(port, commandHandler, config.getEventLoops(), 0);
+              }
+              if (config.getUnixSocket() != null) {
+                  server.listenUnixSocket(config.getUnixSocket(), config.getUnixSocketPerm());
+              }
+              server.start();
+          } catch (IOException e) {
+              System.out.println("IOException in Main: " + e.getMessage());
+          }
+          return;
+      }
+      if (config.getUnixSocket() != null) {
+          try {
+              new UnixSocketServer(config.getUnixSocket(), config.getUnixSocketPerm(),
+                      channel -> {
+                          if (ClientRegistry.getInstance().admit(channel)) {
+                              config.startThread(new ClientHandler(channel, commandHandler));
+                          }
+                      }).start();
+          } catch (IOException e) {
+              System.out.println("IOException opening unix socket: " + e.getMessage());
+          }
+      }
       try (ServerSocket serverSocket = new ServerSocket(port)) {
           serverSocket.setReuseAddress(true);
           while (true) {
               Socket clientSocket = serverSocket.accept();
-              new Thread(new ClientHandler(clientSocket, commandHandler)).start();
+              // 超过 maxclients 时在创建处理线程之前拒绝
+              if (!ClientRegistry.getInstance().admit(clientSocket)) {
+                  continue;
+              }
+              config.startThread(new ClientHandler(clientSocket, commandHandler));
           }
       } catch (IOException e) {
           System.out.println("IOException in Main: " + e.getMessage());
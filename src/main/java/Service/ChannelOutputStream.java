@@ -0,0 +1,54 @@
+package Service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * @author Achilles
+ * NIO 连接的输出流：写入只追加到响应缓冲区，真正的 socket 写由所属事件循环完成，
+ * 所以 flush 本身就是异步的，不会阻塞调用线程。
+ */
+public class ChannelOutputStream extends ReplyBuffer {
+    private final NioConnection owner;
+
+    ChannelOutputStream(NioConnection owner) {
+        super(4096);
+        this.owner = owner;
+    }
+
+    /**
+     * 通知事件循环把缓冲区中的数据写到 socket。
+     */
+    @Override
+    public void flush() {
+        if (checkOutputLimit()) {
+            owner.requestWrite();
+        }
+    }
+
+    @Override
+    protected void scheduleFlush() {
+        owner.requestWrite();
+    }
+
+    /**
+     * 尽可能多地把缓冲数据写入通道，未写完的部分保留在缓冲区头部。
+     * @return 缓冲区是否已经全部写出
+     */
+    synchronized boolean drainTo(WritableByteChannel channel) throws IOException {
+        if (count == 0) {
+            return true;
+        }
+        ByteBuffer pending = ByteBuffer.wrap(buffer, 0, count);
+        channel.write(pending);
+        int remaining = pending.remaining();
+        if (remaining == 0) {
+            reset();
+            return true;
+        }
+        System.arraycopy(buffer, pending.position(), buffer, 0, remaining);
+        count = remaining;
+        return false;
+    }
+}
@@ -0,0 +1,62 @@
+package Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * @author Achilles
+ * 把阻塞模式的 SocketChannel（例如 Unix 域套接字）包装成输入/输出流，供 ClientHandler 使用。
+ * 不使用 Channels.newInputStream：它在读写时都持有通道的 blockingLock，
+ * 读线程阻塞时后台写线程会被卡住；SocketChannel 本身允许读和写在不同线程上同时进行。
+ */
+class ChannelStreams {
+
+    static InputStream newInputStream(SocketChannel channel) {
+        return new InputStream() {
+            @Override
+            public int read() throws IOException {
+                byte[] one = new byte[1];
+                int n = read(one, 0, 1);
+                return n == -1 ? -1 : one[0] & 0xff;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (len == 0) {
+                    return 0;
+                }
+                return channel.read(ByteBuffer.wrap(b, off, len));
+            }
+
+            @Override
+            public void close() throws IOException {
+                channel.close();
+            }
+        };
+    }
+
+    static OutputStream newOutputStream(SocketChannel channel) {
+        return new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                ByteBuffer data = ByteBuffer.wrap(b, off, len);
+                while (data.hasRemaining()) {
+                    channel.write(data);
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                channel.close();
+            }
+        };
+    }
+}
@@ -0,0 +1,167 @@
+package Service;
+
+import Config.ServerConfig;
+import util.SocketUtil;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author Achilles
+ * 所有活跃客户端连接的登记表，为每个连接分配唯一的 ID（CLIENT ID），
+ * 供 CLIENT TRACKING 的 REDIRECT 等需要按 ID 查找连接的功能使用。
+ * 同时负责连接准入（maxclients）和空闲连接回收（timeout）：
+ * 接受连接的线程在创建处理线程或注册事件循环之前调用 admit，名额在连接注销时释放，
+ * 没能建立 Connection 的连接由出错的一方调用 release 释放。
+ */
+public class ClientRegistry {
+    private static final ClientRegistry instance = new ClientRegistry();
+
+    private static final byte[] MAX_CLIENTS_ERROR =
+            "-ERR max number of clients reached\r\n".getBytes(StandardCharsets.UTF_8);
+    // 空闲回收线程的扫描间隔
+    private static final long REAPER_INTERVAL_MILLIS = 1000;
+
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final Map<Long, Connection> clients = new ConcurrentHashMap<>();
+    // 已准入（包括尚未创建 Connection）的连接数
+    private final AtomicInteger admitted = new AtomicInteger();
+
+    private ClientRegistry() {
+    }
+
+    public static ClientRegistry getInstance() {
+        return instance;
+    }
+
+    /**
+     * 为新连接分配 ID。
+     */
+    public long nextId() {
+        return nextId.getAndIncrement();
+    }
+
+    /**
+     * 登记一个已经分配了 ID 的新连接。
+     */
+    public void register(Connection connection) {
+        clients.put(connection.getId(), connection);
+    }
+
+    /**
+     * 注销连接并释放它占用的准入名额。
+     */
+    public void unregister(long id) {
+        if (clients.remove(id) != null) {
+            admitted.decrementAndGet();
+        }
+    }
+
+    /**
+     * 释放一个已准入但还没有建立 Connection 的名额，连接在 Connection.open 之前失败时调用。
+     */
+    public void release() {
+        admitted.decrementAndGet();
+    }
+
+    public Connection get(long id) {
+        return clients.get(id);
+    }
+
+    public int size() {
+        return clients.size();
+    }
+
+    /**
+     * 准入一个刚接受的 TCP 连接：超过 maxclients 时回复错误并关闭，否则设置 keepalive。
+     * @return 连接是否被接受
+     */
+    public boolean admit(Socket socket) {
+        if (!tryAcquire()) {
+            try (Socket rejected = socket) {
+                rejected.getOutputStream().write(MAX_CLIENTS_ERROR);
+            } catch (IOException ignored) {
+                // 被拒绝的连接出错无需处理
+            }
+            return false;
+        }
+        try {
+            SocketUtil.configureKeepAlive(socket, ServerConfig.getInstance().getTcpKeepalive());
+        } catch (IOException e) {
+            System.out.println("Failed to enable TCP keepalive: " + e.getMessage());
+        }
+        return true;
+    }
+
+    /**
+     * 准入一个刚接受的通道（TCP 或 Unix 域套接字，仍处于阻塞模式）。
+     */
+    public boolean admit(SocketChannel channel) {
+        if (!tryAcquire()) {
+            try (SocketChannel rejected = channel) {
+                rejected.write(ByteBuffer.wrap(MAX_CLIENTS_ERROR));
+            } catch (IOException ignored) {
+                // 被拒绝的连接出错无需处理
+            }
+            return false;
+        }
+        try {
+            SocketUtil.configureKeepAlive(channel, ServerConfig.getInstance().getTcpKeepalive());
+        } catch (IOException e) {
+            System.out.println("Failed to enable TCP keepalive: " + e.getMessage());
+        }
+        return true;
+    }
+
+    private boolean tryAcquire() {
+        int maxClients = ServerConfig.getInstance().getMaxClients();
+        while (true) {
+            int current = admitted.get();
+            if (current >= maxClients) {
+                return false;
+            }
+            if (admitted.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 配置了 timeout 时启动空闲回收线程。
+     * 订阅中、阻塞在 BLPOP/XREAD/WAIT 上的连接以及副本连接不受超时限制。
+     */
+    public void startIdleReaper() {
+        if (ServerConfig.getInstance().getTimeout() <= 0) {
+            return;
+        }
+        Thread reaper = new Thread(() -> {
+            while (true) {
+                try {
+                    Thread.sleep(REAPER_INTERVAL_MILLIS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                closeIdleClients();
+            }
+        }, "idle-reaper");
+        reaper.setDaemon(true);
+        reaper.start();
+    }
+
+    private void closeIdleClients() {
+        long timeoutMillis = ServerConfig.getInstance().getTimeout() * 1000L;
+        for (Connection connection : clients.values()) {
+            if (!connection.isIdleExempt() && connection.getIdleMillis() > timeoutMillis) {
+                System.out.println("Closing idle client " + connection.getId());
+                connection.disconnect();
+            }
+        }
+    }
+}
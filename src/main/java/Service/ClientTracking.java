@@ -0,0 +1,130 @@
+package Service;
+
+import Config.ServerConfig;
+import Storage.ByteKey;
+import Storage.DataStore;
+
+import java.util.*;
+
+/**
+ * @author Achilles
+ * 客户端缓存追踪（CLIENT TRACKING）的服务端状态。
+ * 默认模式下记录每个 key 被哪些客户端读过，key 被修改时通知这些客户端后删除记录，
+ * 所以每次读取最多换来一条失效通知；表的大小受 tracking-table-max-keys 限制，
+ * 超出时淘汰最早登记的 key，并提前通知读过它的客户端。
+ * 广播模式（BCAST）不记录读取，按前缀把所有匹配 key 的修改通知给订阅了该前缀的客户端。
+ * 表中只保存客户端 ID，已断开的连接在发送通知时通过 ClientRegistry 查不到，自然被忽略。
+ */
+public class ClientTracking implements DataStore.KeyModifiedListener {
+    private static final ClientTracking instance = new ClientTracking();
+    // 不带 PREFIX 的广播订阅，匹配所有 key
+    private static final ByteKey ALL_KEYS = ByteKey.wrap(new byte[0]);
+
+    // key -> 读过它的客户端 ID，按登记顺序排列，便于淘汰最早的 key
+    private final LinkedHashMap<ByteKey, Set<Long>> trackedKeys = new LinkedHashMap<>();
+    // 广播模式的前缀 -> 客户端 ID，空前缀匹配所有 key
+    private final Map<ByteKey, Set<Long>> prefixes = new HashMap<>();
+
+    private ClientTracking() {
+        DataStore.getInstance().addKeyModifiedListener(this);
+    }
+
+    public static ClientTracking getInstance() {
+        return instance;
+    }
+
+    /**
+     * 默认模式：记录客户端读取了这些 key。
+     */
+    public void trackKeys(long clientId, List<byte[]> keys) {
+        Map<ByteKey, Set<Long>> evicted = null;
+        synchronized (this) {
+            for (byte[] key : keys) {
+                trackedKeys.computeIfAbsent(ByteKey.wrap(key), k -> new HashSet<>()).add(clientId);
+            }
+            int maxKeys = ServerConfig.getInstance().getTrackingTableMaxKeys();
+            if (maxKeys > 0 && trackedKeys.size() > maxKeys) {
+                evicted = new LinkedHashMap<>();
+                Iterator<Map.Entry<ByteKey, Set<Long>>> iterator = trackedKeys.entrySet().iterator();
+                while (trackedKeys.size() > maxKeys) {
+                    Map.Entry<ByteKey, Set<Long>> eldest = iterator.next();
+                    evicted.put(eldest.getKey(), eldest.getValue());
+                    iterator.remove();
+                }
+            }
+        }
+        if (evicted != null) {
+            // 被淘汰的 key 之后的修改不会再通知，所以现在就让客户端丢弃缓存
+            for (Map.Entry<ByteKey, Set<Long>> entry : evicted.entrySet()) {
+                sendInvalidation(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * 广播模式：订阅若干前缀，没有前缀时订阅所有 key。
+     */
+    public synchronized void addPrefixes(long clientId, List<ByteKey> clientPrefixes) {
+        if (clientPrefixes.isEmpty()) {
+            prefixes.computeIfAbsent(ALL_KEYS, k -> new HashSet<>()).add(clientId);
+            return;
+        }
+        for (ByteKey prefix : clientPrefixes) {
+            prefixes.computeIfAbsent(prefix, k -> new HashSet<>()).add(clientId);
+        }
+    }
+
+    /**
+     * 关闭追踪或断开连接时移除客户端的广播订阅。
+     * 默认模式下的读取记录不逐个清理，在下一次失效时丢弃。
+     */
+    public synchronized void removePrefixes(long clientId, List<ByteKey> clientPrefixes) {
+        List<ByteKey> toRemove = clientPrefixes.isEmpty() ? Collections.singletonList(ALL_KEYS) : clientPrefixes;
+        for (ByteKey prefix : toRemove) {
+            Set<Long> clients = prefixes.get(prefix);
+            if (clients != null) {
+                clients.remove(clientId);
+                if (clients.isEmpty()) {
+                    prefixes.remove(prefix);
+                }
+            }
+        }
+    }
+
+    public synchronized int getTrackedKeyCount() {
+        return trackedKeys.size();
+    }
+
+    @Override
+    public void onKeyModified(ByteKey key) {
+        Set<Long> targets = null;
+        synchronized (this) {
+            Set<Long> readers = trackedKeys.remove(key);
+            if (readers != null) {
+                targets = new LinkedHashSet<>(readers);
+            }
+            for (Map.Entry<ByteKey, Set<Long>> entry : prefixes.entrySet()) {
+                if (key.startsWith(entry.getKey())) {
+                    if (targets == null) {
+                        targets = new LinkedHashSet<>();
+                    }
+                    targets.addAll(entry.getValue());
+                }
+            }
+        }
+        if (targets != null) {
+            sendInvalidation(key, targets);
+        }
+    }
+
+    private void sendInvalidation(ByteKey key, Set<Long> targets) {
+        byte[] keyBytes = key.getBytes();
+        ClientRegistry registry = ClientRegistry.getInstance();
+        for (long clientId : targets) {
+            Connection connection = registry.get(clientId);
+            if (connection != null) {
+                connection.sendInvalidation(keyBytes);
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package Service;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * @author Achilles
+ * 命令执行线程：多线程 I/O 模式下只有一个，分片模式下每个分片一个。
+ * I/O 线程把解析好的命令批次放入无锁队列，这里按提交顺序逐个执行；
+ * 队列为空时线程 park，提交方只在它确实休眠时才 unpark。
+ */
+class CommandExecutor implements Runnable {
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean parked = new AtomicBoolean(false);
+    private final Thread thread;
+
+    CommandExecutor(String name) {
+        this.thread = new Thread(this, name);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    void submit(Runnable task) {
+        tasks.add(task);
+        if (parked.get()) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    @Override
+    public void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            Runnable task = tasks.poll();
+            if (task != null) {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    System.out.println("Error in command executor: " + e.getMessage());
+                }
+                continue;
+            }
+            parked.set(true);
+            // 设置标志后再检查一次，避免错过刚入队的任务
+            if (tasks.isEmpty()) {
+                LockSupport.park(this);
+            }
+            parked.set(false);
+        }
+    }
+}
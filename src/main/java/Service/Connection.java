@@ -0,0 +1,561 @@
+package Service;
+
+import Commands.BlockingCommand;
+import Commands.Command;
+import Commands.CommandContext;
+import Commands.CommandHandler;
+import Commands.WriteCommand;
+import Config.OomException;
+import Config.OutputBufferLimit;
+import Storage.ByteKey;
+import Storage.DataStore;
+import util.RdbUtil;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * @author Achilles
+ * 一个客户端连接的会话状态（事务队列、订阅模式）以及命令分发逻辑。
+ * 与具体的 I/O 模型无关：阻塞的 ClientHandler 和 NIO 事件循环都通过它执行命令。
+ */
+public class Connection {
+
+    /**
+     * execute 的返回值：命令已经自行写出响应，或者不需要响应。
+     */
+    public static final Object NO_REPLY = new Object();
+
+    private static final String OOM_ERROR = "command not allowed when used memory > 'maxmemory'.";
+    private static final byte[] INVALIDATE_BYTES = "invalidate".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] MESSAGE_BYTES = "message".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] INVALIDATE_CHANNEL_BYTES = "__redis__:invalidate".getBytes(StandardCharsets.UTF_8);
+
+    private final long id;
+    private String name;
+    private final OutputStream outputStream;
+    private final CommandHandler commandHandler;
+    // 命令需要直接写输出流之前的回调，见 execute
+    private Runnable beforeDirectWrite;
+    private boolean inTransaction = false;
+    private final Queue<List<byte[]>> transactionQueue = new LinkedList<>();
+    // 失效通知由其他线程发送时会读取订阅状态
+    private volatile boolean isSubscribed = false;
+    private volatile int protocolVersion = 2;
+
+    // 客户端缓存追踪状态，见 ClientTracking
+    private volatile boolean tracking = false;
+    private volatile boolean trackingBroadcast = false;
+    private volatile long trackingRedirect = 0;
+    private List<ByteKey> trackingPrefixes = Collections.emptyList();
+
+    // 空闲超时相关：最近一次收到命令的时间，以及是否正阻塞在 BLPOP 等命令上
+    private volatile long lastInteraction = System.currentTimeMillis();
+    private volatile boolean blocked = false;
+    // 由 I/O 层设置的异步断开连接回调（空闲超时时使用）
+    private volatile Runnable disconnectHandler;
+    // 订阅模式下命令白名单
+    private static final Set<String> ALLOWED_SUBSCRIBE_COMMANDS = new HashSet<>(Arrays.asList(
+            "subscribe", "unsubscribe", "psubscribe", "punsubscribe", "ping", "quit"
+    ));
+
+    private Connection(OutputStream outputStream, CommandHandler commandHandler) {
+        this.outputStream = outputStream;
+        this.commandHandler = commandHandler;
+        this.id = ClientRegistry.getInstance().nextId();
+    }
+
+    /**
+     * 创建连接并登记到 ClientRegistry。
+     * 登记放在构造完成之后，其他线程通过 CLIENT LIST 等看到的总是完整初始化的对象。
+     */
+    public static Connection open(OutputStream outputStream, CommandHandler commandHandler) {
+        Connection connection = new Connection(outputStream, commandHandler);
+        ClientRegistry.getInstance().register(connection);
+        return connection;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public int getProtocolVersion() {
+        return protocolVersion;
+    }
+
+    /**
+     * 切换 RESP 版本（HELLO 命令），之后的响应按新版本编码。
+     */
+    public void setProtocolVersion(int protocolVersion) {
+        this.protocolVersion = protocolVersion;
+        if (outputStream instanceof ReplyBuffer) {
+            ((ReplyBuffer) outputStream).setProtocolVersion(protocolVersion);
+        }
+    }
+
+    public boolean isTracking() {
+        return tracking;
+    }
+
+    public boolean isTrackingBroadcast() {
+        return trackingBroadcast;
+    }
+
+    public long getTrackingRedirect() {
+        return trackingRedirect;
+    }
+
+    /**
+     * 打开客户端缓存追踪。
+     * @param redirect 接收失效通知的连接 ID，0 表示发给自己
+     * @param broadcast 是否为广播模式
+     * @param prefixes 广播模式下订阅的前缀，为空表示所有 key
+     */
+    public void enableTracking(long redirect, boolean broadcast, List<ByteKey> prefixes) {
+        ClientTracking clientTracking = ClientTracking.getInstance();
+        if (tracking && trackingBroadcast) {
+            clientTracking.removePrefixes(id, trackingPrefixes);
+        }
+        this.trackingRedirect = redirect;
+        this.trackingBroadcast = broadcast;
+        this.trackingPrefixes = prefixes;
+        if (broadcast) {
+            clientTracking.addPrefixes(id, prefixes);
+        }
+        this.tracking = true;
+    }
+
+    public void disableTracking() {
+        if (!tracking) {
+            return;
+        }
+        tracking = false;
+        if (trackingBroadcast) {
+            ClientTracking.getInstance().removePrefixes(id, trackingPrefixes);
+        }
+        trackingBroadcast = false;
+        trackingRedirect = 0;
+        trackingPrefixes = Collections.emptyList();
+    }
+
+    public void setDisconnectHandler(Runnable disconnectHandler) {
+        this.disconnectHandler = disconnectHandler;
+    }
+
+    /**
+     * 从其他线程请求关闭连接，实际关闭由 I/O 层异步完成。
+     */
+    public void disconnect() {
+        Runnable handler = disconnectHandler;
+        if (handler != null) {
+            handler.run();
+        }
+    }
+
+    public long getIdleMillis() {
+        return System.currentTimeMillis() - lastInteraction;
+    }
+
+    /**
+     * 订阅中、阻塞中的连接和副本连接不因空闲而断开。
+     */
+    public boolean isIdleExempt() {
+        if (isSubscribed || blocked) {
+            return true;
+        }
+        return outputStream instanceof ReplyBuffer
+                && ((ReplyBuffer) outputStream).getClientClass() == OutputBufferLimit.ClientClass.REPLICA;
+    }
+
+    private void propagate(List<byte[]> commandParts) {
+        DataStore.getInstance().incrementReplicaOffset(calculateCommandSize(commandParts));
+        DataStore.getInstance().propagateCommand(commandParts);
+    }
+
+    /**
+     * 命令涉及的 key。不涉及 key 的命令（PING、WAIT 等）返回空列表，执行时不持有任何段锁。
+     */
+    private static List<ByteKey> keyNames(List<byte[]> keys) {
+        List<ByteKey> names = new ArrayList<>(keys.size());
+        for (byte[] key : keys) {
+            names.add(ByteKey.wrap(key));
+        }
+        return names;
+    }
+
+    /**
+     * 事务中所有命令涉及的 key 的并集，不涉及 key 的命令不占用任何段。
+     */
+    private List<ByteKey> transactionKeys() {
+        List<ByteKey> all = new ArrayList<>();
+        for (List<byte[]> queued : transactionQueue) {
+            Command command = commandHandler.getCommand(new String(queued.get(0), StandardCharsets.UTF_8));
+            if (command == null) {
+                continue;
+            }
+            all.addAll(keyNames(command.getKeys(queued.subList(1, queued.size()))));
+        }
+        return all;
+    }
+
+    /**
+     * 事务中是否有内存超限时应被拒绝的写命令，有则整个事务被拒绝（与 Redis 的 EXEC 一致）。
+     */
+    private boolean transactionDeniesOom() {
+        for (List<byte[]> queued : transactionQueue) {
+            Command command = commandHandler.getCommand(new String(queued.get(0), StandardCharsets.UTF_8));
+            if (command instanceof WriteCommand && ((WriteCommand) command).denyOom()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 分片模式下用于选择执行线程的 key。
+     * 事务中入队的命令以及不涉及 key 的命令返回空列表，可以在任意线程执行。
+     */
+    public List<ByteKey> routingKeys(List<byte[]> commandParts) {
+        String commandName = new String(commandParts.get(0), StandardCharsets.UTF_8).toLowerCase();
+        if (inTransaction) {
+            if (!"exec".equals(commandName)) {
+                return Collections.emptyList();
+            }
+            return transactionKeys();
+        }
+        Command command = commandHandler.getCommand(commandName);
+        if (command == null) {
+            return Collections.emptyList();
+        }
+        return keyNames(command.getKeys(commandParts.subList(1, commandParts.size())));
+    }
+
+    private Object runCommand(Command command, List<byte[]> args, CommandContext context) {
+        trackReads(command, args);
+        boolean blocking = command instanceof BlockingCommand;
+        if (blocking) {
+            blocked = true;
+        }
+        try {
+            return command.execute(args, context);
+        } catch (RuntimeException e) {
+            // 命令实现中的意外异常只让这一条命令失败，不能让事件循环或执行线程退出
+            System.out.println("Error executing command for client " + id + ": " + e);
+            return new Exception("internal error while executing command: " + e.getMessage());
+        } finally {
+            if (blocking) {
+                blocked = false;
+                lastInteraction = System.currentTimeMillis();
+            }
+        }
+    }
+
+    /**
+     * 默认追踪模式下记录只读命令读取的 key。
+     * 在命令执行前登记：读取与并发修改交错时最多多收一条通知，而不会漏掉。
+     */
+    private void trackReads(Command command, List<byte[]> args) {
+        if (!tracking || trackingBroadcast || command instanceof WriteCommand) {
+            return;
+        }
+        List<byte[]> keys = command.getKeys(args);
+        if (!keys.isEmpty()) {
+            ClientTracking.getInstance().trackKeys(id, keys);
+        }
+    }
+
+    /**
+     * 追踪的 key 被修改时由 ClientTracking 调用（可能来自任意线程），
+     * 把失效通知发给自己或 REDIRECT 指定的连接。
+     */
+    void sendInvalidation(byte[] key) {
+        if (!tracking) {
+            return;
+        }
+        Connection target = this;
+        if (trackingRedirect != 0) {
+            target = ClientRegistry.getInstance().get(trackingRedirect);
+            if (target == null) {
+                return;
+            }
+        }
+        target.writeInvalidation(key);
+    }
+
+    private void writeInvalidation(byte[] key) {
+        if (!(outputStream instanceof ReplyBuffer)) {
+            return;
+        }
+        ReplyBuffer out = (ReplyBuffer) outputStream;
+        synchronized (out) {
+            if (protocolVersion >= 3) {
+                out.writePushHeader(2);
+                out.writeBulkString(INVALIDATE_BYTES);
+            } else if (isSubscribed) {
+                // RESP2 连接只能通过 __redis__:invalidate 频道的消息接收通知
+                out.writeArrayHeader(3);
+                out.writeBulkString(MESSAGE_BYTES);
+                out.writeBulkString(INVALIDATE_CHANNEL_BYTES);
+            } else {
+                return;
+            }
+            out.writeArrayHeader(1);
+            out.writeBulkString(key);
+        }
+        out.requestFlush();
+    }
+
+    public OutputStream getOutputStream() {
+        return outputStream;
+    }
+
+    public boolean isSubscribed() {
+        return isSubscribed;
+    }
+
+    public void setSubscribed(boolean subscribed) {
+        isSubscribed = subscribed;
+        updateClientClass();
+    }
+
+    /**
+     * 根据连接状态更新输出缓冲区限制使用的客户端类别。
+     */
+    private void updateClientClass() {
+        if (!(outputStream instanceof ReplyBuffer)) {
+            return;
+        }
+        ReplyBuffer buffer = (ReplyBuffer) outputStream;
+        if (buffer.getClientClass() == OutputBufferLimit.ClientClass.REPLICA) {
+            return;
+        }
+        buffer.setClientClass(isSubscribed ? OutputBufferLimit.ClientClass.PUBSUB : OutputBufferLimit.ClientClass.NORMAL);
+    }
+
+    public void setBeforeDirectWrite(Runnable beforeDirectWrite) {
+        this.beforeDirectWrite = beforeDirectWrite;
+    }
+
+    public boolean isInTransaction() {
+        return inTransaction;
+    }
+
+    /**
+     * 判断执行这条命令是否可能阻塞当前线程。
+     * 事务中的命令只是入队，EXEC 时则要看队列中是否有阻塞命令。
+     */
+    public boolean mayBlock(List<byte[]> commandParts) {
+        String commandName = new String(commandParts.get(0), StandardCharsets.UTF_8).toLowerCase();
+        if (inTransaction) {
+            if (!"exec".equals(commandName)) {
+                return false;
+            }
+            for (List<byte[]> queued : transactionQueue) {
+                if (isBlocking(queued)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return isBlocking(commandParts);
+    }
+
+    private boolean isBlocking(List<byte[]> commandParts) {
+        Command command = commandHandler.getCommand(new String(commandParts.get(0), StandardCharsets.UTF_8));
+        return command instanceof BlockingCommand
+                && ((BlockingCommand) command).mayBlock(commandParts.subList(1, commandParts.size()));
+    }
+
+    /**
+     * 执行一条完整的命令，并把响应写入输出流（不负责 flush）。
+     * @param commandParts 解析好的命令
+     */
+    public void handleCommand(List<byte[]> commandParts) throws IOException {
+        Object reply = execute(commandParts);
+        if (reply != NO_REPLY) {
+            RespEncoder.encode(outputStream, reply);
+        }
+    }
+
+    /**
+     * 执行一条完整的命令，返回尚未编码的响应，由调用方决定在哪个线程编码。
+     * 需要直接写输出流的命令（SUBSCRIBE、PSYNC）会先触发 beforeDirectWrite，
+     * 让调用方把之前积攒的响应按顺序写出。
+     * @param commandParts 解析好的命令
+     * @return 响应对象；已自行写出或无需响应时返回 NO_REPLY
+     */
+    public Object execute(List<byte[]> commandParts) throws IOException {
+        lastInteraction = System.currentTimeMillis();
+        String commandName = new String(commandParts.get(0), StandardCharsets.UTF_8).toLowerCase();
+
+        if (isSubscribed) {
+            if (!ALLOWED_SUBSCRIBE_COMMANDS.contains(commandName)) {
+                return new Exception("Can't execute '" + commandName + "'");
+            }
+        }
+        if ("replconf".equals(commandName) && commandParts.size() > 2
+                && "ACK".equalsIgnoreCase(new String(commandParts.get(1), StandardCharsets.UTF_8))) {
+
+            try {
+                long offset = Long.parseLong(new String(commandParts.get(2), StandardCharsets.UTF_8));
+                DataStore.getInstance().processAck(offset);
+            } catch (NumberFormatException e) {
+                // 与 Redis 一样忽略非法的偏移量
+            }
+            return NO_REPLY; // ACK 不需要响应
+        }
+
+        if ("replconf".equals(commandName) && commandParts.size() > 2
+                && "GETACK".equalsIgnoreCase(new String(commandParts.get(1), StandardCharsets.UTF_8))
+                && "*".equals(new String(commandParts.get(2), StandardCharsets.UTF_8))) {
+
+            long offset = DataStore.getInstance().getReplicaOffset();
+
+            // 构造 REPLCONF ACK <offset> 响应
+            List<byte[]> ackResponse = new ArrayList<>();
+            ackResponse.add("REPLCONF".getBytes(StandardCharsets.UTF_8));
+            ackResponse.add("ACK".getBytes(StandardCharsets.UTF_8));
+            ackResponse.add(String.valueOf(offset).getBytes(StandardCharsets.UTF_8));
+            return ackResponse;
+        }
+
+        if (inTransaction) {
+            //如果在事务中
+            if ("exec".equals(commandName)) {
+                List<Object> results = new LinkedList<>();
+                CommandContext context = new CommandContext(outputStream, this.isSubscribed, beforeDirectWrite, this);
+                if (transactionDeniesOom() && !DataStore.getInstance().performEvictions()) {
+                    transactionQueue.clear();
+                    inTransaction = false;
+                    return new OomException(OOM_ERROR);
+                }
+
+                // 一次性按顺序锁住事务涉及的所有段，事务执行期间其他客户端看不到中间状态
+                DataStore.getInstance().withKeysLocked(transactionKeys(), () -> {
+                    for (List<byte[]> queuedCommandParts : transactionQueue) {
+                        String queuedCommandName = new String(queuedCommandParts.get(0), StandardCharsets.UTF_8);
+                        List<byte[]> queuedArgs = queuedCommandParts.subList(1, queuedCommandParts.size());
+
+                        Command commandToExecute = commandHandler.getCommand(queuedCommandName);
+
+                        if (commandToExecute != null) {
+                            if (commandToExecute instanceof WriteCommand) {
+                                propagate(queuedCommandParts);
+                            }
+                            results.add(runCommand(commandToExecute, queuedArgs, context));
+                        } else {
+                            results.add(new Exception("unknown command '" + queuedCommandName + "'"));
+                        }
+                    }
+                    return null;
+                });
+                transactionQueue.clear();
+                inTransaction = false;
+                return results;
+            } else if ("discard".equals(commandName)) {
+                transactionQueue.clear();
+                inTransaction = false;
+                return "OK";
+            } else if ("multi".equals(commandName)) {
+                return new Exception("MULTI calls can not be nested");
+            } else {
+                transactionQueue.add(commandParts);
+                return "QUEUED";
+            }
+        }
+
+        if ("multi".equals(commandName)) {
+            inTransaction = true;
+            transactionQueue.clear();
+            return "OK";
+        } else if ("exec".equals(commandName) || "discard".equals(commandName)) {
+            return new Exception(commandName.toUpperCase() + " without MULTI");
+        }
+
+        List<byte[]> args = commandParts.subList(1, commandParts.size());
+        Command command = commandHandler.getCommand(commandName);
+
+        if (command == null) {
+            return new Exception("unknown command '" + commandName + "'");
+        }
+        CommandContext context = new CommandContext(outputStream, this.isSubscribed, beforeDirectWrite, this);
+
+        Object result;
+        if (command instanceof WriteCommand) {
+            // 淘汰要锁住别的 key，必须在持有本命令的段锁之前完成
+            if (((WriteCommand) command).denyOom() && !DataStore.getInstance().performEvictions()) {
+                return new OomException(OOM_ERROR);
+            }
+            // 持有 key 所在段的写锁完成传播和执行，保证副本上同一个 key 的写入顺序与主节点一致
+            result = DataStore.getInstance().withKeysLocked(keyNames(command.getKeys(args)), () -> {
+                propagate(commandParts);
+                return runCommand(command, args, context);
+            });
+        } else {
+            result = runCommand(command, args, context);
+        }
+
+        if (result == Command.STATE_CHANGE_SUBSCRIBE) {
+            setSubscribed(true);
+            return NO_REPLY;
+        }
+        if (result instanceof FullResyncResponse) {
+            FullResyncResponse resync = (FullResyncResponse) result;
+            if (outputStream instanceof ReplyBuffer) {
+                ((ReplyBuffer) outputStream).setClientClass(OutputBufferLimit.ClientClass.REPLICA);
+            }
+            if (beforeDirectWrite != null) {
+                beforeDirectWrite.run();
+            }
+            String fullResyncLine = "+FULLRESYNC " + resync.getMasterReplid() + " " + resync.getMasterReplOffset() + "\r\n";
+            outputStream.write(fullResyncLine.getBytes(StandardCharsets.UTF_8));
+            byte[] rdbFile = RdbUtil.getEmptyRdbFile();
+            outputStream.write(("$" + rdbFile.length + "\r\n").getBytes(StandardCharsets.UTF_8));
+            outputStream.write(rdbFile);
+            return NO_REPLY;
+        }
+        return result;
+    }
+
+    /**
+     * 连接关闭时的清理：退订所有频道，关闭缓存追踪并注销连接。
+     */
+    public void close() {
+        DataStore.getInstance().unsubscribeClient(outputStream);
+        disableTracking();
+        ClientRegistry.getInstance().unregister(id);
+    }
+
+    //计算这个命令的RESP字节长度
+    static long calculateCommandSize(List<byte[]> commandParts) {
+        if (commandParts == null || commandParts.isEmpty()) {
+            return 0;
+        }
+
+        long totalSize = 0;
+        // RESP数组头: *<number-of-elements>\r\n
+        totalSize += 1 + String.valueOf(commandParts.size()).length() + 2;
+
+        for (byte[] part : commandParts) {
+            if (part != null) {
+                // RESP批量字符串: $<length>\r\n<data>\r\n
+                totalSize += 1 + String.valueOf(part.length).length() + 2 + part.length + 2;
+            } else {
+                // RESP批量字符串null: $-1\r\n
+                totalSize += 4;
+            }
+        }
+
+        return totalSize;
+    }
+}
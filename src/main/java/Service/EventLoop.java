@@ -0,0 +1,158 @@
+package Service;
+
+import Commands.CommandHandler;
+import Storage.ByteKey;
+import Storage.DataStore;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * @author Achilles
+ * 一个 Selector 事件循环：在单个线程中处理分配给它的所有连接的读、执行和写。
+ */
+class EventLoop implements Runnable {
+    private final Selector selector;
+    private final CommandHandler commandHandler;
+    private final ExecutorService blockingExecutor;
+    // 命令执行线程：多线程 I/O 模式下只有一个，分片模式下每个分片一个；为 null 时命令在本循环中执行
+    private final CommandExecutor[] commandExecutors;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    // 同一个循环内的所有连接共用一个读缓冲区
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(16 * 1024);
+    private volatile Thread thread;
+
+    EventLoop(CommandHandler commandHandler, ExecutorService blockingExecutor, CommandExecutor[] commandExecutors) throws IOException {
+        this.selector = Selector.open();
+        this.commandHandler = commandHandler;
+        this.blockingExecutor = blockingExecutor;
+        this.commandExecutors = commandExecutors;
+    }
+
+    /**
+     * 把一个新接受的连接交给本循环管理，可以在任意线程调用。
+     */
+    void register(SocketChannel channel) {
+        execute(() -> {
+            NioConnection connection = null;
+            try {
+                channel.configureBlocking(false);
+                connection = new NioConnection(channel, this, commandHandler);
+                SelectionKey key = channel.register(selector, SelectionKey.OP_READ, connection);
+                connection.setKey(key);
+            } catch (IOException | RuntimeException e) {
+                System.out.println("Failed to register connection: " + e.getMessage());
+                if (connection != null) {
+                    // Connection 已经登记，关闭时一并释放准入名额
+                    connection.close();
+                    return;
+                }
+                ClientRegistry.getInstance().release();
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                    // 忽略关闭时的异常
+                }
+            }
+        });
+    }
+
+    /**
+     * 在事件循环线程中执行一个任务。
+     */
+    void execute(Runnable task) {
+        tasks.add(task);
+        selector.wakeup();
+    }
+
+    void submitBlocking(Runnable task) {
+        blockingExecutor.execute(task);
+    }
+
+    boolean hasCommandExecutors() {
+        return commandExecutors != null;
+    }
+
+    /**
+     * 连接默认使用的执行线程，不涉及 key 的命令在这里执行。
+     */
+    CommandExecutor homeExecutor(long connectionId) {
+        return commandExecutors[(int) Math.floorMod(connectionId, (long) commandExecutors.length)];
+    }
+
+    /**
+     * 选择执行一条命令的线程。分片模式下 key 按所在段分配给分片，
+     * 所有 key 属于同一个分片时交给该分片执行；不涉及 key 或跨分片的命令留在 current 上执行，
+     * 由 DataStore 的段锁（按段号顺序加锁）保证跨分片访问的正确性。
+     */
+    CommandExecutor executorFor(Connection connection, List<byte[]> commandParts, CommandExecutor current) {
+        if (commandExecutors.length == 1) {
+            return commandExecutors[0];
+        }
+        int shard = -1;
+        for (ByteKey key : connection.routingKeys(commandParts)) {
+            int owner = DataStore.getInstance().stripeOf(key) % commandExecutors.length;
+            if (shard == -1) {
+                shard = owner;
+            } else if (shard != owner) {
+                return current;
+            }
+        }
+        return shard == -1 ? current : commandExecutors[shard];
+    }
+
+    boolean inLoop() {
+        return Thread.currentThread() == thread;
+    }
+
+    ByteBuffer getReadBuffer() {
+        return readBuffer;
+    }
+
+    @Override
+    public void run() {
+        thread = Thread.currentThread();
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                selector.select();
+            } catch (IOException e) {
+                System.out.println("IOException in EventLoop: " + e.getMessage());
+                return;
+            }
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    System.out.println("Error in event loop task: " + e);
+                }
+            }
+            Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+            while (iterator.hasNext()) {
+                SelectionKey key = iterator.next();
+                iterator.remove();
+                NioConnection connection = (NioConnection) key.attachment();
+                try {
+                    if (key.isValid() && key.isReadable()) {
+                        connection.onReadable();
+                    }
+                    if (key.isValid() && key.isWritable()) {
+                        connection.onWritable();
+                    }
+                } catch (RuntimeException e) {
+                    // 意外异常只关闭出错的连接，事件循环上的其他客户端不受影响
+                    System.out.println("Error in event loop, closing connection: " + e);
+                    connection.close();
+                }
+            }
+        }
+    }
+}
@@ -68,9 +68,13 @@ public class MasterConnectionHandler implements Runnable {
             // --- 命令处理循环 ---
             while (!masterSocket.isClosed()) {
                 List<byte[]> commandParts = parser.readCommand();
-                if (commandParts == null || commandParts.isEmpty()) {
+                if (commandParts == null) {
                     break;
                 }
+                if (commandParts.isEmpty()) {
+                    processedBytes = parser.getBytesRead();
+                    continue;
+                }
                 long commandLength=0;
                 System.out.println("Received command: " + formatCommand(commandParts));
 
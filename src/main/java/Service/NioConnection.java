@@ -0,0 +1,277 @@
+package Service;
+
+import Commands.CommandHandler;
+import Config.ServerConfig;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * @author Achilles
+ * 事件循环中的一个客户端连接：负责非阻塞地读取、解析、执行和回写。
+ * 除阻塞命令在工作线程中执行外，所有方法都只在所属事件循环线程中调用。
+ */
+class NioConnection {
+    private final SocketChannel channel;
+    private final EventLoop loop;
+    private final ChannelOutputStream outputStream;
+    private final Connection connection;
+    private SelectionKey key;
+
+    // 增量解析器，保存已读取但尚未解析的字节和未完成帧的进度
+    private final Protocol protocol = new Protocol();
+
+    // 正在执行阻塞命令时暂停读取，保证响应顺序
+    private boolean suspended = false;
+    private boolean closed = false;
+    // 其他线程请求写出时合并成一个事件循环任务
+    private final AtomicBoolean writeScheduled = new AtomicBoolean(false);
+
+    NioConnection(SocketChannel channel, EventLoop loop, CommandHandler commandHandler) {
+        this.channel = channel;
+        this.loop = loop;
+        this.outputStream = new ChannelOutputStream(this);
+        this.connection = Connection.open(outputStream, commandHandler);
+        // 超过输出缓冲区限制时由事件循环异步关闭连接
+        this.outputStream.setOnLimitExceeded(() -> loop.execute(this::close));
+        this.connection.setDisconnectHandler(() -> loop.execute(this::close));
+    }
+
+    void setKey(SelectionKey key) {
+        this.key = key;
+    }
+
+    void onReadable() {
+        ByteBuffer readBuffer = loop.getReadBuffer();
+        readBuffer.clear();
+        int read;
+        try {
+            read = channel.read(readBuffer);
+        } catch (IOException e) {
+            close();
+            return;
+        }
+        if (read == -1) {
+            close();
+            return;
+        }
+        readBuffer.flip();
+        protocol.feed(readBuffer);
+        processInbound();
+    }
+
+    void onWritable() {
+        writePending();
+    }
+
+    /**
+     * 依次执行缓冲区中所有完整的命令，遇到阻塞命令时转交工作线程并暂停读取。
+     */
+    private void processInbound() {
+        if (loop.hasCommandExecutors()) {
+            dispatchToExecutor();
+            return;
+        }
+        int maxPendingReplies = ServerConfig.getInstance().getPipelineMaxReplies();
+        int pendingReplies = 0;
+        try {
+            while (!suspended && !closed) {
+                List<byte[]> commandParts = protocol.tryParseCommand();
+                if (commandParts == null) {
+                    break;
+                }
+                if (commandParts.isEmpty()) {
+                    continue;
+                }
+                if (connection.mayBlock(commandParts)) {
+                    suspended = true;
+                    updateInterest(false);
+                    loop.submitBlocking(() -> runBlocking(commandParts));
+                    break;
+                }
+                connection.handleCommand(commandParts);
+                // 缓冲区中的流水线命令连续执行，响应积攒到上限时才提前写出
+                if (++pendingReplies >= maxPendingReplies) {
+                    writePending();
+                    pendingReplies = 0;
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("Connection closed for " + describePeer() + ": " + e.getMessage());
+            close();
+            return;
+        }
+        writePending();
+    }
+
+    /**
+     * 多线程 I/O 模式：在本 I/O 线程中解析出一批命令交给执行线程，
+     * 批次执行完成前暂停读取，响应回到本线程后再编码和写出。
+     */
+    private void dispatchToExecutor() {
+        int maxBatch = ServerConfig.getInstance().getPipelineMaxReplies();
+        List<List<byte[]>> batch = new ArrayList<>();
+        try {
+            List<byte[]> commandParts;
+            while (!closed && batch.size() < maxBatch && (commandParts = protocol.tryParseCommand()) != null) {
+                if (!commandParts.isEmpty()) {
+                    batch.add(commandParts);
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("Connection closed for " + describePeer() + ": " + e.getMessage());
+            close();
+            return;
+        }
+        if (batch.isEmpty()) {
+            writePending();
+            return;
+        }
+        suspended = true;
+        writePending();
+        CommandExecutor first = loop.executorFor(connection, batch.get(0), loop.homeExecutor(connection.getId()));
+        first.submit(() -> executeBatch(batch, 0, new ArrayList<>(batch.size()), first));
+    }
+
+    /**
+     * 依次执行批次中的命令，只收集响应对象而不编码。
+     * 分片模式下遇到属于其他分片的命令时，把剩余部分转交给该分片的执行线程，保持命令顺序；
+     * 遇到阻塞命令时把剩余部分转交给阻塞线程池，避免卡住执行线程。
+     * @param executor 当前所在的执行线程，在阻塞线程池中时为 null
+     */
+    private void executeBatch(List<List<byte[]>> batch, int from, List<Object> replies, CommandExecutor executor) {
+        // 命令要直接写输出流时，先把已有的响应按顺序编码进去
+        connection.setBeforeDirectWrite(() -> encodeReplies(replies));
+        try {
+            for (int i = from; i < batch.size(); i++) {
+                List<byte[]> commandParts = batch.get(i);
+                // 已经在阻塞线程池中时直接执行剩余命令
+                if (executor != null) {
+                    int next = i;
+                    if (connection.mayBlock(commandParts)) {
+                        loop.submitBlocking(() -> executeBatch(batch, next, replies, null));
+                        return;
+                    }
+                    CommandExecutor owner = loop.executorFor(connection, commandParts, executor);
+                    if (owner != executor) {
+                        owner.submit(() -> executeBatch(batch, next, replies, owner));
+                        return;
+                    }
+                }
+                Object reply;
+                try {
+                    reply = connection.execute(commandParts);
+                } catch (RuntimeException e) {
+                    // 这条命令以错误响应结束，批次中后面的命令照常执行，响应数与命令数保持一致
+                    System.out.println("Error executing command for " + describePeer() + ": " + e);
+                    reply = new Exception("internal error while executing command: " + e.getMessage());
+                }
+                if (reply != Connection.NO_REPLY) {
+                    replies.add(reply);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // 无法继续按顺序执行时关闭连接，而不是让它一直停在暂停状态
+            loop.execute(this::close);
+            return;
+        }
+        loop.execute(() -> {
+            encodeReplies(replies);
+            suspended = false;
+            processInbound();
+        });
+    }
+
+    private void encodeReplies(List<Object> replies) {
+        for (Object reply : replies) {
+            RespEncoder.encode(outputStream, reply);
+        }
+        replies.clear();
+    }
+
+    private void runBlocking(List<byte[]> commandParts) {
+        try {
+            connection.handleCommand(commandParts);
+        } catch (IOException e) {
+            loop.execute(this::close);
+            return;
+        } catch (RuntimeException e) {
+            // 回一个错误后照常恢复读取，否则连接会一直停在暂停状态
+            System.out.println("Error executing command for " + describePeer() + ": " + e);
+            RespEncoder.encode(outputStream, new Exception("internal error while executing command: " + e.getMessage()));
+        }
+        loop.execute(() -> {
+            suspended = false;
+            processInbound();
+        });
+    }
+
+    /**
+     * 由输出流的 flush 触发；其他线程调用时转交给事件循环执行。
+     */
+    void requestWrite() {
+        if (loop.inLoop()) {
+            writePending();
+        } else if (writeScheduled.compareAndSet(false, true)) {
+            loop.execute(() -> {
+                writeScheduled.set(false);
+                writePending();
+            });
+        }
+    }
+
+    private void writePending() {
+        if (closed) {
+            return;
+        }
+        try {
+            boolean drained = outputStream.drainTo(channel);
+            updateInterest(!drained);
+        } catch (IOException e) {
+            close();
+        }
+    }
+
+    private void updateInterest(boolean wantWrite) {
+        if (key == null || !key.isValid()) {
+            return;
+        }
+        int ops = suspended ? 0 : SelectionKey.OP_READ;
+        if (wantWrite) {
+            ops |= SelectionKey.OP_WRITE;
+        }
+        key.interestOps(ops);
+    }
+
+    private String describePeer() {
+        // Unix 域套接字通道不支持 socket()，远端地址也没有意义
+        try {
+            return String.valueOf(channel.getRemoteAddress());
+        } catch (IOException e) {
+            return "closed connection";
+        }
+    }
+
+    void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (key != null) {
+            key.cancel();
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // 忽略关闭时的异常
+        }
+        outputStream.close();
+        connection.close();
+        System.out.println("Client disconnected and subscriptions cleaned up.");
+    }
+}
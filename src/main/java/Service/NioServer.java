@@ -0,0 +1,89 @@
+package Service;
+
+import Commands.CommandHandler;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author Achilles
+ * 基于 Selector 的非阻塞服务器：少量事件循环线程处理所有客户端，
+ * 取代每个连接一个线程的模型。阻塞命令交给虚拟线程执行，
+ * 挂起在 BLPOP、XREAD BLOCK、WAIT 上的客户端不会各自占住一个平台线程。
+ */
+public class NioServer {
+    private final int port;
+    private final EventLoop[] loops;
+    private final CommandExecutor[] commandExecutors;
+    // TCP 与 Unix 域套接字两个接受线程共享的轮询下标
+    private final AtomicInteger nextLoop = new AtomicInteger();
+
+    /**
+     * @param loopCount 事件循环（I/O 线程）数量
+     * @param executorCount 命令执行线程数量。0 表示命令在事件循环中执行；
+     *                      1 表示事件循环只负责读、解析、编码和写，命令统一交给一个执行线程，即 io-threads 模式；
+     *                      大于 1 时按 key 分片，每个分片由一个执行线程负责，即 shards 模式
+     */
+    public NioServer(int port, CommandHandler commandHandler, int loopCount, int executorCount) throws IOException {
+        this.port = port;
+        ExecutorService blockingExecutor = Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("blocking-command-", 0).factory());
+        if (executorCount == 1) {
+            this.commandExecutors = new CommandExecutor[]{new CommandExecutor("command-executor")};
+        } else if (executorCount > 1) {
+            this.commandExecutors = new CommandExecutor[executorCount];
+            for (int i = 0; i < executorCount; i++) {
+                commandExecutors[i] = new CommandExecutor("shard-executor-" + i);
+            }
+        } else {
+            this.commandExecutors = null;
+        }
+        this.loops = new EventLoop[loopCount];
+        for (int i = 0; i < loopCount; i++) {
+            loops[i] = new EventLoop(commandHandler, blockingExecutor, commandExecutors);
+        }
+    }
+
+    /**
+     * 额外监听一个 Unix 域套接字，接受的连接同样分配给事件循环，需在 start 之前调用。
+     */
+    public void listenUnixSocket(String path, String permissions) throws IOException {
+        new UnixSocketServer(path, permissions, this::assign).start();
+    }
+
+    private void assign(SocketChannel clientChannel) {
+        if (!ClientRegistry.getInstance().admit(clientChannel)) {
+            return;
+        }
+        int next = Math.floorMod(nextLoop.getAndIncrement(), loops.length);
+        loops[next].register(clientChannel);
+    }
+
+    /**
+     * 启动所有事件循环，并在当前线程上接受新连接（轮询分配给各个循环）。
+     */
+    public void start() throws IOException {
+        if (commandExecutors != null) {
+            for (CommandExecutor executor : commandExecutors) {
+                executor.start();
+            }
+        }
+        for (int i = 0; i < loops.length; i++) {
+            Thread thread = new Thread(loops[i], (commandExecutors != null ? "io-thread-" : "event-loop-") + i);
+            thread.start();
+        }
+        try (ServerSocketChannel serverChannel = ServerSocketChannel.open()) {
+            serverChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+            serverChannel.bind(new InetSocketAddress(port));
+            while (true) {
+                assign(serverChannel.accept());
+            }
+        }
+    }
+}
@@ -1,19 +1,63 @@
 // 文件路径: src/main/java/Service/Protocol.java
 package Service;
 
-import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
+/**
+ * @author Achilles
+ * RESP 请求解析器。
+ * 数据先批量读入一个可复用的字节窗口，再直接在字节上解析长度前缀；
+ * 解析状态（剩余元素数、当前 Bulk String 长度）保存在对象中，帧不完整时可以在补充数据后继续。
+ * 阻塞模式通过构造时传入的 InputStream 自动补充数据；非阻塞模式由调用方 feed 数据后调用 tryParseCommand。
+ */
 public class Protocol {
+    private static final int DEFAULT_BUFFER_SIZE = 16 * 1024;
+    // 长度行的最大长度，超过说明协议错误
+    private static final int MAX_INLINE_LENGTH = 64 * 1024;
+    // 单个 Bulk String 的最大长度，与 Redis 的 proto-max-bulk-len 默认值相同，防止客户端让服务器分配任意大的缓冲区
+    private static final int PROTO_MAX_BULK_LEN = 512 * 1024 * 1024;
+    // 按数组头预分配的元素个数上限，更多的元素随解析逐步扩容
+    private static final int MAX_PREALLOCATED_PARTS = 1024;
+    // JVM 能分配的数组长度略小于 Integer.MAX_VALUE
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
     private final InputStream inputStream;
+    private final int initialBufferSize;
+    private byte[] buffer;
+    private int readPos = 0;
+    private int writePos = 0;
+
+    // 已被完整解析消费的字节数（用于复制偏移量），不包括缓冲区中尚未解析的部分
     private long bytesRead = 0L;
 
+    // 未完成的命令：剩余元素数，-1 表示还没读到数组头
+    private int multiBulkRemaining = -1;
+    // 当前 Bulk String 的长度，-1 表示还没读到 $ 行
+    private int bulkLength = -1;
+    private List<byte[]> pendingParts;
+
     public Protocol(InputStream inputStream) {
+        this(inputStream, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * 非阻塞模式：数据由调用方通过 feed 提供。
+     */
+    public Protocol() {
+        this(null, 1024);
+    }
+
+    private Protocol(InputStream inputStream, int initialBufferSize) {
         this.inputStream = inputStream;
+        this.initialBufferSize = initialBufferSize;
+        this.buffer = new byte[initialBufferSize];
     }
 
     // 新增：重置计数器的方法
@@ -25,110 +69,257 @@ public class Protocol {
         return this.bytesRead;
     }
 
+    /**
+     * 缓冲区中是否还有尚未解析的数据（例如客户端流水线发送的后续命令）。
+     */
+    public boolean hasBufferedData() {
+        return readPos < writePos;
+    }
+
+    /**
+     * 把从通道中读到的数据追加到解析缓冲区。
+     */
+    public void feed(ByteBuffer data) {
+        int len = data.remaining();
+        ensureWritable(len);
+        data.get(buffer, writePos, len);
+        writePos += len;
+    }
+
+    /**
+     * 阻塞地读取一条完整命令。
+     * @return 命令各部分，*0 和 *-1 返回空列表，调用方应跳过；只有连接在两条命令之间正常关闭时返回 null
+     */
     public List<byte[]> readCommand() throws IOException {
-        int firstByte = readByte(); // 修改：使用封装的方法
-        if (firstByte == -1) {
-            return null;
+        while (true) {
+            List<byte[]> command = tryParseCommand();
+            if (command != null) {
+                return command;
+            }
+            if (!fill()) {
+                if (multiBulkRemaining < 0 && !hasBufferedData()) {
+                    return null;
+                }
+                throw new EOFException("Unexpected end of stream.");
+            }
         }
-        if ((char) firstByte == '*') {
-            return parseArray();
+    }
+
+    /**
+     * 尝试从已缓冲的数据中解析一条命令，数据不足时返回 null，已解析的进度会被保留。
+     * Null Array（*-1）返回空列表。
+     */
+    public List<byte[]> tryParseCommand() throws IOException {
+        if (multiBulkRemaining < 0) {
+            if (!hasBufferedData()) {
+                return null;
+            }
+            if (buffer[readPos] != '*') {
+                throw new IOException("Unsupported command format. Expected an Array ('*').");
+            }
+            int lineEnd = findLineEnd(readPos + 1);
+            if (lineEnd < 0) {
+                return null;
+            }
+            int arraySize = parseLength(readPos + 1, lineEnd);
+            consume(lineEnd + 2 - readPos);
+            if (arraySize <= 0) {
+                return Collections.emptyList();
+            }
+            multiBulkRemaining = arraySize;
+            pendingParts = new ArrayList<>(Math.min(arraySize, MAX_PREALLOCATED_PARTS));
+        }
+
+        while (multiBulkRemaining > 0) {
+            if (bulkLength < 0) {
+                if (!hasBufferedData()) {
+                    return null;
+                }
+                if (buffer[readPos] != '$') {
+                    throw new IOException("Unsupported element type in Array. Expected Bulk String ('$').");
+                }
+                int lineEnd = findLineEnd(readPos + 1);
+                if (lineEnd < 0) {
+                    return null;
+                }
+                int length = parseLength(readPos + 1, lineEnd);
+                if (length < 0 || length > PROTO_MAX_BULK_LEN) {
+                    // 与 Redis 一样，请求中不允许出现 Null Bulk String，也不允许超过 proto-max-bulk-len
+                    throw new IOException("Protocol error: invalid bulk length");
+                }
+                consume(lineEnd + 2 - readPos);
+                bulkLength = length;
+            }
+            // 以 long 计算，bulkLength 接近上限时加上 CRLF 也不会溢出
+            long needed = (long) bulkLength + 2 - (writePos - readPos);
+            if (needed > 0) {
+                // 为大参数预留足够空间，下次补充数据时一次读完
+                ensureWritable((int) needed);
+                return null;
+            }
+            if (buffer[readPos + bulkLength] != '\r' || buffer[readPos + bulkLength + 1] != '\n') {
+                throw new IOException("Expected CRLF after Bulk String data.");
+            }
+            byte[] data = new byte[bulkLength];
+            System.arraycopy(buffer, readPos, data, 0, bulkLength);
+            consume(bulkLength + 2);
+            pendingParts.add(data);
+            bulkLength = -1;
+            multiBulkRemaining--;
         }
-        throw new IOException("Unsupported command format. Expected an Array ('*').");
+
+        List<byte[]> command = pendingParts;
+        pendingParts = null;
+        multiBulkRemaining = -1;
+        return command;
     }
 
     public String readSimpleString() throws IOException {
-        int firstByte = readByte();
-        if (firstByte == -1) {
+        if (!hasBufferedData() && !fill()) {
             return null;
         }
-        if ((char) firstByte == '+') {
-            return readLine();
+        if (buffer[readPos] != '+') {
+            throw new IOException("Expected a Simple String ('+').");
         }
-        throw new IOException("Expected a Simple String ('+').");
+        int lineEnd = requireLine();
+        String line = new String(buffer, readPos + 1, lineEnd - readPos - 1, StandardCharsets.UTF_8);
+        consume(lineEnd + 2 - readPos);
+        return line;
     }
 
     public byte[] readRdbFile() throws IOException {
-        int firstByte = readByte();
-        if (firstByte == -1) {
+        if (!hasBufferedData() && !fill()) {
             return null;
         }
-        if ((char) firstByte != '$') {
+        if (buffer[readPos] != '$') {
             throw new IOException("Expected a Bulk String for RDB file.");
         }
-
-        int rdbFileLength = Integer.parseInt(readLine());
+        int lineEnd = requireLine();
+        int rdbFileLength = parseLength(readPos + 1, lineEnd);
+        consume(lineEnd + 2 - readPos);
         if (rdbFileLength < 0) {
             return null;
         }
 
+        // RDB 内容后面没有 CRLF
+        while (writePos - readPos < rdbFileLength) {
+            ensureWritable(rdbFileLength - (writePos - readPos));
+            if (!fill()) {
+                throw new EOFException("Unexpected end of stream.");
+            }
+        }
         byte[] rdbData = new byte[rdbFileLength];
-        readFully(rdbData);
+        System.arraycopy(buffer, readPos, rdbData, 0, rdbFileLength);
+        consume(rdbFileLength);
         return rdbData;
     }
 
-    private List<byte[]> parseArray() throws IOException {
-        int arraySize = Integer.parseInt(readLine());
-        if (arraySize < 0) {
-            return null;
-        }
-        List<byte[]> commandParts = new ArrayList<>(arraySize);
-        for (int i = 0; i < arraySize; i++) {
-            int firstByte = readByte();
-            if (firstByte != '$') {
-                throw new IOException("Unsupported element type in Array. Expected Bulk String ('$').");
+    /**
+     * 阻塞地等待一整行数据到达，返回 CR 的位置。
+     */
+    private int requireLine() throws IOException {
+        int lineEnd;
+        while ((lineEnd = findLineEnd(readPos + 1)) < 0) {
+            if (!fill()) {
+                throw new EOFException("Unexpected end of stream.");
             }
-            commandParts.add(parseBulkString());
         }
-        return commandParts;
+        return lineEnd;
     }
 
-    private byte[] parseBulkString() throws IOException {
-        int stringLength = Integer.parseInt(readLine());
-        if (stringLength < 0) {
-            return null;
+    /**
+     * 从 from 开始查找 CRLF，返回 CR 的下标；数据不足时返回 -1。
+     */
+    private int findLineEnd(int from) throws IOException {
+        for (int i = from; i + 1 < writePos; i++) {
+            if (buffer[i] == '\r') {
+                if (buffer[i + 1] != '\n') {
+                    throw new IOException("Expected LF after CR.");
+                }
+                return i;
+            }
         }
-        byte[] data = new byte[stringLength];
-        readFully(data);
-
-        if (readByte() != '\r' || readByte() != '\n') {
-            throw new IOException("Expected CRLF after Bulk String data.");
+        if (writePos - readPos > MAX_INLINE_LENGTH) {
+            throw new IOException("Protocol error: too big length line");
         }
-        return data;
+        return -1;
     }
 
-    private String readLine() throws IOException {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        int b;
-        while ((b = readByte()) != '\r') {
-            if (b == -1) {
-                throw new IOException("Unexpected end of stream.");
+    /**
+     * 直接在字节上解析十进制长度，避免创建 String。
+     */
+    private int parseLength(int start, int end) throws IOException {
+        if (start == end) {
+            throw new IOException("Protocol error: invalid length");
+        }
+        boolean negative = buffer[start] == '-';
+        int i = negative ? start + 1 : start;
+        if (i == end) {
+            throw new IOException("Protocol error: invalid length");
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = buffer[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new IOException("Protocol error: invalid length");
+            }
+            value = value * 10 + digit;
+            if (value > Integer.MAX_VALUE) {
+                throw new IOException("Protocol error: invalid length");
             }
-            baos.write(b);
         }
-        if (readByte() != '\n') {
-            throw new IOException("Expected LF after CR.");
+        return (int) (negative ? -value : value);
+    }
+
+    private void consume(int count) {
+        readPos += count;
+        bytesRead += count;
+        if (readPos == writePos) {
+            readPos = 0;
+            writePos = 0;
+            // 处理完大参数后把缓冲区收缩回初始大小
+            if (buffer.length > initialBufferSize * 4 && multiBulkRemaining <= 0) {
+                buffer = new byte[initialBufferSize];
+            }
         }
-        return baos.toString(StandardCharsets.UTF_8);
     }
 
-    private int readByte() throws IOException {
-        int b = inputStream.read();
-        if (b != -1) {
-            bytesRead++;
+    /**
+     * 保证缓冲区尾部至少有 needed 字节的空闲空间，必要时先压缩再扩容。
+     */
+    private void ensureWritable(int needed) {
+        if (buffer.length - writePos >= needed) {
+            return;
+        }
+        int unread = writePos - readPos;
+        if (readPos > 0) {
+            System.arraycopy(buffer, readPos, buffer, 0, unread);
+            readPos = 0;
+            writePos = unread;
+        }
+        if (buffer.length - writePos < needed) {
+            // 以 long 计算翻倍后的大小，再限制在数组的最大长度以内
+            long capacity = Math.max((long) buffer.length * 2, (long) writePos + needed);
+            byte[] bigger = new byte[(int) Math.min(capacity, MAX_ARRAY_SIZE)];
+            System.arraycopy(buffer, 0, bigger, 0, writePos);
+            buffer = bigger;
         }
-        return b;
     }
 
-    private void readFully(byte[] buffer) throws IOException {
-        int bytesToRead = buffer.length;
-        int totalBytesRead = 0;
-        while (totalBytesRead < bytesToRead) {
-            int read = inputStream.read(buffer, totalBytesRead, bytesToRead - totalBytesRead);
-            if (read == -1) {
-                throw new IOException("Unexpected end of stream.");
-            }
-            totalBytesRead += read;
-            this.bytesRead += read;
+    /**
+     * 从输入流批量读取数据到缓冲区。
+     * @return 流已结束（或没有输入流）时返回 false
+     */
+    private boolean fill() throws IOException {
+        if (inputStream == null) {
+            return false;
+        }
+        ensureWritable(1024);
+        int read = inputStream.read(buffer, writePos, buffer.length - writePos);
+        if (read == -1) {
+            return false;
         }
+        writePos += read;
+        return true;
     }
 }
@@ -0,0 +1,423 @@
+package Service;
+
+import Config.OutputBufferLimit;
+import Config.ServerConfig;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * @author Achilles
+ * 每个连接一个的可增长响应缓冲区，RespEncoder 直接把 RESP 写进这里。
+ * 常用响应使用共享的常量字节数组，数字直接按位写入，不经过 String。
+ * 发布/复制线程可能同时写入同一个连接，所以写操作都是同步的；
+ * 需要保证一条完整响应不被穿插时，调用方对缓冲区对象本身加锁（见 RespEncoder.encode）。
+ * 其他线程写入后调用 requestFlush：先按客户端类别检查输出缓冲区限制，再安排异步写出，不会阻塞调用方。
+ * 超过限制的连接被标记为关闭，之后的写入直接丢弃或抛出异常，真正的断开由 onLimitExceeded 回调异步完成。
+ */
+public class ReplyBuffer extends OutputStream {
+    public static final byte[] OK = ascii("+OK\r\n");
+    public static final byte[] PONG = ascii("+PONG\r\n");
+    public static final byte[] QUEUED = ascii("+QUEUED\r\n");
+    public static final byte[] NULL_BULK = ascii("$-1\r\n");
+    public static final byte[] NULL_ARRAY = ascii("*-1\r\n");
+    public static final byte[] EMPTY_ARRAY = ascii("*0\r\n");
+    public static final byte[] ZERO = ascii(":0\r\n");
+    public static final byte[] ONE = ascii(":1\r\n");
+    // RESP3 统一的 Null 类型
+    public static final byte[] RESP3_NULL = ascii("_\r\n");
+    private static final byte[] CRLF = ascii("\r\n");
+    private static final byte[] LONG_MIN_VALUE = ascii(String.valueOf(Long.MIN_VALUE));
+
+    // 与 Redis 的 shared.mbulkhdr / shared.bulkhdr 一样，预先生成小长度的头部
+    private static final int SHARED_HEADERS = 32;
+    private static final byte[][] ARRAY_HEADERS = new byte[SHARED_HEADERS][];
+    private static final byte[][] BULK_HEADERS = new byte[SHARED_HEADERS][];
+
+    static {
+        for (int i = 0; i < SHARED_HEADERS; i++) {
+            ARRAY_HEADERS[i] = ascii("*" + i + "\r\n");
+            BULK_HEADERS[i] = ascii("$" + i + "\r\n");
+        }
+    }
+
+    private static final int DEFAULT_CAPACITY = 1024;
+    // 写出后超过这个大小的缓冲区会被收缩，避免一次大响应长期占用内存
+    private static final int SHRINK_THRESHOLD = 64 * 1024;
+
+    protected byte[] buffer;
+    protected int count = 0;
+    private final int initialCapacity;
+    // 连接协商的 RESP 版本（HELLO 命令），决定 Null、Map 和推送消息的编码方式
+    private volatile int protocolVersion = 2;
+
+    protected volatile boolean closed = false;
+    private volatile OutputBufferLimit.ClientClass clientClass = OutputBufferLimit.ClientClass.NORMAL;
+    // 第一次超过软限制的时间，0 表示当前没有超过
+    private long softLimitReachedAt = 0;
+    private volatile Runnable onLimitExceeded;
+    // detach 换下来的缓冲区，写出后归还复用
+    private byte[] spare;
+
+    public ReplyBuffer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public ReplyBuffer(int initialCapacity) {
+        this.initialCapacity = initialCapacity;
+        this.buffer = new byte[initialCapacity];
+    }
+
+    public int getProtocolVersion() {
+        return protocolVersion;
+    }
+
+    public void setProtocolVersion(int protocolVersion) {
+        this.protocolVersion = protocolVersion;
+    }
+
+    public boolean isResp3() {
+        return protocolVersion >= 3;
+    }
+
+    public OutputBufferLimit.ClientClass getClientClass() {
+        return clientClass;
+    }
+
+    public void setClientClass(OutputBufferLimit.ClientClass clientClass) {
+        this.clientClass = clientClass;
+    }
+
+    /**
+     * 设置超过输出缓冲区限制时的处理（通常是异步关闭连接），回调中不能阻塞。
+     */
+    public void setOnLimitExceeded(Runnable onLimitExceeded) {
+        this.onLimitExceeded = onLimitExceeded;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+    /**
+     * 供发布、复制传播等其他线程在写入后调用：检查限制并安排异步写出，不会阻塞在 socket 上。
+     */
+    public void requestFlush() {
+        if (checkOutputLimit()) {
+            scheduleFlush();
+        }
+    }
+
+    /**
+     * 安排把缓冲数据写出，子类覆盖为异步实现。
+     */
+    protected void scheduleFlush() {
+        try {
+            flush();
+        } catch (IOException e) {
+            // 连接已断开，由连接自己的处理流程清理
+        }
+    }
+
+    /**
+     * 按当前客户端类别检查待发送的数据量。
+     * 达到硬限制，或超过软限制持续了指定秒数时，关闭缓冲区并触发 onLimitExceeded。
+     * @return 连接是否仍然可用
+     */
+    protected boolean checkOutputLimit() {
+        if (closed) {
+            return false;
+        }
+        OutputBufferLimit limit = ServerConfig.getInstance().getOutputBufferLimit(clientClass);
+        if (limit == null || limit.isUnlimited()) {
+            return true;
+        }
+        synchronized (this) {
+            long used = count;
+            boolean hard = limit.getHardLimitBytes() > 0 && used >= limit.getHardLimitBytes();
+            boolean soft = limit.getSoftLimitBytes() > 0 && used >= limit.getSoftLimitBytes();
+            if (soft) {
+                long now = System.currentTimeMillis();
+                if (softLimitReachedAt == 0) {
+                    softLimitReachedAt = now;
+                    soft = false;
+                } else if (now - softLimitReachedAt <= limit.getSoftSeconds() * 1000) {
+                    soft = false;
+                }
+            } else {
+                softLimitReachedAt = 0;
+            }
+            if (!hard && !soft) {
+                return true;
+            }
+            closed = true;
+            count = 0;
+            buffer = new byte[initialCapacity];
+            spare = null;
+            System.out.println("Client output buffer limit reached for " + clientClass.name().toLowerCase()
+                    + " client (" + used + " bytes pending), scheduling disconnect.");
+        }
+        Runnable handler = onLimitExceeded;
+        if (handler != null) {
+            handler.run();
+        }
+        return false;
+    }
+
+    @Override
+    public synchronized void write(int b) throws IOException {
+        ensureOpen();
+        appendByte((byte) b);
+    }
+
+    @Override
+    public synchronized void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        append(b, off, len);
+    }
+
+    public synchronized void writeArrayHeader(int length) {
+        appendHeader('*', length, ARRAY_HEADERS);
+    }
+
+    /**
+     * RESP3 推送消息头 ">N"，用于失效通知和发布订阅消息。
+     */
+    public synchronized void writePushHeader(int length) {
+        appendHeader('>', length, null);
+    }
+
+    /**
+     * RESP3 Map 头 "%N"，N 为键值对数量。
+     */
+    public synchronized void writeMapHeader(int length) {
+        appendHeader('%', length, null);
+    }
+
+    public synchronized void writeBulkHeader(int length) {
+        appendHeader('$', length, BULK_HEADERS);
+    }
+
+    public synchronized void writeBulkString(byte[] data) {
+        appendHeader('$', data.length, BULK_HEADERS);
+        append(data, 0, data.length);
+        append(CRLF, 0, 2);
+    }
+
+    /**
+     * 把 data 中 [offset, offset + length) 的字节写成一个 Bulk String，例如 quicklist 节点中的一个元素。
+     */
+    public synchronized void writeBulkString(byte[] data, int offset, int length) {
+        appendHeader('$', length, BULK_HEADERS);
+        append(data, offset, length);
+        append(CRLF, 0, 2);
+    }
+
+    /**
+     * 以 Bulk String 形式写入一个整数（整数编码的字符串值），不创建中间字符串。
+     */
+    public synchronized void writeBulkLong(long value) {
+        appendHeader('$', stringLength(value), BULK_HEADERS);
+        appendLong(value);
+        append(CRLF, 0, 2);
+    }
+
+    /**
+     * 写入一个 RESP 整数，如 ":42\r\n"。
+     */
+    public synchronized void writeInteger(long value) {
+        if (value == 0) {
+            append(ZERO, 0, ZERO.length);
+        } else if (value == 1) {
+            append(ONE, 0, ONE.length);
+        } else {
+            appendByte((byte) ':');
+            appendLong(value);
+            append(CRLF, 0, 2);
+        }
+    }
+
+    /**
+     * 以 Bulk String 形式写入 "a-b"（Stream ID 的格式），不创建中间字符串。
+     */
+    public synchronized void writeBulkPair(long first, long second) {
+        appendHeader('$', stringLength(first) + 1 + stringLength(second), BULK_HEADERS);
+        appendLong(first);
+        appendByte((byte) '-');
+        appendLong(second);
+        append(CRLF, 0, 2);
+    }
+
+    public synchronized void writeSimpleString(String value) {
+        appendByte((byte) '+');
+        appendText(value);
+        append(CRLF, 0, 2);
+    }
+
+    public synchronized void writeError(String prefix, String message) {
+        appendByte((byte) '-');
+        appendText(prefix);
+        appendByte((byte) ' ');
+        appendText(message == null ? "null" : message);
+        append(CRLF, 0, 2);
+    }
+
+    public synchronized void writeConstant(byte[] constant) {
+        append(constant, 0, constant.length);
+    }
+
+    public synchronized int size() {
+        return count;
+    }
+
+    public synchronized byte[] toByteArray() {
+        byte[] copy = new byte[count];
+        System.arraycopy(buffer, 0, copy, 0, count);
+        return copy;
+    }
+
+    /**
+     * 把缓冲内容写到目标流并清空缓冲区。
+     */
+    public synchronized void writeTo(OutputStream out) throws IOException {
+        out.write(buffer, 0, count);
+        reset();
+    }
+
+    /**
+     * 取出当前缓冲的数据交给调用方在锁外写出，并换上一块空缓冲区，
+     * 这样写 socket 时其他线程仍然可以继续追加。写完后通过 recycle 归还。
+     * @return 包装了待发送数据的 ByteBuffer，没有数据时返回 null
+     */
+    protected synchronized ByteBuffer detach() {
+        if (count == 0) {
+            return null;
+        }
+        ByteBuffer data = ByteBuffer.wrap(buffer, 0, count);
+        buffer = spare != null ? spare : new byte[initialCapacity];
+        spare = null;
+        count = 0;
+        return data;
+    }
+
+    protected synchronized void recycle(ByteBuffer data) {
+        if (data.capacity() <= SHRINK_THRESHOLD) {
+            spare = data.array();
+        }
+    }
+
+    public synchronized void reset() {
+        count = 0;
+        if (buffer.length > SHRINK_THRESHOLD) {
+            buffer = new byte[initialCapacity];
+        }
+    }
+
+    /**
+     * 连接关闭（或因超过限制被断开）后拒绝以 OutputStream 方式写入。
+     */
+    protected void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Connection closed");
+        }
+    }
+
+    private void appendHeader(char type, int length, byte[][] shared) {
+        if (shared != null && length >= 0 && length < SHARED_HEADERS) {
+            byte[] header = shared[length];
+            append(header, 0, header.length);
+            return;
+        }
+        appendByte((byte) type);
+        appendLong(length);
+        append(CRLF, 0, 2);
+    }
+
+    private void appendLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            append(LONG_MIN_VALUE, 0, LONG_MIN_VALUE.length);
+            return;
+        }
+        if (value < 0) {
+            appendByte((byte) '-');
+            value = -value;
+        }
+        int digits = digitCount(value);
+        ensureCapacity(digits);
+        int pos = count + digits;
+        do {
+            buffer[--pos] = (byte) ('0' + (value % 10));
+            value /= 10;
+        } while (value > 0);
+        count += digits;
+    }
+
+    private void appendText(String text) {
+        int length = text.length();
+        ensureCapacity(length);
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c >= 0x80) {
+                // 非 ASCII 文本（很少见）退回到 UTF-8 编码
+                count -= i;
+                byte[] encoded = text.getBytes(StandardCharsets.UTF_8);
+                append(encoded, 0, encoded.length);
+                return;
+            }
+            buffer[count++] = (byte) c;
+        }
+    }
+
+    private void appendByte(byte b) {
+        ensureCapacity(1);
+        buffer[count++] = b;
+    }
+
+    private void append(byte[] b, int off, int len) {
+        ensureCapacity(len);
+        System.arraycopy(b, off, buffer, count, len);
+        count += len;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (closed) {
+            // 已断开的连接不再积累数据，写入的内容会被丢弃
+            count = 0;
+        }
+        if (count + extra > buffer.length) {
+            byte[] bigger = new byte[Math.max(buffer.length * 2, count + extra)];
+            System.arraycopy(buffer, 0, bigger, 0, count);
+            buffer = bigger;
+        }
+    }
+
+    /**
+     * 十进制表示的字符数（包含负号）。
+     */
+    public static int stringLength(long value) {
+        if (value == Long.MIN_VALUE) {
+            return LONG_MIN_VALUE.length;
+        }
+        return value < 0 ? digitCount(-value) + 1 : digitCount(value);
+    }
+
+    private static int digitCount(long value) {
+        int digits = 1;
+        while (value >= 10) {
+            value /= 10;
+            digits++;
+        }
+        return digits;
+    }
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -2,56 +2,134 @@
 package Service;
 
 import Commands.Command; // <--- 确保导入 Command 接口
+import Config.OomException;
 import Config.WrongTypeException;
+import Storage.ByteKey;
+import Storage.StreamEntry;
 import Storage.StreamEntryID;
 import Storage.ValueEntry;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Map;
 
 public class RespEncoder {
     public static void encode(OutputStream os, Object result) throws IOException {
+        if (os instanceof ReplyBuffer) {
+            encode((ReplyBuffer) os, result);
+            return;
+        }
+        // 普通输出流：先编码到临时缓冲区，再一次性写出
+        ReplyBuffer buffer = new ReplyBuffer();
+        encode(buffer, result);
+        buffer.writeTo(os);
+    }
+
+    /**
+     * 把命令结果直接编码进连接的响应缓冲区。
+     * 编码期间持有缓冲区的锁，其他线程写入的推送消息不会插到响应中间。
+     */
+    public static void encode(ReplyBuffer out, Object result) {
+        synchronized (out) {
+            encodeValue(out, result);
+        }
+    }
+
+    /**
+     * 编码一条推送类消息（订阅确认、发布的消息）：RESP3 连接使用 ">" 类型，RESP2 连接使用普通数组。
+     */
+    public static void encodePush(OutputStream os, List<?> items) throws IOException {
+        if (!(os instanceof ReplyBuffer)) {
+            encode(os, items);
+            return;
+        }
+        ReplyBuffer out = (ReplyBuffer) os;
+        synchronized (out) {
+            if (out.isResp3()) {
+                out.writePushHeader(items.size());
+            } else {
+                out.writeArrayHeader(items.size());
+            }
+            for (Object item : items) {
+                encodeValue(out, item);
+            }
+        }
+    }
 
-        // ===> 修改/新增的逻辑开始 <===
-        if (result == Command.NULL_BULK_STRING_RESPONSE) {
-            os.write("$-1\r\n".getBytes(StandardCharsets.UTF_8));
+    private static void encodeValue(ReplyBuffer out, Object result) {
+        if (result == Command.NULL_BULK_STRING_RESPONSE || result == null) {
+            // null 保留给老的 GET 命令逻辑
+            out.writeConstant(out.isResp3() ? ReplyBuffer.RESP3_NULL : ReplyBuffer.NULL_BULK);
         } else if (result == Command.NULL_ARRAY_RESPONSE) {
-            os.write("*-1\r\n".getBytes(StandardCharsets.UTF_8));
-        } else if (result == null) {
-            // 保留一个默认的 null 处理，以兼容老的 GET 命令逻辑
-            os.write("$-1\r\n".getBytes(StandardCharsets.UTF_8));
-        } else if (result instanceof String) {
-            os.write(("+" + result + "\r\n").getBytes(StandardCharsets.UTF_8));
+            out.writeConstant(out.isResp3() ? ReplyBuffer.RESP3_NULL : ReplyBuffer.NULL_ARRAY);
         } else if (result instanceof byte[]) {
-            byte[] arr = (byte[]) result;
-            os.write(('$' + String.valueOf(arr.length) + "\r\n").getBytes(StandardCharsets.UTF_8));
-            os.write(arr);
-            os.write("\r\n".getBytes(StandardCharsets.UTF_8));
+            out.writeBulkString((byte[]) result);
+        } else if (result instanceof String) {
+            encodeSimpleString(out, (String) result);
         } else if (result instanceof Long || result instanceof Integer) {
-            os.write((":" + result + "\r\n").getBytes(StandardCharsets.UTF_8));
+            out.writeInteger(((Number) result).longValue());
         } else if (result instanceof List) {
             List<?> list = (List<?>) result;
-            os.write(("*"+ list.size() + "\r\n").getBytes(StandardCharsets.UTF_8));
+            out.writeArrayHeader(list.size());
             for (Object item : list) {
-                encode(os, item);
+                encodeValue(out, item);
             }
+        } else if (result instanceof RespWritable) {
+            ((RespWritable) result).writeTo(out);
         } else if (result instanceof StreamEntryID) {
-            String idStr = result.toString();
-            encode(os, idStr.getBytes(StandardCharsets.UTF_8));
+            StreamEntryID id = (StreamEntryID) result;
+            out.writeBulkPair(id.timestamp, id.sequence);
         } else if (result instanceof ValueEntry) {
-            encode(os, ((ValueEntry) result).value);
+            ValueEntry entry = (ValueEntry) result;
+            if (entry.isInteger()) {
+                out.writeBulkLong(entry.getLong());
+            } else {
+                out.writeBulkString(entry.getBytes());
+            }
         } else if (result instanceof Exception) {
             String message = ((Exception) result).getMessage();
             if (result instanceof WrongTypeException) {
-                os.write(("-WRONGTYPE " + message + "\r\n").getBytes(StandardCharsets.UTF_8));
+                out.writeError("WRONGTYPE", message);
+            } else if (result instanceof OomException) {
+                out.writeError("OOM", message);
             } else {
-                os.write(("-ERR " + message + "\r\n").getBytes(StandardCharsets.UTF_8));
+                out.writeError("ERR", message);
             }
         } else {
-            String errorMsg = "Unsupported response type: " + result.getClass().getName();
-            os.write(("-ERR " + errorMsg + "\r\n").getBytes(StandardCharsets.UTF_8));
+            out.writeError("ERR", "Unsupported response type: " + result.getClass().getName());
+        }
+    }
+
+    private static void encodeSimpleString(ReplyBuffer out, String value) {
+        switch (value) {
+            case "OK":
+                out.writeConstant(ReplyBuffer.OK);
+                break;
+            case "PONG":
+                out.writeConstant(ReplyBuffer.PONG);
+                break;
+            case "QUEUED":
+                out.writeConstant(ReplyBuffer.QUEUED);
+                break;
+            default:
+                out.writeSimpleString(value);
+        }
+    }
+
+    /**
+     * 写入 Stream 条目数组 [[id, [field, value, ...]], ...]，XRANGE 和 XREAD 共用。
+     */
+    public static void writeStreamEntries(ReplyBuffer out, List<StreamEntry> entries) {
+        out.writeArrayHeader(entries.size());
+        for (StreamEntry entry : entries) {
+            out.writeArrayHeader(2);
+            out.writeBulkPair(entry.id.timestamp, entry.id.sequence);
+            out.writeArrayHeader(entry.fields.size() * 2);
+            for (Map.Entry<ByteKey, byte[]> field : entry.fields.entrySet()) {
+                out.writeBulkString(field.getKey().getBytes());
+                out.writeBulkString(field.getValue());
+            }
         }
     }
 }
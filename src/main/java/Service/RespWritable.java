@@ -0,0 +1,11 @@
+package Service;
+
+/**
+ * @author Achilles
+ * 可以把自己直接写入响应缓冲区的结果对象。
+ * 命令返回它来代替层层嵌套的 List，编码时不需要任何中间集合。
+ */
+@FunctionalInterface
+public interface RespWritable {
+    void writeTo(ReplyBuffer out);
+}
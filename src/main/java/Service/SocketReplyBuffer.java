@@ -0,0 +1,65 @@
+package Service;
+
+import Config.ServerConfig;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * @author Achilles
+ * 阻塞模式下连接的响应缓冲区：flush 时一次性写到 socket 输出流。
+ * 连接自己的线程直接 flush；其他线程（发布、复制传播）通过 requestFlush 交给后台写线程，
+ * 慢客户端只会拖住后台线程，不会拖住执行命令的线程。
+ */
+public class SocketReplyBuffer extends ReplyBuffer {
+    private static final ExecutorService ASYNC_WRITER = ServerConfig.getInstance().useVirtualThreads()
+            ? Executors.newVirtualThreadPerTaskExecutor()
+            : Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(task, "reply-writer");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    private final OutputStream socketOutputStream;
+    // 保证多个线程 flush 时数据按追加顺序写出；写 socket 期间不持有缓冲区的锁
+    private final Object writeLock = new Object();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+
+    public SocketReplyBuffer(OutputStream socketOutputStream, int initialCapacity) {
+        super(initialCapacity);
+        this.socketOutputStream = socketOutputStream;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (!checkOutputLimit()) {
+            throw new IOException("Connection closed");
+        }
+        synchronized (writeLock) {
+            ByteBuffer data = detach();
+            if (data != null) {
+                socketOutputStream.write(data.array(), 0, data.limit());
+                recycle(data);
+            }
+            socketOutputStream.flush();
+        }
+    }
+
+    @Override
+    protected void scheduleFlush() {
+        if (flushScheduled.compareAndSet(false, true)) {
+            ASYNC_WRITER.execute(() -> {
+                flushScheduled.set(false);
+                try {
+                    flush();
+                } catch (IOException e) {
+                    // 连接已断开，由连接的读线程清理
+                }
+            });
+        }
+    }
+}
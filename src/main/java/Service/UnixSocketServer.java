@@ -0,0 +1,88 @@
+package Service;
+
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * @author Achilles
+ * Unix 域套接字监听器（--unixsocket），与 TCP 监听并存。
+ * 同一台机器上的客户端不经过 TCP 回环协议栈；接受的连接交给与 TCP 相同的处理路径
+ * （阻塞模式的 ClientHandler 或 NIO 事件循环）。
+ */
+public class UnixSocketServer implements Runnable {
+    private final Path path;
+    private final ServerSocketChannel serverChannel;
+    private final Consumer<SocketChannel> acceptHandler;
+
+    /**
+     * 绑定套接字文件。和 Redis 一样，先删除残留的旧文件，退出时删除新文件。
+     * @param permissions 八进制的文件权限（如 "700"），为 null 时使用默认权限
+     * @param acceptHandler 处理每个新连接（阻塞模式的通道）
+     */
+    public UnixSocketServer(String path, String permissions, Consumer<SocketChannel> acceptHandler) throws IOException {
+        this.path = Path.of(path);
+        this.acceptHandler = acceptHandler;
+        Files.deleteIfExists(this.path);
+        this.serverChannel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        serverChannel.bind(UnixDomainSocketAddress.of(this.path));
+        if (permissions != null) {
+            Files.setPosixFilePermissions(this.path, parsePermissions(permissions));
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                Files.deleteIfExists(this.path);
+            } catch (IOException ignored) {
+                // 退出时删除失败不影响关闭
+            }
+        }));
+    }
+
+    /**
+     * 在新线程中开始接受连接。
+     */
+    public void start() {
+        Thread thread = new Thread(this, "unix-socket-acceptor");
+        thread.setDaemon(true);
+        thread.start();
+        System.out.println("Listening on unix socket " + path);
+    }
+
+    @Override
+    public void run() {
+        while (serverChannel.isOpen()) {
+            try {
+                acceptHandler.accept(serverChannel.accept());
+            } catch (IOException e) {
+                System.out.println("IOException accepting unix socket connection: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 把 "755" 这样的八进制权限转换为 POSIX 权限集合。
+     */
+    static Set<PosixFilePermission> parsePermissions(String octal) {
+        int mode = Integer.parseInt(octal, 8);
+        PosixFilePermission[] bits = {
+                PosixFilePermission.OTHERS_EXECUTE, PosixFilePermission.OTHERS_WRITE, PosixFilePermission.OTHERS_READ,
+                PosixFilePermission.GROUP_EXECUTE, PosixFilePermission.GROUP_WRITE, PosixFilePermission.GROUP_READ,
+                PosixFilePermission.OWNER_EXECUTE, PosixFilePermission.OWNER_WRITE, PosixFilePermission.OWNER_READ
+        };
+        Set<PosixFilePermission> permissions = EnumSet.noneOf(PosixFilePermission.class);
+        for (int i = 0; i < bits.length; i++) {
+            if ((mode & (1 << i)) != 0) {
+                permissions.add(bits[i]);
+            }
+        }
+        return permissions;
+    }
+}
@@ -0,0 +1,168 @@
+package Storage;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * @author Achilles
+ * 按 key 登记被 BLPOP / XREAD 阻塞的客户端，同一个 key 上的等待者先进先出。
+ * 写入某个 key 时只唤醒等待这个 key 的客户端；列表元素在写入方线程中直接交给等待者，
+ * 被唤醒的客户端不需要再去抢元素。
+ * 调用 register、serveList、wakeAll 时必须持有相关 key 的段锁，保证“检查数据 + 登记”与写入互斥，不会丢失唤醒。
+ */
+class BlockingKeys {
+
+    static final class Waiter {
+        private final List<ByteKey> keys;
+        private final Condition condition;
+        private boolean registered = true;
+        // 已被写入唤醒；列表等待者同时拿到了元素
+        private boolean ready = false;
+        private ByteKey servedKey;
+        private byte[] element;
+
+        private Waiter(List<ByteKey> keys, Condition condition) {
+            this.keys = keys;
+            this.condition = condition;
+        }
+
+        ByteKey getServedKey() {
+            return servedKey;
+        }
+
+        byte[] getElement() {
+            return element;
+        }
+    }
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<ByteKey, ArrayDeque<Waiter>> waiters = new HashMap<>();
+    // 没有等待者时写入方不需要加锁
+    private volatile int waiterCount = 0;
+
+    /**
+     * 登记一个等待者，调用方持有这些 key 的段锁，并且已经确认没有可用的数据。
+     */
+    Waiter register(List<ByteKey> keys) {
+        lock.lock();
+        try {
+            // BLPOP a a 0 这样的重复 key 只登记一次
+            Waiter waiter = new Waiter(new ArrayList<>(new LinkedHashSet<>(keys)), lock.newCondition());
+            for (ByteKey key : waiter.keys) {
+                waiters.computeIfAbsent(key, k -> new ArrayDeque<>()).addLast(waiter);
+            }
+            waiterCount++;
+            return waiter;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 等待被唤醒或超时，调用前必须释放段锁。返回时等待者已经从所有队列中移除。
+     * @param deadline 截止时间（毫秒时间戳），0 表示一直等待
+     * @return 是否被写入唤醒，超时返回 false
+     */
+    boolean await(Waiter waiter, long deadline) throws InterruptedException {
+        lock.lock();
+        try {
+            while (!waiter.ready) {
+                if (deadline == 0) {
+                    waiter.condition.await();
+                } else {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    waiter.condition.await(remaining, TimeUnit.MILLISECONDS);
+                }
+            }
+            return waiter.ready;
+        } catch (InterruptedException e) {
+            if (waiter.ready) {
+                // 元素已经交给了这个等待者，不能丢弃，保留中断状态后正常返回
+                Thread.currentThread().interrupt();
+                return true;
+            }
+            throw e;
+        } finally {
+            unregister(waiter);
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 把列表头部的元素依次交给等待这个 key 的客户端，先登记的先得到。调用方持有该 key 的写锁。
+     * @return 交出的元素个数
+     */
+    int serveList(ByteKey key, QuickList list) {
+        if (waiterCount == 0) {
+            return 0;
+        }
+        lock.lock();
+        try {
+            int served = 0;
+            ArrayDeque<Waiter> queue = waiters.get(key);
+            while (queue != null && !queue.isEmpty() && !list.isEmpty()) {
+                Waiter waiter = queue.peekFirst();
+                waiter.servedKey = key;
+                waiter.element = list.popFirst();
+                wake(waiter);
+                served++;
+                queue = waiters.get(key);
+            }
+            return served;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 唤醒等待这个 key 的所有客户端，由它们自己重新读取数据（用于 XREAD，读取不会消费数据）。
+     */
+    void wakeAll(ByteKey key) {
+        if (waiterCount == 0) {
+            return;
+        }
+        lock.lock();
+        try {
+            ArrayDeque<Waiter> queue = waiters.get(key);
+            while (queue != null && !queue.isEmpty()) {
+                wake(queue.peekFirst());
+                queue = waiters.get(key);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void wake(Waiter waiter) {
+        waiter.ready = true;
+        unregister(waiter);
+        waiter.condition.signal();
+    }
+
+    private void unregister(Waiter waiter) {
+        if (!waiter.registered) {
+            return;
+        }
+        waiter.registered = false;
+        for (ByteKey key : waiter.keys) {
+            ArrayDeque<Waiter> queue = waiters.get(key);
+            if (queue != null) {
+                queue.remove(waiter);
+                if (queue.isEmpty()) {
+                    waiters.remove(key);
+                }
+            }
+        }
+        waiterCount--;
+    }
+}
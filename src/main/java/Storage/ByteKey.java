@@ -0,0 +1,76 @@
+package Storage;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * @author Achilles
+ * 不可变的字节序列，作为键空间、有序集合成员和 Stream 字段的 key。
+ * 直接比较字节并缓存 hash，避免每条命令都做一次 UTF-8 解码和 String 分配，也保证二进制安全。
+ */
+public final class ByteKey implements Comparable<ByteKey> {
+    private final byte[] bytes;
+    private final int hash;
+
+    private ByteKey(byte[] bytes) {
+        this.bytes = bytes;
+        this.hash = Arrays.hashCode(bytes);
+    }
+
+    /**
+     * 直接包装字节数组而不复制，调用方保证之后不再修改它（命令参数在解析后不会被修改）。
+     */
+    public static ByteKey wrap(byte[] bytes) {
+        return new ByteKey(bytes);
+    }
+
+    public static ByteKey of(String key) {
+        return new ByteKey(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 返回内部数组，调用方不能修改。
+     */
+    public byte[] getBytes() {
+        return bytes;
+    }
+
+    public int length() {
+        return bytes.length;
+    }
+
+    public boolean startsWith(ByteKey prefix) {
+        return bytes.length >= prefix.bytes.length
+                && Arrays.equals(bytes, 0, prefix.bytes.length, prefix.bytes, 0, prefix.bytes.length);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ByteKey)) {
+            return false;
+        }
+        ByteKey that = (ByteKey) o;
+        return hash == that.hash && Arrays.equals(bytes, that.bytes);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    /**
+     * 按无符号字节的字典序比较，与 Redis 的 memcmp 一致。
+     */
+    @Override
+    public int compareTo(ByteKey other) {
+        return Arrays.compareUnsigned(bytes, other.bytes);
+    }
+
+    @Override
+    public String toString() {
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -1,16 +1,26 @@
 package Storage;
 
+import Config.MaxmemoryPolicy;
+import Config.ServerConfig;
 import Config.WrongTypeException;
+import Service.ReplyBuffer;
+import Service.RespWritable;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.math.BigDecimal;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
 
 /**
  * @author Achilles
@@ -19,7 +29,60 @@ import java.util.concurrent.CopyOnWriteArrayList;
 public class DataStore {
     private static final DataStore instance = new DataStore();
 
-    private final Map<String, Object> map = new ConcurrentHashMap<>();
+    private static final byte[] MESSAGE_BYTES = "message".getBytes(StandardCharsets.UTF_8);
+
+    private static final RespWritable EMPTY_ARRAY = out -> out.writeConstant(ReplyBuffer.EMPTY_ARRAY);
+
+    // 与 Redis 的 OBJ_ENCODING_EMBSTR_SIZE_LIMIT 相同，只影响 OBJECT ENCODING 的显示
+    private static final int EMBSTR_SIZE_LIMIT = 44;
+
+    // 只包含设置了过期时间的 key 及其过期时间戳（毫秒），供主动过期周期抽样
+    private final Map<ByteKey, Long> expires = new ConcurrentHashMap<>();
+
+    // 主动过期周期每轮抽样的 key 数、CPU 时间占比（百分比）以及可接受的过期比例，与 Redis 的默认值相同
+    private static final int ACTIVE_EXPIRE_CYCLE_KEYS_PER_LOOP = 20;
+    private static final int ACTIVE_EXPIRE_CYCLE_SLOW_TIME_PERC = 25;
+    private static final int ACTIVE_EXPIRE_CYCLE_ACCEPTABLE_STALE = 10;
+
+    // 读取时发现已过期、等待后台过期线程删除的 key
+    private final Set<ByteKey> lazyExpired = ConcurrentHashMap.newKeySet();
+
+    // 主动过期周期在 expires 上的遍历位置，跨周期保留，只由过期线程访问
+    private Iterator<Map.Entry<ByteKey, Long>> expireCursor;
+
+    // INFO stats 中的过期统计
+    private final AtomicLong expiredKeys = new AtomicLong();
+    private volatile double expiredStalePerc = 0;
+    private final AtomicLong expiredTimeCapReachedCount = new AtomicLong();
+
+    // 键空间的估算内存（字节），各写操作在段锁内按 MemoryEstimator 增减
+    private final LongAdder usedMemory = new LongAdder();
+
+    // 连续多少次选中的候选都已不存在时放弃淘汰
+    private static final int MAX_EVICTION_MISSES = 100;
+
+    // maxmemory 淘汰的候选池，同时作为淘汰线程之间的互斥锁
+    private final Eviction evictionPool = new Eviction();
+    // volatile 策略在 expires 上的遍历位置，持有 evictionPool 的锁时访问
+    private Iterator<ByteKey> evictionCursor;
+    private final AtomicLong evictedKeys = new AtomicLong();
+
+    // 按 key 分段的读写锁：不同段上的 key 互不阻塞，同一段内的读操作可以并行
+    private final StripedLock stripes = new StripedLock();
+
+    // 键空间，每个段一张开放寻址的 Dict，由对应的段锁保护
+    private final Keyspace map = new Keyspace(stripes);
+
+    // 复制状态（偏移量、副本列表）和发布订阅状态各自使用独立的锁，与键空间无关
+    private final ReentrantLock replicationLock = new ReentrantLock();
+    private final ReentrantLock pubsubLock = new ReentrantLock();
+
+    // 被 BLPOP / XREAD 阻塞的客户端，按 key 登记，写入时只唤醒相关的等待者
+    private final BlockingKeys listWaiters = new BlockingKeys();
+    private final BlockingKeys streamWaiters = new BlockingKeys();
+
+    // 当前线程是否处于 withKeysLocked 之中（例如 MULTI/EXEC），此时阻塞命令不能等待
+    private final ThreadLocal<int[]> atomicDepth = ThreadLocal.withInitial(() -> new int[1]);
 
     private final ReplicationInfo replicationInfo =new ReplicationInfo();
 
@@ -28,6 +91,8 @@ public class DataStore {
     private long masterWriteOffset=0L;
 
     private final Queue<AckCallback> ackCallbacks = new ConcurrentLinkedQueue<>();
+    // key 被修改（写入、删除、过期）时需要通知的监听者，例如客户端缓存追踪
+    private final List<KeyModifiedListener> keyModifiedListeners = new CopyOnWriteArrayList<>();
 
     // This is no longer needed with the simplified wait/notify mechanism
     // private final Map<String,Queue<Object>> blpopWaitingQueues = new ConcurrentHashMap<>();
@@ -42,12 +107,22 @@ public class DataStore {
 
     private long replicaOffset=0L;
 
-    public synchronized long getReplicaOffset() {
-        return replicaOffset;
+    public long getReplicaOffset() {
+        replicationLock.lock();
+        try {
+            return replicaOffset;
+        } finally {
+            replicationLock.unlock();
+        }
     }
 
-    public synchronized void incrementReplicaOffset(long offset){
-        this.replicaOffset+=offset;
+    public void incrementReplicaOffset(long offset){
+        replicationLock.lock();
+        try {
+            this.replicaOffset+=offset;
+        } finally {
+            replicationLock.unlock();
+        }
     }
 
     public void setRdbConfig(String dir,String fileName){
@@ -63,12 +138,22 @@ public class DataStore {
         return this.rdbFileName;
     }
 
-    public synchronized int getReplicaCount() {
-        return this.replicas.size();
+    public int getReplicaCount() {
+        replicationLock.lock();
+        try {
+            return this.replicas.size();
+        } finally {
+            replicationLock.unlock();
+        }
     }
 
-    public synchronized Map<OutputStream, Set<String>> getClientSubscriptions() {
-        return this.clientSubscriptions;
+    public Map<OutputStream, Set<String>> getClientSubscriptions() {
+        pubsubLock.lock();
+        try {
+            return this.clientSubscriptions;
+        } finally {
+            pubsubLock.unlock();
+        }
     }
 
     @FunctionalInterface
@@ -90,9 +175,59 @@ public class DataStore {
         }
     }
 
+    /**
+     * key 被修改时的回调，在持有数据锁的情况下调用，实现中不能做阻塞 I/O。
+     */
+    @FunctionalInterface
+    public interface KeyModifiedListener {
+        void onKeyModified(ByteKey key);
+    }
+
+    public void addKeyModifiedListener(KeyModifiedListener listener) {
+        keyModifiedListeners.add(listener);
+    }
+
+    private void signalModifiedKey(ByteKey key) {
+        for (KeyModifiedListener listener : keyModifiedListeners) {
+            listener.onKeyModified(key);
+        }
+    }
+
     private DataStore() {
     }
 
+    /**
+     * 锁住一组 key 所在的段（写锁，按段号升序）后执行 action，保证其中的多个操作对其他客户端是原子的。
+     * 用于 MULTI/EXEC 以及写命令的“复制传播 + 执行”。期间 BLPOP、XREAD BLOCK 不会等待，与 Redis 在事务中的行为一致。
+     * @param keys 涉及的 key，为空时不持有任何段锁；为 null 时锁住所有段，只留给确实需要独占整个键空间的操作
+     */
+    public <T> T withKeysLocked(Collection<ByteKey> keys, Supplier<T> action) {
+        int[] keyStripes = stripes.stripesOf(keys);
+        stripes.lockAll(keyStripes, true);
+        int[] depth = atomicDepth.get();
+        depth[0]++;
+        try {
+            return action.get();
+        } finally {
+            depth[0]--;
+            stripes.unlockAll(keyStripes, true);
+        }
+    }
+
+    /**
+     * key 所在的段号。分片模式按段号把 key 分配给执行线程，使每个段只被一个线程访问。
+     */
+    public int stripeOf(ByteKey key) {
+        return stripes.stripeOf(key);
+    }
+
+    /**
+     * 当前线程是否持有 withKeysLocked 的段锁（例如正在执行 EXEC），此时阻塞类命令不能等待。
+     */
+    public boolean inAtomicBlock() {
+        return atomicDepth.get()[0] > 0;
+    }
+
     public static DataStore getInstance() {
         return instance;
     }
@@ -111,298 +246,640 @@ public class DataStore {
         this.replicationInfo.setMasterPort(masterPort);
     }
 
-    public synchronized void  addToMasterOffset(long offset){
-        this.masterWriteOffset+=offset;
+    public void  addToMasterOffset(long offset){
+        replicationLock.lock();
+        try {
+            this.masterWriteOffset+=offset;
+        } finally {
+            replicationLock.unlock();
+        }
     }
 
-    public synchronized  long getMasterOffset(){
-        return this.masterWriteOffset;
+    public long getMasterOffset(){
+        replicationLock.lock();
+        try {
+            return this.masterWriteOffset;
+        } finally {
+            replicationLock.unlock();
+        }
     }
 
     // --- 字符串操作 ---
-    public synchronized void setString(String key, ValueEntry value) {
-        map.put(key, value);
-        // Wake up any threads waiting in BLPOP or XREAD
-        this.notify();
+    public void setString(ByteKey key, ValueEntry value) {
+        Lock stripe = stripes.writeLock(key);
+        stripe.lock();
+        try {
+            putString(key, value);
+        } finally {
+            stripe.unlock();
+        }
     }
 
-    public synchronized ValueEntry getString(String key) {
-        Object value = map.get(key);
-        if (value instanceof ValueEntry) {
-            ValueEntry entry = (ValueEntry) value;
-            if (entry.isExpired()) {
-                map.remove(key);
-                return null;
+    /**
+     * INCR / INCRBY / DECR / DECRBY：在 key 的写锁内完成读取、计算和写回，保留原有的过期时间。
+     * key 不存在（或已过期）时从 0 开始。
+     * @return 计算后的值
+     * @throws WrongTypeException key 存在但不是字符串
+     * @throws Exception 当前值不是整数，或结果超出 long 的范围
+     */
+    public long incrBy(ByteKey key, long delta) throws Exception {
+        Lock stripe = stripes.writeLock(key);
+        stripe.lock();
+        try {
+            ValueEntry current = liveString(key);
+            long value = 0;
+            long expiry = -1;
+            if (current != null) {
+                if (current.isInteger()) {
+                    value = current.getLong();
+                } else if (ValueEntry.isCanonicalLong(current.getBytes())) {
+                    value = ValueEntry.parseCanonicalLong(current.getBytes());
+                } else {
+                    throw new Exception("value is not an integer or out of range");
+                }
+                expiry = current.expiryTimestamp;
+            }
+            long result;
+            try {
+                result = Math.addExact(value, delta);
+            } catch (ArithmeticException e) {
+                throw new Exception("increment or decrement would overflow");
             }
-            return entry;
+            putString(key, ValueEntry.ofLong(result, expiry));
+            return result;
+        } finally {
+            stripe.unlock();
         }
-        return null;
     }
-    private LinkedList<byte[]> getOrCreateList(String key) throws WrongTypeException{
-        Object value = map.get(key);
-        if(value==null) {
-            LinkedList<byte[]> newList = new LinkedList<>();
-            map.put(key, newList);
-            return newList;
-        }
-        if(!(value instanceof List)){
-            throw new WrongTypeException("Operation against a key holding the wrong kind of value");
-        }
-        if(!(value instanceof LinkedList)){
-            LinkedList<byte[]> newList = new LinkedList<>((List<byte[]>) value);
-            map.put(key, newList);
-            return newList;
+
+    /**
+     * INCRBYFLOAT：与 incrBy 相同地在写锁内完成，保留原有的过期时间。
+     * @return 计算结果的字符串形式（不使用科学计数法，去掉末尾的 0）
+     * @throws WrongTypeException key 存在但不是字符串
+     * @throws Exception 当前值不是合法的浮点数，或结果是 NaN / Infinity
+     */
+    public byte[] incrByFloat(ByteKey key, double delta) throws Exception {
+        Lock stripe = stripes.writeLock(key);
+        stripe.lock();
+        try {
+            ValueEntry current = liveString(key);
+            double value = 0;
+            long expiry = -1;
+            if (current != null) {
+                if (current.isInteger()) {
+                    value = current.getLong();
+                } else {
+                    try {
+                        value = ValueEntry.parseDouble(current.getBytes());
+                    } catch (NumberFormatException e) {
+                        throw new Exception("value is not a valid float");
+                    }
+                }
+                expiry = current.expiryTimestamp;
+            }
+            double result = value + delta;
+            if (Double.isNaN(result) || Double.isInfinite(result)) {
+                throw new Exception("increment would produce NaN or Infinity");
+            }
+            byte[] formatted = formatDouble(result);
+            putString(key, ValueEntry.of(formatted, expiry));
+            return formatted;
+        } finally {
+            stripe.unlock();
         }
-        return (LinkedList<byte[]>) value;
     }
 
-    // --- 列表操作 ---
-    public synchronized int rpush(String key, List<byte[]> valuesToPush) throws WrongTypeException {
-        List<byte[]> list = getOrCreateList(key);
-        list.addAll(valuesToPush);
-
-        // Wake up any threads waiting in BLPOP
-        this.notify();
-        return list.size();
+    /**
+     * MGET：按段号顺序一次性持有所有相关段的读锁后逐个读取，结果是同一时刻的快照。
+     * @return 与 keys 一一对应，key 不存在、已过期或不是字符串时为 null
+     */
+    public List<ValueEntry> mget(List<ByteKey> keys) {
+        List<ValueEntry> values = new ArrayList<>(keys.size());
+        int[] keyStripes = stripes.stripesOf(keys);
+        stripes.lockAll(keyStripes, false);
+        try {
+            for (ByteKey key : keys) {
+                Object value = map.get(key);
+                ValueEntry entry = null;
+                if (value instanceof ValueEntry) {
+                    entry = (ValueEntry) value;
+                    if (entry.isExpired()) {
+                        lazyExpired.add(key);
+                        entry = null;
+                    }
+                }
+                values.add(entry);
+            }
+        } finally {
+            stripes.unlockAll(keyStripes, false);
+        }
+        return values;
     }
 
-    public synchronized int lpush(String key, List<byte[]> valuesToPush) throws WrongTypeException {
-        LinkedList<byte[]> list = getOrCreateList(key);
-        for (byte[] v : valuesToPush) {
-            list.addFirst(v);
+    /**
+     * MSET / MSETNX：按段号顺序一次性持有所有相关段的写锁后写入，其他客户端看不到只写了一部分的状态。
+     * 写入的值不带过期时间，会清除 key 原有的过期时间。
+     * @param onlyIfNoneExist 为 true 时（MSETNX）只要有一个 key 存在就什么都不写
+     * @return 是否写入
+     */
+    public boolean mset(List<ByteKey> keys, List<byte[]> values, boolean onlyIfNoneExist) {
+        int[] keyStripes = stripes.stripesOf(keys);
+        stripes.lockAll(keyStripes, true);
+        try {
+            if (onlyIfNoneExist) {
+                for (ByteKey key : keys) {
+                    Object value = map.get(key);
+                    if (value != null && !(value instanceof ValueEntry && ((ValueEntry) value).isExpired())) {
+                        return false;
+                    }
+                }
+            }
+            for (int i = 0; i < keys.size(); i++) {
+                putString(keys.get(i), ValueEntry.of(values.get(i), -1));
+            }
+            return true;
+        } finally {
+            stripes.unlockAll(keyStripes, true);
         }
-        // Wake up any threads waiting in BLPOP
-        this.notify();
-        return list.size();
     }
 
-    public synchronized List<byte[]> lpop(String key, int count) throws WrongTypeException {
+    /**
+     * 在写锁内读取字符串值，已过期的 key 视为不存在（随后会被覆盖）。
+     */
+    private ValueEntry liveString(ByteKey key) throws WrongTypeException {
         Object value = map.get(key);
         if (value == null) {
             return null;
         }
-        if (!(value instanceof List)) {
-            throw new WrongTypeException("WRONGTYPE Operation against a key holding the wrong kind of value");
-        }
-        @SuppressWarnings("unchecked")
-        LinkedList<byte[]> list = (LinkedList<byte[]>) value;
-        int actualCount = Math.min(list.size(), count);
-        List<byte[]> poppedElements = new ArrayList<>(actualCount);
-        for (int i = 0; i < actualCount; i++) {
-            poppedElements.add(list.removeFirst());
+        if (!(value instanceof ValueEntry)) {
+            throw new WrongTypeException("Operation against a key holding the wrong kind of value");
         }
-        return poppedElements;
+        ValueEntry entry = (ValueEntry) value;
+        return entry.isExpired() ? null : entry;
     }
 
     /**
-     * [CORRECTED] 阻塞式地从列表左侧弹出一个元素，支持超时。
-     * This version uses this.wait() and this.notify() to prevent race conditions.
+     * 在写锁内查找 key，已过期的字符串视为不存在并在这里直接删除，随后的写入可以在这个 key 上新建其他类型。
      */
-    public synchronized Object[] blpop(List<byte[]> keys, double timeoutSeconds) throws WrongTypeException, InterruptedException {
-        long deadline = (timeoutSeconds > 0) ? (System.currentTimeMillis() + (long)(timeoutSeconds * 1000)) : 0;
-
-        // Loop to handle spurious wakeups and check for data
-        while (true) {
-            // 1. First, check for available data without blocking
-            for (byte[] keyBytes : keys) {
-                String key = new String(keyBytes, StandardCharsets.UTF_8);
-                Object value = map.get(key);
-                if (value instanceof List && !((List<?>) value).isEmpty()) {
-                    // Data found, pop it and return
-                    @SuppressWarnings("unchecked")
-                    LinkedList<byte[]> list = (LinkedList<byte[]>) value;
-                    return new Object[]{keyBytes, list.removeFirst()};
-                }
-            }
-
-            // 2. If no data, calculate remaining time and decide whether to wait or timeout
-            long waitTime = 0;
-            if (timeoutSeconds > 0) {
-                waitTime = deadline - System.currentTimeMillis();
-                if (waitTime <= 0) {
-                    return null; // Timeout
-                }
-            }
-
-            // 3. Wait for a notification from a data-producing command (like RPUSH)
-            // If timeout is 0, wait forever.
-            this.wait(waitTime);
+    private Object lookupWrite(ByteKey key) {
+        Object value = map.get(key);
+        if (value instanceof ValueEntry && ((ValueEntry) value).isExpired()) {
+            expires.remove(key);
+            removeEntry(key);
+            expiredKeys.incrementAndGet();
+            signalModifiedKey(key);
+            return null;
         }
+        return value;
     }
 
-
-    public synchronized List<byte[]> lrange(String key, int start, int end) throws WrongTypeException {
+    /**
+     * 在段锁（读锁或写锁）内查找 key，已过期的字符串视为不存在，删除交给后台过期线程。
+     */
+    private Object lookupRead(ByteKey key) {
         Object value = map.get(key);
-
-        if (value == null) {
-            return new ArrayList<>();
+        if (value instanceof ValueEntry && ((ValueEntry) value).isExpired()) {
+            lazyExpired.add(key);
+            return null;
         }
+        return value;
+    }
 
-        if (!(value instanceof List)) {
-            throw new WrongTypeException("WRONGTYPE Operation against a key holding the wrong kind of value");
+    /**
+     * 写入字符串值并同步 expires 索引和估算内存，调用方持有该 key 的写锁。
+     */
+    private void putString(ByteKey key, ValueEntry value) {
+        Object old = map.put(key, value);
+        usedMemory.add(MemoryEstimator.entry(key, value) - (old == null ? 0 : MemoryEstimator.entry(key, old)));
+        if (value.expiryTimestamp == -1) {
+            expires.remove(key);
+        } else {
+            expires.put(key, value.expiryTimestamp);
         }
+        signalModifiedKey(key);
+    }
 
-        @SuppressWarnings("unchecked")
-        List<byte[]> list = (List<byte[]>) value;
-        int size = list.size();
-
-        if (start < 0) {
-            start = size + start;
+    /**
+     * 先不加锁乐观地读取（ValueEntry 不可变，读到就是完整的值），期间该段有写入时才退回读锁。
+     * 读到已过期的 key 时不在这里删除，而是交给后台过期线程处理，读路径上不会有写锁。
+     */
+    public ValueEntry getString(ByteKey key) {
+        Object value = map.getOptimistic(key);
+        if (value == Keyspace.CONFLICT) {
+            Lock stripe = stripes.readLock(key);
+            stripe.lock();
+            try {
+                value = map.get(key);
+            } finally {
+                stripe.unlock();
+            }
         }
-        if (end < 0) {
-            end = size + end;
+        if (!(value instanceof ValueEntry)) {
+            return null;
         }
-        if(start < 0) {
-            start = 0;
+        ValueEntry entry = (ValueEntry) value;
+        if (entry.isExpired()) {
+            lazyExpired.add(key);
+            return null;
         }
-        if (end >= size) {
-            end = size - 1;
+        return entry;
+    }
+    private QuickList getOrCreateList(ByteKey key) throws WrongTypeException{
+        Object value = lookupWrite(key);
+        if(value==null) {
+            ServerConfig config = ServerConfig.getInstance();
+            QuickList newList = new QuickList(config.getListMaxListpackSize(), config.getListCompressDepth());
+            map.put(key, newList);
+            usedMemory.add(MemoryEstimator.entry(key, newList));
+            return newList;
         }
-        if (start > end) {
-            return new ArrayList<>();
+        if(!(value instanceof QuickList)){
+            throw new WrongTypeException("Operation against a key holding the wrong kind of value");
         }
-
-        return new ArrayList<>(list.subList(start, end + 1));
+        return (QuickList) value;
     }
 
-    public synchronized StreamEntryID xadd(String key, long reqTimestamp, int reqSequence, Map<String, byte[]> fields) throws Exception {
-        Object value = map.get(key);
-        RedisStream stream;
-
-        if (value == null) {
-            stream = new RedisStream();
-            map.put(key, stream);
-        } else if (value instanceof RedisStream) {
-            stream = (RedisStream) value;
-        } else {
-            throw new WrongTypeException("WRONGTYPE Operation against a key holding the wrong kind of value");
+    // --- 列表操作 ---
+    public int rpush(ByteKey key, List<byte[]> valuesToPush) throws WrongTypeException {
+        Lock stripe = stripes.writeLock(key);
+        stripe.lock();
+        try {
+            QuickList list = getOrCreateList(key);
+            long before = MemoryEstimator.quickList(list);
+            for (byte[] v : valuesToPush) {
+                list.pushLast(v);
+            }
+            int size = list.size();
+            // 新元素直接交给阻塞在这个 key 上的 BLPOP 客户端，返回值仍是交出之前的长度
+            listWaiters.serveList(key, list);
+            usedMemory.add(MemoryEstimator.quickList(list) - before);
+            // 元素全部交给了等待者时不留下空列表
+            removeIfEmpty(key, list.size());
+            signalModifiedKey(key);
+            return size;
+        } finally {
+            stripe.unlock();
         }
+    }
 
-        StreamEntryID lastId = stream.getLastId();
-        StreamEntryID finalId;
+    public int lpush(ByteKey key, List<byte[]> valuesToPush) throws WrongTypeException {
+        Lock stripe = stripes.writeLock(key);
+        stripe.lock();
+        try {
+            QuickList list = getOrCreateList(key);
+            long before = MemoryEstimator.quickList(list);
+            for (byte[] v : valuesToPush) {
+                list.pushFirst(v);
+            }
+            int size = list.size();
+            listWaiters.serveList(key, list);
+            usedMemory.add(MemoryEstimator.quickList(list) - before);
+            // 元素全部交给了等待者时不留下空列表
+            removeIfEmpty(key, list.size());
+            signalModifiedKey(key);
+            return size;
+        } finally {
+            stripe.unlock();
+        }
+    }
 
-        if (reqTimestamp == -1 && reqSequence == -1) {
-            long newTimestamp = System.currentTimeMillis();
-            int newSequence = 0;
-            if (lastId != null && newTimestamp <= lastId.timestamp) {
-                newTimestamp = lastId.timestamp;
-                newSequence = lastId.sequence + 1;
+    public List<byte[]> lpop(ByteKey key, int count) throws WrongTypeException {
+        Lock stripe = stripes.writeLock(key);
+        stripe.lock();
+        try {
+            Object value = lookupWrite(key);
+            if (value == null) {
+                return null;
             }
-            finalId = new StreamEntryID(newTimestamp, newSequence);
-        } else if (reqSequence == -1) {
-            long finalTimestamp = reqTimestamp;
-            int finalSequence;
-            if (lastId != null && finalTimestamp < lastId.timestamp) {
-                throw new Exception("The ID specified in XADD is equal or smaller than the target stream top item");
+            if (!(value instanceof QuickList)) {
+                throw new WrongTypeException("WRONGTYPE Operation against a key holding the wrong kind of value");
             }
-            if (lastId != null && finalTimestamp == lastId.timestamp) {
-                finalSequence = lastId.sequence + 1;
-            } else {
-                finalSequence = (finalTimestamp == 0 && lastId == null) ? 1 : 0;
+            QuickList list = (QuickList) value;
+            long before = MemoryEstimator.quickList(list);
+            int actualCount = Math.min(list.size(), count);
+            List<byte[]> poppedElements = new ArrayList<>(actualCount);
+            for (int i = 0; i < actualCount; i++) {
+                poppedElements.add(list.popFirst());
             }
-            finalId = new StreamEntryID(finalTimestamp, finalSequence);
-        } else {
-            finalId = new StreamEntryID(reqTimestamp, reqSequence);
+            usedMemory.add(MemoryEstimator.quickList(list) - before);
+            if (actualCount > 0) {
+                removeIfEmpty(key, list.size());
+                signalModifiedKey(key);
+            }
+            return poppedElements;
+        } finally {
+            stripe.unlock();
         }
-        StreamEntryID newId = stream.add(finalId, fields);
-        // Wake up any threads waiting in XREAD
-        this.notify();
-        return newId;
     }
 
-    public synchronized int llen(String key) throws WrongTypeException {
-        Object value = map.get(key);
-        if (value == null) {
-            return 0;
+    /**
+     * 阻塞式地从列表左侧弹出一个元素，支持超时。
+     * 没有数据时按 key 登记为等待者，之后的 LPUSH / RPUSH 会把元素直接交给先登记的客户端。
+     */
+    public Object[] blpop(List<byte[]> keys, double timeoutSeconds) throws WrongTypeException, InterruptedException {
+        long deadline = (timeoutSeconds > 0) ? (System.currentTimeMillis() + (long)(timeoutSeconds * 1000)) : 0;
+        List<ByteKey> keyNames = new ArrayList<>(keys.size());
+        for (byte[] keyBytes : keys) {
+            keyNames.add(ByteKey.wrap(keyBytes));
+        }
+        // 多个 key 按段号顺序加锁，避免与其他多 key 命令死锁
+        int[] keyStripes = stripes.stripesOf(keyNames);
+
+        BlockingKeys.Waiter waiter;
+        stripes.lockAll(keyStripes, true);
+        try {
+            for (int i = 0; i < keyNames.size(); i++) {
+                ByteKey key = keyNames.get(i);
+                Object value = lookupWrite(key);
+                if (value instanceof QuickList && !((QuickList) value).isEmpty()) {
+                    QuickList list = (QuickList) value;
+                    long before = MemoryEstimator.quickList(list);
+                    byte[] element = list.popFirst();
+                    usedMemory.add(MemoryEstimator.quickList(list) - before);
+                    removeIfEmpty(key, list.size());
+                    signalModifiedKey(key);
+                    return new Object[]{keys.get(i), element};
+                }
+            }
+            // 事务中持有段锁，不能等待，按超时处理
+            if (inAtomicBlock()) {
+                return null;
+            }
+            // 持有段锁时登记，检查和登记之间不会有写入插进来
+            waiter = listWaiters.register(keyNames);
+        } finally {
+            stripes.unlockAll(keyStripes, true);
         }
-        if (!(value instanceof List)) {
-            throw new WrongTypeException("WRONGTYPE Operation against a key holding the wrong kind of value");
+
+        if (!listWaiters.await(waiter, deadline)) {
+            return null; // Timeout
         }
-        @SuppressWarnings("unchecked")
-        List<byte[]> list = (List<byte[]>) value;
-        return list.size();
+        // 元素已经由写入方从列表中取出并交给了这个客户端
+        return new Object[]{keys.get(keyNames.indexOf(waiter.getServedKey())), waiter.getElement()};
     }
 
-    public synchronized String getType(String key) {
-        Object value = map.get(key);
-        if (value == null) {
-            return "none";
-        }
-        if (value instanceof ValueEntry) {
-            return "string";
-        }
-        if (value instanceof List) {
-            return "list";
-        }
-        if (value instanceof Map) {
-            return "hash";
+    /**
+     * @return 可以直接写入响应缓冲区的结果，元素在锁内按 quicklist 节点整段复制，写出时不再逐个创建 byte[]
+     */
+    public RespWritable lrange(ByteKey key, int start, int end) throws WrongTypeException {
+        Lock stripe = stripes.readLock(key);
+        stripe.lock();
+        try {
+            Object value = lookupRead(key);
+
+            if (value == null) {
+                return EMPTY_ARRAY;
+            }
+
+            if (!(value instanceof QuickList)) {
+                throw new WrongTypeException("WRONGTYPE Operation against a key holding the wrong kind of value");
+            }
+
+            QuickList list = (QuickList) value;
+            int size = list.size();
+
+            if (start < 0) {
+                start = size + start;
+            }
+            if (end < 0) {
+                end = size + end;
+            }
+            if(start < 0) {
+                start = 0;
+            }
+            if (end >= size) {
+                end = size - 1;
+            }
+            if (start > end) {
+                return EMPTY_ARRAY;
+            }
+
+            return list.range(start, end);
+        } finally {
+            stripe.unlock();
         }
-        if (value instanceof Set) {
-            return "set";
+    }
+
+    public StreamEntryID xadd(ByteKey key, long reqTimestamp, int reqSequence, Map<ByteKey, byte[]> fields) throws Exception {
+        Lock stripe = stripes.writeLock(key);
+        stripe.lock();
+        try {
+            Object value = lookupWrite(key);
+            if (value != null && !(value instanceof RedisStream)) {
+                throw new WrongTypeException("WRONGTYPE Operation against a key holding the wrong kind of value");
+            }
+            // key 不存在时先在键空间之外加入条目，ID 不合法时不会留下空的 stream
+            RedisStream stream = value != null ? (RedisStream) value : new RedisStream();
+
+            StreamEntryID lastId = stream.getLastId();
+            StreamEntryID finalId;
+
+            if (reqTimestamp == -1 && reqSequence == -1) {
+                long newTimestamp = System.currentTimeMillis();
+                int newSequence = 0;
+                if (lastId != null && newTimestamp <= lastId.timestamp) {
+                    newTimestamp = lastId.timestamp;
+                    newSequence = lastId.sequence + 1;
+                }
+                finalId = new StreamEntryID(newTimestamp, newSequence);
+            } else if (reqSequence == -1) {
+                long finalTimestamp = reqTimestamp;
+                int finalSequence;
+                if (lastId != null && finalTimestamp < lastId.timestamp) {
+                    throw new Exception("The ID specified in XADD is equal or smaller than the target stream top item");
+                }
+                if (lastId != null && finalTimestamp == lastId.timestamp) {
+                    finalSequence = lastId.sequence + 1;
+                } else {
+                    finalSequence = (finalTimestamp == 0 && lastId == null) ? 1 : 0;
+                }
+                finalId = new StreamEntryID(finalTimestamp, finalSequence);
+            } else {
+                finalId = new StreamEntryID(reqTimestamp, reqSequence);
+            }
+            StreamEntryID newId = stream.add(finalId, fields);
+            if (value == null) {
+                map.put(key, stream);
+                usedMemory.add(MemoryEstimator.entry(key, stream));
+            } else {
+                usedMemory.add(MemoryEstimator.streamEntry(fields));
+            }
+            signalModifiedKey(key);
+            streamWaiters.wakeAll(key);
+            return newId;
+        } finally {
+            stripe.unlock();
         }
-        if (value instanceof RedisStream) {
-            return "stream";
+    }
+
+    public int llen(ByteKey key) throws WrongTypeException {
+        Lock stripe = stripes.readLock(key);
+        stripe.lock();
+        try {
+            Object value = lookupRead(key);
+            if (value == null) {
+                return 0;
+            }
+            if (!(value instanceof QuickList)) {
+                throw new WrongTypeException("WRONGTYPE Operation against a key holding the wrong kind of value");
+            }
+            return ((QuickList) value).size();
+        } finally {
+            stripe.unlock();
         }
-        return "unknown";
     }
 
-    public synchronized List<StreamEntry> xrange(String key, StreamEntryID startId, StreamEntryID endId) throws WrongTypeException {
-        Object value = map.get(key);
-        if (value == null) {
-            return new ArrayList<>();
+    public String getType(ByteKey key) {
+        Lock stripe = stripes.readLock(key);
+        stripe.lock();
+        try {
+            Object value = map.get(key);
+            if (value == null) {
+                return "none";
+            }
+            if (value instanceof ValueEntry) {
+                return ((ValueEntry) value).isExpired() ? "none" : "string";
+            }
+            if (value instanceof QuickList) {
+                return "list";
+            }
+            if (value instanceof RedisHash) {
+                return "hash";
+            }
+            if (value instanceof RedisStream) {
+                return "stream";
+            }
+            if (value instanceof RedisSortedSet) {
+                return "zset";
+            }
+            return "unknown";
+        } finally {
+            stripe.unlock();
         }
-        if (!(value instanceof RedisStream)) {
-            throw new WrongTypeException("Operation against a key holding the wrong kind of value");
+    }
+
+    /**
+     * INCRBYFLOAT 一类命令的结果格式：不用科学计数法，去掉末尾多余的 0。
+     */
+    private static byte[] formatDouble(double value) {
+        return BigDecimal.valueOf(value).stripTrailingZeros().toPlainString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * OBJECT ENCODING：返回 key 当前使用的内部编码，名称与 Redis 相同。
+     * 字符串为 int、embstr（不超过 44 字节）或 raw；只有一个节点的列表相当于一个 listpack，报告为 listpack。
+     * @return 编码名，key 不存在时返回 null
+     */
+    public String objectEncoding(ByteKey key) {
+        Lock stripe = stripes.readLock(key);
+        stripe.lock();
+        try {
+            Object value = map.get(key);
+            if (value instanceof ValueEntry) {
+                ValueEntry entry = (ValueEntry) value;
+                if (entry.isExpired()) {
+                    return null;
+                }
+                if (entry.isInteger()) {
+                    return "int";
+                }
+                return entry.getBytes().length <= EMBSTR_SIZE_LIMIT ? "embstr" : "raw";
+            }
+            if (value instanceof QuickList) {
+                return ((QuickList) value).nodeCount() <= 1 ? "listpack" : "quicklist";
+            }
+            if (value instanceof RedisSortedSet) {
+                return ((RedisSortedSet) value).getEncoding();
+            }
+            if (value instanceof RedisHash) {
+                return ((RedisHash) value).getEncoding();
+            }
+            if (value instanceof RedisStream) {
+                return "stream";
+            }
+            return null;
+        } finally {
+            stripe.unlock();
         }
-        RedisStream stream = (RedisStream) value;
-        List<StreamEntry> results = new ArrayList<>();
-        for (StreamEntry entry : stream.getEntries()) {
-            if (entry.id.compareTo(startId) >= 0 && entry.id.compareTo(endId) <= 0) {
-                results.add(entry);
+    }
+
+    public List<StreamEntry> xrange(ByteKey key, StreamEntryID startId, StreamEntryID endId) throws WrongTypeException {
+        Lock stripe = stripes.readLock(key);
+        stripe.lock();
+        try {
+            Object value = lookupRead(key);
+            if (value == null) {
+                return new ArrayList<>();
+            }
+            if (!(value instanceof RedisStream)) {
+                throw new WrongTypeException("Operation against a key holding the wrong kind of value");
             }
+            RedisStream stream = (RedisStream) value;
+            List<StreamEntry> results = new ArrayList<>();
+            for (StreamEntry entry : stream.getEntries()) {
+                if (entry.id.compareTo(startId) >= 0 && entry.id.compareTo(endId) <= 0) {
+                    results.add(entry);
+                }
+            }
+            return results;
+        } finally {
+            stripe.unlock();
         }
-        return results;
     }
 
-    public synchronized Map<String, List<StreamEntry>> xread(Map<String, StreamEntryID> streamsToRead,long timeoutMillis) throws WrongTypeException, InterruptedException {
+    public Map<ByteKey, List<StreamEntry>> xread(Map<ByteKey, StreamEntryID> streamsToRead,long timeoutMillis) throws WrongTypeException, InterruptedException {
         long deadline = (timeoutMillis >= 0) ? (System.currentTimeMillis() + timeoutMillis) : 0;
-
-        Map<String, StreamEntryID> resolvedStreamsToRead = new LinkedHashMap<>();
-        for (Map.Entry<String, StreamEntryID> query : streamsToRead.entrySet()) {
-            String key = query.getKey();
-            StreamEntryID startId = query.getValue();
-            if (startId.timestamp == -1 && startId.sequence == -1) {
-                Object value = map.get(key);
-                StreamEntryID lastId = (value instanceof RedisStream) ? ((RedisStream) value).getLastId() : null;
-                resolvedStreamsToRead.put(key, (lastId != null) ? lastId : new StreamEntryID(0, 0));
-            } else {
-                resolvedStreamsToRead.put(key, startId);
+        int[] keyStripes = stripes.stripesOf(streamsToRead.keySet());
+
+        Map<ByteKey, StreamEntryID> resolvedStreamsToRead = new LinkedHashMap<>();
+        stripes.lockAll(keyStripes, false);
+        try {
+            for (Map.Entry<ByteKey, StreamEntryID> query : streamsToRead.entrySet()) {
+                ByteKey key = query.getKey();
+                StreamEntryID startId = query.getValue();
+                if (startId.timestamp == -1 && startId.sequence == -1) {
+                    Object value = lookupRead(key);
+                    StreamEntryID lastId = (value instanceof RedisStream) ? ((RedisStream) value).getLastId() : null;
+                    resolvedStreamsToRead.put(key, (lastId != null) ? lastId : new StreamEntryID(0, 0));
+                } else {
+                    resolvedStreamsToRead.put(key, startId);
+                }
+            }
+            // 非阻塞读取，或者在事务中不能等待
+            if (timeoutMillis < 0 || inAtomicBlock()) {
+                return queryStreams(resolvedStreamsToRead);
             }
+        } finally {
+            stripes.unlockAll(keyStripes, false);
         }
 
+        List<ByteKey> streamKeys = new ArrayList<>(resolvedStreamsToRead.keySet());
+        long waitDeadline = (timeoutMillis > 0) ? deadline : 0;
         while (true) {
-            Map<String, List<StreamEntry>> result = queryStreams(resolvedStreamsToRead);
-            if (!result.isEmpty() || timeoutMillis < 0) {
-                return result;
-            }
-            if (timeoutMillis == 0) {
-                this.wait();
-            } else {
-                long remainingTime = deadline - System.currentTimeMillis();
-                if(remainingTime <= 0) {
-                    return new LinkedHashMap<>();
+            BlockingKeys.Waiter waiter;
+            stripes.lockAll(keyStripes, false);
+            try {
+                Map<ByteKey, List<StreamEntry>> result = queryStreams(resolvedStreamsToRead);
+                if (!result.isEmpty()) {
+                    return result;
                 }
-                this.wait(remainingTime);
+                // XADD 持有写锁，在读锁下登记不会错过新条目
+                waiter = streamWaiters.register(streamKeys);
+            } finally {
+                stripes.unlockAll(keyStripes, false);
+            }
+            if (!streamWaiters.await(waiter, waitDeadline)) {
+                return new LinkedHashMap<>();
             }
         }
     }
 
-    private Map<String, List<StreamEntry>> queryStreams(Map<String, StreamEntryID> streamsToRead) throws WrongTypeException {
-        Map<String, List<StreamEntry>> result = new LinkedHashMap<>();
-        for (Map.Entry<String, StreamEntryID> query : streamsToRead.entrySet()) {
-            String key = query.getKey();
+    private Map<ByteKey, List<StreamEntry>> queryStreams(Map<ByteKey, StreamEntryID> streamsToRead) throws WrongTypeException {
+        Map<ByteKey, List<StreamEntry>> result = new LinkedHashMap<>();
+        for (Map.Entry<ByteKey, StreamEntryID> query : streamsToRead.entrySet()) {
+            ByteKey key = query.getKey();
             StreamEntryID startId = query.getValue();
-            Object value = map.get(key);
+            Object value = lookupRead(key);
             if (value == null) {
                 continue;
             }
@@ -423,176 +900,538 @@ public class DataStore {
         return result;
     }
 
-    public synchronized void addReplica(OutputStream replicaOutputStream) {
-        replicas.add(replicaOutputStream);
+    public void addReplica(OutputStream replicaOutputStream) {
+        replicationLock.lock();
+        try {
+            replicas.add(replicaOutputStream);
+        } finally {
+            replicationLock.unlock();
+        }
     }
 
-    public synchronized List<OutputStream> getReplicas() {
-        return new ArrayList<>(replicas);
+    public List<OutputStream> getReplicas() {
+        replicationLock.lock();
+        try {
+            return new ArrayList<>(replicas);
+        } finally {
+            replicationLock.unlock();
+        }
     }
 
-    public synchronized void broadcastToReplicas(String... commandParts) {
-        if (replicas.isEmpty()) {
-            return;
-        }
-        byte[] respCommand = encodeCommand(commandParts);
-        Iterator<OutputStream> iterator = replicas.iterator();
-        while (iterator.hasNext()) {
-            OutputStream replicaOs = iterator.next();
-            try {
-                replicaOs.write(respCommand);
-                replicaOs.flush();
-            } catch (IOException e) {
-                System.out.println("Replica connection lost. Removing from list.");
-                iterator.remove();
+    public void broadcastToReplicas(String... commandParts) {
+        replicationLock.lock();
+        try {
+            if (replicas.isEmpty()) {
+                return;
             }
+            byte[] respCommand = encodeCommand(commandParts);
+            Iterator<OutputStream> iterator = replicas.iterator();
+            while (iterator.hasNext()) {
+                OutputStream replicaOs = iterator.next();
+                try {
+                    replicaOs.write(respCommand);
+                    requestFlush(replicaOs);
+                } catch (IOException e) {
+                    System.out.println("Replica connection lost. Removing from list.");
+                    // CopyOnWriteArrayList 的迭代器不支持 remove
+                    replicas.remove(replicaOs);
+                }
+            }
+        } finally {
+            replicationLock.unlock();
+        }
+    }
+
+    /**
+     * 异步写出：持有数据锁时不能阻塞在慢客户端的 socket 上，连接的响应缓冲区会交给后台或事件循环写出，
+     * 并检查输出缓冲区限制；超过限制的连接之后的写入会抛出 IOException，从而被移除。
+     */
+    private static void requestFlush(OutputStream os) throws IOException {
+        if (os instanceof ReplyBuffer) {
+            ((ReplyBuffer) os).requestFlush();
+        } else {
+            os.flush();
         }
     }
 
     private byte[] encodeCommand(String... parts) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("*").append(parts.length).append("\r\n");
+        ReplyBuffer buffer = new ReplyBuffer();
+        buffer.writeArrayHeader(parts.length);
         for (String part : parts) {
-            sb.append("$").append(part.getBytes(StandardCharsets.UTF_8).length).append("\r\n");
-            sb.append(part).append("\r\n");
+            buffer.writeBulkString(part.getBytes(StandardCharsets.UTF_8));
         }
-        return sb.toString().getBytes(StandardCharsets.UTF_8);
+        return buffer.toByteArray();
     }
 
-    public synchronized void propagateCommand(List<byte[]> commandParts) {
-        long commandSize = calculateAndGetCommandSize(commandParts);
-        this.masterWriteOffset += commandSize;
-        byte[] respCommand = encodeCommandFromParts(commandParts);
-        if (replicas.isEmpty()) {
-            return;
-        }
-        Iterator<OutputStream> iterator = replicas.iterator();
-        while (iterator.hasNext()) {
-            OutputStream replicaOs = iterator.next();
-            try {
-                replicaOs.write(respCommand);
-                replicaOs.flush();
-            } catch (IOException e) {
-                System.out.println("Replica connection lost. Removing from list.");
-                iterator.remove();
+    public void propagateCommand(List<byte[]> commandParts) {
+        replicationLock.lock();
+        try {
+            long commandSize = calculateAndGetCommandSize(commandParts);
+            this.masterWriteOffset += commandSize;
+            byte[] respCommand = encodeCommandFromParts(commandParts);
+            if (replicas.isEmpty()) {
+                return;
+            }
+            Iterator<OutputStream> iterator = replicas.iterator();
+            while (iterator.hasNext()) {
+                OutputStream replicaOs = iterator.next();
+                try {
+                    replicaOs.write(respCommand);
+                    requestFlush(replicaOs);
+                } catch (IOException e) {
+                    System.out.println("Replica connection lost. Removing from list.");
+                    // CopyOnWriteArrayList 的迭代器不支持 remove
+                    replicas.remove(replicaOs);
+                }
             }
+        } finally {
+            replicationLock.unlock();
         }
     }
 
     private byte[] encodeCommandFromParts(List<byte[]> parts) {
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-            baos.write(("*" + parts.size() + "\r\n").getBytes(StandardCharsets.UTF_8));
-            for (byte[] part : parts) {
-                baos.write(("$" + part.length + "\r\n").getBytes(StandardCharsets.UTF_8));
-                baos.write(part);
-                baos.write("\r\n".getBytes(StandardCharsets.UTF_8));
-            }
-            return baos.toByteArray();
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+        ReplyBuffer buffer = new ReplyBuffer();
+        buffer.writeArrayHeader(parts.size());
+        for (byte[] part : parts) {
+            buffer.writeBulkString(part);
         }
+        return buffer.toByteArray();
     }
 
     private long calculateAndGetCommandSize(List<byte[]> commandParts) {
         long totalSize = 0;
-        totalSize += ("*" + commandParts.size() + "\r\n").getBytes(StandardCharsets.UTF_8).length;
+        totalSize += 1 + ReplyBuffer.stringLength(commandParts.size()) + 2;
         for (byte[] part : commandParts) {
-            totalSize += ("$" + part.length + "\r\n").getBytes(StandardCharsets.UTF_8).length;
+            totalSize += 1 + ReplyBuffer.stringLength(part.length) + 2;
             totalSize += part.length;
-            totalSize += "\r\n".getBytes(StandardCharsets.UTF_8).length;
+            totalSize += 2;
         }
         return totalSize;
     }
 
-    public synchronized List<String> getAllKeys(){
-        return new ArrayList<>(map.keySet());
-    }
-
-    public synchronized void subscribe(String channel, OutputStream clientStream) {
-        subscriptions.computeIfAbsent(channel, k -> new CopyOnWriteArrayList<>()).add(clientStream);
-        clientSubscriptions.computeIfAbsent(clientStream, k -> ConcurrentHashMap.newKeySet()).add(channel);
+    public List<ByteKey> getAllKeys(){
+        // 逐段在读锁下遍历，已过期但尚未删除的 key 不返回
+        long now = System.currentTimeMillis();
+        return map.keys(key -> {
+            Long when = expires.get(key);
+            return when == null || when >= now;
+        });
     }
 
-    public synchronized int getSubscriptionCountForClient(OutputStream clientStream) {
-        Set<String> channels = clientSubscriptions.get(clientStream);
-        return (channels == null) ? 0 : channels.size();
-    }
+    // --- 主动过期 ---
 
-    public synchronized void unsubscribeClient(OutputStream clientStream) {
-        Set<String> subscribedChannels = clientSubscriptions.remove(clientStream);
-        if (subscribedChannels != null) {
-            for (String channel : subscribedChannels) {
-                List<OutputStream> subscribers = subscriptions.get(channel);
-                if (subscribers != null) {
-                    subscribers.remove(clientStream);
+    /**
+     * 启动后台过期线程，每秒执行 hz 次 activeExpireCycle。
+     */
+    public void startActiveExpireCycle() {
+        Thread expirer = new Thread(() -> {
+            while (true) {
+                try {
+                    Thread.sleep(Math.max(1, 1000 / ServerConfig.getInstance().getHz()));
+                } catch (InterruptedException e) {
+                    return;
                 }
+                deleteLazyExpired();
+                activeExpireCycle();
             }
-        }
+        }, "active-expire");
+        expirer.setDaemon(true);
+        expirer.start();
     }
 
-    public synchronized int publishMessage(String channel, byte[] message) {
-        List<OutputStream> subscribers = subscriptions.get(channel);
-        if (subscribers == null || subscribers.isEmpty()) {
-            return 0;
+    /**
+     * 仿照 Redis 的 activeExpireCycle：每轮从 expires 中抽样一批 key 删除其中已过期的，
+     * 过期比例超过可接受值时继续下一轮，直到比例降下来或者用完本周期的 CPU 时间预算。
+     * active-expire-effort 越大，每轮抽样越多、时间预算越大、可接受的过期比例越低。
+     */
+    void activeExpireCycle() {
+        ServerConfig config = ServerConfig.getInstance();
+        int effort = config.getActiveExpireEffort() - 1;
+        int keysPerLoop = ACTIVE_EXPIRE_CYCLE_KEYS_PER_LOOP + ACTIVE_EXPIRE_CYCLE_KEYS_PER_LOOP / 4 * effort;
+        int timePerc = ACTIVE_EXPIRE_CYCLE_SLOW_TIME_PERC + 2 * effort;
+        int acceptableStale = ACTIVE_EXPIRE_CYCLE_ACCEPTABLE_STALE - effort;
+        long timeLimitNanos = 1_000_000_000L * timePerc / config.getHz() / 100;
+
+        long start = System.nanoTime();
+        long totalSampled = 0;
+        long totalExpired = 0;
+        while (!expires.isEmpty()) {
+            // key 数少于每轮抽样数时不重复抽同一个 key
+            int toSample = Math.min(keysPerLoop, expires.size());
+            int sampled = 0;
+            int expired = 0;
+            long now = System.currentTimeMillis();
+            while (sampled < toSample) {
+                if (expireCursor == null || !expireCursor.hasNext()) {
+                    expireCursor = expires.entrySet().iterator();
+                    if (!expireCursor.hasNext()) {
+                        break;
+                    }
+                }
+                Map.Entry<ByteKey, Long> candidate = expireCursor.next();
+                sampled++;
+                if (candidate.getValue() < now && deleteIfExpired(candidate.getKey(), now)) {
+                    expired++;
+                }
+            }
+            totalSampled += sampled;
+            totalExpired += expired;
+            if (System.nanoTime() - start > timeLimitNanos) {
+                expiredTimeCapReachedCount.incrementAndGet();
+                break;
+            }
+            if (sampled == 0 || expired * 100 / sampled <= acceptableStale) {
+                break;
+            }
+        }
+        // 与 Redis 一样用指数移动平均估算 key 空间中已过期 key 的比例
+        double currentPerc = totalSampled > 0 ? (double) totalExpired / totalSampled : 0;
+        expiredStalePerc = currentPerc * 0.05 + expiredStalePerc * 0.95;
+    }
+
+    /**
+     * 删除读路径上发现的过期 key。
+     */
+    private void deleteLazyExpired() {
+        if (lazyExpired.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        Iterator<ByteKey> it = lazyExpired.iterator();
+        while (it.hasNext()) {
+            ByteKey key = it.next();
+            it.remove();
+            deleteIfExpired(key, now);
+        }
+    }
+
+    private boolean deleteIfExpired(ByteKey key, long now) {
+        Lock stripe = stripes.writeLock(key);
+        stripe.lock();
+        try {
+            // 加锁后重新检查，key 可能已被重新设置
+            Long when = expires.get(key);
+            if (when == null || when >= now) {
+                return false;
+            }
+            expires.remove(key);
+            removeEntry(key);
+            expiredKeys.incrementAndGet();
+            signalModifiedKey(key);
+            return true;
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    /**
+     * 从键空间删除一个 key 并扣除它的估算内存，调用方持有该 key 的写锁。
+     */
+    private Object removeEntry(ByteKey key) {
+        Object old = map.remove(key);
+        if (old != null) {
+            usedMemory.add(-MemoryEstimator.entry(key, old));
+        }
+        return old;
+    }
+
+    // --- maxmemory 淘汰 ---
+
+    /**
+     * 写命令执行前调用：估算内存超过 maxmemory 时按淘汰策略删除 key，直到回到上限以内。
+     * 调用方不能持有任何段锁。同一时刻只有一个线程在淘汰，其他超限的写命令在这里排队。
+     * @return 内存在上限以内时返回 true；noeviction 策略或找不到可淘汰的 key 时返回 false，调用方应拒绝这条命令
+     */
+    public boolean performEvictions() {
+        ServerConfig config = ServerConfig.getInstance();
+        long maxMemory = config.getMaxMemory();
+        if (maxMemory == 0 || usedMemory.sum() <= maxMemory) {
+            return true;
+        }
+        MaxmemoryPolicy policy = config.getMaxMemoryPolicy();
+        if (policy == MaxmemoryPolicy.NOEVICTION) {
+            return false;
+        }
+        synchronized (evictionPool) {
+            int misses = 0;
+            while (usedMemory.sum() > maxMemory) {
+                ByteKey candidate = policy.isRandom()
+                        ? randomCandidate(policy)
+                        : poolCandidate(policy, config.getMaxMemorySamples());
+                if (candidate == null) {
+                    return false;
+                }
+                if (evict(candidate, policy)) {
+                    misses = 0;
+                } else if (++misses > MAX_EVICTION_MISSES) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * 抽样若干个 key 放入候选池，返回池中最应该淘汰的一个。
+     * allkeys 策略从随机的段开始在 Dict 上连续抽样；volatile 策略沿 expires 上的游标依次取 key。
+     */
+    private ByteKey poolCandidate(MaxmemoryPolicy policy, int samples) {
+        if (policy.isVolatile()) {
+            for (int i = 0; i < samples; i++) {
+                ByteKey key = nextVolatileKey();
+                if (key == null) {
+                    break;
+                }
+                Lock lock = stripes.readLock(key);
+                lock.lock();
+                try {
+                    int meta = map.meta(key);
+                    if (meta >= 0) {
+                        evictionPool.offer(key, evictionScore(policy, key, meta));
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+        } else {
+            int[] sampled = {0};
+            int stripeCount = stripes.stripeCount();
+            int start = ThreadLocalRandom.current().nextInt(stripeCount);
+            for (int i = 0; i < stripeCount && sampled[0] < samples; i++) {
+                int stripe = (start + i) % stripeCount;
+                // 不加锁的大小只用来跳过空段
+                if (map.size(stripe) == 0) {
+                    continue;
+                }
+                Lock lock = stripes.readLockAt(stripe);
+                lock.lock();
+                try {
+                    map.sample(stripe, ThreadLocalRandom.current().nextInt(), samples - sampled[0], (key, value, meta) -> {
+                        evictionPool.offer(key, evictionScore(policy, key, meta));
+                        sampled[0]++;
+                    });
+                } finally {
+                    lock.unlock();
+                }
+            }
         }
-        byte[] respMessage = buildMessagePayload(channel.getBytes(StandardCharsets.UTF_8), message);
-        int deliveredCount = 0;
-        Iterator<OutputStream> iterator = subscribers.iterator();
-        while (iterator.hasNext()) {
-            OutputStream subscriberStream = iterator.next();
+        return evictionPool.pollBest();
+    }
+
+    /**
+     * 候选的淘汰分数，越大越先淘汰：LRU 为闲置时间，LFU 为 255 减去访问频率，TTL 为越早过期越大。
+     */
+    private long evictionScore(MaxmemoryPolicy policy, ByteKey key, int meta) {
+        if (policy.isLfu()) {
+            return 255 - Eviction.lfuCounter(meta);
+        }
+        if (policy == MaxmemoryPolicy.VOLATILE_TTL) {
+            Long when = expires.get(key);
+            return when == null ? Long.MIN_VALUE : Long.MAX_VALUE - when;
+        }
+        return Eviction.idleMillis(meta);
+    }
+
+    private ByteKey randomCandidate(MaxmemoryPolicy policy) {
+        if (policy.isVolatile()) {
+            return nextVolatileKey();
+        }
+        ByteKey[] picked = new ByteKey[1];
+        int stripeCount = stripes.stripeCount();
+        int start = ThreadLocalRandom.current().nextInt(stripeCount);
+        for (int i = 0; i < stripeCount && picked[0] == null; i++) {
+            int stripe = (start + i) % stripeCount;
+            if (map.size(stripe) == 0) {
+                continue;
+            }
+            Lock lock = stripes.readLockAt(stripe);
+            lock.lock();
             try {
-                subscriberStream.write(respMessage);
-                subscriberStream.flush();
-                deliveredCount++;
-            } catch (IOException e) {
-                System.out.println("Subscriber connection lost. Removing from list.");
-                iterator.remove();
-                unsubscribeClient(subscriberStream);
+                map.sample(stripe, ThreadLocalRandom.current().nextInt(), 1, (key, value, meta) -> picked[0] = key);
+            } finally {
+                lock.unlock();
             }
         }
-        return deliveredCount;
+        return picked[0];
     }
 
-    private byte[] buildMessagePayload(byte[] channel, byte[] message) {
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-            baos.write("*3\r\n".getBytes(StandardCharsets.UTF_8));
-            baos.write("$7\r\nmessage\r\n".getBytes(StandardCharsets.UTF_8));
-            baos.write(("$" + channel.length + "\r\n").getBytes(StandardCharsets.UTF_8));
-            baos.write(channel);
-            baos.write("\r\n".getBytes(StandardCharsets.UTF_8));
-            baos.write(("$" + message.length + "\r\n").getBytes(StandardCharsets.UTF_8));
-            baos.write(message);
-            baos.write("\r\n".getBytes(StandardCharsets.UTF_8));
-            return baos.toByteArray();
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+    /**
+     * 沿 expires 的迭代器取下一个设置了过期时间的 key，到末尾后从头开始。
+     * ConcurrentHashMap 按哈希顺序遍历，与写入顺序无关，volatile-random 直接使用这个顺序。
+     */
+    private ByteKey nextVolatileKey() {
+        if (evictionCursor == null || !evictionCursor.hasNext()) {
+            evictionCursor = expires.keySet().iterator();
+            if (!evictionCursor.hasNext()) {
+                return null;
+            }
+        }
+        return evictionCursor.next();
+    }
+
+    /**
+     * 在写锁下重新检查并删除候选，候选可能在抽样之后已被删除，或（volatile 策略下）已被去掉过期时间。
+     */
+    private boolean evict(ByteKey key, MaxmemoryPolicy policy) {
+        Lock stripe = stripes.writeLock(key);
+        stripe.lock();
+        try {
+            if (policy.isVolatile() && !expires.containsKey(key)) {
+                return false;
+            }
+            if (removeEntry(key) == null) {
+                return false;
+            }
+            expires.remove(key);
+            evictedKeys.incrementAndGet();
+            signalModifiedKey(key);
+            return true;
+        } finally {
+            stripe.unlock();
         }
     }
 
-    public synchronized int getSubscriberCount(String channelName) {
-        List<OutputStream> subscribers = subscriptions.get(channelName);
-        return (subscribers == null) ? 0 : subscribers.size();
+    public long getUsedMemory() {
+        return usedMemory.sum();
+    }
+
+    public long getEvictedKeys() {
+        return evictedKeys.get();
+    }
+
+    public long getExpiredKeys() {
+        return expiredKeys.get();
+    }
+
+    public double getExpiredStalePerc() {
+        return expiredStalePerc;
+    }
+
+    public long getExpiredTimeCapReachedCount() {
+        return expiredTimeCapReachedCount.get();
+    }
+
+    public void subscribe(String channel, OutputStream clientStream) {
+        pubsubLock.lock();
+        try {
+            subscriptions.computeIfAbsent(channel, k -> new CopyOnWriteArrayList<>()).add(clientStream);
+            clientSubscriptions.computeIfAbsent(clientStream, k -> ConcurrentHashMap.newKeySet()).add(channel);
+        } finally {
+            pubsubLock.unlock();
+        }
+    }
+
+    public int getSubscriptionCountForClient(OutputStream clientStream) {
+        pubsubLock.lock();
+        try {
+            Set<String> channels = clientSubscriptions.get(clientStream);
+            return (channels == null) ? 0 : channels.size();
+        } finally {
+            pubsubLock.unlock();
+        }
+    }
+
+    public void unsubscribeClient(OutputStream clientStream) {
+        pubsubLock.lock();
+        try {
+            Set<String> subscribedChannels = clientSubscriptions.remove(clientStream);
+            if (subscribedChannels != null) {
+                for (String channel : subscribedChannels) {
+                    List<OutputStream> subscribers = subscriptions.get(channel);
+                    if (subscribers != null) {
+                        subscribers.remove(clientStream);
+                    }
+                }
+            }
+        } finally {
+            pubsubLock.unlock();
+        }
+    }
+
+    public int publishMessage(String channel, byte[] message) {
+        pubsubLock.lock();
+        try {
+            List<OutputStream> subscribers = subscriptions.get(channel);
+            if (subscribers == null || subscribers.isEmpty()) {
+                return 0;
+            }
+            byte[] channelBytes = channel.getBytes(StandardCharsets.UTF_8);
+            byte[] respMessage = buildMessagePayload(channelBytes, message, false);
+            // RESP3 订阅者收到的是推送类型，只在需要时构造
+            byte[] pushMessage = null;
+            int deliveredCount = 0;
+            Iterator<OutputStream> iterator = subscribers.iterator();
+            while (iterator.hasNext()) {
+                OutputStream subscriberStream = iterator.next();
+                try {
+                    if (subscriberStream instanceof ReplyBuffer && ((ReplyBuffer) subscriberStream).isResp3()) {
+                        if (pushMessage == null) {
+                            pushMessage = buildMessagePayload(channelBytes, message, true);
+                        }
+                        subscriberStream.write(pushMessage);
+                    } else {
+                        subscriberStream.write(respMessage);
+                    }
+                    requestFlush(subscriberStream);
+                    deliveredCount++;
+                } catch (IOException e) {
+                    System.out.println("Subscriber connection lost. Removing from list.");
+                    unsubscribeClient(subscriberStream);
+                }
+            }
+            return deliveredCount;
+        } finally {
+            pubsubLock.unlock();
+        }
+    }
+
+    private byte[] buildMessagePayload(byte[] channel, byte[] message, boolean push) {
+        ReplyBuffer buffer = new ReplyBuffer(32 + channel.length + message.length);
+        if (push) {
+            buffer.writePushHeader(3);
+        } else {
+            buffer.writeArrayHeader(3);
+        }
+        buffer.writeBulkString(MESSAGE_BYTES);
+        buffer.writeBulkString(channel);
+        buffer.writeBulkString(message);
+        return buffer.toByteArray();
+    }
+
+    public int getSubscriberCount(String channelName) {
+        pubsubLock.lock();
+        try {
+            List<OutputStream> subscribers = subscriptions.get(channelName);
+            return (subscribers == null) ? 0 : subscribers.size();
+        } finally {
+            pubsubLock.unlock();
+        }
     }
     /**
      * **新增**: 将一个客户端从指定频道退订。
      * @param channel 要退订的频道
      * @param clientStream 退订的客户端的输出流
      */
-    public synchronized void unsubscribe(String channel, OutputStream clientStream) {
-        // 1. 从 "客户端 -> 频道集合" 的关系中移除
-        Set<String> subscribedChannels = clientSubscriptions.get(clientStream);
-        if (subscribedChannels != null) {
-            subscribedChannels.remove(channel);
-        }
+    public void unsubscribe(String channel, OutputStream clientStream) {
+        pubsubLock.lock();
+        try {
+            // 1. 从 "客户端 -> 频道集合" 的关系中移除
+            Set<String> subscribedChannels = clientSubscriptions.get(clientStream);
+            if (subscribedChannels != null) {
+                subscribedChannels.remove(channel);
+            }
 
-        // 2. 从 "频道 -> 客户端列表" 的关系中移除
-        List<OutputStream> subscribers = subscriptions.get(channel);
-        if (subscribers != null) {
-            subscribers.remove(clientStream);
-            // 如果一个频道没有任何订阅者了，可以从Map中移除以节省内存
-            if (subscribers.isEmpty()) {
-                subscriptions.remove(channel);
+            // 2. 从 "频道 -> 客户端列表" 的关系中移除
+            List<OutputStream> subscribers = subscriptions.get(channel);
+            if (subscribers != null) {
+                subscribers.remove(clientStream);
+                // 如果一个频道没有任何订阅者了，可以从Map中移除以节省内存
+                if (subscribers.isEmpty()) {
+                    subscriptions.remove(channel);
+                }
             }
+        } finally {
+            pubsubLock.unlock();
         }
     }
 
@@ -600,15 +1439,20 @@ public class DataStore {
      * **新增 (可选但推荐)**: 从所有频道退订。
      * @param clientStream 要退订的客户端
      */
-    public synchronized void unsubscribeFromAll(OutputStream clientStream) {
-        // 1. 获取该客户端订阅的所有频道
-        Set<String> channels = clientSubscriptions.get(clientStream);
-        if (channels != null && !channels.isEmpty()) {
-            // 2. 遍历它订阅过的所有频道，并从中移除该客户端
-            // 创建一个副本以避免在遍历时修改集合
-            for (String channel : new ArrayList<>(channels)) {
-                unsubscribe(channel, clientStream);
+    public void unsubscribeFromAll(OutputStream clientStream) {
+        pubsubLock.lock();
+        try {
+            // 1. 获取该客户端订阅的所有频道
+            Set<String> channels = clientSubscriptions.get(clientStream);
+            if (channels != null && !channels.isEmpty()) {
+                // 2. 遍历它订阅过的所有频道，并从中移除该客户端
+                // 创建一个副本以避免在遍历时修改集合
+                for (String channel : new ArrayList<>(channels)) {
+                    unsubscribe(channel, clientStream);
+                }
             }
+        } finally {
+            pubsubLock.unlock();
         }
     }
     /**
@@ -618,35 +1462,50 @@ public class DataStore {
      * @return 新添加的成员数量
      * @throws Exception 如果 key 存在但不是有序集合，或参数格式错误
      */
-    public synchronized int zadd(String key, List<Object> scoresAndMembers) throws Exception {
-        Object value = map.get(key);
-        RedisSortedSet sortedSet;
-
-        if (value == null) {
-            sortedSet = new RedisSortedSet();
-            map.put(key, sortedSet);
-        } else if (value instanceof RedisSortedSet) {
-            sortedSet = (RedisSortedSet) value;
-        } else {
-            // 如果 key 存在但不是我们期望的类型，抛出异常
-            throw new WrongTypeException("Operation against a key holding the wrong kind of value");
-        }
-
+    public int zadd(ByteKey key, List<Object> scoresAndMembers) throws Exception {
+        // 在创建有序集合之前检查参数并解析全部分数，出错时不会留下空的 key
         if (scoresAndMembers.size() % 2 != 0) {
             throw new Exception("ZADD command requires score-member pairs.");
         }
+        double[] scores = new double[scoresAndMembers.size() / 2];
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] = RedisSortedSet.parseScore((byte[]) scoresAndMembers.get(i * 2));
+        }
+        Lock stripe = stripes.writeLock(key);
+        stripe.lock();
+        try {
+            Object value = lookupWrite(key);
+            RedisSortedSet sortedSet;
 
-        int newElements = 0;
-        for (int i = 0; i < scoresAndMembers.size(); i += 2) {
-            // 从列表中解析出 score 和 member
-            double score = Double.parseDouble(new String((byte[]) scoresAndMembers.get(i)));
-            byte[] member = (byte[]) scoresAndMembers.get(i + 1);
+            if (value == null) {
+                ServerConfig config = ServerConfig.getInstance();
+                sortedSet = new RedisSortedSet(config.getZsetMaxListpackEntries(), config.getZsetMaxListpackValue());
+                map.put(key, sortedSet);
+                usedMemory.add(MemoryEstimator.entry(key, sortedSet));
+            } else if (value instanceof RedisSortedSet) {
+                sortedSet = (RedisSortedSet) value;
+            } else {
+                // 如果 key 存在但不是我们期望的类型，抛出异常
+                throw new WrongTypeException("Operation against a key holding the wrong kind of value");
+            }
 
-            // 调用 RedisSortedSet 的 add 方法
-            newElements += sortedSet.add(score, member);
-        }
+            int newElements = 0;
+            long before = MemoryEstimator.sortedSet(sortedSet);
+            for (int i = 0; i < scores.length; i++) {
+                byte[] member = (byte[]) scoresAndMembers.get(i * 2 + 1);
+
+                // 调用 RedisSortedSet 的 add 方法，返回 1 表示新成员
+                if (sortedSet.add(scores[i], member) == 1) {
+                    newElements++;
+                }
+            }
+            usedMemory.add(MemoryEstimator.sortedSet(sortedSet) - before);
+            signalModifiedKey(key);
 
-        return newElements;
+            return newElements;
+        } finally {
+            stripe.unlock();
+        }
     }
     /**
      * 获取有序集合中指定成员的排名。
@@ -655,25 +1514,31 @@ public class DataStore {
      * @return 成员的排名 (long 类型)。如果 key 或 member 不存在，返回 null。
      * @throws WrongTypeException 如果 key 存在但不是有序集合。
      */
-    public synchronized Long zrank(String key, byte[] member) throws WrongTypeException {
-        Object value = map.get(key);
+    public Long zrank(ByteKey key, byte[] member) throws WrongTypeException {
+        Lock stripe = stripes.readLock(key);
+        stripe.lock();
+        try {
+            Object value = lookupRead(key);
 
-        if (value == null) {
-            return null; // Key 不存在
-        }
+            if (value == null) {
+                return null; // Key 不存在
+            }
 
-        if (!(value instanceof RedisSortedSet)) {
-            throw new WrongTypeException("Operation against a key holding the wrong kind of value");
-        }
+            if (!(value instanceof RedisSortedSet)) {
+                throw new WrongTypeException("Operation against a key holding the wrong kind of value");
+            }
 
-        RedisSortedSet sortedSet = (RedisSortedSet) value;
-        int rank = sortedSet.getRank(member);
+            RedisSortedSet sortedSet = (RedisSortedSet) value;
+            int rank = sortedSet.getRank(member);
 
-        if (rank == -1) {
-            return null; // Member 不存在
-        }
+            if (rank == -1) {
+                return null; // Member 不存在
+            }
 
-        return (long) rank;
+            return (long) rank;
+        } finally {
+            stripe.unlock();
+        }
     }
     /**
      * 获取有序集合中指定排名范围内的成员。
@@ -683,19 +1548,25 @@ public class DataStore {
      * @return 包含成员的列表。如果 key 不存在，返回一个空列表。
      * @throws WrongTypeException 如果 key 存在但不是有序集合。
      */
-    public synchronized List<byte[]> zrange(String key, int start, int stop) throws WrongTypeException {
-        Object value = map.get(key);
+    public List<byte[]> zrange(ByteKey key, int start, int stop) throws WrongTypeException {
+        Lock stripe = stripes.readLock(key);
+        stripe.lock();
+        try {
+            Object value = lookupRead(key);
 
-        if (value == null) {
-            return new ArrayList<>(); // Key 不存在，返回空数组
-        }
+            if (value == null) {
+                return new ArrayList<>(); // Key 不存在，返回空数组
+            }
 
-        if (!(value instanceof RedisSortedSet)) {
-            throw new WrongTypeException("Operation against a key holding the wrong kind of value");
-        }
+            if (!(value instanceof RedisSortedSet)) {
+                throw new WrongTypeException("Operation against a key holding the wrong kind of value");
+            }
 
-        RedisSortedSet sortedSet = (RedisSortedSet) value;
-        return sortedSet.getRange(start, stop);
+            RedisSortedSet sortedSet = (RedisSortedSet) value;
+            return sortedSet.getRange(start, stop);
+        } finally {
+            stripe.unlock();
+        }
     }
     /**
      * 获取有序集合的成员数量。
@@ -703,19 +1574,25 @@ public class DataStore {
      * @return  成员的数量 如果key不存在，返回0
      * @throws WrongTypeException 如果 key 存在但不是有序集合。
      */
-    public synchronized long zcard(String key) throws WrongTypeException {
-        Object value = map.get(key);
+    public long zcard(ByteKey key) throws WrongTypeException {
+        Lock stripe = stripes.readLock(key);
+        stripe.lock();
+        try {
+            Object value = lookupRead(key);
 
-        if (value == null) {
-            return 0; // Key 不存在
-        }
+            if (value == null) {
+                return 0; // Key 不存在
+            }
 
-        if (!(value instanceof RedisSortedSet)) {
-            throw new WrongTypeException("Operation against a key holding the wrong kind of value");
-        }
+            if (!(value instanceof RedisSortedSet)) {
+                throw new WrongTypeException("Operation against a key holding the wrong kind of value");
+            }
 
-        RedisSortedSet sortedSet = (RedisSortedSet) value;
-        return sortedSet.size();
+            RedisSortedSet sortedSet = (RedisSortedSet) value;
+            return sortedSet.size();
+        } finally {
+            stripe.unlock();
+        }
     }
     /**
      * 获取有序集合中成员的分数。
@@ -724,16 +1601,22 @@ public class DataStore {
      * @return 成员的分数，如果成员不存在，返回 null。
      * @throws WrongTypeException 如果 key 存在但不是有序集合。
      */
-    public synchronized Double zscore(String key, byte[] member) throws WrongTypeException {
-        Object value = map.get(key);
-        if (value == null) {
-            return null; // Key 不存在
-        }
-        if (!(value instanceof RedisSortedSet)) {
-            throw new WrongTypeException("Operation against a key holding the wrong kind of value");
+    public Double zscore(ByteKey key, byte[] member) throws WrongTypeException {
+        Lock stripe = stripes.readLock(key);
+        stripe.lock();
+        try {
+            Object value = lookupRead(key);
+            if (value == null) {
+                return null; // Key 不存在
+            }
+            if (!(value instanceof RedisSortedSet)) {
+                throw new WrongTypeException("Operation against a key holding the wrong kind of value");
+            }
+            RedisSortedSet sortedSet = (RedisSortedSet) value;
+            return sortedSet.getScore(member);
+        } finally {
+            stripe.unlock();
         }
-        RedisSortedSet sortedSet = (RedisSortedSet) value;
-        return sortedSet.getScore(member);
     }
     /**
      * 移除有序集合中的成员。
@@ -742,22 +1625,442 @@ public class DataStore {
      * @return 移除的成员数量
      * @throws WrongTypeException 如果 key 存在但不是有序集合。
      */
-    public synchronized int zrem(String key, List<byte[]> members) throws WrongTypeException {
-        Object value = map.get(key);
+    public int zrem(ByteKey key, List<byte[]> members) throws WrongTypeException {
+        Lock stripe = stripes.writeLock(key);
+        stripe.lock();
+        try {
+            Object value = lookupWrite(key);
+
+            if(value == null){
+                return 0;
+            }
+
+            if(!(value instanceof RedisSortedSet)){
+                throw new WrongTypeException("Operation against a key holding the wrong kind of value");
+            }
+
+            RedisSortedSet sortedSet = (RedisSortedSet) value;
+            long before = MemoryEstimator.sortedSet(sortedSet);
+            int removedCount = 0;
+            for(byte[] member:members){
+                if (sortedSet.remove(member) == 1) {
+                    removedCount++;
+                }
+            }
+            usedMemory.add(MemoryEstimator.sortedSet(sortedSet) - before);
+            if (removedCount > 0) {
+                removeIfEmpty(key, sortedSet.size());
+                signalModifiedKey(key);
+            }
+            return removedCount;
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    /**
+     * 按分数区间获取有序集合中的成员（ZRANGEBYSCORE / ZREVRANGEBYSCORE）。
+     * @param reverse    为 true 时从分数大的一端开始
+     * @param offset     跳过的成员数
+     * @param count      最多返回的成员数，负数表示不限
+     * @param withScores 为 true 时每个成员后面跟着它的分数
+     * @return 成员列表，key 不存在时返回空列表
+     * @throws WrongTypeException 如果 key 存在但不是有序集合。
+     */
+    public List<byte[]> zrangeByScore(ByteKey key, RedisSortedSet.ScoreRange range, boolean reverse,
+                                      int offset, int count, boolean withScores) throws WrongTypeException {
+        Lock stripe = stripes.readLock(key);
+        stripe.lock();
+        try {
+            RedisSortedSet sortedSet = getSortedSet(key);
+            if (sortedSet == null) {
+                return new ArrayList<>();
+            }
+            return sortedSet.rangeByScore(range, reverse, offset, count, withScores);
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    /**
+     * 按字典序区间获取有序集合中的成员（ZRANGEBYLEX）。
+     * @return 成员列表，key 不存在时返回空列表
+     * @throws WrongTypeException 如果 key 存在但不是有序集合。
+     */
+    public List<byte[]> zrangeByLex(ByteKey key, RedisSortedSet.LexRange range, int offset, int count)
+            throws WrongTypeException {
+        Lock stripe = stripes.readLock(key);
+        stripe.lock();
+        try {
+            RedisSortedSet sortedSet = getSortedSet(key);
+            if (sortedSet == null) {
+                return new ArrayList<>();
+            }
+            return sortedSet.rangeByLex(range, offset, count);
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    /**
+     * 统计分数区间内的成员数量（ZCOUNT）。
+     * @throws WrongTypeException 如果 key 存在但不是有序集合。
+     */
+    public long zcount(ByteKey key, RedisSortedSet.ScoreRange range) throws WrongTypeException {
+        Lock stripe = stripes.readLock(key);
+        stripe.lock();
+        try {
+            RedisSortedSet sortedSet = getSortedSet(key);
+            return sortedSet == null ? 0 : sortedSet.count(range);
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    /**
+     * 删除分数区间内的所有成员（ZREMRANGEBYSCORE）。
+     * @return 删除的成员数量
+     * @throws WrongTypeException 如果 key 存在但不是有序集合。
+     */
+    public long zremrangeByScore(ByteKey key, RedisSortedSet.ScoreRange range) throws WrongTypeException {
+        Lock stripe = stripes.writeLock(key);
+        stripe.lock();
+        try {
+            RedisSortedSet sortedSet = getSortedSet(key);
+            if (sortedSet == null) {
+                return 0;
+            }
+            long before = MemoryEstimator.sortedSet(sortedSet);
+            List<byte[]> removed = sortedSet.removeRangeByScore(range);
+            return releaseRemovedMembers(key, sortedSet, before, removed);
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    /**
+     * 删除排名在 [start, stop] 内的所有成员（ZREMRANGEBYRANK），负数下标从末尾算起。
+     * @return 删除的成员数量
+     * @throws WrongTypeException 如果 key 存在但不是有序集合。
+     */
+    public long zremrangeByRank(ByteKey key, int start, int stop) throws WrongTypeException {
+        Lock stripe = stripes.writeLock(key);
+        stripe.lock();
+        try {
+            RedisSortedSet sortedSet = getSortedSet(key);
+            if (sortedSet == null) {
+                return 0;
+            }
+            long before = MemoryEstimator.sortedSet(sortedSet);
+            List<byte[]> removed = sortedSet.removeRangeByRank(start, stop);
+            return releaseRemovedMembers(key, sortedSet, before, removed);
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    /**
+     * 调用方持有 key 的段锁。
+     * @return key 对应的有序集合，key 不存在时返回 null
+     * @throws WrongTypeException 如果 key 存在但不是有序集合。
+     */
+    private RedisSortedSet getSortedSet(ByteKey key) throws WrongTypeException {
+        Object value = lookupRead(key);
+        if (value != null && !(value instanceof RedisSortedSet)) {
+            throw new WrongTypeException("Operation against a key holding the wrong kind of value");
+        }
+        return (RedisSortedSet) value;
+    }
+
+    /**
+     * 按删除前的估算大小 before 扣除被删除成员的内存，有成员被删除时通知 WATCH。
+     * @return 删除的成员数量
+     */
+    private long releaseRemovedMembers(ByteKey key, RedisSortedSet sortedSet, long before, List<byte[]> removed) {
+        usedMemory.add(MemoryEstimator.sortedSet(sortedSet) - before);
+        if (!removed.isEmpty()) {
+            removeIfEmpty(key, sortedSet.size());
+            signalModifiedKey(key);
+        }
+        return removed.size();
+    }
+
+    /**
+     * 列表、有序集合、哈希的最后一个元素被删除后，与 Redis 一样删除整个 key 及其过期时间，不保留空容器。
+     * 调用方持有 key 的写锁。
+     */
+    private void removeIfEmpty(ByteKey key, int size) {
+        if (size == 0) {
+            removeEntry(key);
+            expires.remove(key);
+        }
+    }
 
-        if(value == null){
-            return 0;
+    // --- 哈希操作 ---
+
+    /**
+     * 调用方持有 key 的写锁。
+     * @return key 对应的哈希，key 不存在时新建一个
+     * @throws WrongTypeException 如果 key 存在但不是哈希。
+     */
+    private RedisHash getOrCreateHash(ByteKey key) throws WrongTypeException {
+        Object value = lookupWrite(key);
+        if (value == null) {
+            ServerConfig config = ServerConfig.getInstance();
+            RedisHash hash = new RedisHash(config.getHashMaxListpackEntries(), config.getHashMaxListpackValue());
+            map.put(key, hash);
+            usedMemory.add(MemoryEstimator.entry(key, hash));
+            return hash;
         }
+        if (!(value instanceof RedisHash)) {
+            throw new WrongTypeException("Operation against a key holding the wrong kind of value");
+        }
+        return (RedisHash) value;
+    }
 
-        if(!(value instanceof RedisSortedSet)){
+    /**
+     * 调用方持有 key 的段锁。
+     * @return key 对应的哈希，key 不存在时返回 null
+     * @throws WrongTypeException 如果 key 存在但不是哈希。
+     */
+    private RedisHash getHash(ByteKey key) throws WrongTypeException {
+        Object value = lookupRead(key);
+        if (value != null && !(value instanceof RedisHash)) {
             throw new WrongTypeException("Operation against a key holding the wrong kind of value");
         }
+        return (RedisHash) value;
+    }
 
-        RedisSortedSet sortedSet = (RedisSortedSet) value;
-        int removedCount = 0;
-        for(byte[] member:members){
-            removedCount+=sortedSet.remove(member);
+    /**
+     * 设置哈希中的一个或多个字段（HSET）。
+     * @param fieldsAndValues [field1, value1, field2, value2, ...]
+     * @return 新增的字段数量
+     * @throws WrongTypeException 如果 key 存在但不是哈希。
+     * @throws Exception 如果字段和值不是成对出现。
+     */
+    public int hset(ByteKey key, List<byte[]> fieldsAndValues) throws Exception {
+        // 在创建哈希之前检查，避免留下空的哈希
+        if (fieldsAndValues.isEmpty() || fieldsAndValues.size() % 2 != 0) {
+            throw new Exception("wrong number of arguments for 'hset' command");
+        }
+        Lock stripe = stripes.writeLock(key);
+        stripe.lock();
+        try {
+            RedisHash hash = getOrCreateHash(key);
+            long before = MemoryEstimator.hash(hash);
+            int added = 0;
+            for (int i = 0; i < fieldsAndValues.size(); i += 2) {
+                added += hash.put(fieldsAndValues.get(i), fieldsAndValues.get(i + 1));
+            }
+            usedMemory.add(MemoryEstimator.hash(hash) - before);
+            signalModifiedKey(key);
+            return added;
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    /**
+     * 获取哈希中一个字段的值（HGET）。
+     * @return 字段的值，key 或字段不存在时返回 null
+     * @throws WrongTypeException 如果 key 存在但不是哈希。
+     */
+    public byte[] hget(ByteKey key, byte[] field) throws WrongTypeException {
+        Lock stripe = stripes.readLock(key);
+        stripe.lock();
+        try {
+            RedisHash hash = getHash(key);
+            return hash == null ? null : hash.get(field);
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    /**
+     * 获取哈希中多个字段的值（HMGET）。
+     * @return 与 fields 一一对应的值，不存在的字段对应 null
+     * @throws WrongTypeException 如果 key 存在但不是哈希。
+     */
+    public List<byte[]> hmget(ByteKey key, List<byte[]> fields) throws WrongTypeException {
+        Lock stripe = stripes.readLock(key);
+        stripe.lock();
+        try {
+            RedisHash hash = getHash(key);
+            List<byte[]> values = new ArrayList<>(fields.size());
+            for (byte[] field : fields) {
+                values.add(hash == null ? null : hash.get(field));
+            }
+            return values;
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    /**
+     * 获取哈希中的所有字段和值（HGETALL）。
+     * @return [field1, value1, ...]，key 不存在时返回空列表
+     * @throws WrongTypeException 如果 key 存在但不是哈希。
+     */
+    public List<byte[]> hgetall(ByteKey key) throws WrongTypeException {
+        Lock stripe = stripes.readLock(key);
+        stripe.lock();
+        try {
+            RedisHash hash = getHash(key);
+            return hash == null ? new ArrayList<>() : hash.getAll();
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    /**
+     * 删除哈希中的一个或多个字段（HDEL）。
+     * @return 实际删除的字段数量
+     * @throws WrongTypeException 如果 key 存在但不是哈希。
+     */
+    public int hdel(ByteKey key, List<byte[]> fields) throws WrongTypeException {
+        Lock stripe = stripes.writeLock(key);
+        stripe.lock();
+        try {
+            RedisHash hash = getHash(key);
+            if (hash == null) {
+                return 0;
+            }
+            long before = MemoryEstimator.hash(hash);
+            int removed = 0;
+            for (byte[] field : fields) {
+                removed += hash.remove(field);
+            }
+            usedMemory.add(MemoryEstimator.hash(hash) - before);
+            if (removed > 0) {
+                removeIfEmpty(key, hash.size());
+                signalModifiedKey(key);
+            }
+            return removed;
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    /**
+     * @return 哈希的字段数量（HLEN），key 不存在时返回 0
+     * @throws WrongTypeException 如果 key 存在但不是哈希。
+     */
+    public long hlen(ByteKey key) throws WrongTypeException {
+        Lock stripe = stripes.readLock(key);
+        stripe.lock();
+        try {
+            RedisHash hash = getHash(key);
+            return hash == null ? 0 : hash.size();
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    /**
+     * @return 字段是否存在（HEXISTS），存在返回 1，否则返回 0
+     * @throws WrongTypeException 如果 key 存在但不是哈希。
+     */
+    public long hexists(ByteKey key, byte[] field) throws WrongTypeException {
+        Lock stripe = stripes.readLock(key);
+        stripe.lock();
+        try {
+            RedisHash hash = getHash(key);
+            return hash != null && hash.containsField(field) ? 1 : 0;
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    /**
+     * 把哈希字段中的整数加上 delta（HINCRBY），字段不存在时视为 0。
+     * @return 加上 delta 之后的值
+     * @throws WrongTypeException key 存在但不是哈希
+     * @throws Exception 字段的值不是整数，或结果超出 long 的范围
+     */
+    public long hincrBy(ByteKey key, byte[] field, long delta) throws Exception {
+        Lock stripe = stripes.writeLock(key);
+        stripe.lock();
+        try {
+            RedisHash hash = getOrCreateHash(key);
+            byte[] current = hash.get(field);
+            long value = 0;
+            if (current != null) {
+                if (!ValueEntry.isCanonicalLong(current)) {
+                    throw new Exception("hash value is not an integer");
+                }
+                value = ValueEntry.parseCanonicalLong(current);
+            }
+            long result;
+            try {
+                result = Math.addExact(value, delta);
+            } catch (ArithmeticException e) {
+                throw new Exception("increment or decrement would overflow");
+            }
+            long before = MemoryEstimator.hash(hash);
+            hash.put(field, Long.toString(result).getBytes(StandardCharsets.US_ASCII));
+            usedMemory.add(MemoryEstimator.hash(hash) - before);
+            signalModifiedKey(key);
+            return result;
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    /**
+     * 把哈希字段中的数值加上浮点数 delta（HINCRBYFLOAT），字段不存在时视为 0。
+     * @return 格式化后的新值
+     * @throws WrongTypeException key 存在但不是哈希
+     * @throws Exception 字段的值不是合法的浮点数，或结果是 NaN / Infinity
+     */
+    public byte[] hincrByFloat(ByteKey key, byte[] field, double delta) throws Exception {
+        Lock stripe = stripes.writeLock(key);
+        stripe.lock();
+        try {
+            RedisHash existing = getHash(key);
+            byte[] current = existing == null ? null : existing.get(field);
+            double value = 0;
+            if (current != null) {
+                try {
+                    value = ValueEntry.parseDouble(current);
+                } catch (NumberFormatException e) {
+                    throw new Exception("hash value is not a float");
+                }
+            }
+            double result = value + delta;
+            if (Double.isNaN(result) || Double.isInfinite(result)) {
+                throw new Exception("increment would produce NaN or Infinity");
+            }
+            // 结果合法后才创建哈希，出错时不会留下空的 key
+            RedisHash hash = existing != null ? existing : getOrCreateHash(key);
+            byte[] formatted = formatDouble(result);
+            long before = MemoryEstimator.hash(hash);
+            hash.put(field, formatted);
+            usedMemory.add(MemoryEstimator.hash(hash) - before);
+            signalModifiedKey(key);
+            return formatted;
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    /**
+     * HSCAN 的一次迭代。
+     * @param pattern  MATCH 的 glob 模式，null 表示不过滤
+     * @param noValues 为 true 时只返回字段名
+     * @return [下一次的游标, [field1, value1, ...]]，游标为 0 表示遍历结束
+     * @throws WrongTypeException 如果 key 存在但不是哈希。
+     */
+    public List<Object> hscan(ByteKey key, int cursor, int count, byte[] pattern, boolean noValues)
+            throws WrongTypeException {
+        Lock stripe = stripes.readLock(key);
+        stripe.lock();
+        try {
+            RedisHash hash = getHash(key);
+            List<byte[]> items = new ArrayList<>();
+            int next = hash == null ? 0 : hash.scan(cursor, count, pattern, noValues, items);
+            return List.of(Integer.toUnsignedString(next).getBytes(StandardCharsets.US_ASCII), items);
+        } finally {
+            stripe.unlock();
         }
-        return removedCount;
     }
 }
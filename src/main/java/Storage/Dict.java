@@ -0,0 +1,347 @@
+package Storage;
+
+import java.util.function.Consumer;
+
+/**
+ * @author Achilles
+ * 开放寻址（线性探测）的哈希表：key 和 value 存在两个平行数组中，每个条目只占两个数组槽位，
+ * 没有 HashMap / ConcurrentHashMap 那样每个条目一个 Node 对象的开销。
+ * 扩容、缩容以及清理删除标记时仿照 Redis 的渐进式 rehash：新表分配后，每次写操作只从旧表迁移一小段，
+ * 查找时依次查旧表和新表，大表扩容不会造成长时间停顿。
+ * 每个条目另有一个 int 的 meta，记录 maxmemory 淘汰用的访问时钟或访问频率（见 Eviction）。
+ * 不是线程安全的：写操作需要外部互斥；get、touch 只会更新命中条目的 meta，size、forEachKey、sample 不修改任何状态，
+ * 它们都可以在读锁下并发执行。并发的 get 写同一个 meta 时最多丢失一次访问记录，对近似淘汰没有影响。
+ * peek 不写任何数组，是唯一可以在不持有锁的情况下调用的查找（见 Keyspace.getOptimistic）。
+ */
+final class Dict<V> {
+    private static final int INITIAL_CAPACITY = 16;
+    // 每次写操作最多迁移的条目数，以及最多跳过的空槽位数
+    private static final int REHASH_STEP = 16;
+    private static final int MAX_EMPTY_VISITS = REHASH_STEP * 10;
+
+    // 删除标记：线性探测中不能直接置空，否则会截断后面的探测链；只按引用比较
+    private static final ByteKey TOMBSTONE = ByteKey.wrap(new byte[0]);
+
+    interface EntryVisitor<V> {
+        void visit(ByteKey key, V value, int meta);
+    }
+
+    private static final class Table {
+        final ByteKey[] keys;
+        final Object[] values;
+        final int[] meta;
+        // 用哈希值乘以黄金分割常数后的高位作为下标，与按低位分段的 StripedLock 互不相关
+        final int shift;
+        int used;
+        int tombstones;
+
+        Table(int capacity) {
+            this.keys = new ByteKey[capacity];
+            this.values = new Object[capacity];
+            this.meta = new int[capacity];
+            this.shift = 32 - Integer.numberOfTrailingZeros(capacity);
+        }
+
+        int indexOf(ByteKey key) {
+            return (key.hashCode() * 0x9E3779B9) >>> shift;
+        }
+
+        int capacity() {
+            return keys.length;
+        }
+
+        boolean overloaded() {
+            return (used + tombstones) * 4 >= capacity() * 3;
+        }
+    }
+
+    private Table table = new Table(INITIAL_CAPACITY);
+    // 正在 rehash 时的新表，rehashIndex 之前的旧表槽位都已迁移
+    private Table next;
+    private int rehashIndex = -1;
+
+    /**
+     * 查找并记录一次访问。
+     */
+    V get(ByteKey key) {
+        V value = get(table, key);
+        if (value == null && next != null) {
+            value = get(next, key);
+        }
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> V get(Table t, ByteKey key) {
+        int slot = find(t, key);
+        if (slot < 0) {
+            return null;
+        }
+        t.meta[slot] = Eviction.touch(t.meta[slot]);
+        return (V) t.values[slot];
+    }
+
+    /**
+     * 查找但不记录访问。
+     */
+    @SuppressWarnings("unchecked")
+    V peek(ByteKey key) {
+        int slot = find(table, key);
+        if (slot >= 0) {
+            return (V) table.values[slot];
+        }
+        Table t = next;
+        if (t != null) {
+            slot = find(t, key);
+            if (slot >= 0) {
+                return (V) t.values[slot];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 只记录一次访问，key 不存在时什么都不做。
+     */
+    void touch(ByteKey key) {
+        get(key);
+    }
+
+    /**
+     * 读取条目的 meta 而不记录访问，不存在时返回 -1（meta 只使用低 24 位）。
+     */
+    int meta(ByteKey key) {
+        int slot = find(table, key);
+        if (slot >= 0) {
+            return table.meta[slot];
+        }
+        if (next != null) {
+            slot = find(next, key);
+            if (slot >= 0) {
+                return next.meta[slot];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return 原来的值，不存在时返回 null
+     */
+    @SuppressWarnings("unchecked")
+    V put(ByteKey key, V value) {
+        rehashStep();
+        if (next == null) {
+            V old = put(table, key, value);
+            if (table.overloaded()) {
+                startRehash(capacityFor(table.used));
+            }
+            return old;
+        }
+        // rehash 期间新条目只写入新表，旧表中已有的条目顺便迁移过去
+        int slot = find(table, key);
+        if (slot >= 0) {
+            V old = (V) table.values[slot];
+            int meta = Eviction.touch(table.meta[slot]);
+            clear(table, slot);
+            store(next, -probe(next, key) - 1, key, value, meta);
+            return old;
+        }
+        V old = put(next, key, value);
+        if (next.overloaded()) {
+            // 正常情况下迁移速度远快于写入，这里只是保护
+            finishRehash();
+            startRehash(capacityFor(table.used));
+        }
+        return old;
+    }
+
+    /**
+     * @return 被删除的值，不存在时返回 null
+     */
+    @SuppressWarnings("unchecked")
+    V remove(ByteKey key) {
+        rehashStep();
+        Table owner = table;
+        int slot = find(table, key);
+        if (slot < 0 && next != null) {
+            owner = next;
+            slot = find(next, key);
+        }
+        if (slot < 0) {
+            return null;
+        }
+        V old = (V) owner.values[slot];
+        clear(owner, slot);
+        if (next == null && table.capacity() > INITIAL_CAPACITY && table.used * 8 < table.capacity()) {
+            startRehash(capacityFor(table.used));
+        }
+        return old;
+    }
+
+    int size() {
+        return table.used + (next != null ? next.used : 0);
+    }
+
+    /**
+     * 从 start 对应的槽位开始顺序扫描，回调最多 count 个条目，仿照 Redis 的 dictGetSomeKeys。
+     * 每张表最多访问 count * 10 个槽位，表很稀疏时回调的条目可能少于 count 个。
+     */
+    void sample(int start, int count, EntryVisitor<V> visitor) {
+        int found = sample(table, start, count, visitor);
+        if (next != null && found < count) {
+            sample(next, start, count - found, visitor);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> int sample(Table t, int start, int count, EntryVisitor<V> visitor) {
+        int mask = t.capacity() - 1;
+        int maxVisits = Math.min(t.capacity(), count * 10);
+        int found = 0;
+        for (int i = 0, slot = start & mask; i < maxVisits && found < count; i++, slot = (slot + 1) & mask) {
+            ByteKey k = t.keys[slot];
+            if (k != null && k != TOMBSTONE) {
+                visitor.visit(k, (V) t.values[slot], t.meta[slot]);
+                found++;
+            }
+        }
+        return found;
+    }
+
+    void forEachKey(Consumer<ByteKey> action) {
+        forEachKey(table, action);
+        if (next != null) {
+            forEachKey(next, action);
+        }
+    }
+
+    private static void forEachKey(Table t, Consumer<ByteKey> action) {
+        for (ByteKey key : t.keys) {
+            if (key != null && key != TOMBSTONE) {
+                action.accept(key);
+            }
+        }
+    }
+
+    /**
+     * 最多探测 capacity 个槽位：表中总有空槽位，正常情况下早就返回了；
+     * 这个上限只是保证不加锁的乐观读（见 Keyspace.getOptimistic）遇到并发修改时也一定会结束。
+     */
+    private static int find(Table t, ByteKey key) {
+        int mask = t.capacity() - 1;
+        for (int n = 0, i = t.indexOf(key); n < t.capacity(); n++, i = (i + 1) & mask) {
+            ByteKey k = t.keys[i];
+            if (k == null) {
+                return -1;
+            }
+            if (k != TOMBSTONE && k.equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 写入或替换：新条目以初始 meta 写入，替换已有条目时算作一次访问。
+     */
+    @SuppressWarnings("unchecked")
+    private static <V> V put(Table t, ByteKey key, V value) {
+        int slot = probe(t, key);
+        if (slot >= 0) {
+            V old = (V) t.values[slot];
+            t.values[slot] = value;
+            t.meta[slot] = Eviction.touch(t.meta[slot]);
+            return old;
+        }
+        store(t, -slot - 1, key, value, Eviction.initialMeta());
+        return null;
+    }
+
+    /**
+     * 查找 key 的槽位：存在时返回它的下标，否则返回 -(可写入的下标 + 1)，优先复用探测路径上的第一个删除标记。
+     */
+    private static int probe(Table t, ByteKey key) {
+        int mask = t.capacity() - 1;
+        int firstTombstone = -1;
+        for (int i = t.indexOf(key); ; i = (i + 1) & mask) {
+            ByteKey k = t.keys[i];
+            if (k == null) {
+                return -(firstTombstone >= 0 ? firstTombstone : i) - 1;
+            }
+            if (k == TOMBSTONE) {
+                if (firstTombstone < 0) {
+                    firstTombstone = i;
+                }
+            } else if (k.equals(key)) {
+                return i;
+            }
+        }
+    }
+
+    private static void store(Table t, int slot, ByteKey key, Object value, int meta) {
+        if (t.keys[slot] == TOMBSTONE) {
+            t.tombstones--;
+        }
+        t.keys[slot] = key;
+        t.values[slot] = value;
+        t.meta[slot] = meta;
+        t.used++;
+    }
+
+    private static void clear(Table t, int slot) {
+        t.keys[slot] = TOMBSTONE;
+        t.values[slot] = null;
+        t.used--;
+        t.tombstones++;
+    }
+
+    /**
+     * 能以不超过一半的负载容纳 size 个条目的最小容量。
+     */
+    private static int capacityFor(int size) {
+        int capacity = INITIAL_CAPACITY;
+        while (capacity < size * 2) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private void startRehash(int capacity) {
+        next = new Table(capacity);
+        rehashIndex = 0;
+    }
+
+    /**
+     * 从旧表迁移最多 REHASH_STEP 个条目到新表。
+     * 迁移走的槽位留下删除标记，保证旧表中其他条目的探测链不被截断。
+     */
+    private void rehashStep() {
+        if (next == null) {
+            return;
+        }
+        int moved = 0;
+        int emptyVisits = 0;
+        while (rehashIndex < table.capacity() && moved < REHASH_STEP && emptyVisits < MAX_EMPTY_VISITS) {
+            ByteKey key = table.keys[rehashIndex];
+            if (key != null && key != TOMBSTONE) {
+                store(next, -probe(next, key) - 1, key, table.values[rehashIndex], table.meta[rehashIndex]);
+                clear(table, rehashIndex);
+                moved++;
+            } else {
+                emptyVisits++;
+            }
+            rehashIndex++;
+        }
+        if (rehashIndex == table.capacity()) {
+            table = next;
+            next = null;
+            rehashIndex = -1;
+        }
+    }
+
+    private void finishRehash() {
+        while (next != null) {
+            rehashStep();
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package Storage;
+
+import Config.MaxmemoryPolicy;
+import Config.ServerConfig;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * @author Achilles
+ * maxmemory 淘汰所需的访问信息和候选池，仿照 Redis 的 evict.c。
+ * 每个键空间条目带一个 24 位的 meta：LRU 策略下是秒级的最近访问时钟；
+ * LFU 策略下高 16 位是最近一次衰减的分钟时间，低 8 位是对数计数器。
+ * 候选池按“越大越先淘汰”的分数保存每轮抽样中最好的若干个 key，多轮抽样之间复用，近似全局最优。
+ * 候选池不是线程安全的，由 DataStore 保证同一时刻只有一个线程在淘汰。
+ */
+final class Eviction {
+    static final int POOL_SIZE = 16;
+
+    private static final int CLOCK_MAX = (1 << 24) - 1;
+    private static final int LFU_INIT_VAL = 5;
+    private static final int LFU_LOG_FACTOR = 10;
+    // 计数器每闲置多少分钟减一
+    private static final int LFU_DECAY_TIME = 1;
+
+    private final ByteKey[] keys = new ByteKey[POOL_SIZE];
+    private final long[] scores = new long[POOL_SIZE];
+    private int size = 0;
+
+    /**
+     * 新写入条目的 meta。LFU 从 LFU_INIT_VAL 开始计数，避免新 key 马上被淘汰。
+     */
+    static int initialMeta() {
+        if (policy().isLfu()) {
+            return (lfuTimeInMinutes() << 8) | LFU_INIT_VAL;
+        }
+        return lruClock();
+    }
+
+    /**
+     * 访问一次后的 meta。
+     */
+    static int touch(int meta) {
+        if (!policy().isLfu()) {
+            return lruClock();
+        }
+        int counter = lfuLogIncr(lfuDecrAndReturn(meta));
+        return (lfuTimeInMinutes() << 8) | counter;
+    }
+
+    /**
+     * 当前策略是否需要记录访问（LRU / LFU），其他策略下 meta 不会被读取。
+     */
+    static boolean tracksAccess() {
+        MaxmemoryPolicy policy = policy();
+        return policy.isLfu() || policy.isLru();
+    }
+
+    /**
+     * 距最近一次访问的毫秒数（秒级精度），时钟回绕后仍然正确。
+     */
+    static long idleMillis(int meta) {
+        int clock = lruClock();
+        long idle = clock >= meta ? clock - meta : clock + (CLOCK_MAX - meta);
+        return idle * 1000;
+    }
+
+    /**
+     * 按闲置时间衰减后的访问频率，只读取不修改。
+     */
+    static int lfuCounter(int meta) {
+        return lfuDecrAndReturn(meta);
+    }
+
+    private static MaxmemoryPolicy policy() {
+        return ServerConfig.getInstance().getMaxMemoryPolicy();
+    }
+
+    private static int lruClock() {
+        return (int) ((System.currentTimeMillis() / 1000) & CLOCK_MAX);
+    }
+
+    private static int lfuTimeInMinutes() {
+        return (int) ((System.currentTimeMillis() / 60000) & 0xFFFF);
+    }
+
+    private static int lfuElapsedMinutes(int lastDecrement) {
+        int now = lfuTimeInMinutes();
+        return now >= lastDecrement ? now - lastDecrement : 0xFFFF - lastDecrement + now;
+    }
+
+    /**
+     * 对数递增：计数器越大，再加一的概率越小，8 位就能区分百万级的访问次数。
+     */
+    private static int lfuLogIncr(int counter) {
+        if (counter == 255) {
+            return 255;
+        }
+        double baseval = Math.max(0, counter - LFU_INIT_VAL);
+        double p = 1.0 / (baseval * LFU_LOG_FACTOR + 1);
+        return ThreadLocalRandom.current().nextDouble() < p ? counter + 1 : counter;
+    }
+
+    private static int lfuDecrAndReturn(int meta) {
+        int counter = meta & 0xFF;
+        int periods = lfuElapsedMinutes(meta >>> 8) / LFU_DECAY_TIME;
+        return periods > counter ? 0 : counter - periods;
+    }
+
+    /**
+     * 把一个抽样到的 key 放入候选池，池按分数升序排列。
+     * 池满时挤掉分数最小的候选；比池中所有候选都小的 key 直接丢弃。
+     */
+    void offer(ByteKey key, long score) {
+        for (int i = 0; i < size; i++) {
+            if (keys[i].equals(key)) {
+                System.arraycopy(keys, i + 1, keys, i, size - i - 1);
+                System.arraycopy(scores, i + 1, scores, i, size - i - 1);
+                keys[--size] = null;
+                break;
+            }
+        }
+        int pos = 0;
+        while (pos < size && scores[pos] < score) {
+            pos++;
+        }
+        if (size == POOL_SIZE) {
+            if (pos == 0) {
+                return;
+            }
+            System.arraycopy(keys, 1, keys, 0, pos - 1);
+            System.arraycopy(scores, 1, scores, 0, pos - 1);
+            pos--;
+        } else {
+            System.arraycopy(keys, pos, keys, pos + 1, size - pos);
+            System.arraycopy(scores, pos, scores, pos + 1, size - pos);
+            size++;
+        }
+        keys[pos] = key;
+        scores[pos] = score;
+    }
+
+    /**
+     * 取出分数最大的候选，池为空时返回 null。候选可能已被删除，调用方需要重新检查。
+     */
+    ByteKey pollBest() {
+        if (size == 0) {
+            return null;
+        }
+        ByteKey key = keys[--size];
+        keys[size] = null;
+        return key;
+    }
+}
@@ -0,0 +1,140 @@
+package Storage;
+
+import java.util.function.BiConsumer;
+
+/**
+ * @author Achilles
+ * 大哈希使用的链式哈希表，字段的增删改查都是 O(1)。
+ * 没有直接用 HashMap，是因为 HSCAN 需要 Redis dictScan 那样的游标：
+ * 桶数总是 2 的幂，游标按“反转二进制位后加一”的顺序遍历桶，
+ * 两次调用之间即使表扩容或缩容，整个遍历期间一直存在的字段也至少会返回一次。
+ * 扩容、缩容都是一次完成的，不像 Dict 那样渐进式 rehash，单个哈希的规模不需要。
+ * 不是线程安全的，由所属 key 的段锁保护。
+ */
+final class FieldDict {
+    private static final int INITIAL_CAPACITY = 4;
+
+    private static final class Entry {
+        final ByteKey field;
+        byte[] value;
+        Entry next;
+
+        Entry(ByteKey field, byte[] value, Entry next) {
+            this.field = field;
+            this.value = value;
+            this.next = next;
+        }
+    }
+
+    private Entry[] table = new Entry[INITIAL_CAPACITY];
+    private int size = 0;
+
+    int size() {
+        return size;
+    }
+
+    int capacity() {
+        return table.length;
+    }
+
+    byte[] get(ByteKey field) {
+        for (Entry e = table[indexOf(field, table.length)]; e != null; e = e.next) {
+            if (e.field.equals(field)) {
+                return e.value;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return 原来的值，字段不存在时返回 null
+     */
+    byte[] put(ByteKey field, byte[] value) {
+        int index = indexOf(field, table.length);
+        for (Entry e = table[index]; e != null; e = e.next) {
+            if (e.field.equals(field)) {
+                byte[] old = e.value;
+                e.value = value;
+                return old;
+            }
+        }
+        table[index] = new Entry(field, value, table[index]);
+        size++;
+        // 负载因子为 1 时扩容，与 Redis 的 dict 相同
+        if (size > table.length) {
+            resize(table.length * 2);
+        }
+        return null;
+    }
+
+    /**
+     * @return 被删除的值，字段不存在时返回 null
+     */
+    byte[] remove(ByteKey field) {
+        int index = indexOf(field, table.length);
+        Entry prev = null;
+        for (Entry e = table[index]; e != null; prev = e, e = e.next) {
+            if (e.field.equals(field)) {
+                if (prev == null) {
+                    table[index] = e.next;
+                } else {
+                    prev.next = e.next;
+                }
+                size--;
+                // 使用率低于 1/8 时缩容，避免删除大量字段后桶数组一直占着内存
+                if (table.length > INITIAL_CAPACITY && size * 8 < table.length) {
+                    resize(table.length / 2);
+                }
+                return e.value;
+            }
+        }
+        return null;
+    }
+
+    void forEach(BiConsumer<ByteKey, byte[]> action) {
+        for (Entry head : table) {
+            for (Entry e = head; e != null; e = e.next) {
+                action.accept(e.field, e.value);
+            }
+        }
+    }
+
+    /**
+     * 遍历游标指向的一个桶，返回下一个游标，返回 0 表示整个表已经遍历完。
+     * 游标的高位在桶数较小时被忽略；反转二进制位后递增，使得扩容后新增的高位桶
+     * 正好排在同一个低位桶之后，缩容时合并的桶也不会被跳过，与 Redis 的 dictScan 相同。
+     */
+    int scan(int cursor, BiConsumer<ByteKey, byte[]> action) {
+        int mask = table.length - 1;
+        for (Entry e = table[cursor & mask]; e != null; e = e.next) {
+            action.accept(e.field, e.value);
+        }
+        cursor |= ~mask;
+        cursor = Integer.reverse(cursor);
+        cursor++;
+        return Integer.reverse(cursor);
+    }
+
+    private void resize(int capacity) {
+        Entry[] newTable = new Entry[capacity];
+        for (Entry head : table) {
+            Entry e = head;
+            while (e != null) {
+                Entry next = e.next;
+                int index = indexOf(e.field, capacity);
+                e.next = newTable[index];
+                newTable[index] = e;
+                e = next;
+            }
+        }
+        table = newTable;
+    }
+
+    /**
+     * 扰动哈希值的高位后取低位作为桶下标，低位决定桶、高位决定游标顺序，扩缩容时字段只在同余的桶之间移动。
+     */
+    private static int indexOf(ByteKey field, int capacity) {
+        int h = field.hashCode();
+        return (h ^ (h >>> 16)) & (capacity - 1);
+    }
+}
@@ -0,0 +1,159 @@
+package Storage;
+
+import java.util.Arrays;
+
+/**
+ * @author Achilles
+ * 小哈希的 listpack 编码，仿照 Redis 的 hash listpack：字段和值交替地连续存放在一个 byte[] 中，
+ * 每一项是“变长长度 + 内容”，新字段追加在末尾。
+ * 相比哈希表省去了每个字段的条目对象、ByteKey 和两个数组头，代价是按字段查找是 O(n) 的线性扫描，
+ * 所以只用于字段数和字段、值长度都很小的哈希，超过 hash-max-listpack-entries / hash-max-listpack-value
+ * 后由 RedisHash 转换为 FieldDict。
+ * 字段用它在数组中的起始位置 pos 表示，first() 到 end() 之间依次用 next(pos) 遍历。
+ * 不是线程安全的，由所属 key 的段锁保护。
+ */
+final class HashListpack {
+    private static final int INITIAL_CAPACITY = 32;
+
+    private byte[] data = new byte[INITIAL_CAPACITY];
+    private int used = 0;
+    private int size = 0;
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * 缓冲区的总字节数，用于估算内存。
+     */
+    int bufferBytes() {
+        return data.length;
+    }
+
+    int first() {
+        return 0;
+    }
+
+    int end() {
+        return used;
+    }
+
+    /**
+     * @return pos 处字段之后下一个字段的位置
+     */
+    int next(int pos) {
+        return skipItem(skipItem(pos));
+    }
+
+    byte[] field(int pos) {
+        return readItem(pos);
+    }
+
+    byte[] value(int pos) {
+        return readItem(skipItem(pos));
+    }
+
+    /**
+     * 按字段查找，只比较字节，不创建对象。
+     * @return 字段的位置，不存在时返回 -1
+     */
+    int find(byte[] field) {
+        for (int pos = 0; pos < used; pos = next(pos)) {
+            int len = readVarint(data, pos);
+            int start = pos + varintSize(len);
+            if (Arrays.equals(data, start, start + len, field, 0, field.length)) {
+                return pos;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 在末尾追加一个字段，调用方保证字段不存在。
+     */
+    void append(byte[] field, byte[] value) {
+        int need = itemSize(field.length) + itemSize(value.length);
+        ensureCapacity(used + need);
+        used = writeItem(used, field);
+        used = writeItem(used, value);
+        size++;
+    }
+
+    /**
+     * 替换 pos 处字段的值，长度不同时移动后面的数据。
+     */
+    void setValue(int pos, byte[] value) {
+        int valuePos = skipItem(pos);
+        int oldEnd = skipItem(valuePos);
+        int newEnd = valuePos + itemSize(value.length);
+        if (newEnd != oldEnd) {
+            ensureCapacity(used + newEnd - oldEnd);
+            System.arraycopy(data, oldEnd, data, newEnd, used - oldEnd);
+            used += newEnd - oldEnd;
+        }
+        writeItem(valuePos, value);
+    }
+
+    /**
+     * 删除 pos 处的字段和值，之后的数据前移，pos 变为原来下一个字段的位置。
+     */
+    void delete(int pos) {
+        int next = next(pos);
+        System.arraycopy(data, next, data, pos, used - next);
+        used -= next - pos;
+        size--;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > data.length) {
+            data = Arrays.copyOf(data, Math.max(capacity, data.length * 2));
+        }
+    }
+
+    private int writeItem(int pos, byte[] item) {
+        int len = item.length;
+        while (len >= 0x80) {
+            data[pos++] = (byte) (len | 0x80);
+            len >>>= 7;
+        }
+        data[pos++] = (byte) len;
+        System.arraycopy(item, 0, data, pos, item.length);
+        return pos + item.length;
+    }
+
+    private byte[] readItem(int pos) {
+        int len = readVarint(data, pos);
+        int start = pos + varintSize(len);
+        return Arrays.copyOfRange(data, start, start + len);
+    }
+
+    private int skipItem(int pos) {
+        int len = readVarint(data, pos);
+        return pos + varintSize(len) + len;
+    }
+
+    private static int itemSize(int length) {
+        return varintSize(length) + length;
+    }
+
+    private static int varintSize(int value) {
+        int size = 1;
+        while (value >= 0x80) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    private static int readVarint(byte[] buf, int pos) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buf[pos++];
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+}
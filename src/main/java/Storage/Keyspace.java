@@ -0,0 +1,149 @@
+package Storage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Predicate;
+
+/**
+ * @author Achilles
+ * 键空间：StripedLock 的每个段对应一张 Dict，由该段的锁保护。
+ * get 需要持有 key 所在段的读锁或写锁，put、remove 需要持有写锁。
+ * 各段的表独立地渐进式 rehash，同一时刻只有少数段持有新旧两张表，整个键空间的内存不会因扩容翻倍。
+ * 此外每段有一个 StampedLock 作为版本号，只在 Dict 结构被修改的那一小段时间内持有写锁，
+ * getOptimistic 借助它在不持有任何段锁的情况下读取，读取本身不写 Dict。
+ */
+class Keyspace {
+    /**
+     * getOptimistic 读取期间该段被修改时的返回值，调用方应改为在段锁下读取。
+     */
+    static final Object CONFLICT = new Object();
+
+    private final StripedLock stripes;
+    private final Dict<Object>[] dicts;
+    private final StampedLock[] versions;
+
+    Keyspace(StripedLock stripes) {
+        this.stripes = stripes;
+        this.dicts = newDictArray(stripes.stripeCount());
+        this.versions = new StampedLock[dicts.length];
+        for (int i = 0; i < dicts.length; i++) {
+            dicts[i] = new Dict<>();
+            versions[i] = new StampedLock();
+        }
+    }
+
+    /**
+     * Java 不能直接创建泛型数组，这里创建 Dict<?>[] 再转换；数组只在本类中使用，元素都是 Dict<Object>。
+     */
+    @SuppressWarnings("unchecked")
+    private static Dict<Object>[] newDictArray(int length) {
+        return (Dict<Object>[]) new Dict<?>[length];
+    }
+
+    Object get(ByteKey key) {
+        return dicts[stripes.stripeOf(key)].get(key);
+    }
+
+    /**
+     * 不持有段锁读取：读取前后该段的版本号不变才采用结果，否则返回 CONFLICT。
+     * 读取过程中 Dict 可能正被修改，读到的只是不一致的快照，但 Dict 的查找不会因此越界或死循环，
+     * 版本号校验会丢弃这样的结果。值对象本身必须是不可变的（例如 ValueEntry），否则校验通过也不代表读到了完整的值。
+     * 查找用不记录访问的 peek：不持有段锁时写 meta 可能写到 rehash 中的旧表，或写到刚被别的 key 复用的槽位。
+     * LRU / LFU 策略需要访问记录，命中后尝试获取段的读锁再记录，段上正有写入时放弃这一次记录。
+     */
+    Object getOptimistic(ByteKey key) {
+        int stripe = stripes.stripeOf(key);
+        StampedLock version = versions[stripe];
+        long stamp = version.tryOptimisticRead();
+        if (stamp == 0) {
+            return CONFLICT;
+        }
+        Object value = dicts[stripe].peek(key);
+        if (!version.validate(stamp)) {
+            return CONFLICT;
+        }
+        if (value != null && Eviction.tracksAccess()) {
+            Lock lock = stripes.readLockAt(stripe);
+            if (lock.tryLock()) {
+                try {
+                    dicts[stripe].touch(key);
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+        return value;
+    }
+
+    Object put(ByteKey key, Object value) {
+        int stripe = stripes.stripeOf(key);
+        long stamp = versions[stripe].writeLock();
+        try {
+            return dicts[stripe].put(key, value);
+        } finally {
+            versions[stripe].unlockWrite(stamp);
+        }
+    }
+
+    Object remove(ByteKey key) {
+        int stripe = stripes.stripeOf(key);
+        long stamp = versions[stripe].writeLock();
+        try {
+            return dicts[stripe].remove(key);
+        } finally {
+            versions[stripe].unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * 读取淘汰用的 meta 而不记录访问，需要持有 key 所在段的锁。
+     */
+    int meta(ByteKey key) {
+        return dicts[stripes.stripeOf(key)].meta(key);
+    }
+
+    /**
+     * 从第 stripe 段抽样最多 count 个条目，需要持有该段的锁。
+     */
+    void sample(int stripe, int start, int count, Dict.EntryVisitor<Object> visitor) {
+        dicts[stripe].sample(start, count, visitor);
+    }
+
+    int size(int stripe) {
+        return dicts[stripe].size();
+    }
+
+    /**
+     * 不加锁读取各段的大小，只是近似值。
+     */
+    int size() {
+        int size = 0;
+        for (Dict<Object> dict : dicts) {
+            size += dict.size();
+        }
+        return size;
+    }
+
+    /**
+     * 逐段持有读锁收集满足条件的 key，不会同时锁住整个键空间。
+     */
+    List<ByteKey> keys(Predicate<ByteKey> filter) {
+        List<ByteKey> keys = new ArrayList<>(size());
+        for (int i = 0; i < dicts.length; i++) {
+            Lock lock = stripes.readLockAt(i);
+            lock.lock();
+            try {
+                dicts[i].forEachKey(key -> {
+                    if (filter.test(key)) {
+                        keys.add(key);
+                    }
+                });
+            } finally {
+                lock.unlock();
+            }
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,108 @@
+package Storage;
+
+import java.util.Map;
+
+/**
+ * @author Achilles
+ * 估算键空间条目占用的内存，供 maxmemory 判断使用。
+ * JVM 不提供单个对象的实际大小，这里按 64 位 JVM、压缩指针的对象布局给每种结构记一个固定开销，
+ * 再加上字节数组的长度。结果只与数据量成正比，不等于 JVM 堆的实际占用。
+ */
+final class MemoryEstimator {
+    // byte[] 的对象头
+    private static final long ARRAY_HEADER = 16;
+    // ByteKey 对象，加上 Dict 中负载不超过一半时每个条目平摊的 key、value、meta 槽位
+    private static final long KEY_ENTRY = 24 + 24;
+    private static final long VALUE_ENTRY = 32;
+    private static final long QUICKLIST = 40;
+    // quicklist 节点对象和它的缓冲区数组头，缓冲区本身按实际长度计
+    private static final long QUICKLIST_NODE = 48 + ARRAY_HEADER;
+    private static final long STREAM = 56;
+    // StreamEntry、StreamEntryID、LinkedHashMap 以及 ArrayList 中的引用
+    private static final long STREAM_ENTRY = 24 + 24 + 64 + 4;
+    // LinkedHashMap 条目、哈希桶和字段名的 ByteKey
+    private static final long STREAM_FIELD = 40 + 8 + 24;
+    // RedisSortedSet 和 ZListpack 对象，listpack 的缓冲区按实际长度计
+    private static final long SORTED_SET_LISTPACK = 48 + 32 + ARRAY_HEADER;
+    // RedisSortedSet、HashMap、ZSkipList 以及 32 层的跳表头节点
+    private static final long SORTED_SET = 48 + 32 + 40 + 2 * (16 + 4 * ZSkipList.MAX_LEVEL);
+    // 跳表节点及平均 4/3 层的 forward、span 数组，成员的 ByteKey 和数组头，HashMap 条目和哈希桶
+    private static final long SORTED_SET_MEMBER = 40 + 2 * 24 + 24 + ARRAY_HEADER + 32 + 8;
+
+    // RedisHash 和 HashListpack 对象，listpack 的缓冲区按实际长度计
+    private static final long HASH_LISTPACK = 40 + 32 + ARRAY_HEADER;
+    // RedisHash、FieldDict 对象和桶数组头，桶数组每个槽位 4 字节
+    private static final long HASH_TABLE = 40 + 24 + ARRAY_HEADER;
+    // FieldDict 条目、字段的 ByteKey 以及字段和值的数组头，内容按实际长度计
+    private static final long HASH_FIELD = 24 + 24 + 2 * ARRAY_HEADER;
+
+    private MemoryEstimator() {
+    }
+
+    static long bytes(byte[] b) {
+        return ARRAY_HEADER + b.length;
+    }
+
+    /**
+     * 一个键空间条目（key 加整个 value）的估算大小。
+     */
+    static long entry(ByteKey key, Object value) {
+        return KEY_ENTRY + bytes(key.getBytes()) + value(value);
+    }
+
+    static long value(Object value) {
+        if (value instanceof ValueEntry) {
+            ValueEntry entry = (ValueEntry) value;
+            return entry.isInteger() ? VALUE_ENTRY : VALUE_ENTRY + bytes(entry.getBytes());
+        }
+        if (value instanceof QuickList) {
+            return quickList((QuickList) value);
+        }
+        if (value instanceof RedisStream) {
+            long size = STREAM;
+            for (StreamEntry entry : ((RedisStream) value).getEntries()) {
+                size += streamEntry(entry.fields);
+            }
+            return size;
+        }
+        if (value instanceof RedisSortedSet) {
+            return sortedSet((RedisSortedSet) value);
+        }
+        if (value instanceof RedisHash) {
+            return hash((RedisHash) value);
+        }
+        return 0;
+    }
+
+    static long quickList(QuickList list) {
+        return QUICKLIST + list.nodeCount() * QUICKLIST_NODE + list.bufferBytes();
+    }
+
+    static long streamEntry(Map<ByteKey, byte[]> fields) {
+        long size = STREAM_ENTRY;
+        for (Map.Entry<ByteKey, byte[]> field : fields.entrySet()) {
+            size += STREAM_FIELD + bytes(field.getKey().getBytes()) + bytes(field.getValue());
+        }
+        return size;
+    }
+
+    /**
+     * 有序集合的估算大小，O(1)。两种编码差别很大，修改前后各算一次取差值，编码转换也就自然计入了。
+     */
+    static long sortedSet(RedisSortedSet set) {
+        if (set.isListpack()) {
+            return SORTED_SET_LISTPACK + set.listpackBytes();
+        }
+        return SORTED_SET + set.size() * SORTED_SET_MEMBER + set.memberBytes();
+    }
+
+    /**
+     * 哈希的估算大小，O(1)，用法与 sortedSet 相同。
+     */
+    static long hash(RedisHash hash) {
+        if (hash.isListpack()) {
+            return HASH_LISTPACK + hash.listpackBytes();
+        }
+        return HASH_TABLE + 4L * hash.tableCapacity() + hash.size() * HASH_FIELD + hash.dataBytes();
+    }
+}
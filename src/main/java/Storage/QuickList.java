@@ -0,0 +1,375 @@
+package Storage;
+
+import Service.RespWritable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * @author Achilles
+ * 列表的 quicklist 编码，仿照 Redis 的 quicklist.c：由若干个节点组成的双向链表，
+ * 每个节点把多个元素紧凑地存放在一个 byte[] 中（每个元素是“变长长度 + 内容”），
+ * 相比 LinkedList 省去了每个元素一个链表节点和一个数组头的开销。
+ * 节点的已用区间 [head, tail) 两侧都留有空闲空间，两端的 push 和 pop 都不需要移动其他元素，是 O(1) 的。
+ * 节点大小由 list-max-listpack-size 控制；list-compress-depth 大于 0 时，
+ * 两端各 depth 个节点之外的中间节点以 Deflate 压缩保存（Redis 使用 LZF，JDK 自带的是 Deflate）。
+ * 不是线程安全的：修改需要持有 key 的写锁，size、range 只读取，可以在读锁下并发执行。
+ */
+final class QuickList {
+    // list-max-listpack-size 为 -1 到 -5 时每个节点的字节数上限
+    private static final int[] SIZE_LIMITS = {4096, 8192, 16384, 32768, 65536};
+    // 按元素个数限制节点大小时，单个节点仍然不超过这个字节数
+    private static final int SIZE_SAFETY_LIMIT = 8192;
+    private static final int INITIAL_NODE_CAPACITY = 64;
+    // 小于这个大小的节点不压缩，压缩后至少要节省这么多字节才保留压缩结果
+    private static final int MIN_COMPRESS_BYTES = 48;
+    private static final int MIN_COMPRESS_IMPROVE = 8;
+
+    private static final class Node {
+        Node prev;
+        Node next;
+        // 未压缩的内容，压缩后为 null
+        byte[] data;
+        int head;
+        int tail;
+        int count;
+        // 压缩后的内容及压缩前的字节数
+        byte[] compressed;
+        int rawSize;
+
+        boolean isCompressed() {
+            return data == null;
+        }
+
+        int usedBytes() {
+            return isCompressed() ? rawSize : tail - head;
+        }
+
+        int bufferBytes() {
+            return isCompressed() ? compressed.length : data.length;
+        }
+    }
+
+    private final int fill;
+    private final int compressDepth;
+    private Node first;
+    private Node last;
+    private int size = 0;
+    private int nodeCount = 0;
+    // 所有节点缓冲区的总字节数，用于估算内存
+    private long bufferBytes = 0;
+
+    /**
+     * @param fill 为负数（-1 到 -5）时按字节数限制节点大小，为正数时按元素个数限制
+     * @param compressDepth 两端不压缩的节点数，0 表示不压缩
+     */
+    QuickList(int fill, int compressDepth) {
+        this.fill = fill == 0 ? -2 : Math.max(-SIZE_LIMITS.length, fill);
+        this.compressDepth = Math.max(0, compressDepth);
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int nodeCount() {
+        return nodeCount;
+    }
+
+    long bufferBytes() {
+        return bufferBytes;
+    }
+
+    void pushFirst(byte[] value) {
+        int need = entrySize(value.length);
+        Node node = first;
+        boolean created = false;
+        if (node == null || !allowInsert(node, need)) {
+            node = newNode(need, true);
+            node.next = first;
+            if (first != null) {
+                first.prev = node;
+            } else {
+                last = node;
+            }
+            first = node;
+            created = true;
+        }
+        if (node.head < need) {
+            makeRoom(node, need, true);
+        }
+        node.head -= need;
+        writeEntry(node.data, node.head, value);
+        node.count++;
+        size++;
+        if (created) {
+            recompress();
+        }
+    }
+
+    void pushLast(byte[] value) {
+        int need = entrySize(value.length);
+        Node node = last;
+        boolean created = false;
+        if (node == null || !allowInsert(node, need)) {
+            node = newNode(need, false);
+            node.prev = last;
+            if (last != null) {
+                last.next = node;
+            } else {
+                first = node;
+            }
+            last = node;
+            created = true;
+        }
+        if (node.data.length - node.tail < need) {
+            makeRoom(node, need, false);
+        }
+        writeEntry(node.data, node.tail, value);
+        node.tail += need;
+        node.count++;
+        size++;
+        if (created) {
+            recompress();
+        }
+    }
+
+    /**
+     * 弹出第一个元素，列表为空时返回 null。
+     */
+    byte[] popFirst() {
+        Node node = first;
+        if (node == null) {
+            return null;
+        }
+        int len = readVarint(node.data, node.head);
+        int start = node.head + varintSize(len);
+        byte[] value = Arrays.copyOfRange(node.data, start, start + len);
+        node.head = start + len;
+        node.count--;
+        size--;
+        if (node.count == 0) {
+            first = node.next;
+            if (first != null) {
+                first.prev = null;
+            } else {
+                last = null;
+            }
+            nodeCount--;
+            bufferBytes -= node.bufferBytes();
+            recompress();
+        }
+        return value;
+    }
+
+    /**
+     * 取出下标 [start, end] 的元素（调用方已经把下标规范到范围内）。
+     * 在锁内只按节点复制涉及的字节区间，每个节点一次 arraycopy；
+     * 返回的对象在锁外直接把这些区间逐个写成 Bulk String，不为每个元素创建 byte[]。
+     */
+    RespWritable range(int start, int end) {
+        int total = end - start + 1;
+        List<byte[]> slices = new ArrayList<>();
+        Node node = first;
+        int index = 0;
+        while (node != null && index + node.count <= start) {
+            index += node.count;
+            node = node.next;
+        }
+        int remaining = total;
+        int skip = start - index;
+        while (node != null && remaining > 0) {
+            byte[] raw = node.isCompressed() ? inflate(node) : node.data;
+            int from = node.isCompressed() ? 0 : node.head;
+            int pos = from;
+            for (int i = 0; i < skip; i++) {
+                pos = skipEntry(raw, pos);
+            }
+            int sliceStart = pos;
+            int taken = Math.min(remaining, node.count - skip);
+            for (int i = 0; i < taken; i++) {
+                pos = skipEntry(raw, pos);
+            }
+            slices.add(Arrays.copyOfRange(raw, sliceStart, pos));
+            remaining -= taken;
+            skip = 0;
+            node = node.next;
+        }
+        return out -> {
+            out.writeArrayHeader(total);
+            for (byte[] slice : slices) {
+                int pos = 0;
+                while (pos < slice.length) {
+                    int len = readVarint(slice, pos);
+                    pos += varintSize(len);
+                    out.writeBulkString(slice, pos, len);
+                    pos += len;
+                }
+            }
+        };
+    }
+
+    private boolean allowInsert(Node node, int need) {
+        if (node.count == 0) {
+            return true;
+        }
+        int bytes = node.usedBytes() + need;
+        if (fill < 0) {
+            return bytes <= SIZE_LIMITS[-fill - 1];
+        }
+        return node.count < fill && bytes <= SIZE_SAFETY_LIMIT;
+    }
+
+    private Node newNode(int need, boolean atFront) {
+        Node node = new Node();
+        node.data = new byte[Math.max(INITIAL_NODE_CAPACITY, need)];
+        node.head = node.tail = atFront ? node.data.length : 0;
+        nodeCount++;
+        bufferBytes += node.data.length;
+        return node;
+    }
+
+    /**
+     * 在节点的一侧腾出至少 need 字节：总空间够时把已用区间移到另一侧，不够时按倍数扩容。
+     */
+    private void makeRoom(Node node, int need, boolean atFront) {
+        int used = node.tail - node.head;
+        int capacity = node.data.length;
+        if (used + need > capacity) {
+            int limit = fill < 0 ? SIZE_LIMITS[-fill - 1] : SIZE_SAFETY_LIMIT;
+            capacity = Math.max(used + need, Math.min(capacity * 2, limit));
+        }
+        byte[] target = capacity == node.data.length ? node.data : new byte[capacity];
+        int newHead = atFront ? capacity - used : 0;
+        System.arraycopy(node.data, node.head, target, newHead, used);
+        bufferBytes += target.length - node.data.length;
+        node.data = target;
+        node.head = newHead;
+        node.tail = newHead + used;
+    }
+
+    /**
+     * 节点增删之后调用：两端各 compressDepth 个节点保持解压，紧挨着它们的节点压缩。
+     * 更靠中间的节点在经过这个位置时已经压缩过了，所以每次只需要看两端 depth + 1 个节点。
+     */
+    private void recompress() {
+        if (compressDepth == 0) {
+            return;
+        }
+        Node forward = first;
+        Node backward = last;
+        for (int i = 0; i < compressDepth && forward != null; i++) {
+            decompress(forward);
+            decompress(backward);
+            forward = forward.next;
+            backward = backward.prev;
+        }
+        if (nodeCount > 2 * compressDepth) {
+            compress(forward);
+            compress(backward);
+        }
+    }
+
+    private void compress(Node node) {
+        if (node.isCompressed() || node.tail - node.head < MIN_COMPRESS_BYTES) {
+            return;
+        }
+        int used = node.tail - node.head;
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(node.data, node.head, used);
+            deflater.finish();
+            byte[] buffer = new byte[used - MIN_COMPRESS_IMPROVE];
+            int length = deflater.deflate(buffer);
+            if (!deflater.finished()) {
+                return;
+            }
+            bufferBytes += length - node.data.length;
+            node.compressed = Arrays.copyOf(buffer, length);
+            node.rawSize = used;
+            node.data = null;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private void decompress(Node node) {
+        if (!node.isCompressed()) {
+            return;
+        }
+        byte[] raw = inflate(node);
+        bufferBytes += raw.length - node.compressed.length;
+        node.data = raw;
+        node.head = 0;
+        node.tail = raw.length;
+        node.compressed = null;
+    }
+
+    /**
+     * 解压出节点的内容，不修改节点，可以在读锁下调用。
+     */
+    private static byte[] inflate(Node node) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(node.compressed);
+            byte[] raw = new byte[node.rawSize];
+            int length = inflater.inflate(raw);
+            if (length != raw.length) {
+                throw new IllegalStateException("corrupted quicklist node");
+            }
+            return raw;
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("corrupted quicklist node", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static int entrySize(int length) {
+        return varintSize(length) + length;
+    }
+
+    private static void writeEntry(byte[] buf, int pos, byte[] value) {
+        int len = value.length;
+        while (len >= 0x80) {
+            buf[pos++] = (byte) (len | 0x80);
+            len >>>= 7;
+        }
+        buf[pos++] = (byte) len;
+        System.arraycopy(value, 0, buf, pos, value.length);
+    }
+
+    private static int skipEntry(byte[] buf, int pos) {
+        int len = readVarint(buf, pos);
+        return pos + varintSize(len) + len;
+    }
+
+    private static int varintSize(int value) {
+        int size = 1;
+        while (value >= 0x80) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    private static int readVarint(byte[] buf, int pos) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buf[pos++];
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+}
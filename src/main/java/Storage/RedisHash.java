@@ -0,0 +1,202 @@
+package Storage;
+
+import util.GlobUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author Achilles
+ * 哈希 (Hash) 的实现类。
+ * 与 Redis 一样有两种编码：字段少且字段、值都很短时使用紧凑的 HashListpack；
+ * 字段数超过 hash-max-listpack-entries 或写入的字段、值长度超过 hash-max-listpack-value 时，
+ * 一次性转换为 FieldDict 哈希表，之后字段的读写都是 O(1)，不再转换回去。
+ * 不是线程安全的，由所属 key 的段锁保护。
+ */
+public class RedisHash {
+    private final int maxListpackEntries;
+    private final int maxListpackValue;
+
+    // listpack 编码时非 null，转换为哈希表后为 null
+    private HashListpack listpack = new HashListpack();
+
+    // 哈希表编码，listpack 编码时为 null
+    private FieldDict dict;
+
+    // 所有字段和值的字节数之和，用于估算哈希表编码的内存
+    private long dataBytes = 0;
+
+    /**
+     * @param maxListpackEntries listpack 编码的最大字段数
+     * @param maxListpackValue   listpack 编码中字段和值的最大字节数
+     */
+    public RedisHash(int maxListpackEntries, int maxListpackValue) {
+        this.maxListpackEntries = maxListpackEntries;
+        this.maxListpackValue = maxListpackValue;
+    }
+
+    /**
+     * @return OBJECT ENCODING 显示的编码名
+     */
+    public String getEncoding() {
+        return listpack != null ? "listpack" : "hashtable";
+    }
+
+    /**
+     * @return 字段的值，字段不存在时返回 null
+     */
+    public byte[] get(byte[] field) {
+        if (listpack != null) {
+            int pos = listpack.find(field);
+            return pos < 0 ? null : listpack.value(pos);
+        }
+        return dict.get(ByteKey.wrap(field));
+    }
+
+    public boolean containsField(byte[] field) {
+        if (listpack != null) {
+            return listpack.find(field) >= 0;
+        }
+        return dict.get(ByteKey.wrap(field)) != null;
+    }
+
+    /**
+     * 设置字段的值。
+     * @return 新字段返回 1，覆盖已有字段返回 0
+     */
+    public int put(byte[] field, byte[] value) {
+        if (listpack != null) {
+            int pos = listpack.find(field);
+            boolean fits = field.length <= maxListpackValue && value.length <= maxListpackValue
+                    && (pos >= 0 || listpack.size() < maxListpackEntries);
+            if (fits && pos >= 0) {
+                dataBytes += value.length - listpack.value(pos).length;
+                listpack.setValue(pos, value);
+                return 0;
+            }
+            if (fits) {
+                listpack.append(field, value);
+                dataBytes += field.length + value.length;
+                return 1;
+            }
+            convertToDict();
+        }
+        byte[] old = dict.put(ByteKey.wrap(field), value);
+        if (old != null) {
+            dataBytes += value.length - old.length;
+            return 0;
+        }
+        dataBytes += field.length + value.length;
+        return 1;
+    }
+
+    /**
+     * 删除一个字段。
+     * @return 字段存在并被删除时返回 1，否则返回 0
+     */
+    public int remove(byte[] field) {
+        byte[] old;
+        if (listpack != null) {
+            int pos = listpack.find(field);
+            if (pos < 0) {
+                return 0;
+            }
+            old = listpack.value(pos);
+            listpack.delete(pos);
+        } else {
+            old = dict.remove(ByteKey.wrap(field));
+            if (old == null) {
+                return 0;
+            }
+        }
+        dataBytes -= field.length + old.length;
+        return 1;
+    }
+
+    public int size() {
+        return listpack != null ? listpack.size() : dict.size();
+    }
+
+    /**
+     * @return [field1, value1, field2, value2, ...]
+     */
+    public List<byte[]> getAll() {
+        List<byte[]> result = new ArrayList<>(size() * 2);
+        if (listpack != null) {
+            for (int pos = listpack.first(); pos < listpack.end(); pos = listpack.next(pos)) {
+                result.add(listpack.field(pos));
+                result.add(listpack.value(pos));
+            }
+        } else {
+            dict.forEach((field, value) -> {
+                result.add(field.getBytes());
+                result.add(value);
+            });
+        }
+        return result;
+    }
+
+    /**
+     * HSCAN 的一次迭代，与 Redis 相同：listpack 编码一次返回全部字段，游标直接归 0；
+     * 哈希表编码从游标开始逐个桶遍历，凑够 count 个字段或遍历了 count * 10 个桶为止。
+     *
+     * @param pattern  MATCH 的 glob 模式，null 表示不过滤
+     * @param noValues 为 true 时只返回字段名
+     * @param out      结果追加到这个列表中
+     * @return 下一次调用的游标，0 表示遍历结束
+     */
+    public int scan(int cursor, int count, byte[] pattern, boolean noValues, List<byte[]> out) {
+        if (listpack != null) {
+            for (int pos = listpack.first(); pos < listpack.end(); pos = listpack.next(pos)) {
+                byte[] field = listpack.field(pos);
+                if (pattern == null || GlobUtil.matches(pattern, field)) {
+                    out.add(field);
+                    if (!noValues) {
+                        out.add(listpack.value(pos));
+                    }
+                }
+            }
+            return 0;
+        }
+        int itemsPerField = noValues ? 1 : 2;
+        long maxIterations = count * 10L;
+        do {
+            cursor = dict.scan(cursor, (field, value) -> {
+                if (pattern == null || GlobUtil.matches(pattern, field.getBytes())) {
+                    out.add(field.getBytes());
+                    if (!noValues) {
+                        out.add(value);
+                    }
+                }
+            });
+        } while (cursor != 0 && --maxIterations > 0 && out.size() < (long) count * itemsPerField);
+        return cursor;
+    }
+
+    /**
+     * 把 listpack 中的所有字段按顺序放入新建的哈希表。
+     */
+    private void convertToDict() {
+        dict = new FieldDict();
+        for (int pos = listpack.first(); pos < listpack.end(); pos = listpack.next(pos)) {
+            dict.put(ByteKey.wrap(listpack.field(pos)), listpack.value(pos));
+        }
+        listpack = null;
+    }
+
+    boolean isListpack() {
+        return listpack != null;
+    }
+
+    int listpackBytes() {
+        return listpack.bufferBytes();
+    }
+
+    int tableCapacity() {
+        return dict.capacity();
+    }
+
+    long dataBytes() {
+        return dataBytes;
+    }
+}
@@ -2,148 +2,123 @@
 
 package Storage;
 
+import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.concurrent.ConcurrentSkipListMap;
-import java.util.stream.Collectors;
 
 /**
  * @author Achilles
  * 有序集合 (Sorted Set) 的实现类。
- * 结合了 ConcurrentSkipListMap (按分数排序) 和 HashMap (快速访问成员)，
- * 以实现高效的 ZADD, ZRANGE 等操作。
+ * 与 Redis 一样有两种编码：
+ * 成员少且都很短时使用紧凑的 ZListpack，所有成员连续存放在一个 byte[] 中；
+ * 成员数超过 zset-max-listpack-entries 或加入的成员长度超过 zset-max-listpack-value 时，
+ * 一次性转换为带跨度的跳表 ZSkipList (按分数排序、按排名查找) 加哈希表 (按成员查找)，之后不再转换回去。
+ * 跳表编码下 ZRANK 和按排名的 ZRANGE 都是 O(log n) 定位，不需要遍历或复制整个集合。
+ * 不是线程安全的，由所属 key 的段锁保护。
  */
 public class RedisSortedSet {
+    private final int maxListpackEntries;
+    private final int maxListpackValue;
 
-    // 用于按分数排序存储条目。Key 是一个包含分数和成员的对象，Value 是成员的 byte[] 形式。
-    // ConcurrentSkipListMap 是一个线程安全的、有序的 Map，非常适合实现有序集合。
-    private final ConcurrentSkipListMap<SortedSetEntry, byte[]> sortedEntries = new ConcurrentSkipListMap<>();
+    // listpack 编码时非 null，转换为跳表后为 null
+    private ZListpack listpack = new ZListpack();
 
-    // 用于快速检查成员是否存在，并获取其分数。Key 是成员的 String 形式，Value 是分数。
-    private final Map<String, Double> memberScores = new HashMap<>();
+    // 按 (分数, 成员) 排序的跳表，listpack 编码时为 null
+    private ZSkipList zsl;
 
-    /**
-     * 向有序集合中添加或更新一个成员。
-     *
-     * @param score  成员的分数
-     * @param member 成员的字节数组
-     * @return 如果是新添加的成员，返回 1；如果是更新现有成员的分数，返回 0。
-     */
-    public synchronized int add(double score, byte[] member) {
-        String memberStr = new String(member);
-
-        // 使用一个局部变量来记录这是否是一个新成员，以避免逻辑错误。
-        boolean isNewMember = !memberScores.containsKey(memberStr);
+    // 成员到跳表节点的映射，节点中保存了分数，按成员查分数、定位节点都是 O(1)
+    private Map<ByteKey, ZSkipList.Node> dict;
 
-        // 如果成员已存在，需要先从 sortedEntries 中移除旧的条目
-        if (!isNewMember) {
-            double oldScore = memberScores.get(memberStr);
-            // 为了比较，我们需要创建一个临时的旧条目对象
-            // 注意：这里的 member 是旧的 member byte[]，但因为 String(member) 相同，所以 hashCode 和 equals 也能匹配
-            sortedEntries.remove(new SortedSetEntry(oldScore, member));
-        }
+    // 所有成员的字节数之和，用于估算跳表编码的内存
+    private long memberBytes = 0;
 
-        // 添加/更新分数映射
-        memberScores.put(memberStr, score);
-        // 添加/更新排序映射
-        sortedEntries.put(new SortedSetEntry(score, member), member);
-
-        // 根据我们最初的判断返回结果
-        return isNewMember ? 1 : 0;
+    /**
+     * @param maxListpackEntries listpack 编码的最大成员数
+     * @param maxListpackValue   listpack 编码中单个成员的最大字节数
+     */
+    public RedisSortedSet(int maxListpackEntries, int maxListpackValue) {
+        this.maxListpackEntries = maxListpackEntries;
+        this.maxListpackValue = maxListpackValue;
     }
 
     /**
-     * 一个内部类，代表有序集合中的一个条目。
-     * 它实现了 Comparable 接口，以便 ConcurrentSkipListMap 可以根据它进行排序。
-     * 主要排序依据是 score，次要排序依据是 member (按字典序)。
+     * @return OBJECT ENCODING 显示的编码名
      */
-    private static class SortedSetEntry implements Comparable<SortedSetEntry> {
-        final double score;
-        final byte[] member;
-
-        SortedSetEntry(double score, byte[] member) {
-            this.score = score;
-            this.member = member;
-        }
-        public byte[] getMember() {
-            return member;
-        }
-
-        @Override
-        public int compareTo(SortedSetEntry other) {
-            // 首先比较分数
-            int scoreCompare = Double.compare(this.score, other.score);
-            if (scoreCompare != 0) {
-                return scoreCompare;
-            }
-            // 如果分数相同，则比较成员的字典序
-            return new String(this.member).compareTo(new String(other.member));
-        }
+    public String getEncoding() {
+        return listpack != null ? "listpack" : "skiplist";
+    }
 
-        @Override
-        public boolean equals(Object o) {
-            if (this == o) {
-                return true;
+    /**
+     * 向有序集合中添加或更新一个成员。
+     *
+     * @param score  成员的分数
+     * @param member 成员的字节数组
+     * @return 如果是新添加的成员，返回 1；如果是更新现有成员的分数，返回 0。
+     */
+    public int add(double score, byte[] member) {
+        if (listpack != null) {
+            int pos = listpack.find(member);
+            if (pos >= 0) {
+                if (listpack.score(pos) != score) {
+                    listpack.delete(pos);
+                    listpack.insert(score, member);
+                }
+                return 0;
             }
-            if (o == null || getClass() != o.getClass()) {
-                return false;
+            if (listpack.size() < maxListpackEntries && member.length <= maxListpackValue) {
+                listpack.insert(score, member);
+                memberBytes += member.length;
+                return 1;
             }
-            SortedSetEntry that = (SortedSetEntry) o;
-            // 只要成员相同，就认为是同一个条目 (用于 remove 操作)
-            return new String(this.member).equals(new String(that.member));
+            convertToSkipList();
         }
-
-        @Override
-        public int hashCode() {
-            // 只要成员相同，就认为是同一个条目 (用于 remove 操作)
-            return Objects.hash(new String(this.member));
+        ByteKey memberKey = ByteKey.wrap(member);
+        ZSkipList.Node node = dict.get(memberKey);
+        if (node == null) {
+            dict.put(memberKey, zsl.insert(score, memberKey));
+            memberBytes += member.length;
+            return 1;
         }
-
+        if (node.score != score) {
+            // 分数变化后节点可能被重新插入，映射要指向新节点
+            dict.put(node.member, zsl.updateScore(node.score, node.member, score));
+        }
+        return 0;
     }
 
     /**
-     * ===> 新增方法 <===
      * 获取指定成员的排名 (从 0 开始的索引)。
      *
      * @param member 要查询的成员
      * @return 成员的排名。如果成员不存在，返回 -1。
      */
-    public synchronized int getRank(byte[] member) {
-        String memberStr = new String(member);
-        // 1. 检查成员是否存在
-        if (!memberScores.containsKey(memberStr)) {
-            return -1; // -1 表示成员不存在
-        }
-
-        // 2. 获取成员的分数
-        double score = memberScores.get(memberStr);
-
-        // 3. 构造用于查找的目标条目
-        SortedSetEntry targetEntry = new SortedSetEntry(score, member);
-
-        // 4. 遍历有序的 Map 来找到索引
-        // 这是一个简单但有效的 O(n) 实现
-        int rank = 0;
-        for (SortedSetEntry entry : sortedEntries.keySet()) {
-            if (entry.equals(targetEntry)) {
-                return rank;
+    public int getRank(byte[] member) {
+        if (listpack != null) {
+            int rank = 0;
+            for (int pos = listpack.first(); pos < listpack.end(); pos = listpack.next(pos)) {
+                if (listpack.compareMember(pos, member) == 0) {
+                    return rank;
+                }
+                rank++;
             }
-            rank++;
+            return -1;
         }
-
-        return -1; // 理论上不应该到达这里，但作为保护
+        ZSkipList.Node node = dict.get(ByteKey.wrap(member));
+        if (node == null) {
+            return -1; // -1 表示成员不存在
+        }
+        return zsl.getRank(node.score, node.member) - 1;
     }
 
     /**
-     * ===> 新增方法 <===
      * 获取指定排名范围内的所有成员。
+     * 先按排名定位到起点（O(log n)），再沿最底层向后取 stop - start + 1 个。
      *
      * @param start 起始排名 (包含)
      * @param stop  结束排名 (包含)
      * @return 包含指定范围内所有成员的列表。
      */
-    public synchronized List<byte[]> getRange(int start, int stop) {
-        List<SortedSetEntry> entryList = new ArrayList<>(sortedEntries.keySet());
-        int size = entryList.size();
+    public List<byte[]> getRange(int start, int stop) {
+        int size = size();
 
         if (start < 0) {
             start = size+start;
@@ -162,45 +137,410 @@ public class RedisSortedSet {
             return new ArrayList<>();
         }
 
-        return entryList.subList(start, stop + 1) // subList 的第二个参数是 exclusive，所以要 +1
-                .stream()
-                .map(SortedSetEntry::getMember)
-                .collect(Collectors.toList());
+        List<byte[]> members = new ArrayList<>(stop - start + 1);
+        if (listpack != null) {
+            int pos = listpack.first();
+            for (int i = 0; i < start; i++) {
+                pos = listpack.next(pos);
+            }
+            for (int i = start; i <= stop; i++) {
+                members.add(listpack.member(pos));
+                pos = listpack.next(pos);
+            }
+            return members;
+        }
+        ZSkipList.Node node = zsl.getByRank(start + 1);
+        for (int i = start; i <= stop; i++) {
+            members.add(node.member.getBytes());
+            node = node.next();
+        }
+        return members;
+    }
+    /**
+     * 按分数区间取成员（ZRANGEBYSCORE / ZREVRANGEBYSCORE）。
+     * 先在跳表中定位区间的一端（O(log n)），有 offset 时按排名直接跳过去，之后只遍历返回的部分。
+     *
+     * @param reverse    为 true 时从区间的最大一端向前取
+     * @param offset     跳过的成员数，负数时结果为空
+     * @param count      最多返回的成员数，负数表示不限
+     * @param withScores 为 true 时在每个成员后面跟上它的分数
+     */
+    public List<byte[]> rangeByScore(ScoreRange range, boolean reverse, int offset, int count, boolean withScores) {
+        return range(range, reverse, offset, count, withScores);
+    }
+
+    /**
+     * 按字典序区间取成员（ZRANGEBYLEX），只在所有成员分数相同时有意义，与 Redis 相同。
+     */
+    public List<byte[]> rangeByLex(LexRange range, int offset, int count) {
+        return range(range, false, offset, count, false);
+    }
+
+    /**
+     * 分数区间内的成员数量（ZCOUNT）：两次定位区间两端，再用两端的排名相减，不遍历区间。
+     */
+    public long count(ScoreRange range) {
+        if (listpack != null) {
+            long count = 0;
+            for (int pos = listpack.first(); pos < listpack.end(); pos = listpack.next(pos)) {
+                double score = listpack.score(pos);
+                if (!range.lteMax(score, null)) {
+                    break;
+                }
+                if (range.gteMin(score, null)) {
+                    count++;
+                }
+            }
+            return count;
+        }
+        ZSkipList.Node first = zsl.firstInRange(range);
+        if (first == null) {
+            return 0;
+        }
+        ZSkipList.Node last = zsl.lastInRange(range);
+        return zsl.getRank(last.score, last.member) - zsl.getRank(first.score, first.member) + 1;
     }
+
+    /**
+     * 删除分数区间内的所有成员（ZREMRANGEBYSCORE）。
+     * @return 被删除的成员
+     */
+    public List<byte[]> removeRangeByScore(ScoreRange range) {
+        List<byte[]> removed = new ArrayList<>();
+        if (listpack != null) {
+            int pos = listpack.first();
+            while (pos < listpack.end()) {
+                double score = listpack.score(pos);
+                if (!range.gteMin(score, null)) {
+                    pos = listpack.next(pos);
+                    continue;
+                }
+                if (!range.lteMax(score, null)) {
+                    break;
+                }
+                // 删除后后面的条目前移，pos 已经指向下一个条目
+                removed.add(listpack.member(pos));
+                listpack.delete(pos);
+            }
+            releaseMembers(removed);
+            return removed;
+        }
+        zsl.deleteRange(range, node -> {
+            dict.remove(node.member);
+            removed.add(node.member.getBytes());
+        });
+        releaseMembers(removed);
+        return removed;
+    }
+
+    /**
+     * 删除排名在 [start, stop] 内的所有成员（ZREMRANGEBYRANK），下标规则与 getRange 相同。
+     * @return 被删除的成员
+     */
+    public List<byte[]> removeRangeByRank(int start, int stop) {
+        int size = size();
+        if (start < 0) {
+            start = size + start;
+        }
+        if (stop < 0) {
+            stop = size + stop;
+        }
+        if (start < 0) {
+            start = 0;
+        }
+        if (stop >= size) {
+            stop = size - 1;
+        }
+        List<byte[]> removed = new ArrayList<>();
+        if (start >= size || start > stop) {
+            return removed;
+        }
+        if (listpack != null) {
+            int pos = listpack.first();
+            for (int i = 0; i < start; i++) {
+                pos = listpack.next(pos);
+            }
+            for (int i = start; i <= stop; i++) {
+                removed.add(listpack.member(pos));
+                listpack.delete(pos);
+            }
+        } else {
+            zsl.deleteRangeByRank(start + 1, stop + 1, node -> {
+                dict.remove(node.member);
+                removed.add(node.member.getBytes());
+            });
+        }
+        releaseMembers(removed);
+        return removed;
+    }
+
+    private List<byte[]> range(ZSkipList.Range range, boolean reverse, int offset, int count, boolean withScores) {
+        List<byte[]> members = new ArrayList<>();
+        if (offset < 0 || count == 0) {
+            return members;
+        }
+        if (listpack != null) {
+            return listpackRange(range, reverse, offset, count, withScores);
+        }
+        ZSkipList.Node node = reverse ? zsl.lastInRange(range) : zsl.firstInRange(range);
+        if (node != null && offset > 0) {
+            // 按排名直接跳到第 offset 个，不逐个遍历被跳过的成员
+            int rank = zsl.getRank(node.score, node.member) + (reverse ? -offset : offset);
+            node = rank >= 1 ? zsl.getByRank(rank) : null;
+        }
+        while (node != null && count != 0) {
+            boolean inRange = reverse ? range.gteMin(node.score, node.member) : range.lteMax(node.score, node.member);
+            if (!inRange) {
+                break;
+            }
+            members.add(node.member.getBytes());
+            if (withScores) {
+                members.add(String.valueOf(node.score).getBytes(StandardCharsets.UTF_8));
+            }
+            node = reverse ? node.prev() : node.next();
+            count--;
+        }
+        return members;
+    }
+
+    /**
+     * listpack 编码下的区间查询：成员很少，先顺序收集区间内条目的位置，再按方向、offset、count 截取。
+     */
+    private List<byte[]> listpackRange(ZSkipList.Range range, boolean reverse, int offset, int count, boolean withScores) {
+        int[] positions = new int[listpack.size()];
+        int matched = 0;
+        for (int pos = listpack.first(); pos < listpack.end(); pos = listpack.next(pos)) {
+            double score = listpack.score(pos);
+            // 只有字典序区间需要比较成员，分数区间不为每个条目创建 ByteKey
+            ByteKey member = range instanceof LexRange ? ByteKey.wrap(listpack.member(pos)) : null;
+            if (!range.lteMax(score, member)) {
+                break;
+            }
+            if (range.gteMin(score, member)) {
+                positions[matched++] = pos;
+            }
+        }
+        List<byte[]> members = new ArrayList<>();
+        for (int i = offset; i < matched && count != 0; i++, count--) {
+            int pos = positions[reverse ? matched - 1 - i : i];
+            members.add(listpack.member(pos));
+            if (withScores) {
+                members.add(String.valueOf(listpack.score(pos)).getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        return members;
+    }
+
+    /**
+     * 把 listpack 中的所有成员按顺序插入新建的跳表和哈希表。
+     */
+    private void convertToSkipList() {
+        zsl = new ZSkipList();
+        dict = new HashMap<>();
+        for (int pos = listpack.first(); pos < listpack.end(); pos = listpack.next(pos)) {
+            ByteKey member = ByteKey.wrap(listpack.member(pos));
+            dict.put(member, zsl.insert(listpack.score(pos), member));
+        }
+        listpack = null;
+    }
+
+    private void releaseMembers(List<byte[]> removed) {
+        for (byte[] member : removed) {
+            memberBytes -= member.length;
+        }
+    }
+
+    boolean isListpack() {
+        return listpack != null;
+    }
+
+    int listpackBytes() {
+        return listpack.bufferBytes();
+    }
+
+    long memberBytes() {
+        return memberBytes;
+    }
+
     /**
      *获取有序集合中的成员数量。
      *@return 集合的大小
      */
-    public synchronized int size() {
-        return memberScores.size();
+    public int size() {
+        return listpack != null ? listpack.size() : dict.size();
     }
     /**
      * 获取有序集合中的指定成员的分数。
      * @param member 要查询的成员
      * @return 成员的分数，如果成员不存在，返回 null。
      */
-    public synchronized Double getScore(byte[] member) {
-        String memberStr = new String(member);
-        return memberScores.get(memberStr);
+    public Double getScore(byte[] member) {
+        if (listpack != null) {
+            int pos = listpack.find(member);
+            return pos < 0 ? null : listpack.score(pos);
+        }
+        ZSkipList.Node node = dict.get(ByteKey.wrap(member));
+        return node == null ? null : node.score;
     }
     /**
      * 从有序集合中移除一个成员
      * @param member 要移除的成员
      * @return 如果成功移除了一个成员，则返回 1；如果成员不存在，返回 0。
      */
-    public synchronized int remove(byte[] member) {
-        String memberStr = new String(member);
-
-        if(!memberScores.containsKey(memberStr)){
+    public int remove(byte[] member) {
+        if (listpack != null) {
+            int pos = listpack.find(member);
+            if (pos < 0) {
+                return 0;
+            }
+            listpack.delete(pos);
+            memberBytes -= member.length;
+            return 1;
+        }
+        ZSkipList.Node node = dict.remove(ByteKey.wrap(member));
+        if (node == null) {
             return 0;
         }
+        zsl.delete(node.score, node.member);
+        memberBytes -= member.length;
+        return 1;
+    }
 
-        double score = memberScores.get(memberStr);
+    /**
+     * 解析 ZADD 的分数和 ZRANGEBYSCORE 等命令的分数边界：接受 inf / +inf / -inf（不区分大小写），不接受 NaN。
+     * @throws NumberFormatException 不是合法的分数
+     */
+    public static double parseScore(byte[] b) {
+        String text = new String(b, StandardCharsets.US_ASCII);
+        if (text.equalsIgnoreCase("inf") || text.equalsIgnoreCase("+inf")) {
+            return Double.POSITIVE_INFINITY;
+        }
+        if (text.equalsIgnoreCase("-inf")) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        double value = ValueEntry.parseDouble(b);
+        if (Double.isNaN(value)) {
+            throw new NumberFormatException(text);
+        }
+        return value;
+    }
 
-        memberScores.remove(memberStr);
-        sortedEntries.remove(new SortedSetEntry(score, member));
-        return 1;
+    /**
+     * 分数区间，对应命令中的 min、max 参数：以 "(" 开头表示不包含该端点，支持 -inf、+inf。
+     */
+    public static final class ScoreRange implements ZSkipList.Range {
+        private final double min;
+        private final double max;
+        private final boolean minExclusive;
+        private final boolean maxExclusive;
+
+        private ScoreRange(double min, boolean minExclusive, double max, boolean maxExclusive) {
+            this.min = min;
+            this.max = max;
+            this.minExclusive = minExclusive;
+            this.maxExclusive = maxExclusive;
+        }
+
+        /**
+         * @throws Exception min 或 max 不是合法的分数
+         */
+        public static ScoreRange parse(byte[] min, byte[] max) throws Exception {
+            boolean minExclusive = min.length > 0 && min[0] == '(';
+            boolean maxExclusive = max.length > 0 && max[0] == '(';
+            return new ScoreRange(parseBound(min, minExclusive), minExclusive, parseBound(max, maxExclusive), maxExclusive);
+        }
+
+        private static double parseBound(byte[] bound, boolean exclusive) throws Exception {
+            try {
+                return parseScore(exclusive ? Arrays.copyOfRange(bound, 1, bound.length) : bound);
+            } catch (NumberFormatException e) {
+                throw new Exception("min or max is not a float");
+            }
+        }
+
+        @Override
+        public boolean gteMin(double score, ByteKey member) {
+            return minExclusive ? score > min : score >= min;
+        }
+
+        @Override
+        public boolean lteMax(double score, ByteKey member) {
+            return maxExclusive ? score < max : score <= max;
+        }
     }
-}
 
+    /**
+     * 字典序区间，对应 ZRANGEBYLEX 的 min、max 参数：
+     * "[" 开头包含端点，"(" 开头不包含端点，"-" 和 "+" 分别表示负无穷和正无穷。
+     */
+    public static final class LexRange implements ZSkipList.Range {
+        // 为 null 时表示这一端是无穷
+        private final ByteKey min;
+        private final ByteKey max;
+        private final boolean minExclusive;
+        private final boolean maxExclusive;
+        // 下界为 "+" 或上界为 "-" 时区间必然为空
+        private final boolean empty;
 
+        private LexRange(ByteKey min, boolean minExclusive, ByteKey max, boolean maxExclusive, boolean empty) {
+            this.min = min;
+            this.max = max;
+            this.minExclusive = minExclusive;
+            this.maxExclusive = maxExclusive;
+            this.empty = empty;
+        }
+
+        /**
+         * @throws Exception min 或 max 不是合法的区间端点
+         */
+        public static LexRange parse(byte[] min, byte[] max) throws Exception {
+            checkBound(min);
+            checkBound(max);
+            boolean empty = isSymbol(min, '+') || isSymbol(max, '-');
+            return new LexRange(boundValue(min), min[0] == '(', boundValue(max), max[0] == '(', empty);
+        }
+
+        private static void checkBound(byte[] bound) throws Exception {
+            boolean valid = bound.length > 0
+                    && (bound[0] == '[' || bound[0] == '(' || isSymbol(bound, '-') || isSymbol(bound, '+'));
+            if (!valid) {
+                throw new Exception("min or max not valid string range item");
+            }
+        }
+
+        private static boolean isSymbol(byte[] bound, char symbol) {
+            return bound.length == 1 && bound[0] == symbol;
+        }
+
+        private static ByteKey boundValue(byte[] bound) {
+            if (bound[0] != '[' && bound[0] != '(') {
+                return null;
+            }
+            return ByteKey.wrap(Arrays.copyOfRange(bound, 1, bound.length));
+        }
+
+        @Override
+        public boolean gteMin(double score, ByteKey member) {
+            if (empty) {
+                return false;
+            }
+            if (min == null) {
+                return true;
+            }
+            int cmp = member.compareTo(min);
+            return minExclusive ? cmp > 0 : cmp >= 0;
+        }
+
+        @Override
+        public boolean lteMax(double score, ByteKey member) {
+            if (empty) {
+                return false;
+            }
+            if (max == null) {
+                return true;
+            }
+            int cmp = member.compareTo(max);
+            return maxExclusive ? cmp < 0 : cmp <= 0;
+        }
+    }
+}
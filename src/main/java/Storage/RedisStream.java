@@ -12,7 +12,7 @@ public class RedisStream {
     private final List<StreamEntry> entries=new ArrayList<>();
 
     //添加新条目到Stream
-    public StreamEntryID add(StreamEntryID id, Map<String, byte[]> fields) throws Exception {
+    public StreamEntryID add(StreamEntryID id, Map<ByteKey, byte[]> fields) throws Exception {
         // 验证 1：ID 不能是 0-0
         if (id.timestamp == 0 && id.sequence == 0) {
             throw new Exception("The ID specified in XADD must be greater than 0-0");
@@ -8,9 +8,9 @@ import java.util.Map;
  */
 public class StreamEntry {
     public final StreamEntryID id;
-    public final Map<String,byte[]> fields;
+    public final Map<ByteKey, byte[]> fields;
 
-    public StreamEntry(StreamEntryID id, Map<String, byte[]> fields) {
+    public StreamEntry(StreamEntryID id, Map<ByteKey, byte[]> fields) {
         this.id = id;
         this.fields = fields;
     }
@@ -0,0 +1,112 @@
+package Storage;
+
+import java.util.Collection;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * @author Achilles
+ * 按 key 的哈希值分段的读写锁。不同段上的 key 可以并行读写，同一段内读操作可以并行。
+ * 需要同时锁住多个 key 时（BLPOP、XREAD、MULTI/EXEC），按段号从小到大加锁，避免死锁。
+ * 锁是可重入的：持有写锁时可以再获取同一段的读锁或写锁，但持有读锁时不能再获取写锁。
+ */
+public class StripedLock {
+    private static final int DEFAULT_STRIPES = 256;
+
+    private final ReentrantReadWriteLock[] stripes;
+    private final int mask;
+
+    public StripedLock() {
+        this(DEFAULT_STRIPES);
+    }
+
+    /**
+     * @param stripeCount 段数，会向上取整为 2 的幂
+     */
+    public StripedLock(int stripeCount) {
+        int size = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+        this.stripes = new ReentrantReadWriteLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantReadWriteLock();
+        }
+        this.mask = size - 1;
+    }
+
+    public int stripeCount() {
+        return stripes.length;
+    }
+
+    public int stripeOf(ByteKey key) {
+        int h = key.hashCode();
+        // 与 HashMap 一样把高位混入低位
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    public ReentrantReadWriteLock.ReadLock readLock(ByteKey key) {
+        return stripes[stripeOf(key)].readLock();
+    }
+
+    public ReentrantReadWriteLock.WriteLock writeLock(ByteKey key) {
+        return stripes[stripeOf(key)].writeLock();
+    }
+
+    public ReentrantReadWriteLock.ReadLock readLockAt(int stripe) {
+        return stripes[stripe].readLock();
+    }
+
+    /**
+     * 计算一组 key 涉及的段，去重后按升序排列。
+     * @param keys 为 null 时表示所有段
+     */
+    public int[] stripesOf(Collection<ByteKey> keys) {
+        if (keys == null) {
+            int[] all = new int[stripes.length];
+            for (int i = 0; i < all.length; i++) {
+                all[i] = i;
+            }
+            return all;
+        }
+        boolean[] used = new boolean[stripes.length];
+        int count = 0;
+        for (ByteKey key : keys) {
+            int stripe = stripeOf(key);
+            if (!used[stripe]) {
+                used[stripe] = true;
+                count++;
+            }
+        }
+        int[] result = new int[count];
+        int index = 0;
+        for (int i = 0; i < used.length && index < count; i++) {
+            if (used[i]) {
+                result[index++] = i;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 按升序锁住给定的段。
+     */
+    public void lockAll(int[] stripeIndexes, boolean write) {
+        for (int stripe : stripeIndexes) {
+            if (write) {
+                stripes[stripe].writeLock().lock();
+            } else {
+                stripes[stripe].readLock().lock();
+            }
+        }
+    }
+
+    /**
+     * 按降序释放 lockAll 锁住的段。
+     */
+    public void unlockAll(int[] stripeIndexes, boolean write) {
+        for (int i = stripeIndexes.length - 1; i >= 0; i--) {
+            if (write) {
+                stripes[stripeIndexes[i]].writeLock().unlock();
+            } else {
+                stripes[stripeIndexes[i]].readLock().unlock();
+            }
+        }
+    }
+}
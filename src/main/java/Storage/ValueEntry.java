@@ -1,19 +1,81 @@
 package Storage;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
 /**
  * @author Achilles
  * 数据模型：字符串
+ * 与 Redis 的 OBJ_ENCODING_INT 一样，内容是规范形式整数的字符串直接以 long 保存，
+ * INCR 一类命令不需要反复解析和格式化；0 到 9999 之间且不带过期时间的整数共用同一组对象。
+ * 对象不可变，修改值或过期时间都会替换成新的 ValueEntry。
  */
 public class ValueEntry {
-    public final byte[] value;
+    private static final int SHARED_INTEGERS = 10000;
+    private static final ValueEntry[] SHARED = new ValueEntry[SHARED_INTEGERS];
+
+    // long 的最大位数及其最大值、最小值（去掉负号）的十进制表示，用于不抛异常地判断溢出
+    private static final int LONG_MAX_DIGITS = 19;
+    private static final byte[] LONG_MAX = "9223372036854775807".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] LONG_MIN = "9223372036854775808".getBytes(StandardCharsets.US_ASCII);
+
+    static {
+        for (int i = 0; i < SHARED_INTEGERS; i++) {
+            SHARED[i] = new ValueEntry(null, i, -1);
+        }
+    }
+
+    // 整数编码时为 null，值保存在 longValue 中
+    private final byte[] value;
+    private final long longValue;
     final long expiryTimestamp; // 过期的绝对时间点 (毫秒)
 
     // expiryTimestamp = -1 表示永不过期
     public ValueEntry(byte[] value, long expiryTimestamp) {
+        this(value, 0, expiryTimestamp);
+    }
+
+    private ValueEntry(byte[] value, long longValue, long expiryTimestamp) {
         this.value = value;
+        this.longValue = longValue;
         this.expiryTimestamp = expiryTimestamp;
     }
 
+    /**
+     * 按内容选择编码：规范形式的整数（例如 "123"、"-5"，不含 "007"、"+1"）以 long 保存，其余原样保存。
+     */
+    public static ValueEntry of(byte[] value, long expiryTimestamp) {
+        if (isCanonicalLong(value)) {
+            return ofLong(parseCanonicalLong(value), expiryTimestamp);
+        }
+        return new ValueEntry(value, expiryTimestamp);
+    }
+
+    public static ValueEntry ofLong(long value, long expiryTimestamp) {
+        if (expiryTimestamp == -1 && value >= 0 && value < SHARED_INTEGERS) {
+            return SHARED[(int) value];
+        }
+        return new ValueEntry(null, value, expiryTimestamp);
+    }
+
+    public boolean isInteger() {
+        return value == null;
+    }
+
+    /**
+     * 整数编码时的值，调用前需确认 isInteger。
+     */
+    public long getLong() {
+        return longValue;
+    }
+
+    /**
+     * 字符串内容；整数编码时每次调用都会格式化出一个新数组。
+     */
+    public byte[] getBytes() {
+        return value != null ? value : Long.toString(longValue).getBytes(StandardCharsets.US_ASCII);
+    }
+
     /**
      * 检查这个条目是否已经过期。
      * @return 如果已过期则返回 true，否则返回 false。
@@ -24,4 +86,58 @@ public class ValueEntry {
         }
         return System.currentTimeMillis() > expiryTimestamp;
     }
+
+    /**
+     * 与 Redis 的 string2ll 规则相同：可选的负号，后面是不以 0 开头的数字（"0" 本身除外），
+     * 不允许空白和正号，且不超出 long 的范围。
+     */
+    static boolean isCanonicalLong(byte[] b) {
+        int start = (b.length > 0 && b[0] == '-') ? 1 : 0;
+        int digits = b.length - start;
+        if (digits == 0 || digits > LONG_MAX_DIGITS) {
+            return false;
+        }
+        if (b[start] == '0') {
+            return digits == 1 && start == 0;
+        }
+        for (int i = start; i < b.length; i++) {
+            if (b[i] < '0' || b[i] > '9') {
+                return false;
+            }
+        }
+        if (digits < LONG_MAX_DIGITS) {
+            return true;
+        }
+        byte[] limit = start == 1 ? LONG_MIN : LONG_MAX;
+        return Arrays.compare(b, start, b.length, limit, 0, LONG_MAX_DIGITS) <= 0;
+    }
+
+    /**
+     * 解析 INCRBYFLOAT 的操作数：不允许首尾空白和 Java 特有的 d/f 后缀、十六进制形式，也不接受 NaN 和 Infinity。
+     * @throws NumberFormatException 不是合法的浮点数
+     */
+    public static double parseDouble(byte[] b) {
+        if (b.length == 0) {
+            throw new NumberFormatException("empty string");
+        }
+        for (byte c : b) {
+            boolean allowed = (c >= '0' && c <= '9') || c == '.' || c == '-' || c == '+' || c == 'e' || c == 'E';
+            if (!allowed) {
+                throw new NumberFormatException(new String(b, StandardCharsets.US_ASCII));
+            }
+        }
+        return Double.parseDouble(new String(b, StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * 解析已经通过 isCanonicalLong 检查的字符串。按负数累加，long 的最小值也不会溢出。
+     */
+    static long parseCanonicalLong(byte[] b) {
+        boolean negative = b[0] == '-';
+        long result = 0;
+        for (int i = negative ? 1 : 0; i < b.length; i++) {
+            result = result * 10 - (b[i] - '0');
+        }
+        return negative ? result : -result;
+    }
 }
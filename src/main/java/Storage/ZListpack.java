@@ -0,0 +1,147 @@
+package Storage;
+
+import java.util.Arrays;
+
+/**
+ * @author Achilles
+ * 小有序集合的 listpack 编码，仿照 Redis 的 zset listpack：所有成员按 (score, member) 顺序
+ * 连续存放在一个 byte[] 中，每个条目是“8 字节分数 + 变长长度 + 成员内容”。
+ * 相比跳表加哈希表，省去了每个成员的节点对象、forward/span 数组、ByteKey 和哈希表条目，
+ * 代价是查找、插入、删除都是 O(n) 的线性扫描和数组移动，所以只用于成员数和成员长度都很小的集合，
+ * 超过 zset-max-listpack-entries / zset-max-listpack-value 后由 RedisSortedSet 转换为跳表。
+ * 条目用它在数组中的起始位置 pos 表示，first() 到 end() 之间依次用 next(pos) 遍历。
+ * 不是线程安全的，由所属 key 的段锁保护。
+ */
+final class ZListpack {
+    private static final int INITIAL_CAPACITY = 32;
+    private static final int SCORE_BYTES = 8;
+
+    private byte[] data = new byte[INITIAL_CAPACITY];
+    private int used = 0;
+    private int size = 0;
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * 缓冲区的总字节数，用于估算内存。
+     */
+    int bufferBytes() {
+        return data.length;
+    }
+
+    int first() {
+        return 0;
+    }
+
+    int end() {
+        return used;
+    }
+
+    int next(int pos) {
+        int len = readVarint(data, pos + SCORE_BYTES);
+        return pos + SCORE_BYTES + varintSize(len) + len;
+    }
+
+    double score(int pos) {
+        long bits = 0;
+        for (int i = 0; i < SCORE_BYTES; i++) {
+            bits = (bits << 8) | (data[pos + i] & 0xFF);
+        }
+        return Double.longBitsToDouble(bits);
+    }
+
+    byte[] member(int pos) {
+        int len = readVarint(data, pos + SCORE_BYTES);
+        int start = pos + SCORE_BYTES + varintSize(len);
+        return Arrays.copyOfRange(data, start, start + len);
+    }
+
+    /**
+     * 按成员查找条目，只比较字节，不创建对象。
+     * @return 条目的位置，不存在时返回 -1
+     */
+    int find(byte[] member) {
+        for (int pos = 0; pos < used; pos = next(pos)) {
+            if (compareMember(pos, member) == 0) {
+                return pos;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 条目的成员与 member 按无符号字节的字典序比较，与 ByteKey.compareTo 一致。
+     */
+    int compareMember(int pos, byte[] member) {
+        int len = readVarint(data, pos + SCORE_BYTES);
+        int start = pos + SCORE_BYTES + varintSize(len);
+        return Arrays.compareUnsigned(data, start, start + len, member, 0, member.length);
+    }
+
+    /**
+     * 按 (score, member) 的顺序插入一个新条目，调用方保证 member 不在集合中。
+     */
+    void insert(double score, byte[] member) {
+        int pos = 0;
+        while (pos < used) {
+            double current = score(pos);
+            if (current > score || (current == score && compareMember(pos, member) > 0)) {
+                break;
+            }
+            pos = next(pos);
+        }
+        int need = SCORE_BYTES + varintSize(member.length) + member.length;
+        if (used + need > data.length) {
+            data = Arrays.copyOf(data, Math.max(used + need, data.length * 2));
+        }
+        System.arraycopy(data, pos, data, pos + need, used - pos);
+        long bits = Double.doubleToLongBits(score);
+        for (int i = SCORE_BYTES - 1; i >= 0; i--) {
+            data[pos + i] = (byte) bits;
+            bits >>>= 8;
+        }
+        int p = pos + SCORE_BYTES;
+        int len = member.length;
+        while (len >= 0x80) {
+            data[p++] = (byte) (len | 0x80);
+            len >>>= 7;
+        }
+        data[p++] = (byte) len;
+        System.arraycopy(member, 0, data, p, member.length);
+        used += need;
+        size++;
+    }
+
+    /**
+     * 删除 pos 处的条目，之后的条目前移，pos 变为原来下一个条目的位置。
+     */
+    void delete(int pos) {
+        int next = next(pos);
+        System.arraycopy(data, next, data, pos, used - next);
+        used -= next - pos;
+        size--;
+    }
+
+    private static int varintSize(int value) {
+        int size = 1;
+        while (value >= 0x80) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    private static int readVarint(byte[] buf, int pos) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buf[pos++];
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+}
@@ -0,0 +1,323 @@
+package Storage;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+
+/**
+ * @author Achilles
+ * 有序集合的跳表，移植自 Redis 的 zskiplist（t_zset.c）。
+ * 节点按 (score, member) 排序，member 按无符号字节的字典序比较。
+ * 每一层的前向指针都记录跨度（span，跳过的节点数），查找时累加跨度即可得到排名，
+ * 因此按成员求排名、按排名取节点都是 O(log n)，按排名取一段是 O(log n + m)。
+ * 不是线程安全的，由所属 key 的段锁保护。
+ */
+final class ZSkipList {
+    static final int MAX_LEVEL = 32;
+
+    static final class Node {
+        final ByteKey member;
+        double score;
+        Node backward;
+        final Node[] forward;
+        final int[] span;
+
+        private Node(int level, double score, ByteKey member) {
+            this.member = member;
+            this.score = score;
+            this.forward = new Node[level];
+            this.span = new int[level];
+        }
+
+        Node next() {
+            return forward[0];
+        }
+
+        Node prev() {
+            return backward;
+        }
+    }
+
+    /**
+     * 按分数或按字典序给出的区间，与跳表的排序方向一致：
+     * 满足 gteMin 的节点是一段后缀，满足 lteMax 的节点是一段前缀，两者的交集就是区间内的节点。
+     */
+    interface Range {
+        boolean gteMin(double score, ByteKey member);
+
+        boolean lteMax(double score, ByteKey member);
+    }
+
+    private final Node header = new Node(MAX_LEVEL, 0, null);
+    private Node tail;
+    private int length = 0;
+    private int level = 1;
+
+    int length() {
+        return length;
+    }
+
+    Node first() {
+        return header.forward[0];
+    }
+
+    Node last() {
+        return tail;
+    }
+
+    /**
+     * 插入一个新节点，调用方保证 member 不在跳表中。
+     */
+    Node insert(double score, ByteKey member) {
+        Node[] update = new Node[MAX_LEVEL];
+        int[] rank = new int[MAX_LEVEL];
+        Node x = header;
+        for (int i = level - 1; i >= 0; i--) {
+            rank[i] = i == level - 1 ? 0 : rank[i + 1];
+            while (x.forward[i] != null && before(x.forward[i], score, member)) {
+                rank[i] += x.span[i];
+                x = x.forward[i];
+            }
+            update[i] = x;
+        }
+        int newLevel = randomLevel();
+        if (newLevel > level) {
+            for (int i = level; i < newLevel; i++) {
+                rank[i] = 0;
+                update[i] = header;
+                update[i].span[i] = length;
+            }
+            level = newLevel;
+        }
+        x = new Node(newLevel, score, member);
+        for (int i = 0; i < newLevel; i++) {
+            x.forward[i] = update[i].forward[i];
+            update[i].forward[i] = x;
+            // 新节点的跨度等于原跨度减去插入位置之前已经走过的部分
+            x.span[i] = update[i].span[i] - (rank[0] - rank[i]);
+            update[i].span[i] = (rank[0] - rank[i]) + 1;
+        }
+        // 更高的层没有指向新节点，但跨过了它
+        for (int i = newLevel; i < level; i++) {
+            update[i].span[i]++;
+        }
+        x.backward = update[0] == header ? null : update[0];
+        if (x.forward[0] != null) {
+            x.forward[0].backward = x;
+        } else {
+            tail = x;
+        }
+        length++;
+        return x;
+    }
+
+    /**
+     * 删除 (score, member) 对应的节点。
+     * @return 是否找到并删除
+     */
+    boolean delete(double score, ByteKey member) {
+        Node[] update = new Node[MAX_LEVEL];
+        Node x = header;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.forward[i] != null && before(x.forward[i], score, member)) {
+                x = x.forward[i];
+            }
+            update[i] = x;
+        }
+        x = x.forward[0];
+        if (x != null && x.score == score && x.member.equals(member)) {
+            deleteNode(x, update);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 修改成员的分数。新分数仍落在前后节点之间时原地修改，否则删除后重新插入。
+     * @return 修改后成员所在的节点（可能是新节点）
+     */
+    Node updateScore(double currentScore, ByteKey member, double newScore) {
+        Node[] update = new Node[MAX_LEVEL];
+        Node x = header;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.forward[i] != null && before(x.forward[i], currentScore, member)) {
+                x = x.forward[i];
+            }
+            update[i] = x;
+        }
+        x = x.forward[0];
+        if ((x.backward == null || x.backward.score < newScore)
+                && (x.forward[0] == null || x.forward[0].score > newScore)) {
+            x.score = newScore;
+            return x;
+        }
+        deleteNode(x, update);
+        return insert(newScore, member);
+    }
+
+    /**
+     * @return 从 1 开始的排名，成员不存在时返回 0
+     */
+    int getRank(double score, ByteKey member) {
+        int rank = 0;
+        Node x = header;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.forward[i] != null && !after(x.forward[i], score, member)) {
+                rank += x.span[i];
+                x = x.forward[i];
+            }
+            // header 的 member 为 null
+            if (x.member != null && x.member.equals(member)) {
+                return rank;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @param rank 从 1 开始的排名
+     * @return 对应的节点，超出范围时返回 null
+     */
+    Node getByRank(int rank) {
+        int traversed = 0;
+        Node x = header;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.forward[i] != null && traversed + x.span[i] <= rank) {
+                traversed += x.span[i];
+                x = x.forward[i];
+            }
+            if (traversed == rank) {
+                return x == header ? null : x;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return 区间内的第一个节点，区间内没有节点时返回 null
+     */
+    Node firstInRange(Range range) {
+        Node x = header;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.forward[i] != null && !range.gteMin(x.forward[i].score, x.forward[i].member)) {
+                x = x.forward[i];
+            }
+        }
+        x = x.forward[0];
+        return x != null && range.lteMax(x.score, x.member) ? x : null;
+    }
+
+    /**
+     * @return 区间内的最后一个节点，区间内没有节点时返回 null
+     */
+    Node lastInRange(Range range) {
+        Node x = header;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.forward[i] != null && range.lteMax(x.forward[i].score, x.forward[i].member)) {
+                x = x.forward[i];
+            }
+        }
+        return x != header && range.gteMin(x.score, x.member) ? x : null;
+    }
+
+    /**
+     * 删除区间内的所有节点：一次查找定位到区间起点，之后沿最底层逐个删除，复用同一组 update。
+     * @param removed 每删除一个节点回调一次
+     * @return 删除的节点数
+     */
+    int deleteRange(Range range, Consumer<Node> removed) {
+        Node[] update = new Node[MAX_LEVEL];
+        Node x = header;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.forward[i] != null && !range.gteMin(x.forward[i].score, x.forward[i].member)) {
+                x = x.forward[i];
+            }
+            update[i] = x;
+        }
+        x = x.forward[0];
+        int deleted = 0;
+        while (x != null && range.lteMax(x.score, x.member)) {
+            Node next = x.forward[0];
+            deleteNode(x, update);
+            removed.accept(x);
+            deleted++;
+            x = next;
+        }
+        return deleted;
+    }
+
+    /**
+     * 删除排名在 [start, end] 内的节点（从 1 开始，调用方保证在范围内）。
+     * @param removed 每删除一个节点回调一次
+     * @return 删除的节点数
+     */
+    int deleteRangeByRank(int start, int end, Consumer<Node> removed) {
+        Node[] update = new Node[MAX_LEVEL];
+        int traversed = 0;
+        Node x = header;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.forward[i] != null && traversed + x.span[i] < start) {
+                traversed += x.span[i];
+                x = x.forward[i];
+            }
+            update[i] = x;
+        }
+        traversed++;
+        x = x.forward[0];
+        int deleted = 0;
+        while (x != null && traversed <= end) {
+            Node next = x.forward[0];
+            deleteNode(x, update);
+            removed.accept(x);
+            deleted++;
+            traversed++;
+            x = next;
+        }
+        return deleted;
+    }
+
+    private void deleteNode(Node x, Node[] update) {
+        for (int i = 0; i < level; i++) {
+            if (update[i].forward[i] == x) {
+                update[i].span[i] += x.span[i] - 1;
+                update[i].forward[i] = x.forward[i];
+            } else {
+                update[i].span[i] -= 1;
+            }
+        }
+        if (x.forward[0] != null) {
+            x.forward[0].backward = x.backward;
+        } else {
+            tail = x.backward;
+        }
+        while (level > 1 && header.forward[level - 1] == null) {
+            level--;
+        }
+        length--;
+    }
+
+    /**
+     * 节点 x 是否排在 (score, member) 之前。
+     */
+    private static boolean before(Node x, double score, ByteKey member) {
+        return x.score < score || (x.score == score && x.member.compareTo(member) < 0);
+    }
+
+    /**
+     * 节点 x 是否排在 (score, member) 之后。
+     */
+    private static boolean after(Node x, double score, ByteKey member) {
+        return x.score > score || (x.score == score && x.member.compareTo(member) > 0);
+    }
+
+    /**
+     * 每升高一层的概率为 1/4，与 Redis 的 ZSKIPLIST_P 相同。
+     */
+    private static int randomLevel() {
+        int level = 1;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (level < MAX_LEVEL && random.nextInt(4) == 0) {
+            level++;
+        }
+        return level;
+    }
+}
@@ -0,0 +1,91 @@
+package util;
+
+/**
+ * @author Achilles
+ * glob 风格的模式匹配，移植自 Redis 的 stringmatchlen（util.c），用于 SCAN 一类命令的 MATCH 选项。
+ * 支持 *、?、[abc]、[^abc]、[a-z] 以及用 \ 转义，按字节比较，区分大小写。
+ */
+public class GlobUtil {
+
+    public static boolean matches(byte[] pattern, byte[] string) {
+        return matches(pattern, 0, string, 0);
+    }
+
+    private static boolean matches(byte[] pattern, int p, byte[] string, int s) {
+        while (p < pattern.length && s < string.length) {
+            switch (pattern[p]) {
+                case '*':
+                    // 连续的 * 等价于一个
+                    while (p + 1 < pattern.length && pattern[p + 1] == '*') {
+                        p++;
+                    }
+                    if (p + 1 == pattern.length) {
+                        return true;
+                    }
+                    for (int i = s; i < string.length; i++) {
+                        if (matches(pattern, p + 1, string, i)) {
+                            return true;
+                        }
+                    }
+                    return false;
+                case '?':
+                    s++;
+                    break;
+                case '[': {
+                    p++;
+                    boolean not = p < pattern.length && pattern[p] == '^';
+                    if (not) {
+                        p++;
+                    }
+                    boolean match = false;
+                    while (p < pattern.length && pattern[p] != ']') {
+                        if (pattern[p] == '\\' && p + 1 < pattern.length) {
+                            p++;
+                            match |= pattern[p] == string[s];
+                        } else if (p + 2 < pattern.length && pattern[p + 1] == '-') {
+                            int start = pattern[p] & 0xFF;
+                            int end = pattern[p + 2] & 0xFF;
+                            int c = string[s] & 0xFF;
+                            match |= c >= Math.min(start, end) && c <= Math.max(start, end);
+                            p += 2;
+                        } else {
+                            match |= pattern[p] == string[s];
+                        }
+                        p++;
+                    }
+                    if (p == pattern.length) {
+                        // 没有闭合的 ]，与 Redis 一样把模式末尾当作 ]
+                        p--;
+                    }
+                    if (not == match) {
+                        return false;
+                    }
+                    s++;
+                    break;
+                }
+                case '\\':
+                    // 转义后按普通字符比较，末尾单独的 \ 匹配它自己
+                    if (p + 1 < pattern.length) {
+                        p++;
+                    }
+                    if (pattern[p] != string[s]) {
+                        return false;
+                    }
+                    s++;
+                    break;
+                default:
+                    if (pattern[p] != string[s]) {
+                        return false;
+                    }
+                    s++;
+                    break;
+            }
+            p++;
+        }
+        // 字符串已经用完，剩下的模式只能全是 *
+        while (p < pattern.length && pattern[p] == '*') {
+            p++;
+        }
+        return p == pattern.length && s == string.length;
+    }
+}
@@ -0,0 +1,55 @@
+package util;
+
+import java.util.Locale;
+
+/**
+ * @author Achilles
+ * 解析 redis.conf 风格的内存大小，例如 "32mb"、"1gb"、"64k" 或纯字节数。
+ * 与 Redis 一致：k/m/g 以 1000 为单位，kb/mb/gb 以 1024 为单位，不区分大小写。
+ * formatBytes 则生成 INFO 中 *_human 字段的格式，例如 "1.50M"。
+ */
+public class MemoryUtil {
+
+    public static long parseBytes(String text) {
+        String value = text.trim().toLowerCase();
+        long multiplier = 1;
+        int unitLength = 0;
+        if (value.endsWith("kb")) {
+            multiplier = 1024L;
+            unitLength = 2;
+        } else if (value.endsWith("mb")) {
+            multiplier = 1024L * 1024;
+            unitLength = 2;
+        } else if (value.endsWith("gb")) {
+            multiplier = 1024L * 1024 * 1024;
+            unitLength = 2;
+        } else if (value.endsWith("k")) {
+            multiplier = 1000L;
+            unitLength = 1;
+        } else if (value.endsWith("m")) {
+            multiplier = 1000L * 1000;
+            unitLength = 1;
+        } else if (value.endsWith("g")) {
+            multiplier = 1000L * 1000 * 1000;
+            unitLength = 1;
+        } else if (value.endsWith("b")) {
+            unitLength = 1;
+        }
+        long number = Long.parseLong(value.substring(0, value.length() - unitLength));
+        if (number < 0) {
+            throw new NumberFormatException("memory size can't be negative: " + text);
+        }
+        return number * multiplier;
+    }
+
+    public static String formatBytes(long bytes) {
+        String[] units = {"B", "K", "M", "G", "T"};
+        double value = bytes;
+        int unit = 0;
+        while (value >= 1024 && unit < units.length - 1) {
+            value /= 1024;
+            unit++;
+        }
+        return unit == 0 ? bytes + "B" : String.format(Locale.ROOT, "%.2f%s", value, units[unit]);
+    }
+}
@@ -1,5 +1,6 @@
 package util;
 
+import Storage.ByteKey;
 import Storage.DataStore;
 import Storage.ValueEntry;
 
@@ -104,16 +105,16 @@ public class RdbParser {
     }
 
     private  void readKeyValuePair(long expireTime) throws IOException{
-        String key=readString();
-        String value=readString();
+        // key 和值按原始字节读取，保持二进制安全
+        byte[] key=readBytes();
+        byte[] value=readBytes();
 
-        dataStore.setString(key, new ValueEntry(value.getBytes(StandardCharsets.UTF_8), expireTime));
+        dataStore.setString(ByteKey.wrap(key), ValueEntry.of(value, expireTime));
     }
 
-    private String readString() throws IOException{
+    private byte[] readBytes() throws IOException{
         int length=readLengthEncodedInt();
-        byte[] bytes= bis.readNBytes(length);
-        return new String(bytes,StandardCharsets.UTF_8);
+        return bis.readNBytes(length);
     }
 
     private int readLengthEncodedInt() throws IOException{
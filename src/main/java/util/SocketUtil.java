@@ -0,0 +1,47 @@
+package util;
+
+import jdk.net.ExtendedSocketOptions;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.net.SocketOption;
+import java.net.StandardSocketOptions;
+import java.nio.channels.NetworkChannel;
+import java.util.Set;
+
+/**
+ * @author Achilles
+ * 客户端连接的 socket 选项设置。
+ * tcp-keepalive 与 Redis 含义相同：空闲 N 秒后开始探测，之后每 N/3 秒探测一次；
+ * 平台不支持的选项（例如 Unix 域套接字上的 keepalive）直接跳过。
+ */
+public class SocketUtil {
+
+    public static void configureKeepAlive(Socket socket, int seconds) throws IOException {
+        if (seconds <= 0) {
+            return;
+        }
+        socket.setKeepAlive(true);
+        Set<SocketOption<?>> supported = socket.supportedOptions();
+        if (supported.contains(ExtendedSocketOptions.TCP_KEEPIDLE)) {
+            socket.setOption(ExtendedSocketOptions.TCP_KEEPIDLE, seconds);
+        }
+        if (supported.contains(ExtendedSocketOptions.TCP_KEEPINTERVAL)) {
+            socket.setOption(ExtendedSocketOptions.TCP_KEEPINTERVAL, Math.max(1, seconds / 3));
+        }
+    }
+
+    public static void configureKeepAlive(NetworkChannel channel, int seconds) throws IOException {
+        Set<SocketOption<?>> supported = channel.supportedOptions();
+        if (seconds <= 0 || !supported.contains(StandardSocketOptions.SO_KEEPALIVE)) {
+            return;
+        }
+        channel.setOption(StandardSocketOptions.SO_KEEPALIVE, true);
+        if (supported.contains(ExtendedSocketOptions.TCP_KEEPIDLE)) {
+            channel.setOption(ExtendedSocketOptions.TCP_KEEPIDLE, seconds);
+        }
+        if (supported.contains(ExtendedSocketOptions.TCP_KEEPINTERVAL)) {
+            channel.setOption(ExtendedSocketOptions.TCP_KEEPINTERVAL, Math.max(1, seconds / 3));
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package Storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DataStoreTest {
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void rpushReplacesExpiredStringAfterGet() throws Exception {
+        DataStore store = DataStore.getInstance();
+        ByteKey key = ByteKey.of("expired-string-then-rpush");
+        store.setString(key, ValueEntry.of(bytes("v"), System.currentTimeMillis() - 1));
+
+        // GET 只把 key 记入 lazyExpired，key 还留在键空间里
+        assertNull(store.getString(key));
+        assertEquals("none", store.getType(key));
+
+        assertEquals(1, store.rpush(key, List.of(bytes("x"))));
+        assertEquals("list", store.getType(key));
+        assertEquals(1, store.llen(key));
+    }
+
+    @Test
+    void zaddAcceptsInfiniteScores() throws Exception {
+        DataStore store = DataStore.getInstance();
+        ByteKey key = ByteKey.of("zadd-inf");
+        assertEquals(2, store.zadd(key, List.of(bytes("+inf"), bytes("a"), bytes("-INF"), bytes("b"))));
+        assertEquals(Double.POSITIVE_INFINITY, store.zscore(key, bytes("a")));
+        assertEquals(Double.NEGATIVE_INFINITY, store.zscore(key, bytes("b")));
+    }
+
+    @Test
+    void rejectedZaddLeavesNoKey() {
+        DataStore store = DataStore.getInstance();
+        ByteKey key = ByteKey.of("zadd-rejected");
+        assertThrows(NumberFormatException.class,
+                () -> store.zadd(key, List.of(bytes("1"), bytes("a"), bytes("nan"), bytes("b"))));
+        assertEquals("none", store.getType(key));
+    }
+
+    @Test
+    void poppingLastElementDeletesList() throws Exception {
+        DataStore store = DataStore.getInstance();
+        ByteKey key = ByteKey.of("list-popped-empty");
+        long usedBefore = store.getUsedMemory();
+        store.rpush(key, List.of(bytes("a"), bytes("b")));
+
+        assertEquals(2, store.lpop(key, 5).size());
+        assertEquals("none", store.getType(key));
+        assertEquals(usedBefore, store.getUsedMemory());
+    }
+
+    @Test
+    void rejectedXaddLeavesNoKey() {
+        DataStore store = DataStore.getInstance();
+        ByteKey key = ByteKey.of("xadd-rejected");
+        assertThrows(Exception.class, () -> store.xadd(key, 0, 0, Map.of(ByteKey.of("f"), bytes("v"))));
+        assertEquals("none", store.getType(key));
+    }
+}
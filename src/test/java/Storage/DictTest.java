@@ -0,0 +1,108 @@
+package Storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class DictTest {
+
+    private static ByteKey key(int i) {
+        return ByteKey.of("key:" + i);
+    }
+
+    @Test
+    void growsThroughRehashWithoutLosingEntries() {
+        Dict<Integer> dict = new Dict<>();
+        for (int i = 0; i < 10_000; i++) {
+            assertNull(dict.put(key(i), i));
+            // 每次写入之后都检查较早写入的条目，覆盖 rehash 进行中同时查旧表和新表的情况
+            assertEquals(Integer.valueOf(i / 2), dict.get(key(i / 2)));
+        }
+        assertEquals(10_000, dict.size());
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals(Integer.valueOf(i), dict.peek(key(i)));
+        }
+        assertNull(dict.get(key(10_000)));
+    }
+
+    @Test
+    void putReplacesExistingValue() {
+        Dict<String> dict = new Dict<>();
+        assertNull(dict.put(key(1), "a"));
+        assertEquals("a", dict.put(key(1), "b"));
+        assertEquals("b", dict.get(key(1)));
+        assertEquals(1, dict.size());
+    }
+
+    @Test
+    void removeKeepsProbeChainsIntactAndShrinks() {
+        Dict<Integer> dict = new Dict<>();
+        for (int i = 0; i < 5_000; i++) {
+            dict.put(key(i), i);
+        }
+        for (int i = 0; i < 5_000; i += 2) {
+            assertEquals(Integer.valueOf(i), dict.remove(key(i)));
+        }
+        assertNull(dict.remove(key(0)));
+        assertEquals(2_500, dict.size());
+        for (int i = 0; i < 5_000; i++) {
+            assertEquals(i % 2 == 0 ? null : Integer.valueOf(i), dict.get(key(i)));
+        }
+
+        // 删到只剩很少的条目会触发缩容，剩下的条目仍然都能找到
+        for (int i = 1; i < 4_990; i += 2) {
+            dict.remove(key(i));
+        }
+        for (int i = 0; i < 100; i++) {
+            dict.put(key(100_000 + i), i);
+        }
+        for (int i = 4_991; i < 5_000; i += 2) {
+            assertEquals(Integer.valueOf(i), dict.get(key(i)));
+        }
+        assertEquals(105, dict.size());
+    }
+
+    @Test
+    void randomOperationsMatchHashMap() {
+        Dict<Integer> dict = new Dict<>();
+        Map<ByteKey, Integer> reference = new HashMap<>();
+        Random random = new Random(42);
+        for (int op = 0; op < 200_000; op++) {
+            ByteKey k = key(random.nextInt(3_000));
+            int choice = random.nextInt(10);
+            if (choice < 5) {
+                int value = random.nextInt();
+                assertEquals(reference.put(k, value), dict.put(k, value));
+            } else if (choice < 8) {
+                assertEquals(reference.remove(k), dict.remove(k));
+            } else {
+                assertEquals(reference.get(k), dict.get(k));
+            }
+            assertEquals(reference.size(), dict.size());
+        }
+        Set<ByteKey> keys = new HashSet<>();
+        dict.forEachKey(keys::add);
+        assertEquals(reference.keySet(), keys);
+    }
+
+    @Test
+    void sampleVisitsOnlyLiveEntries() {
+        Dict<Integer> dict = new Dict<>();
+        for (int i = 0; i < 1_000; i++) {
+            dict.put(key(i), i);
+        }
+        for (int i = 0; i < 1_000; i += 3) {
+            dict.remove(key(i));
+        }
+        for (int start = 0; start < 2_048; start += 97) {
+            dict.sample(start, 16, (k, value, meta) -> assertEquals(value, dict.peek(k)));
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package Storage;
+
+import Service.Protocol;
+import Service.ReplyBuffer;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QuickListTest {
+
+    private static byte[] element(int i) {
+        // 重复的内容便于 Deflate 压缩
+        return ("element-" + i + "-padding-padding-padding").getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * 把 range 写出的 RESP 数组解析回元素列表。
+     */
+    private static List<byte[]> range(QuickList list, int start, int end) throws IOException {
+        ReplyBuffer out = new ReplyBuffer();
+        list.range(start, end).writeTo(out);
+        return new Protocol(new ByteArrayInputStream(out.toByteArray())).readCommand();
+    }
+
+    private static void assertContents(List<byte[]> expected, QuickList list) throws IOException {
+        assertEquals(expected.size(), list.size());
+        List<byte[]> actual = range(list, 0, list.size() - 1);
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertArrayEquals(expected.get(i), actual.get(i), "element " + i);
+        }
+    }
+
+    @Test
+    void pushAndPopAcrossNodes() throws IOException {
+        QuickList list = new QuickList(8, 0);
+        List<byte[]> expected = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            list.pushLast(element(i));
+            expected.add(element(i));
+        }
+        for (int i = 100; i < 150; i++) {
+            list.pushFirst(element(i));
+            expected.add(0, element(i));
+        }
+        assertTrue(list.nodeCount() >= 150 / 8);
+        assertContents(expected, list);
+
+        for (int i = 0; i < 60; i++) {
+            assertArrayEquals(expected.remove(0), list.popFirst());
+        }
+        assertContents(expected, list);
+        while (!expected.isEmpty()) {
+            assertArrayEquals(expected.remove(0), list.popFirst());
+        }
+        assertNull(list.popFirst());
+        assertEquals(0, list.nodeCount());
+        assertEquals(0, list.bufferBytes());
+    }
+
+    @Test
+    void rangeStartsAndEndsInsideNodes() throws IOException {
+        QuickList list = new QuickList(5, 0);
+        for (int i = 0; i < 23; i++) {
+            list.pushLast(element(i));
+        }
+        List<byte[]> slice = range(list, 3, 17);
+        assertEquals(15, slice.size());
+        for (int i = 0; i < slice.size(); i++) {
+            assertArrayEquals(element(i + 3), slice.get(i));
+        }
+        assertArrayEquals(element(22), range(list, 22, 22).get(0));
+    }
+
+    @Test
+    void compressesInnerNodesAndReadsThemBack() throws IOException {
+        QuickList plain = new QuickList(8, 0);
+        QuickList compressed = new QuickList(8, 1);
+        List<byte[]> expected = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            plain.pushLast(element(i));
+            compressed.pushLast(element(i));
+            expected.add(element(i));
+        }
+        assertTrue(compressed.bufferBytes() < plain.bufferBytes(),
+                compressed.bufferBytes() + " should be below " + plain.bufferBytes());
+        assertContents(expected, compressed);
+
+        // 从头部弹出时内部节点依次变成端点，需要解压后继续使用
+        for (int i = 0; i < 350; i++) {
+            assertArrayEquals(expected.remove(0), compressed.popFirst());
+            if (i % 50 == 0) {
+                assertContents(expected, compressed);
+            }
+        }
+        for (int i = 0; i < 30; i++) {
+            compressed.pushFirst(element(1_000 + i));
+            expected.add(0, element(1_000 + i));
+        }
+        assertContents(expected, compressed);
+    }
+
+    @Test
+    void randomOperationsMatchArrayDeque() throws IOException {
+        QuickList list = new QuickList(-1, 2);
+        Deque<byte[]> reference = new ArrayDeque<>();
+        Random random = new Random(3);
+        for (int op = 0; op < 20_000; op++) {
+            int choice = random.nextInt(10);
+            byte[] value = new byte[random.nextInt(300)];
+            random.nextBytes(value);
+            if (choice < 4) {
+                list.pushLast(value);
+                reference.addLast(value);
+            } else if (choice < 7) {
+                list.pushFirst(value);
+                reference.addFirst(value);
+            } else {
+                assertArrayEquals(reference.pollFirst(), list.popFirst());
+            }
+        }
+        assertContents(new ArrayList<>(reference), list);
+    }
+}
@@ -0,0 +1,133 @@
+package Storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RedisHashTest {
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static Map<String, String> contents(RedisHash hash) {
+        List<byte[]> all = hash.getAll();
+        Map<String, String> map = new HashMap<>();
+        for (int i = 0; i < all.size(); i += 2) {
+            map.put(new String(all.get(i), StandardCharsets.UTF_8), new String(all.get(i + 1), StandardCharsets.UTF_8));
+        }
+        return map;
+    }
+
+    @Test
+    void smallHashStaysListpack() {
+        RedisHash hash = new RedisHash(4, 16);
+        assertEquals(1, hash.put(bytes("a"), bytes("1")));
+        assertEquals(1, hash.put(bytes("b"), bytes("2")));
+        assertEquals(0, hash.put(bytes("a"), bytes("longer value")));
+        assertEquals("listpack", hash.getEncoding());
+        assertArrayEquals(bytes("longer value"), hash.get(bytes("a")));
+        assertEquals(1, hash.remove(bytes("b")));
+        assertEquals(0, hash.remove(bytes("b")));
+        assertFalse(hash.containsField(bytes("b")));
+        assertEquals(1, hash.size());
+        assertEquals(bytes("a").length + bytes("longer value").length, hash.dataBytes());
+    }
+
+    @Test
+    void convertsWhenEntryCountIsExceeded() {
+        RedisHash hash = new RedisHash(4, 16);
+        Map<String, String> expected = new HashMap<>();
+        for (int i = 0; i < 4; i++) {
+            hash.put(bytes("f" + i), bytes("v" + i));
+            expected.put("f" + i, "v" + i);
+        }
+        assertTrue(hash.isListpack());
+        // 覆盖已有字段不增加字段数，不触发转换
+        hash.put(bytes("f0"), bytes("v0"));
+        assertTrue(hash.isListpack());
+
+        hash.put(bytes("f4"), bytes("v4"));
+        expected.put("f4", "v4");
+        assertEquals("hashtable", hash.getEncoding());
+        assertEquals(expected, contents(hash));
+        assertEquals(5, hash.size());
+    }
+
+    @Test
+    void convertsWhenFieldOrValueIsTooLong() {
+        RedisHash longValue = new RedisHash(128, 8);
+        longValue.put(bytes("a"), bytes("1"));
+        longValue.put(bytes("b"), bytes("123456789"));
+        assertEquals("hashtable", longValue.getEncoding());
+        assertArrayEquals(bytes("1"), longValue.get(bytes("a")));
+        assertArrayEquals(bytes("123456789"), longValue.get(bytes("b")));
+
+        RedisHash longField = new RedisHash(128, 8);
+        longField.put(bytes("a"), bytes("1"));
+        longField.put(bytes("a-very-long-field"), bytes("2"));
+        assertEquals("hashtable", longField.getEncoding());
+        assertEquals(2, longField.size());
+
+        // 已有字段改成过长的值同样触发转换
+        RedisHash update = new RedisHash(128, 8);
+        update.put(bytes("a"), bytes("1"));
+        assertEquals(0, update.put(bytes("a"), bytes("123456789")));
+        assertEquals("hashtable", update.getEncoding());
+        assertArrayEquals(bytes("123456789"), update.get(bytes("a")));
+        assertEquals(1, update.size());
+    }
+
+    @Test
+    void hashtableNeverConvertsBack() {
+        RedisHash hash = new RedisHash(2, 64);
+        for (int i = 0; i < 3; i++) {
+            hash.put(bytes("f" + i), bytes("v"));
+        }
+        hash.remove(bytes("f0"));
+        hash.remove(bytes("f1"));
+        assertEquals("hashtable", hash.getEncoding());
+        assertNull(hash.get(bytes("f0")));
+        assertEquals(1, hash.size());
+    }
+
+    @Test
+    void scanVisitsEveryFieldAcrossResizes() {
+        RedisHash hash = new RedisHash(8, 64);
+        Map<String, String> expected = new HashMap<>();
+        Random random = new Random(5);
+        for (int i = 0; i < 2_000; i++) {
+            String field = "field-" + random.nextInt(1_500);
+            if (random.nextInt(4) == 0) {
+                hash.remove(bytes(field));
+                expected.remove(field);
+            } else {
+                hash.put(bytes(field), bytes("value-" + i));
+                expected.put(field, "value-" + i);
+            }
+        }
+        assertEquals(expected, contents(hash));
+
+        List<byte[]> scanned = new ArrayList<>();
+        int cursor = 0;
+        do {
+            cursor = hash.scan(cursor, 10, null, true, scanned);
+        } while (cursor != 0);
+        Map<String, String> fields = new HashMap<>();
+        for (byte[] field : scanned) {
+            fields.put(new String(field, StandardCharsets.UTF_8), null);
+        }
+        assertEquals(expected.keySet(), fields.keySet());
+    }
+}
@@ -0,0 +1,98 @@
+package Storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RedisSortedSetTest {
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static List<String> strings(List<byte[]> values) {
+        List<String> result = new ArrayList<>(values.size());
+        for (byte[] value : values) {
+            result.add(new String(value, StandardCharsets.UTF_8));
+        }
+        return result;
+    }
+
+    private static RedisSortedSet.ScoreRange scores(String min, String max) throws Exception {
+        return RedisSortedSet.ScoreRange.parse(bytes(min), bytes(max));
+    }
+
+    private static RedisSortedSet.LexRange lex(String min, String max) throws Exception {
+        return RedisSortedSet.LexRange.parse(bytes(min), bytes(max));
+    }
+
+    /**
+     * 同样的成员分别放进 listpack 编码和跳表编码的集合，两种编码的查询结果必须一致。
+     */
+    private static List<RedisSortedSet> bothEncodings(double[] scores, String[] members) {
+        RedisSortedSet listpack = new RedisSortedSet(128, 64);
+        RedisSortedSet skiplist = new RedisSortedSet(0, 64);
+        for (int i = 0; i < members.length; i++) {
+            listpack.add(scores[i], bytes(members[i]));
+            skiplist.add(scores[i], bytes(members[i]));
+        }
+        assertEquals("listpack", listpack.getEncoding());
+        assertEquals("skiplist", skiplist.getEncoding());
+        return List.of(listpack, skiplist);
+    }
+
+    @Test
+    void scoreRangeParsing() throws Exception {
+        for (RedisSortedSet set : bothEncodings(new double[]{1, 2, 3, 4, 5}, new String[]{"a", "b", "c", "d", "e"})) {
+            assertEquals(List.of("b", "c", "d"), strings(set.rangeByScore(scores("2", "4"), false, 0, -1, false)));
+            assertEquals(List.of("c"), strings(set.rangeByScore(scores("(2", "(4"), false, 0, -1, false)));
+            assertEquals(List.of("a", "b", "c", "d", "e"), strings(set.rangeByScore(scores("-inf", "+inf"), false, 0, -1, false)));
+            assertEquals(List.of("e", "d"), strings(set.rangeByScore(scores("(3", "inf"), true, 0, -1, false)));
+            assertEquals(List.of("c", "d"), strings(set.rangeByScore(scores("-inf", "+inf"), false, 2, 2, false)));
+            assertEquals(List.of("b", "2.0"), strings(set.rangeByScore(scores("2", "2"), false, 0, -1, true)));
+            assertEquals(3, set.count(scores("(1", "4")));
+            assertEquals(0, set.count(scores("4", "2")));
+        }
+        assertThrows(Exception.class, () -> scores("abc", "1"));
+        assertThrows(Exception.class, () -> scores("1", "nan"));
+        assertThrows(Exception.class, () -> scores("(", "1"));
+    }
+
+    @Test
+    void lexRangeParsing() throws Exception {
+        double[] zeros = new double[5];
+        for (RedisSortedSet set : bothEncodings(zeros, new String[]{"a", "b", "c", "d", "e"})) {
+            assertEquals(List.of("a", "b", "c", "d", "e"), strings(set.rangeByLex(lex("-", "+"), 0, -1)));
+            assertEquals(List.of("b", "c"), strings(set.rangeByLex(lex("[b", "(d"), 0, -1)));
+            assertEquals(List.of("c", "d", "e"), strings(set.rangeByLex(lex("(b", "+"), 0, -1)));
+            assertEquals(List.of("d"), strings(set.rangeByLex(lex("-", "[e"), 3, 1)));
+            assertTrue(set.rangeByLex(lex("+", "-"), 0, -1).isEmpty());
+            assertTrue(set.rangeByLex(lex("+", "+"), 0, -1).isEmpty());
+        }
+        assertThrows(Exception.class, () -> lex("a", "[b"));
+        assertThrows(Exception.class, () -> lex("[a", ""));
+    }
+
+    @Test
+    void removeRanges() throws Exception {
+        double[] scores = new double[20];
+        String[] members = new String[20];
+        for (int i = 0; i < 20; i++) {
+            scores[i] = i;
+            members[i] = "m" + (char) ('a' + i);
+        }
+        for (RedisSortedSet set : bothEncodings(scores, members)) {
+            assertEquals(List.of("md", "me", "mf"), strings(set.removeRangeByScore(scores("(2", "5"))));
+            assertEquals(17, set.size());
+            assertEquals(List.of("mr", "ms", "mt"), strings(set.removeRangeByRank(-3, -1)));
+            assertEquals(List.of("ma", "mb", "mc", "mg"), strings(set.getRange(0, 3)));
+            assertEquals(3, set.getRank(bytes("mg")));
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package Storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ZSkipListTest {
+
+    private static final Comparator<ZSkipList.Node> ORDER =
+            Comparator.<ZSkipList.Node>comparingDouble(n -> n.score).thenComparing(n -> n.member);
+
+    private static ByteKey member(int i) {
+        return ByteKey.of("m" + i);
+    }
+
+    /**
+     * 每一层上每个节点的跨度都必须等于它与下一个节点的排名之差。
+     */
+    private static void assertSpans(ZSkipList zsl) {
+        int rank = 1;
+        for (ZSkipList.Node x = zsl.first(); x != null; x = x.next(), rank++) {
+            assertEquals(rank, zsl.getRank(x.score, x.member));
+            assertSame(x, zsl.getByRank(rank));
+            for (int i = 0; i < x.forward.length; i++) {
+                if (x.forward[i] != null) {
+                    assertEquals(zsl.getRank(x.forward[i].score, x.forward[i].member) - rank, x.span[i]);
+                }
+            }
+        }
+        assertEquals(zsl.length() + 1, rank);
+    }
+
+    private static List<ZSkipList.Node> nodes(ZSkipList zsl) {
+        List<ZSkipList.Node> nodes = new ArrayList<>();
+        for (ZSkipList.Node x = zsl.first(); x != null; x = x.next()) {
+            nodes.add(x);
+        }
+        return nodes;
+    }
+
+    @Test
+    void insertKeepsOrderAndBackwardLinks() {
+        ZSkipList zsl = new ZSkipList();
+        Random random = new Random(7);
+        for (int i = 0; i < 2_000; i++) {
+            zsl.insert(random.nextInt(100), member(i));
+        }
+        List<ZSkipList.Node> nodes = nodes(zsl);
+        List<ZSkipList.Node> sorted = new ArrayList<>(nodes);
+        sorted.sort(ORDER);
+        assertEquals(sorted, nodes);
+        assertSame(nodes.get(nodes.size() - 1), zsl.last());
+        for (int i = 1; i < nodes.size(); i++) {
+            assertSame(nodes.get(i - 1), nodes.get(i).prev());
+        }
+        assertNull(zsl.first().prev());
+        assertSpans(zsl);
+    }
+
+    @Test
+    void rankLookupsMatchPosition() {
+        ZSkipList zsl = new ZSkipList();
+        for (int i = 0; i < 1_000; i++) {
+            zsl.insert(i, member(i));
+        }
+        for (int i = 0; i < 1_000; i++) {
+            assertEquals(i + 1, zsl.getRank(i, member(i)));
+            assertEquals(member(i), zsl.getByRank(i + 1).member);
+        }
+        assertEquals(0, zsl.getRank(5, member(6)));
+        assertNull(zsl.getByRank(0));
+        assertNull(zsl.getByRank(1_001));
+    }
+
+    @Test
+    void spansStayCorrectAcrossDeletesAndScoreUpdates() {
+        ZSkipList zsl = new ZSkipList();
+        double[] scores = new double[1_000];
+        Random random = new Random(11);
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] = random.nextDouble();
+            zsl.insert(scores[i], member(i));
+        }
+        for (int i = 0; i < scores.length; i += 3) {
+            assertTrue(zsl.delete(scores[i], member(i)));
+        }
+        for (int i = 1; i < scores.length; i += 3) {
+            double newScore = random.nextDouble();
+            zsl.updateScore(scores[i], member(i), newScore);
+            scores[i] = newScore;
+        }
+        assertEquals(scores.length - (scores.length + 2) / 3, zsl.length());
+        List<ZSkipList.Node> nodes = nodes(zsl);
+        List<ZSkipList.Node> sorted = new ArrayList<>(nodes);
+        sorted.sort(ORDER);
+        assertEquals(sorted, nodes);
+        assertSpans(zsl);
+    }
+
+    @Test
+    void deleteRangeByRankRemovesExactlyThoseRanks() {
+        ZSkipList zsl = new ZSkipList();
+        for (int i = 0; i < 500; i++) {
+            zsl.insert(i, member(i));
+        }
+        List<ByteKey> removed = new ArrayList<>();
+        assertEquals(100, zsl.deleteRangeByRank(101, 200, node -> removed.add(node.member)));
+        assertEquals(member(100), removed.get(0));
+        assertEquals(member(199), removed.get(99));
+        assertEquals(400, zsl.length());
+        assertEquals(member(200), zsl.getByRank(101).member);
+        assertSpans(zsl);
+    }
+
+    @Test
+    void scoreRangeLookupsAndDeletes() throws Exception {
+        ZSkipList zsl = new ZSkipList();
+        for (int i = 0; i < 100; i++) {
+            zsl.insert(i, member(i));
+        }
+        RedisSortedSet.ScoreRange range = RedisSortedSet.ScoreRange.parse("(10".getBytes(), "20".getBytes());
+        assertEquals(member(11), zsl.firstInRange(range).member);
+        assertEquals(member(20), zsl.lastInRange(range).member);
+        assertNull(zsl.firstInRange(RedisSortedSet.ScoreRange.parse("100".getBytes(), "+inf".getBytes())));
+
+        assertEquals(10, zsl.deleteRange(range, node -> { }));
+        assertEquals(90, zsl.length());
+        assertNull(zsl.firstInRange(range));
+        assertSpans(zsl);
+    }
+}